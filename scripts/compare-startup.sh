@@ -0,0 +1,38 @@
+#!/usr/bin/env bash
+# Compare startup time and resident memory of the JVM and native images.
+#
+#   docker build -t edtradeplanner:jvm .
+#   docker build -f Dockerfile.native -t edtradeplanner:native .
+#   scripts/compare-startup.sh [runs]
+#
+# "ready" is the time until /actuator/health/readiness reports UP, i.e. the
+# Spring context is started and the core indexes are built. Memory is the
+# container's resident usage from docker stats, sampled once it is ready.
+set -euo pipefail
+
+RUNS=${1:-5}
+PORT=18080
+
+measure() {
+    local image=$1
+    local name=edtp-compare-$$
+    local start end ready_ms rss
+
+    start=$(date +%s%N)
+    docker run -d --rm --name "$name" -p "$PORT:8080" "$image" >/dev/null
+    until curl -sf "http://localhost:$PORT/actuator/health/readiness" >/dev/null 2>&1; do
+        sleep 0.05
+    done
+    end=$(date +%s%N)
+    ready_ms=$(( (end - start) / 1000000 ))
+    rss=$(docker stats --no-stream --format '{{.MemUsage}}' "$name" | cut -d/ -f1 | tr -d ' ')
+    docker stop "$name" >/dev/null
+
+    echo "$image ready_ms=$ready_ms mem=$rss"
+}
+
+for image in edtradeplanner:jvm edtradeplanner:native; do
+    for ((i = 1; i <= RUNS; i++)); do
+        measure "$image"
+    done
+done
@@ -0,0 +1,36 @@
+#!/usr/bin/env bash
+# Replay a plan journal against the built jar and report latency percentiles,
+# total distance and bin count per request, optionally against a baseline.
+#
+#   scripts/replay-journal.sh data/plan-journal.jsonl                          # writes data/replay-report.json
+#   cp data/replay-report.json baseline.json
+#   ... change the planner, mvn -B package -DskipTests ...
+#   scripts/replay-journal.sh data/plan-journal.jsonl baseline.json            # exits 1 on a regression
+#
+# Further arguments go to the application, e.g. another dataset:
+#   scripts/replay-journal.sh journal.jsonl baseline.json --tradeplanner.systems-json-path=other.json
+# Refit the auto-mode solver models from the journal (logs solver-* settings for tradeplanner.yml):
+#   scripts/replay-journal.sh journal.jsonl "" --tradeplanner.replay-fit-solver-model=true
+# Record a journal by running the server with --tradeplanner.plan-journal-enabled=true.
+set -euo pipefail
+
+if [[ $# -lt 1 ]]; then
+    echo "usage: $0 journal.jsonl [baseline.json] [application args...]" >&2
+    exit 2
+fi
+JOURNAL=$1
+BASELINE=${2:-}
+shift $(( $# >= 2 ? 2 : 1 ))
+JAR=$(ls target/*.jar 2>/dev/null | grep -v plain | head -n 1 || true)
+
+if [[ -z "$JAR" ]]; then
+    echo "No application jar in target/; run mvn -B package -DskipTests first" >&2
+    exit 1
+fi
+
+exec java ${JAVA_OPTS:-} -jar "$JAR" \
+    --spring.main.web-application-type=none \
+    --tradeplanner.plan-store-enabled=false \
+    --tradeplanner.replay-journal="$JOURNAL" \
+    --tradeplanner.replay-baseline="$BASELINE" \
+    "$@"
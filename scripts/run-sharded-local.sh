@@ -0,0 +1,60 @@
+#!/usr/bin/env bash
+# Run a sharded deployment on this machine: N workers, each loading only its
+# shard of the systems, and a coordinator that plans by querying them.
+#
+#   mvn -B package -DskipTests
+#   scripts/run-sharded-local.sh [workers] [coordinator-port]
+#
+# Workers listen on coordinator-port+1 .. coordinator-port+N. Logs go to
+# target/sharded/. Ctrl-C stops every process.
+set -euo pipefail
+
+WORKERS=${1:-3}
+PORT=${2:-8080}
+JAR=$(ls target/*.jar 2>/dev/null | grep -v plain | head -n 1 || true)
+LOGS=target/sharded
+
+if [[ -z "$JAR" ]]; then
+    echo "No application jar in target/; run mvn -B package -DskipTests first" >&2
+    exit 1
+fi
+mkdir -p "$LOGS"
+
+pids=()
+trap 'kill "${pids[@]}" 2>/dev/null || true' EXIT INT TERM
+
+wait_ready() {
+    local port=$1
+    until curl -sf "http://localhost:$port/actuator/health/readiness" >/dev/null 2>&1; do
+        sleep 0.5
+    done
+}
+
+urls=()
+for ((i = 0; i < WORKERS; i++)); do
+    port=$((PORT + 1 + i))
+    java ${JAVA_OPTS:-} -jar "$JAR" --server.port="$port" \
+        --tradeplanner.cluster-role=worker \
+        --tradeplanner.shard-count="$WORKERS" \
+        --tradeplanner.shard-index="$i" \
+        --tradeplanner.plan-store-enabled=false \
+        >"$LOGS/worker-$i.log" 2>&1 &
+    pids+=($!)
+    urls+=("http://localhost:$port")
+done
+
+java ${JAVA_OPTS:-} -jar "$JAR" --server.port="$PORT" \
+    --tradeplanner.cluster-role=coordinator \
+    --tradeplanner.shard-count="$WORKERS" \
+    --tradeplanner.shard-worker-urls="$(IFS=,; echo "${urls[*]}")" \
+    >"$LOGS/coordinator.log" 2>&1 &
+pids+=($!)
+
+for ((i = 0; i < WORKERS; i++)); do
+    wait_ready $((PORT + 1 + i))
+    echo "worker $i ready on port $((PORT + 1 + i))"
+done
+wait_ready "$PORT"
+echo "coordinator ready on port $PORT; logs in $LOGS/"
+
+wait
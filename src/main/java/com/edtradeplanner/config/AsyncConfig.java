@@ -6,6 +6,7 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
 
 @Configuration
 public class AsyncConfig {
@@ -20,4 +21,56 @@ public class AsyncConfig {
         executor.initialize();
         return executor;
     }
-}
\ No newline at end of file
+    
+    @Bean(name = "beamSearchTaskExecutor")
+    public Executor beamSearchTaskExecutor() {
+        // CPU-bound beam expansion, one thread per core
+        int cores = Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(cores);
+        executor.setMaxPoolSize(cores);
+        executor.setQueueCapacity(1000);
+        // A full queue expands on the planning thread rather than failing the search
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix("BeamSearch-");
+        executor.initialize();
+        return executor;
+    }
+    
+    @Bean(name = "startupTaskExecutor")
+    public Executor startupTaskExecutor() {
+        // Independent index builds at boot; idle once the data is loaded
+        int cores = Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(cores);
+        executor.setMaxPoolSize(cores);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("Startup-");
+        executor.initialize();
+        return executor;
+    }
+    
+    @Bean(name = "fleetPlanningTaskExecutor")
+    public Executor fleetPlanningTaskExecutor() {
+        // One task per fleet request; it mostly waits on its type plans in the admission queue
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("FleetPlan-");
+        executor.initialize();
+        return executor;
+    }
+    
+    @Bean(name = "shardFetchTaskExecutor")
+    public Executor shardFetchTaskExecutor() {
+        // Coordinator fan-out to shard workers; the threads mostly wait on HTTP
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(8);
+        executor.setMaxPoolSize(32);
+        executor.setQueueCapacity(1000);
+        executor.setThreadNamePrefix("ShardFetch-");
+        executor.initialize();
+        return executor;
+    }
+}
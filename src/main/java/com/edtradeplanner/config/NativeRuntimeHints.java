@@ -0,0 +1,45 @@
+package com.edtradeplanner.config;
+
+import com.edtradeplanner.model.*;
+import com.edtradeplanner.replay.ReplayReport;
+import com.edtradeplanner.model.dto.CompactRouteResponseDto;
+import com.edtradeplanner.model.dto.FleetPlanResponseDto;
+import com.edtradeplanner.model.dto.FleetRequestDto;
+import com.edtradeplanner.model.dto.RouteRequestDto;
+import com.edtradeplanner.model.dto.RouteResponseDto;
+import com.edtradeplanner.model.dto.ShardOffersRequestDto;
+import com.edtradeplanner.model.dto.SystemSearchResponseDto;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+/**
+ * Reflection and resource hints for the native image. The dataset is read
+ * through a {@code TypeReference} and responses are returned inside
+ * {@code CompletableFuture}s, neither of which Spring AOT can see through, so
+ * the Jackson models are registered explicitly along with the bundled data files.
+ */
+public class NativeRuntimeHints implements RuntimeHintsRegistrar {
+    
+    private static final Class<?>[] JSON_MODELS = {
+            StarSystem.class, Station.class, Market.class, Commodity.class, Coordinates.class,
+            Chunk.class, CommodityNeed.class, HomeSystem.class, Route.class, RouteAlternative.class,
+            RouteLeg.class, StationInfo.class, StoredPlan.class, JournalEntry.class, ReplayReport.class,
+            Ship.class, ShipSchedule.class,
+            RouteRequestDto.class, RouteResponseDto.class, CompactRouteResponseDto.class, SystemSearchResponseDto.class,
+            ShardOffersRequestDto.class, FleetRequestDto.class, FleetPlanResponseDto.class
+    };
+    
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(), JSON_MODELS);
+        
+        hints.reflection().registerType(PlannerConfig.class, MemberCategory.values());
+        
+        hints.resources()
+                .registerPattern("*.json")
+                .registerPattern("commodity_data.txt")
+                .registerPattern("tradeplanner.yml");
+    }
+}
@@ -17,7 +17,76 @@ public class PlannerConfig {
     private boolean largePadOnlyDefault = true;
     private int defaultCargoCapacity = 704;
     private double defaultMaxRange = 166.0;
+    private double maxRangeLimit = 1000.0;
     private int maxResultsLimit = 10;
+    private int nameSuggestionMaxDistance = 3;
+    private long packingTimeBudgetMs = 50;
+    private double jumpOverhead = 1.0;
+    private int maxJumpsPerLeg = 20;
+    private int maxJumpSearchesPerStep = 8;
+    private int jumpSearchMaxExpansions = 5000;
+    private double jumpGridCellSize = 20.0;
+    private long jumpCacheSize = 100_000;
+    private String defaultPlanningMode = "greedy";
+    private int defaultBeamWidth = 8;
+    private long defaultBeamTimeBudgetMs = 2000;
+    private int beamMaxAlternatives = 5;
+    private double solverMinGain = 0.002;
+    private List<Double> solverImprovedCost = List.of(-0.000432, 0.00155, -2.66e-06, 3.47e-06);
+    private List<Double> solverImprovedGain = List.of(-0.00489, 0.00495, -0.000102, 0.00207);
+    private List<Double> solverBeamCost = List.of(-0.0367, 0.0636, -0.000116, 0.000390);
+    private List<Double> solverBeamGain = List.of(0.0232, 0.0498, 0.00547, 0.139);
+    private boolean supplyAwareDefault = false;
+    private double supplyIndexCellSize = 100.0;
+    private boolean clusterCandidateSearch = true;
+    private double clusterCellSize = 50.0;
+    private boolean distanceFieldEnabled = true;
+    private double distanceFieldCellSize = 20.0;
+    private int distanceFieldMaxCells = 32_768;
+    private boolean regionalCoOccurrenceEnabled = true;
+    private double coOccurrenceRegionCellSize = 25.0;
+    private int coOccurrenceMinStations = 200;
+    private long coOccurrenceCacheSize = 1000;
+    private boolean stationMemoEnabled = true;
+    private double stationMemoCellSize = 1.0;
+    private long stationMemoCacheSize = 50_000;
+    private int stationMemoMaxContenders = 32;
+    private long indexReadyWaitMs = 30_000;
+    private boolean offHeapStationStore = false;
+    private int admissionConcurrency = 2;
+    private int admissionMaxQueued = 100;
+    private double admissionMsPerCostUnit = 5.0;
+    private boolean warmupEnabled = true;
+    private int warmupIterations = 40;
+    private long warmupTimeCapMs = 20_000;
+    private boolean planStoreEnabled = false;
+    private String planStoreDir = "data/plans";
+    private int planStoreRetentionDays = 30;
+    private int planStoreMaxPlans = 10_000;
+    private long planStorePruneIntervalMs = 3_600_000;
+    private String clusterRole = "standalone";
+    private int shardCount = 1;
+    private int shardIndex = 0;
+    private double shardSectorSize = 500.0;
+    private List<String> shardWorkerUrls = List.of();
+    private double shardFetchRadiusFactor = 2.0;
+    private long shardRequestTimeoutMs = 10_000;
+    private String profilingDir = "data/recordings";
+    private long profilingMaxDurationMs = 120_000;
+    private int profilingMaxRequests = 100;
+    private int fleetMaxShips = 1000;
+    private int fleetMaxShipTypes = 8;
+    private int fleetRebalancePasses = 2;
+    private double fleetShareTolerance = 0.02;
+    private boolean planJournalEnabled = false;
+    private String planJournalPath = "data/plan-journal.jsonl";
+    private String replayJournal = "";
+    private String replayBaseline = "";
+    private String replayReport = "data/replay-report.json";
+    private int replayPasses = 3;
+    private int replayWarmupPasses = 1;
+    private double replayLatencyTolerance = 0.2;
+    private boolean replayFitSolverModel = false;
     private List<String> allowedExtensions = List.of("csv");
     private String tempFilePrefix = "ed-trade-planner-";
     private String tempFileSuffix = ".tmp";
@@ -0,0 +1,132 @@
+package com.edtradeplanner.controller;
+
+import com.edtradeplanner.config.PlannerConfig;
+import com.edtradeplanner.model.CommodityNeed;
+import com.edtradeplanner.model.dto.FleetPlanResponseDto;
+import com.edtradeplanner.model.dto.FleetRequestDto;
+import com.edtradeplanner.service.FileService;
+import com.edtradeplanner.service.FleetPlannerService;
+import com.edtradeplanner.util.FileUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestPart;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Fleet plans: one needs file shared between several ships.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api")
+@RequiredArgsConstructor
+public class FleetController {
+    
+    private final FleetPlannerService fleetPlannerService;
+    private final FileService fileService;
+    private final PlannerConfig plannerConfig;
+    
+    /**
+     * Plan for a fleet. The {@code fleet} part is the JSON request with the
+     * ship types; {@code needsFile} is the same CSV as for a single ship. Each
+     * ship type's plan is queued under admission control for the client, as
+     * for {@code /api/plan-route}.
+     */
+    @PostMapping(path = "/plan-fleet", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public CompletableFuture<ResponseEntity<FleetPlanResponseDto>> planFleet(
+            @RequestPart("fleet") FleetRequestDto requestDto,
+            @RequestPart(value = "needsFile", required = false) MultipartFile file,
+            @RequestHeader(value = "X-Client-Id", required = false) String clientId,
+            HttpServletRequest request) {
+        if (file == null || file.isEmpty()) {
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.badRequest().body(new FleetPlanResponseDto(false, "No needs file provided"))
+            );
+        }
+        
+        String originalFilename = file.getOriginalFilename();
+        if (originalFilename == null || !FileUtil.isAllowedExtension(originalFilename, plannerConfig)) {
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.badRequest().body(
+                            new FleetPlanResponseDto(false, "Invalid file format. Please upload a CSV file.")
+                    )
+            );
+        }
+        
+        String invalid = FleetPlannerService.validateShips(requestDto.getShips(), plannerConfig);
+        if (invalid != null) {
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.badRequest().body(new FleetPlanResponseDto(false, invalid))
+            );
+        }
+        
+        // Apply defaults from configuration if not provided
+        if (requestDto.getPlanningMode() == null || requestDto.getPlanningMode().isBlank()) {
+            requestDto.setPlanningMode(plannerConfig.getDefaultPlanningMode());
+        }
+        
+        if (requestDto.getBeamTimeBudgetMs() <= 0) {
+            requestDto.setBeamTimeBudgetMs(plannerConfig.getDefaultBeamTimeBudgetMs());
+        }
+        
+        if (requestDto.getSupplyAware() == null) {
+            requestDto.setSupplyAware(plannerConfig.isSupplyAwareDefault());
+        }
+        
+        requestDto.setRequestId(UUID.randomUUID().toString());
+        
+        log.info("Planning fleet of {} ship types from {}", requestDto.getShips().size(),
+                requestDto.isUseCoordinates() ? "custom coordinates" : requestDto.getHomeSystem());
+        
+        List<CommodityNeed> commodityNeeds;
+        try {
+            commodityNeeds = fileService.processCommodityNeedsFile(file);
+        } catch (IOException e) {
+            log.error("Error processing commodity needs file", e);
+            return CompletableFuture.completedFuture(ResponseEntity.ok(
+                    new FleetPlanResponseDto(false, "Error processing commodity needs file: " + e.getMessage())
+            ));
+        } catch (RuntimeException e) {
+            log.error("Error planning fleet", e);
+            return CompletableFuture.completedFuture(ResponseEntity.ok(
+                    new FleetPlanResponseDto(false, "Error planning fleet: " + e.getMessage())
+            ));
+        }
+        
+        String clientKey = clientId != null && !clientId.isBlank() ? clientId : request.getRemoteAddr();
+        CompletableFuture<FleetPlanResponseDto> plan;
+        try {
+            plan = fleetPlannerService.planFleet(requestDto, commodityNeeds, clientKey);
+        } catch (RuntimeException e) {
+            // Rejections and synchronous failures are answered like asynchronous ones
+            plan = CompletableFuture.failedFuture(e);
+        }
+        return plan.thenApply(ResponseEntity::ok)
+                .exceptionally(ex -> {
+                    Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                    if (cause instanceof RejectedExecutionException) {
+                        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(
+                                new FleetPlanResponseDto(false, "Server is busy, please try again shortly")
+                        );
+                    }
+                    log.error("Error planning fleet", cause);
+                    return ResponseEntity.badRequest().body(
+                            new FleetPlanResponseDto(false, "Error planning fleet: " + cause.getMessage())
+                    );
+                });
+    }
+}
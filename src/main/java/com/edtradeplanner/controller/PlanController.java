@@ -0,0 +1,98 @@
+package com.edtradeplanner.controller;
+
+import com.edtradeplanner.config.PlannerConfig;
+import com.edtradeplanner.model.CommodityNeed;
+import com.edtradeplanner.model.dto.RouteResponseDto;
+import com.edtradeplanner.service.FileService;
+import com.edtradeplanner.service.PlanStore;
+import com.edtradeplanner.service.ReplanService;
+import com.edtradeplanner.util.FileUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Stored plans: fetch one by id, or replan it for an updated needs file.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/plans")
+@RequiredArgsConstructor
+public class PlanController {
+    
+    private final PlanStore planStore;
+    private final ReplanService replanService;
+    private final FileService fileService;
+    private final PlannerConfig plannerConfig;
+    
+    @GetMapping("/{planId}")
+    public ResponseEntity<RouteResponseDto> getPlan(@PathVariable String planId) {
+        if (!planStore.isEnabled()) {
+            return disabled();
+        }
+        return planStore.find(planId)
+                .map(stored -> ResponseEntity.ok(stored.getPlan().toBuilder().planId(planId).build()))
+                .orElseGet(() -> unknownPlan(planId));
+    }
+    
+    /**
+     * Replan a stored plan for an updated needs file (for example after part of
+     * the cargo has been delivered). Bins the change does not touch keep their routes.
+     */
+    @PostMapping(path = "/{planId}/replan", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<RouteResponseDto> replan(@PathVariable String planId,
+                                                   @RequestParam("needsFile") MultipartFile file) {
+        if (!planStore.isEnabled()) {
+            return disabled();
+        }
+        if (file == null || file.isEmpty()) {
+            return ResponseEntity.badRequest().body(new RouteResponseDto(false, "No needs file provided"));
+        }
+        String originalFilename = file.getOriginalFilename();
+        if (originalFilename == null || !FileUtil.isAllowedExtension(originalFilename, plannerConfig)) {
+            return ResponseEntity.badRequest().body(
+                    new RouteResponseDto(false, "Invalid file format. Please upload a CSV file."));
+        }
+        
+        List<CommodityNeed> needs;
+        try {
+            needs = fileService.processCommodityNeedsFile(file);
+        } catch (IOException e) {
+            log.error("Error processing commodity needs file", e);
+            return ResponseEntity.ok(
+                    new RouteResponseDto(false, "Error processing commodity needs file: " + e.getMessage()));
+        } catch (RuntimeException e) {
+            log.error("Error replanning {}", planId, e);
+            return ResponseEntity.ok(new RouteResponseDto(false, "Error planning route: " + e.getMessage()));
+        }
+        
+        try {
+            return replanService.replan(planId, needs)
+                    .map(ResponseEntity::ok)
+                    .orElseGet(() -> unknownPlan(planId));
+        } catch (RuntimeException e) {
+            log.error("Error replanning {}", planId, e);
+            return ResponseEntity.ok(new RouteResponseDto(false, "Error planning route: " + e.getMessage()));
+        }
+    }
+    
+    private static ResponseEntity<RouteResponseDto> unknownPlan(String planId) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new RouteResponseDto(false, "Unknown plan: " + planId));
+    }
+    
+    private static ResponseEntity<RouteResponseDto> disabled() {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new RouteResponseDto(false, "Plan storage is disabled"));
+    }
+}
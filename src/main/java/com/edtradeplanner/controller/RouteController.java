@@ -1,21 +1,37 @@
 package com.edtradeplanner.controller;
 
 import com.edtradeplanner.config.PlannerConfig;
+import com.edtradeplanner.diagnostics.PlanProfiler;
+import com.edtradeplanner.model.CommodityNeed;
+import com.edtradeplanner.model.dto.CompactRouteResponseDto;
 import com.edtradeplanner.model.dto.RouteRequestDto;
 import com.edtradeplanner.model.dto.RouteResponseDto;
-import com.edtradeplanner.service.RoutePlannerService;
+import com.edtradeplanner.service.FileService;
+import com.edtradeplanner.service.PlanAdmissionScheduler;
+import com.edtradeplanner.service.PlanStore;
 import com.edtradeplanner.util.FileUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.regex.Pattern;
 
 @Slf4j
 @RestController
@@ -23,11 +39,59 @@ import java.util.concurrent.CompletableFuture;
 @RequiredArgsConstructor
 public class RouteController {
     
-    private final RoutePlannerService routePlannerService;
+    private final PlanAdmissionScheduler admissionScheduler;
+    private final FileService fileService;
+    private final PlanStore planStore;
+    private final PlanProfiler planProfiler;
     private final PlannerConfig plannerConfig;
     
+    private static final String REQUEST_ID_HEADER = "X-Request-Id";
+    private static final Pattern REQUEST_ID = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+    
+    // Media types that select the compact response, in the encoding they name
+    private static final List<MediaType> COMPACT_TYPES = List.of(
+            MediaType.parseMediaType(CompactRouteResponseDto.MEDIA_TYPE),
+            new MediaType("application", "x-jackson-smile"),
+            MediaType.APPLICATION_CBOR
+    );
+    
+    /**
+     * Plan routes. The response is the full JSON format unless the Accept header
+     * asks for the compact format as JSON, Smile or CBOR. The request id (the
+     * client's X-Request-Id if usable, otherwise a new one) tags the planner's
+     * JFR events and is echoed in the response header. Responses carry
+     * {@code Vary: Accept} so caches keep the formats apart.
+     */
     @PostMapping(path = "/plan-route", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public CompletableFuture<ResponseEntity<RouteResponseDto>> planRoute(@ModelAttribute RouteRequestDto requestDto) {
+    public CompletableFuture<ResponseEntity<?>> planRoute(
+            @ModelAttribute RouteRequestDto requestDto,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = "X-Client-Id", required = false) String clientId,
+            @RequestHeader(value = REQUEST_ID_HEADER, required = false) String requestIdHeader,
+            HttpServletRequest request) {
+        MediaType compactType = compactType(accept);
+        String clientKey = clientId != null && !clientId.isBlank() ? clientId : request.getRemoteAddr();
+        String requestId = requestIdHeader != null && REQUEST_ID.matcher(requestIdHeader).matches()
+                ? requestIdHeader : UUID.randomUUID().toString();
+        requestDto.setRequestId(requestId);
+        
+        planProfiler.requestStarted(requestId);
+        CompletableFuture<ResponseEntity<RouteResponseDto>> response = plan(requestDto, clientKey)
+                .whenComplete((entity, ex) -> planProfiler.requestFinished(requestId));
+        if (compactType == null) {
+            return response.thenApply(entity -> ResponseEntity.status(entity.getStatusCode())
+                    .header(REQUEST_ID_HEADER, requestId)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                    .body(entity.getBody()));
+        }
+        return response.thenApply(entity -> ResponseEntity.status(entity.getStatusCode())
+                .header(REQUEST_ID_HEADER, requestId)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                .contentType(compactType)
+                .body(CompactRouteResponseDto.from(entity.getBody())));
+    }
+    
+    private CompletableFuture<ResponseEntity<RouteResponseDto>> plan(RouteRequestDto requestDto, String clientKey) {
         // Validate file
         MultipartFile file = requestDto.getNeedsFile();
         if (file == null || file.isEmpty()) {
@@ -56,6 +120,32 @@ public class RouteController {
             requestDto.setMaxRange(plannerConfig.getDefaultMaxRange());
         }
         
+        // Search radii follow the range, so an absurd one would scan the whole map per step
+        if (!(requestDto.getMaxRange() <= plannerConfig.getMaxRangeLimit())) {
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.badRequest().body(
+                            new RouteResponseDto(false, "Max range must be at most "
+                                    + plannerConfig.getMaxRangeLimit() + " ly")
+                    )
+            );
+        }
+        
+        if (requestDto.getPlanningMode() == null || requestDto.getPlanningMode().isBlank()) {
+            requestDto.setPlanningMode(plannerConfig.getDefaultPlanningMode());
+        }
+        
+        if (requestDto.getBeamWidth() <= 0) {
+            requestDto.setBeamWidth(plannerConfig.getDefaultBeamWidth());
+        }
+        
+        if (requestDto.getBeamTimeBudgetMs() <= 0) {
+            requestDto.setBeamTimeBudgetMs(plannerConfig.getDefaultBeamTimeBudgetMs());
+        }
+        
+        if (requestDto.getSupplyAware() == null) {
+            requestDto.setSupplyAware(plannerConfig.isSupplyAwareDefault());
+        }
+        
         // Apply defaults for optional boolean flags
         requestDto.setSkipCarriers(plannerConfig.isSkipCarriersDefault());
         requestDto.setLargePadOnly(plannerConfig.isLargePadOnlyDefault());
@@ -65,13 +155,78 @@ public class RouteController {
                 requestDto.getCargoCapacity(),
                 requestDto.getMaxRange());
         
-        return routePlannerService.planRoute(requestDto)
-                .thenApply(ResponseEntity::ok)
+        // Read the needs on the request thread so the cost estimate can see them
+        List<CommodityNeed> commodityNeeds;
+        try {
+            commodityNeeds = fileService.processCommodityNeedsFile(file);
+        } catch (IOException e) {
+            log.error("Error processing commodity needs file", e);
+            return CompletableFuture.completedFuture(ResponseEntity.ok(
+                    new RouteResponseDto(false, "Error processing commodity needs file: " + e.getMessage())
+            ));
+        } catch (RuntimeException e) {
+            log.error("Error planning route", e);
+            return CompletableFuture.completedFuture(ResponseEntity.ok(
+                    new RouteResponseDto(false, "Error planning route: " + e.getMessage())
+            ));
+        }
+        
+        return admissionScheduler.submit(requestDto, commodityNeeds, clientKey)
+                .thenApply(response -> ResponseEntity.ok(store(requestDto, commodityNeeds, response)))
                 .exceptionally(ex -> {
-                    log.error("Error planning route", ex);
+                    Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                    if (cause instanceof RejectedExecutionException) {
+                        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(
+                                new RouteResponseDto(false, cause.getMessage())
+                        );
+                    }
+                    log.error("Error planning route", cause);
                     return ResponseEntity.badRequest().body(
-                            new RouteResponseDto(false, "Error planning route: " + ex.getMessage())
+                            new RouteResponseDto(false, "Error planning route: " + cause.getMessage())
                     );
                 });
     }
+    
+    /**
+     * Keep a successful plan for later replanning and return it with its id.
+     * Identical requests may share one response, so each caller gets a copy.
+     */
+    private RouteResponseDto store(RouteRequestDto requestDto, List<CommodityNeed> commodityNeeds,
+                                   RouteResponseDto response) {
+        if (!planStore.isEnabled() || !response.isSuccess()) {
+            return response;
+        }
+        try {
+            String planId = planStore.create(requestDto, commodityNeeds, response).getId();
+            return response.toBuilder().planId(planId).build();
+        } catch (RuntimeException e) {
+            log.error("Could not store plan", e);
+            return response;
+        }
+    }
+    
+    /**
+     * The compact media type the client prefers, or null for the default format.
+     * Types are considered in the order the client listed them.
+     */
+    private static MediaType compactType(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return null;
+        }
+        try {
+            for (MediaType requested : MediaType.parseMediaTypes(accept)) {
+                if (requested.isWildcardType() || MediaType.APPLICATION_JSON.equalsTypeAndSubtype(requested)) {
+                    return null;
+                }
+                for (MediaType compact : COMPACT_TYPES) {
+                    if (compact.equalsTypeAndSubtype(requested)) {
+                        return compact;
+                    }
+                }
+            }
+        } catch (InvalidMediaTypeException e) {
+            log.debug("Ignoring unparseable Accept header: {}", accept);
+        }
+        return null;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,49 @@
+package com.edtradeplanner.controller;
+
+import com.edtradeplanner.config.PlannerConfig;
+import com.edtradeplanner.model.StarSystem;
+import com.edtradeplanner.model.dto.ShardOffersRequestDto;
+import com.edtradeplanner.service.CommodityService;
+import com.edtradeplanner.service.ShardWorkerService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Worker side of a sharded deployment; only registered when the cluster role is worker.
+ */
+@RestController
+@RequestMapping("/internal/shard")
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "tradeplanner", name = "cluster-role", havingValue = "worker")
+public class ShardController {
+    
+    private final ShardWorkerService shardWorkerService;
+    private final CommodityService commodityService;
+    private final PlannerConfig plannerConfig;
+    
+    @PostMapping("/offers")
+    public ResponseEntity<List<StarSystem>> offers(@RequestBody ShardOffersRequestDto query) {
+        if (!commodityService.awaitCoreIndexes(plannerConfig.getIndexReadyWaitMs())) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(shardWorkerService.offers(query));
+    }
+    
+    @GetMapping("/co-occurrence")
+    public ResponseEntity<Map<String, Map<String, Integer>>> coOccurrence() {
+        if (!commodityService.awaitCoreIndexes(plannerConfig.getIndexReadyWaitMs())) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(shardWorkerService.coOccurrence());
+    }
+}
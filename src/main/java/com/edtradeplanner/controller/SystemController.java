@@ -12,6 +12,7 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
+import java.util.stream.Collectors;
 
 @Slf4j
 @RestController
@@ -34,6 +35,14 @@ public class SystemController {
                 plannerConfig.getMaxResultsLimit()
         );
         
+        // Fall back to fuzzy matches so typos still produce suggestions
+        if (matchingSystems.isEmpty()) {
+            matchingSystems = systemService.suggestSystems(query.trim(), plannerConfig.getMaxResultsLimit()).stream()
+                    .map(name -> systemService.findSystem(name).orElseThrow())
+                    .map(system -> new SystemSearchResponseDto(system.getName(), system.getCoords()))
+                    .collect(Collectors.toList());
+        }
+        
         return ResponseEntity.ok(matchingSystems);
     }
 }
@@ -0,0 +1,29 @@
+package com.edtradeplanner.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Packing a request's chunks into cargo loads.
+ */
+@Name("edtradeplanner.BinPacking")
+@Label("Bin Packing")
+@Category({"ED Trade Planner", "Planning"})
+@StackTrace(false)
+public class BinPackingEvent extends Event {
+    
+    @Label("Chunks")
+    public int chunks;
+    
+    @Label("Bins")
+    public int bins;
+    
+    @Label("Lower Bound")
+    public int lowerBound;
+    
+    @Label("Solver")
+    public String solver;
+}
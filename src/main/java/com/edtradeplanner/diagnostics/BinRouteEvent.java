@@ -0,0 +1,50 @@
+package com.edtradeplanner.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Routing one bin: the greedy tour and, in beam or auto mode, whatever runs on top of it.
+ */
+@Name("edtradeplanner.BinRoute")
+@Label("Bin Route")
+@Category({"ED Trade Planner", "Planning"})
+@StackTrace(false)
+public class BinRouteEvent extends Event {
+    
+    @Label("Request Id")
+    public String requestId;
+    
+    @Label("Bin Number")
+    public int binNumber;
+    
+    @Label("Chunks")
+    public int chunks;
+    
+    @Label("Greedy Steps")
+    @Description("Candidate searches the greedy tour made")
+    public int steps;
+    
+    @Label("Candidates Scored")
+    @Description("Stations scored over all greedy steps")
+    public int candidatesScored;
+    
+    @Label("Memo Hits")
+    @Description("Greedy steps answered by a remembered decision")
+    public int memoHits;
+    
+    @Label("Solver")
+    @Description("greedy, improved or beam")
+    public String solver;
+    
+    @Label("Alternatives")
+    @Description("Pareto-optimal tours found by beam search, 0 for greedy")
+    public int alternatives;
+    
+    @Label("Distance")
+    public double distance;
+}
@@ -0,0 +1,26 @@
+package com.edtradeplanner.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Building one of the commodity indexes, at startup or on first use.
+ */
+@Name("edtradeplanner.IndexBuild")
+@Label("Index Build")
+@Category({"ED Trade Planner", "Indexes"})
+@StackTrace(false)
+public class IndexBuildEvent extends Event {
+    
+    @Label("Index")
+    public String index;
+    
+    @Label("Stations")
+    public int stations;
+    
+    @Label("Success")
+    public boolean success;
+}
@@ -0,0 +1,58 @@
+package com.edtradeplanner.diagnostics;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * {@code /actuator/planprofile}: GET for the current capture, POST
+ * {@code {"requests": N}} or {@code {"requestId": "..."}} to start one, and
+ * GET {@code /actuator/planprofile/{id}} to download a finished recording.
+ * Like every actuator endpoint besides health and info it is only reachable
+ * once added to {@code management.endpoints.web.exposure.include}.
+ */
+@Component
+@Endpoint(id = "planprofile")
+@RequiredArgsConstructor
+public class PlanProfileEndpoint {
+    
+    private final PlanProfiler planProfiler;
+    
+    @ReadOperation
+    public Map<String, Object> status() {
+        return planProfiler.status();
+    }
+    
+    @WriteOperation
+    public WebEndpointResponse<Map<String, Object>> start(@Nullable Integer requests, @Nullable String requestId) {
+        if ((requests == null) == (requestId == null)) {
+            return new WebEndpointResponse<>(Map.of("error", "Give either requests or requestId"),
+                    WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+        try {
+            return new WebEndpointResponse<>(requestId != null
+                    ? planProfiler.captureRequest(requestId)
+                    : planProfiler.captureNext(requests));
+        } catch (IllegalArgumentException e) {
+            return new WebEndpointResponse<>(Map.of("error", e.getMessage()), WebEndpointResponse.STATUS_BAD_REQUEST);
+        } catch (IllegalStateException e) {
+            return new WebEndpointResponse<>(Map.of("error", e.getMessage()), 409);
+        }
+    }
+    
+    @ReadOperation(produces = "application/octet-stream")
+    public WebEndpointResponse<Resource> recording(@Selector String id) {
+        return planProfiler.recordingFile(id)
+                .map(file -> new WebEndpointResponse<Resource>(new FileSystemResource(file)))
+                .orElseGet(() -> new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND));
+    }
+}
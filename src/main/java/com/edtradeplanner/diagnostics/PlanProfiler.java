@@ -0,0 +1,231 @@
+package com.edtradeplanner.diagnostics;
+
+import com.edtradeplanner.config.PlannerConfig;
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Bounded JFR recordings of plan requests, one at a time.
+ *
+ * A capture either records the next N plan requests, starting at once and
+ * stopping when the Nth one finishes, or waits for a plan request with a
+ * given request id and records just that request. Either way the recording
+ * stops after {@code profiling-max-duration-ms} at the latest, and it is
+ * written to {@code profiling-dir} as {@code <capture id>.jfr}. The planner's
+ * own events are always emitted; they cost next to nothing while no
+ * recording is running.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PlanProfiler {
+    
+    private static final List<Class<? extends Event>> EVENT_TYPES = List.of(PlanRequestEvent.class,
+            PlanStageEvent.class, BinRouteEvent.class, BinPackingEvent.class, IndexBuildEvent.class);
+    private static final Pattern CAPTURE_ID = Pattern.compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}");
+    
+    private final PlannerConfig plannerConfig;
+    
+    // Current or last capture; read without the lock on every request
+    private volatile Capture capture;
+    
+    /**
+     * Record the next {@code requests} plan requests.
+     */
+    public synchronized Map<String, Object> captureNext(int requests) {
+        if (requests < 1 || requests > plannerConfig.getProfilingMaxRequests()) {
+            throw new IllegalArgumentException("requests must be between 1 and " + plannerConfig.getProfilingMaxRequests());
+        }
+        Capture next = newCapture(requests, null);
+        startRecording(next);
+        return next.status();
+    }
+    
+    /**
+     * Record the plan request with this request id, once it arrives.
+     */
+    public synchronized Map<String, Object> captureRequest(String requestId) {
+        if (requestId == null || requestId.isBlank()) {
+            throw new IllegalArgumentException("requestId must not be blank");
+        }
+        return newCapture(1, requestId.trim()).status();
+    }
+    
+    public synchronized Map<String, Object> status() {
+        Capture current = capture;
+        if (current == null) {
+            return Map.of("state", "IDLE");
+        }
+        expireIfOverdue(current);
+        return current.status();
+    }
+    
+    /**
+     * The file of a finished capture.
+     */
+    public Optional<Path> recordingFile(String captureId) {
+        if (!CAPTURE_ID.matcher(captureId).matches()) {
+            return Optional.empty();
+        }
+        Path file = directory().resolve(captureId + ".jfr");
+        return Files.isRegularFile(file) ? Optional.of(file) : Optional.empty();
+    }
+    
+    /**
+     * Called when a plan request arrives.
+     */
+    public void requestStarted(String requestId) {
+        Capture current = capture;
+        if (current == null || current.state != State.ARMED) {
+            return;
+        }
+        synchronized (this) {
+            expireIfOverdue(current);
+            if (capture == current && current.state == State.ARMED && current.requestId.equals(requestId)) {
+                startRecording(current);
+            }
+        }
+    }
+    
+    /**
+     * Called when a plan request has been answered.
+     */
+    public void requestFinished(String requestId) {
+        Capture current = capture;
+        if (current == null || current.state != State.RECORDING) {
+            return;
+        }
+        synchronized (this) {
+            if (capture != current || current.state != State.RECORDING) {
+                return;
+            }
+            if (current.requestId != null ? current.requestId.equals(requestId) : --current.remaining == 0) {
+                stopRecording(current, State.DONE);
+            }
+        }
+    }
+    
+    private Capture newCapture(int requests, String requestId) {
+        Capture current = capture;
+        if (current != null) {
+            expireIfOverdue(current);
+            if (current.state == State.ARMED || current.state == State.RECORDING) {
+                throw new IllegalStateException("Capture " + current.id + " is still " + current.state);
+            }
+        }
+        Capture next = new Capture(UUID.randomUUID().toString(), requests, requestId);
+        capture = next;
+        log.info("Plan profile {} armed for {}", next.id,
+                requestId != null ? "request " + requestId : requests + " requests");
+        return next;
+    }
+    
+    private void startRecording(Capture target) {
+        try {
+            Path dir = directory();
+            Files.createDirectories(dir);
+            Recording recording = new Recording(Configuration.getConfiguration("profile"));
+            recording.setName("plan-profile-" + target.id);
+            recording.setDestination(dir.resolve(target.id + ".jfr"));
+            recording.setDuration(Duration.ofMillis(plannerConfig.getProfilingMaxDurationMs()));
+            for (Class<? extends Event> type : EVENT_TYPES) {
+                recording.enable(type);
+            }
+            recording.start();
+            target.recording = recording;
+            target.startedAt = Instant.now();
+            target.state = State.RECORDING;
+        } catch (IOException | ParseException | RuntimeException e) {
+            log.error("Could not start plan profile {}", target.id, e);
+            target.state = State.FAILED;
+            target.error = e.getMessage();
+        }
+    }
+    
+    private void stopRecording(Capture target, State state) {
+        try {
+            target.recording.stop();
+        } catch (IllegalStateException e) {
+            // Already stopped by its duration limit; the file has been written
+        } finally {
+            target.recording.close();
+        }
+        target.state = state;
+        target.stoppedAt = Instant.now();
+        log.info("Plan profile {} {}: {}", target.id, state, directory().resolve(target.id + ".jfr"));
+    }
+    
+    private void expireIfOverdue(Capture target) {
+        if (target.state == State.RECORDING && target.recording.getState() == RecordingState.STOPPED) {
+            stopRecording(target, State.TIMED_OUT);
+        } else if (target.state == State.ARMED && Duration.between(target.armedAt, Instant.now()).toMillis()
+                > plannerConfig.getProfilingMaxDurationMs()) {
+            target.state = State.TIMED_OUT;
+        }
+    }
+    
+    private Path directory() {
+        return Paths.get(plannerConfig.getProfilingDir());
+    }
+    
+    private enum State { ARMED, RECORDING, DONE, TIMED_OUT, FAILED }
+    
+    private static final class Capture {
+        final String id;
+        final String requestId;
+        final Instant armedAt = Instant.now();
+        int remaining;
+        volatile State state = State.ARMED;
+        Recording recording;
+        Instant startedAt;
+        Instant stoppedAt;
+        String error;
+        
+        Capture(String id, int requests, String requestId) {
+            this.id = id;
+            this.remaining = requests;
+            this.requestId = requestId;
+        }
+        
+        Map<String, Object> status() {
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("id", id);
+            status.put("state", state.name());
+            if (requestId != null) {
+                status.put("requestId", requestId);
+            } else {
+                status.put("remainingRequests", remaining);
+            }
+            status.put("armedAt", armedAt.toString());
+            if (startedAt != null) {
+                status.put("startedAt", startedAt.toString());
+            }
+            if (stoppedAt != null) {
+                status.put("stoppedAt", stoppedAt.toString());
+            }
+            if (error != null) {
+                status.put("error", error);
+            }
+            return status;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.edtradeplanner.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One plan request, from the index wait to the finished response.
+ */
+@Name("edtradeplanner.PlanRequest")
+@Label("Plan Request")
+@Category({"ED Trade Planner", "Planning"})
+@StackTrace(false)
+public class PlanRequestEvent extends Event {
+    
+    @Label("Request Id")
+    public String requestId;
+    
+    @Label("Planning Mode")
+    public String planningMode;
+    
+    @Label("Cost Model")
+    public String costModel;
+    
+    @Label("Commodities")
+    public int commodities;
+    
+    @Label("Chunks")
+    public int chunks;
+    
+    @Label("Bins")
+    public int bins;
+    
+    @Label("Total Distance")
+    @Description("Light years over all bins")
+    public double totalDistance;
+    
+    @Label("Success")
+    public boolean success;
+}
@@ -0,0 +1,35 @@
+package com.edtradeplanner.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One stage of a plan request: waiting for the indexes, resolving the home
+ * system, chunking, packing or routing.
+ */
+@Name("edtradeplanner.PlanStage")
+@Label("Plan Stage")
+@Category({"ED Trade Planner", "Planning"})
+@StackTrace(false)
+public class PlanStageEvent extends Event {
+    
+    @Label("Request Id")
+    public String requestId;
+    
+    @Label("Stage")
+    public String stage;
+    
+    /**
+     * Begin timing a stage; {@link #commit()} ends it.
+     */
+    public static PlanStageEvent start(String requestId, String stage) {
+        PlanStageEvent event = new PlanStageEvent();
+        event.requestId = requestId;
+        event.stage = stage;
+        event.begin();
+        return event;
+    }
+}
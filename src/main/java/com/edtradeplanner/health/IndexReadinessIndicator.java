@@ -0,0 +1,35 @@
+package com.edtradeplanner.health;
+
+import com.edtradeplanner.service.CommodityService;
+import com.edtradeplanner.service.SystemService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports OUT_OF_SERVICE until the indexes route planning reads have been
+ * built. Part of the readiness group, so traffic is only routed to an instance
+ * once its data is complete.
+ */
+@Component("indexes")
+@RequiredArgsConstructor
+public class IndexReadinessIndicator implements HealthIndicator {
+    
+    private final SystemService systemService;
+    private final CommodityService commodityService;
+    
+    @Override
+    public Health health() {
+        Health.Builder builder = commodityService.whenCoreIndexesReady().isDone()
+                ? Health.up()
+                : Health.outOfService();
+        
+        return builder
+                .withDetail("systems", systemService.getAllSystems().size())
+                .withDetail("stations", commodityService.getStationStore().size())
+                .withDetail("datasetVersion", systemService.getDatasetVersion())
+                .withDetail("startupTasks", commodityService.getStartupProgress())
+                .build();
+    }
+}
@@ -0,0 +1,29 @@
+package com.edtradeplanner.health;
+
+import com.edtradeplanner.service.WarmupService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports OUT_OF_SERVICE while the JIT warm-up is running, so the first real
+ * requests do not pay for interpreted code.
+ */
+@Component("warmup")
+@RequiredArgsConstructor
+public class WarmupReadinessIndicator implements HealthIndicator {
+    
+    private final WarmupService warmupService;
+    
+    @Override
+    public Health health() {
+        Health.Builder builder = warmupService.whenDone().isDone()
+                ? Health.up()
+                : Health.outOfService();
+        
+        return builder
+                .withDetail("iterations", warmupService.getCompletedIterations())
+                .build();
+    }
+}
@@ -0,0 +1,116 @@
+package com.edtradeplanner.index;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Burkhard-Keller tree over Levenshtein distance. A search with tolerance d only
+ * visits children whose edge distance lies in [dist - d, dist + d], so small
+ * tolerances touch a small fraction of the tree.
+ */
+public class BkTree {
+    
+    private Node root;
+    private int size;
+    
+    public void add(String term) {
+        if (root == null) {
+            root = new Node(term);
+            size++;
+            return;
+        }
+        
+        Node node = root;
+        while (true) {
+            int dist = levenshtein(term, node.term);
+            if (dist == 0) {
+                return;
+            }
+            Node child = node.children.get(dist);
+            if (child == null) {
+                node.children.put(dist, new Node(term));
+                size++;
+                return;
+            }
+            node = child;
+        }
+    }
+    
+    /**
+     * All terms within {@code maxDistance} edits of the query.
+     */
+    public List<Match> search(String query, int maxDistance) {
+        List<Match> matches = new ArrayList<>();
+        if (root == null) {
+            return matches;
+        }
+        
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            int dist = levenshtein(query, node.term);
+            if (dist <= maxDistance) {
+                matches.add(new Match(node.term, dist));
+            }
+            
+            int low = dist - maxDistance;
+            int high = dist + maxDistance;
+            for (Map.Entry<Integer, Node> child : node.children.entrySet()) {
+                int edge = child.getKey();
+                if (edge >= low && edge <= high) {
+                    stack.push(child.getValue());
+                }
+            }
+        }
+        return matches;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * Levenshtein distance using two rolling rows.
+     */
+    static int levenshtein(String a, String b) {
+        if (a.equals(b)) {
+            return 0;
+        }
+        
+        int[] prev = new int[b.length() + 1];
+        int[] curr = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            prev[j] = j;
+        }
+        
+        for (int i = 1; i <= a.length(); i++) {
+            curr[0] = i;
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = ca == b.charAt(j - 1) ? 0 : 1;
+                curr[j] = Math.min(Math.min(curr[j - 1] + 1, prev[j] + 1), prev[j - 1] + cost);
+            }
+            int[] tmp = prev;
+            prev = curr;
+            curr = tmp;
+        }
+        return prev[b.length()];
+    }
+    
+    public record Match(String term, int distance) {
+    }
+    
+    private static class Node {
+        final String term;
+        final Map<Integer, Node> children = new HashMap<>(4);
+        
+        Node(String term) {
+            this.term = term;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.edtradeplanner.index;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+/**
+ * Read-only fixed-width columns backing {@link StationStore}, either as plain
+ * arrays on the Java heap or as off-heap {@link MemorySegment}s. Off-heap
+ * columns are allocated from an automatic arena and freed once the store that
+ * owns them is unreachable, so a reload never has to close them explicitly.
+ */
+final class ColumnStorage {
+    
+    private ColumnStorage() {
+    }
+    
+    interface Ints {
+        int get(int index);
+        
+        long byteSize();
+    }
+    
+    interface Doubles {
+        double get(int index);
+        
+        long byteSize();
+    }
+    
+    static Ints ints(int[] values, boolean offHeap) {
+        if (!offHeap) {
+            return new HeapInts(values);
+        }
+        MemorySegment segment = Arena.ofAuto().allocate((long) values.length * Integer.BYTES, Integer.BYTES);
+        MemorySegment.copy(values, 0, segment, ValueLayout.JAVA_INT, 0, values.length);
+        return new OffHeapInts(segment);
+    }
+    
+    /**
+     * Column of byte-sized values such as flags.
+     */
+    static Ints bytes(byte[] values, boolean offHeap) {
+        if (!offHeap) {
+            return new HeapBytes(values);
+        }
+        MemorySegment segment = Arena.ofAuto().allocate(values.length, 1);
+        MemorySegment.copy(values, 0, segment, ValueLayout.JAVA_BYTE, 0, values.length);
+        return new OffHeapBytes(segment);
+    }
+    
+    static Doubles doubles(double[] values, boolean offHeap) {
+        if (!offHeap) {
+            return new HeapDoubles(values);
+        }
+        MemorySegment segment = Arena.ofAuto().allocate((long) values.length * Double.BYTES, Double.BYTES);
+        MemorySegment.copy(values, 0, segment, ValueLayout.JAVA_DOUBLE, 0, values.length);
+        return new OffHeapDoubles(segment);
+    }
+    
+    private record HeapInts(int[] values) implements Ints {
+        @Override
+        public int get(int index) {
+            return values[index];
+        }
+        
+        @Override
+        public long byteSize() {
+            return (long) values.length * Integer.BYTES;
+        }
+    }
+    
+    private record HeapBytes(byte[] values) implements Ints {
+        @Override
+        public int get(int index) {
+            return values[index];
+        }
+        
+        @Override
+        public long byteSize() {
+            return values.length;
+        }
+    }
+    
+    private record HeapDoubles(double[] values) implements Doubles {
+        @Override
+        public double get(int index) {
+            return values[index];
+        }
+        
+        @Override
+        public long byteSize() {
+            return (long) values.length * Double.BYTES;
+        }
+    }
+    
+    private record OffHeapInts(MemorySegment segment) implements Ints {
+        @Override
+        public int get(int index) {
+            return segment.getAtIndex(ValueLayout.JAVA_INT, index);
+        }
+        
+        @Override
+        public long byteSize() {
+            return segment.byteSize();
+        }
+    }
+    
+    private record OffHeapBytes(MemorySegment segment) implements Ints {
+        @Override
+        public int get(int index) {
+            return segment.get(ValueLayout.JAVA_BYTE, index);
+        }
+        
+        @Override
+        public long byteSize() {
+            return segment.byteSize();
+        }
+    }
+    
+    private record OffHeapDoubles(MemorySegment segment) implements Doubles {
+        @Override
+        public double get(int index) {
+            return segment.getAtIndex(ValueLayout.JAVA_DOUBLE, index);
+        }
+        
+        @Override
+        public long byteSize() {
+            return segment.byteSize();
+        }
+    }
+}
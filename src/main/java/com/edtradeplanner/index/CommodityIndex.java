@@ -0,0 +1,141 @@
+package com.edtradeplanner.index;
+
+import java.util.function.IntConsumer;
+
+/**
+ * One k-d tree per commodity over the stations that sell it (supply of at
+ * least one) and pass the carrier/landing-pad filters. All trees share the
+ * same {@link StationStore}. A {@link SupplyIndex} over the same sellers
+ * answers "within R holding at least Q tons" queries,
+ * {@link StationClusters} finds every needed offer around a point at once, and
+ * a {@link DistanceField}, attached once built, bounds the distance to the
+ * nearest seller in O(1).
+ */
+public class CommodityIndex {
+    
+    private final StationStore store;
+    private final boolean skipCarriers;
+    private final boolean largePadOnly;
+    private final KdTree[] trees;
+    private final SupplyIndex supplyIndex;
+    private final StationClusters clusters;
+    private volatile DistanceField distanceField;
+    
+    public CommodityIndex(StationStore store, boolean skipCarriers, boolean largePadOnly,
+                          double supplyCellSize, double clusterCellSize) {
+        this.store = store;
+        this.skipCarriers = skipCarriers;
+        this.largePadOnly = largePadOnly;
+        
+        // Bucket station ids by commodity, then build one tree per bucket
+        int commodityCount = store.commodityCount();
+        StationStore.IntColumn[] sellers = new StationStore.IntColumn[commodityCount];
+        StationStore.IntColumn[] supplies = new StationStore.IntColumn[commodityCount];
+        StationStore.IntColumn passing = new StationStore.IntColumn();
+        for (int id = 0; id < store.size(); id++) {
+            if (!store.passes(id, skipCarriers, largePadOnly)) {
+                continue;
+            }
+            passing.add(id);
+            for (int entry = store.marketStart(id); entry < store.marketEnd(id); entry++) {
+                if (store.marketSupply(entry) < 1) {
+                    continue;
+                }
+                int commodityId = store.marketCommodity(entry);
+                if (sellers[commodityId] == null) {
+                    sellers[commodityId] = new StationStore.IntColumn();
+                    supplies[commodityId] = new StationStore.IntColumn();
+                }
+                sellers[commodityId].add(id);
+                supplies[commodityId].add(store.marketSupply(entry));
+            }
+        }
+        
+        this.trees = new KdTree[commodityCount];
+        int[][] sellerIds = new int[commodityCount][];
+        int[][] sellerSupplies = new int[commodityCount][];
+        for (int commodityId = 0; commodityId < commodityCount; commodityId++) {
+            boolean sold = sellers[commodityId] != null;
+            sellerIds[commodityId] = sold ? sellers[commodityId].toArray() : new int[0];
+            sellerSupplies[commodityId] = sold ? supplies[commodityId].toArray() : new int[0];
+            trees[commodityId] = new KdTree(store, sellerIds[commodityId]);
+        }
+        this.supplyIndex = new SupplyIndex(store, sellerIds, sellerSupplies, supplyCellSize);
+        this.clusters = new StationClusters(store, passing.toArray(), clusterCellSize);
+    }
+    
+    public StationStore getStore() {
+        return store;
+    }
+    
+    public boolean isSkipCarriers() {
+        return skipCarriers;
+    }
+    
+    public boolean isLargePadOnly() {
+        return largePadOnly;
+    }
+    
+    public StationClusters getClusters() {
+        return clusters;
+    }
+    
+    /**
+     * Nearest-seller distance field, or null while it is not built.
+     */
+    public DistanceField getDistanceField() {
+        return distanceField;
+    }
+    
+    public void setDistanceField(DistanceField distanceField) {
+        this.distanceField = distanceField;
+    }
+    
+    /**
+     * Number of stations selling the commodity, 0 if it is unknown.
+     */
+    public int sellerCount(String commodity) {
+        KdTree tree = tree(commodity);
+        return tree != null ? tree.size() : 0;
+    }
+    
+    /**
+     * Nearest station selling the commodity within {@code maxRadius}, or -1.
+     */
+    public int nearest(String commodity, double x, double y, double z, double maxRadius) {
+        KdTree tree = tree(commodity);
+        return tree != null ? tree.nearest(x, y, z, maxRadius) : -1;
+    }
+    
+    /**
+     * Up to {@code k} nearest stations selling the commodity within {@code maxRadius}, closest first.
+     */
+    public int[] kNearest(String commodity, double x, double y, double z, int k, double maxRadius) {
+        KdTree tree = tree(commodity);
+        return tree != null ? tree.kNearest(x, y, z, k, maxRadius) : new int[0];
+    }
+    
+    /**
+     * Visit every station selling the commodity within {@code radius}.
+     */
+    public void withinRadius(String commodity, double x, double y, double z, double radius, IntConsumer consumer) {
+        KdTree tree = tree(commodity);
+        if (tree != null) {
+            tree.withinRadius(x, y, z, radius, consumer);
+        }
+    }
+    
+    /**
+     * Visit every station selling the commodity within {@code radius} that holds
+     * at least {@code minSupply} tons. Returns the number of stations visited.
+     */
+    public int withinRadiusWithSupply(String commodity, double x, double y, double z, double radius,
+                                      int minSupply, SupplyIndex.SupplyConsumer consumer) {
+        return supplyIndex.withinRadius(store.commodityId(commodity), x, y, z, radius, minSupply, consumer);
+    }
+    
+    private KdTree tree(String commodity) {
+        int commodityId = store.commodityId(commodity);
+        return commodityId >= 0 ? trees[commodityId] : null;
+    }
+}
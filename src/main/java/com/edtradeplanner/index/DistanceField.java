@@ -0,0 +1,264 @@
+package com.edtradeplanner.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-commodity distance to the nearest seller, precomputed on a coarse grid
+ * over the populated region so that "how far is the nearest seller of X from
+ * P" is answered in O(1) without touching a tree.
+ *
+ * The grid spans the central 99% of the sellers along each axis (outliers are
+ * clamped onto its border cells) with cubic cells of at least the configured
+ * size, grown until a commodity's grid fits {@code maxCells}. Each cell holds
+ * the exact Euclidean distance transform from its centre to the nearest cell
+ * containing a seller, floored to multiples of {@code cellSize / 16} in an
+ * unsigned {@code short}.
+ *
+ * {@link #lowerBound} never exceeds the true distance, anywhere. For a point
+ * inside the grid it is at most {@link #errorBound()} = 2 * sqrt(3) * cellSize
+ * + cellSize / 16 below it: half a cell diagonal for the seller's position in
+ * its cell, half a diagonal for the query's position in its cell, each counted
+ * once in the stored value and once in the correction, plus one quantum.
+ * Outside the grid the bound is weaker by the distance to the grid.
+ */
+public class DistanceField {
+    
+    private static final int QUANTA_PER_CELL = 16;
+    private static final int MAX_QUANTA = 0xFFFF;
+    // Stands in for infinity so the distance transform never computes inf - inf
+    private static final double FAR = 1e20;
+    
+    private final double minX, minY, minZ;
+    private final int nx, ny, nz;
+    private final double cellSize;
+    private final double quantum;
+    private final double halfDiagonal;
+    private final short[][] fields;
+    
+    private DistanceField(double minX, double minY, double minZ, int nx, int ny, int nz, double cellSize,
+                          short[][] fields) {
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.nx = nx;
+        this.ny = ny;
+        this.nz = nz;
+        this.cellSize = cellSize;
+        this.quantum = cellSize / QUANTA_PER_CELL;
+        this.halfDiagonal = cellSize * Math.sqrt(3) / 2;
+        this.fields = fields;
+    }
+    
+    /**
+     * Build the fields for the sellers (supply of at least one) passing the
+     * filters, one commodity at a time on {@code parallelism} threads: the
+     * caller's and up to {@code parallelism - 1} tasks on {@code executor}.
+     */
+    public static DistanceField build(StationStore store, boolean skipCarriers, boolean largePadOnly,
+                                      double minCellSize, int maxCells, Executor executor, int parallelism) {
+        int commodityCount = store.commodityCount();
+        StationStore.IntColumn[] sellers = new StationStore.IntColumn[commodityCount];
+        StationStore.IntColumn passing = new StationStore.IntColumn();
+        for (int id = 0; id < store.size(); id++) {
+            if (!store.passes(id, skipCarriers, largePadOnly)) {
+                continue;
+            }
+            boolean sells = false;
+            for (int entry = store.marketStart(id); entry < store.marketEnd(id); entry++) {
+                if (store.marketSupply(entry) < 1) {
+                    continue;
+                }
+                int commodityId = store.marketCommodity(entry);
+                if (sellers[commodityId] == null) {
+                    sellers[commodityId] = new StationStore.IntColumn();
+                }
+                sellers[commodityId].add(id);
+                sells = true;
+            }
+            if (sells) {
+                passing.add(id);
+            }
+        }
+        int[] sellerIds = passing.toArray();
+        if (sellerIds.length == 0) {
+            return new DistanceField(0, 0, 0, 1, 1, 1, minCellSize, new short[commodityCount][]);
+        }
+        
+        double[] rangeX = centralRange(store, sellerIds, 0);
+        double[] rangeY = centralRange(store, sellerIds, 1);
+        double[] rangeZ = centralRange(store, sellerIds, 2);
+        
+        double cellSize = Math.max(minCellSize, 1e-3);
+        int cx, cy, cz;
+        while (true) {
+            cx = cellsAlong(rangeX, cellSize);
+            cy = cellsAlong(rangeY, cellSize);
+            cz = cellsAlong(rangeZ, cellSize);
+            if ((long) cx * cy * cz <= Math.max(1, maxCells)) {
+                break;
+            }
+            cellSize *= 1.25;
+        }
+        
+        short[][] fields = new short[commodityCount][];
+        DistanceField field = new DistanceField(rangeX[0], rangeY[0], rangeZ[0], cx, cy, cz, cellSize, fields);
+        AtomicInteger next = new AtomicInteger();
+        Runnable worker = () -> {
+            Transform transform = field.new Transform();
+            for (int commodityId = next.getAndIncrement(); commodityId < commodityCount;
+                 commodityId = next.getAndIncrement()) {
+                if (sellers[commodityId] != null) {
+                    fields[commodityId] = transform.run(store, sellers[commodityId].toArray());
+                }
+            }
+        };
+        List<CompletableFuture<Void>> helpers = new ArrayList<>();
+        for (int i = 1; i < parallelism; i++) {
+            helpers.add(CompletableFuture.runAsync(worker, executor));
+        }
+        worker.run();
+        helpers.forEach(CompletableFuture::join);
+        return field;
+    }
+    
+    /**
+     * A distance to the nearest seller of the commodity that is never more than
+     * the true one; {@code Double.POSITIVE_INFINITY} if nothing sells it.
+     */
+    public double lowerBound(int commodityId, double x, double y, double z) {
+        if (commodityId < 0 || commodityId >= fields.length || fields[commodityId] == null) {
+            return Double.POSITIVE_INFINITY;
+        }
+        int ix = cell(x, minX, nx), iy = cell(y, minY, ny), iz = cell(z, minZ, nz);
+        double stored = (fields[commodityId][(ix * ny + iy) * nz + iz] & MAX_QUANTA) * quantum;
+        double dx = x - (minX + (ix + 0.5) * cellSize);
+        double dy = y - (minY + (iy + 0.5) * cellSize);
+        double dz = z - (minZ + (iz + 0.5) * cellSize);
+        return Math.max(0.0, stored - halfDiagonal - Math.sqrt(dx * dx + dy * dy + dz * dz));
+    }
+    
+    /**
+     * How far below the true distance {@link #lowerBound} can be for a point inside the grid.
+     */
+    public double errorBound() {
+        return 4 * halfDiagonal + quantum;
+    }
+    
+    public double cellSize() {
+        return cellSize;
+    }
+    
+    public long bytes() {
+        long cells = (long) nx * ny * nz;
+        return Arrays.stream(fields).filter(f -> f != null).count() * cells * Short.BYTES;
+    }
+    
+    private int cell(double coordinate, double min, int count) {
+        int i = (int) Math.floor((coordinate - min) / cellSize);
+        return Math.max(0, Math.min(count - 1, i));
+    }
+    
+    private static int cellsAlong(double[] range, double cellSize) {
+        return (int) Math.min(Integer.MAX_VALUE, (long) Math.floor((range[1] - range[0]) / cellSize) + 1);
+    }
+    
+    /**
+     * The range holding all but the outer half percent of the sellers on each side.
+     */
+    private static double[] centralRange(StationStore store, int[] ids, int axis) {
+        double[] values = new double[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            values[i] = axis == 0 ? store.x(ids[i]) : axis == 1 ? store.y(ids[i]) : store.z(ids[i]);
+        }
+        Arrays.sort(values);
+        int skip = ids.length / 200;
+        return new double[]{values[skip], values[ids.length - 1 - skip]};
+    }
+    
+    /**
+     * Scratch buffers for the separable distance transform of one commodity
+     * at a time (Felzenszwalb and Huttenlocher, one pass per axis).
+     */
+    private class Transform {
+        final double[] grid = new double[nx * ny * nz];
+        final int longest = Math.max(nx, Math.max(ny, nz));
+        final double[] line = new double[longest];
+        final double[] out = new double[longest];
+        final int[] parabolas = new int[longest];
+        final double[] bounds = new double[longest + 1];
+        
+        short[] run(StationStore store, int[] sellerIds) {
+            Arrays.fill(grid, FAR);
+            for (int id : sellerIds) {
+                grid[(cell(store.x(id), minX, nx) * ny + cell(store.y(id), minY, ny)) * nz
+                        + cell(store.z(id), minZ, nz)] = 0.0;
+            }
+            
+            // Along z (contiguous), then y, then x; the grid then holds squared distances in cells
+            for (int base = 0; base < nx * ny; base++) {
+                pass(base * nz, 1, nz);
+            }
+            for (int ix = 0; ix < nx; ix++) {
+                for (int iz = 0; iz < nz; iz++) {
+                    pass(ix * ny * nz + iz, nz, ny);
+                }
+            }
+            for (int rest = 0; rest < ny * nz; rest++) {
+                pass(rest, ny * nz, nx);
+            }
+            
+            short[] field = new short[grid.length];
+            for (int i = 0; i < grid.length; i++) {
+                double quanta = Math.floor(Math.sqrt(grid[i]) * QUANTA_PER_CELL);
+                field[i] = (short) (int) Math.min(MAX_QUANTA, quanta);
+            }
+            return field;
+        }
+        
+        /**
+         * One-dimensional squared distance transform of the {@code n} cells at
+         * {@code start}, {@code start + stride}, ... in place: the lower
+         * envelope of the parabolas rooted at each cell.
+         */
+        private void pass(int start, int stride, int n) {
+            for (int q = 0; q < n; q++) {
+                line[q] = grid[start + q * stride];
+            }
+            int k = 0;
+            parabolas[0] = 0;
+            bounds[0] = Double.NEGATIVE_INFINITY;
+            bounds[1] = Double.POSITIVE_INFINITY;
+            for (int q = 1; q < n; q++) {
+                double s = intersection(q, parabolas[k]);
+                while (s <= bounds[k]) {
+                    k--;
+                    s = intersection(q, parabolas[k]);
+                }
+                k++;
+                parabolas[k] = q;
+                bounds[k] = s;
+                bounds[k + 1] = Double.POSITIVE_INFINITY;
+            }
+            k = 0;
+            for (int q = 0; q < n; q++) {
+                while (bounds[k + 1] < q) {
+                    k++;
+                }
+                int v = parabolas[k];
+                out[q] = (double) (q - v) * (q - v) + line[v];
+            }
+            for (int q = 0; q < n; q++) {
+                grid[start + q * stride] = out[q];
+            }
+        }
+        
+        private double intersection(int q, int v) {
+            return ((line[q] + (double) q * q) - (line[v] + (double) v * v)) / (2.0 * q - 2.0 * v);
+        }
+    }
+}
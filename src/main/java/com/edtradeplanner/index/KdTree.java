@@ -0,0 +1,335 @@
+package com.edtradeplanner.index;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Static 3D k-d tree over a subset of the stations in a {@link StationStore}.
+ * The tree is implicit: for a range {@code [lo, hi)} of the permuted id array
+ * the median element at {@code (lo + hi) >>> 1} is the splitting point, so the
+ * only per-node state is the split axis. Coordinates are read from the shared
+ * store; the tree itself holds nothing but station ids.
+ */
+public class KdTree {
+    
+    private static final int LEAF_SIZE = 8;
+    
+    private final StationStore store;
+    private final int[] ids;
+    private final byte[] axis;
+    
+    public KdTree(StationStore store, int[] stationIds) {
+        this.store = store;
+        this.ids = stationIds.clone();
+        this.axis = new byte[ids.length];
+        build(0, ids.length);
+    }
+    
+    public int size() {
+        return ids.length;
+    }
+    
+    /**
+     * Nearest station to the query point within {@code maxRadius}, or -1 if none.
+     */
+    public int nearest(double qx, double qy, double qz, double maxRadius) {
+        NearestSearch search = new NearestSearch(qx, qy, qz, radiusSquared(maxRadius));
+        search.run(0, ids.length);
+        return search.bestId;
+    }
+    
+    /**
+     * Up to {@code k} nearest stations within {@code maxRadius}, closest first.
+     */
+    public int[] kNearest(double qx, double qy, double qz, int k, double maxRadius) {
+        if (k <= 0 || ids.length == 0) {
+            return new int[0];
+        }
+        KNearestSearch search = new KNearestSearch(qx, qy, qz, k, radiusSquared(maxRadius));
+        search.run(0, ids.length);
+        return search.sortedResult();
+    }
+    
+    /**
+     * Visit every station within {@code radius} of the query point (in no particular order).
+     */
+    public void withinRadius(double qx, double qy, double qz, double radius, IntConsumer consumer) {
+        withinRadius(0, ids.length, qx, qy, qz, radius * radius, consumer);
+    }
+    
+    private void withinRadius(int lo, int hi, double qx, double qy, double qz, double r2, IntConsumer consumer) {
+        if (hi - lo <= LEAF_SIZE) {
+            for (int i = lo; i < hi; i++) {
+                if (distanceSquared(ids[i], qx, qy, qz) <= r2) {
+                    consumer.accept(ids[i]);
+                }
+            }
+            return;
+        }
+        
+        int mid = (lo + hi) >>> 1;
+        int id = ids[mid];
+        if (distanceSquared(id, qx, qy, qz) <= r2) {
+            consumer.accept(id);
+        }
+        double diff = axisDelta(axis[mid], id, qx, qy, qz);
+        if (diff <= 0 || diff * diff <= r2) {
+            withinRadius(lo, mid, qx, qy, qz, r2, consumer);
+        }
+        if (diff >= 0 || diff * diff <= r2) {
+            withinRadius(mid + 1, hi, qx, qy, qz, r2, consumer);
+        }
+    }
+    
+    private void build(int lo, int hi) {
+        if (hi - lo <= LEAF_SIZE) {
+            return;
+        }
+        
+        // Split on the axis with the largest spread
+        double minX = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        double minZ = Double.POSITIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+        for (int i = lo; i < hi; i++) {
+            int id = ids[i];
+            minX = Math.min(minX, store.x(id));
+            maxX = Math.max(maxX, store.x(id));
+            minY = Math.min(minY, store.y(id));
+            maxY = Math.max(maxY, store.y(id));
+            minZ = Math.min(minZ, store.z(id));
+            maxZ = Math.max(maxZ, store.z(id));
+        }
+        double spreadX = maxX - minX;
+        double spreadY = maxY - minY;
+        double spreadZ = maxZ - minZ;
+        byte splitAxis = spreadX >= spreadY && spreadX >= spreadZ ? (byte) 0 : spreadY >= spreadZ ? (byte) 1 : (byte) 2;
+        
+        int mid = (lo + hi) >>> 1;
+        select(lo, hi - 1, mid, splitAxis);
+        axis[mid] = splitAxis;
+        
+        build(lo, mid);
+        build(mid + 1, hi);
+    }
+    
+    /**
+     * Quickselect so that ids[k] holds the median on the given axis.
+     */
+    private void select(int left, int right, int k, byte splitAxis) {
+        while (right > left) {
+            double pivot = coordinate(ids[(left + right) >>> 1], splitAxis);
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (coordinate(ids[i], splitAxis) < pivot) {
+                    i++;
+                }
+                while (coordinate(ids[j], splitAxis) > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int tmp = ids[i];
+                    ids[i] = ids[j];
+                    ids[j] = tmp;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+    
+    private double coordinate(int id, byte splitAxis) {
+        return switch (splitAxis) {
+            case 0 -> store.x(id);
+            case 1 -> store.y(id);
+            default -> store.z(id);
+        };
+    }
+    
+    /**
+     * Signed offset of the query from the splitting plane through {@code id}.
+     */
+    private double axisDelta(byte splitAxis, int id, double qx, double qy, double qz) {
+        return switch (splitAxis) {
+            case 0 -> qx - store.x(id);
+            case 1 -> qy - store.y(id);
+            default -> qz - store.z(id);
+        };
+    }
+    
+    private double distanceSquared(int id, double qx, double qy, double qz) {
+        double dx = store.x(id) - qx;
+        double dy = store.y(id) - qy;
+        double dz = store.z(id) - qz;
+        return dx * dx + dy * dy + dz * dz;
+    }
+    
+    private static double radiusSquared(double maxRadius) {
+        return Double.isInfinite(maxRadius) ? Double.POSITIVE_INFINITY : maxRadius * maxRadius;
+    }
+    
+    private class NearestSearch {
+        final double qx, qy, qz;
+        double bestD2;
+        int bestId = -1;
+        
+        NearestSearch(double qx, double qy, double qz, double maxD2) {
+            this.qx = qx;
+            this.qy = qy;
+            this.qz = qz;
+            this.bestD2 = maxD2;
+        }
+        
+        void run(int lo, int hi) {
+            if (hi - lo <= LEAF_SIZE) {
+                for (int i = lo; i < hi; i++) {
+                    offer(ids[i]);
+                }
+                return;
+            }
+            
+            int mid = (lo + hi) >>> 1;
+            offer(ids[mid]);
+            double diff = axisDelta(axis[mid], ids[mid], qx, qy, qz);
+            // Descend into the near side first, then the far side only if the plane is close enough
+            if (diff < 0) {
+                run(lo, mid);
+                if (diff * diff <= bestD2) {
+                    run(mid + 1, hi);
+                }
+            } else {
+                run(mid + 1, hi);
+                if (diff * diff <= bestD2) {
+                    run(lo, mid);
+                }
+            }
+        }
+        
+        void offer(int id) {
+            double d2 = distanceSquared(id, qx, qy, qz);
+            if (d2 <= bestD2 && (bestId == -1 || d2 < bestD2)) {
+                bestD2 = d2;
+                bestId = id;
+            }
+        }
+    }
+    
+    private class KNearestSearch {
+        final double qx, qy, qz;
+        final double maxD2;
+        // Max-heap on distance so the worst of the current k is at the root
+        final int[] heapIds;
+        final double[] heapD2;
+        int count = 0;
+        
+        KNearestSearch(double qx, double qy, double qz, int k, double maxD2) {
+            this.qx = qx;
+            this.qy = qy;
+            this.qz = qz;
+            this.maxD2 = maxD2;
+            this.heapIds = new int[k];
+            this.heapD2 = new double[k];
+        }
+        
+        double bound() {
+            return count < heapIds.length ? maxD2 : heapD2[0];
+        }
+        
+        void run(int lo, int hi) {
+            if (hi - lo <= LEAF_SIZE) {
+                for (int i = lo; i < hi; i++) {
+                    offer(ids[i]);
+                }
+                return;
+            }
+            
+            int mid = (lo + hi) >>> 1;
+            offer(ids[mid]);
+            double diff = axisDelta(axis[mid], ids[mid], qx, qy, qz);
+            if (diff < 0) {
+                run(lo, mid);
+                if (diff * diff <= bound()) {
+                    run(mid + 1, hi);
+                }
+            } else {
+                run(mid + 1, hi);
+                if (diff * diff <= bound()) {
+                    run(lo, mid);
+                }
+            }
+        }
+        
+        void offer(int id) {
+            double d2 = distanceSquared(id, qx, qy, qz);
+            if (d2 > maxD2) {
+                return;
+            }
+            if (count < heapIds.length) {
+                heapIds[count] = id;
+                heapD2[count] = d2;
+                siftUp(count++);
+            } else if (d2 < heapD2[0]) {
+                heapIds[0] = id;
+                heapD2[0] = d2;
+                siftDown(0);
+            }
+        }
+        
+        int[] sortedResult() {
+            int[] result = new int[count];
+            for (int i = count - 1; i >= 0; i--) {
+                result[i] = heapIds[0];
+                heapIds[0] = heapIds[i];
+                heapD2[0] = heapD2[i];
+                count = i;
+                siftDown(0);
+            }
+            return result;
+        }
+        
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (heapD2[parent] >= heapD2[i]) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+        
+        private void siftDown(int i) {
+            while (true) {
+                int largest = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if (left < count && heapD2[left] > heapD2[largest]) {
+                    largest = left;
+                }
+                if (right < count && heapD2[right] > heapD2[largest]) {
+                    largest = right;
+                }
+                if (largest == i) {
+                    return;
+                }
+                swap(i, largest);
+                i = largest;
+            }
+        }
+        
+        private void swap(int a, int b) {
+            int tmpId = heapIds[a];
+            heapIds[a] = heapIds[b];
+            heapIds[b] = tmpId;
+            double tmpD2 = heapD2[a];
+            heapD2[a] = heapD2[b];
+            heapD2[b] = tmpD2;
+        }
+    }
+}
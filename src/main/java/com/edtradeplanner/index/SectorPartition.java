@@ -0,0 +1,74 @@
+package com.edtradeplanner.index;
+
+import java.util.BitSet;
+
+/**
+ * Splits the galaxy into cubic sectors and assigns each sector to one of
+ * {@code shardCount} shards by hash, so neighbouring sectors usually land on
+ * different shards and a dense region does not overload one node. Every node
+ * of a sharded deployment has to use the same sector size and shard count.
+ */
+public class SectorPartition {
+    
+    // Above this many sectors a query simply goes to every shard
+    private static final long MAX_SECTORS_PER_QUERY = 4096;
+    
+    private final double sectorSize;
+    private final int shardCount;
+    
+    public SectorPartition(double sectorSize, int shardCount) {
+        if (sectorSize <= 0 || shardCount <= 0) {
+            throw new IllegalArgumentException("Sector size and shard count must be positive");
+        }
+        this.sectorSize = sectorSize;
+        this.shardCount = shardCount;
+    }
+    
+    public int shardCount() {
+        return shardCount;
+    }
+    
+    /**
+     * The shard owning the sector that contains the point.
+     */
+    public int shardOf(double x, double y, double z) {
+        return shardOfSector(sector(x), sector(y), sector(z));
+    }
+    
+    /**
+     * The shards owning any sector that intersects the bounding box of the sphere.
+     */
+    public BitSet shardsWithin(double x, double y, double z, double radius) {
+        BitSet shards = new BitSet(shardCount);
+        long minX = sector(x - radius), maxX = sector(x + radius);
+        long minY = sector(y - radius), maxY = sector(y + radius);
+        long minZ = sector(z - radius), maxZ = sector(z + radius);
+        if ((maxX - minX + 1) * (maxY - minY + 1) * (maxZ - minZ + 1) > MAX_SECTORS_PER_QUERY) {
+            shards.set(0, shardCount);
+            return shards;
+        }
+        for (long sx = minX; sx <= maxX; sx++) {
+            for (long sy = minY; sy <= maxY; sy++) {
+                for (long sz = minZ; sz <= maxZ; sz++) {
+                    shards.set(shardOfSector(sx, sy, sz));
+                    if (shards.cardinality() == shardCount) {
+                        return shards;
+                    }
+                }
+            }
+        }
+        return shards;
+    }
+    
+    private long sector(double coordinate) {
+        return (long) Math.floor(coordinate / sectorSize);
+    }
+    
+    private int shardOfSector(long sx, long sy, long sz) {
+        long h = sx * 0x9E3779B97F4A7C15L;
+        h = (h ^ (h >>> 29) ^ sy) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 32) ^ sz) * 0x94D049BB133111EBL;
+        h ^= h >>> 31;
+        return (int) Math.floorMod(h, (long) shardCount);
+    }
+}
@@ -0,0 +1,152 @@
+package com.edtradeplanner.index;
+
+import com.edtradeplanner.util.DistanceCalculator;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * Uniform 3D grid over a set of points, for fixed-radius neighbour queries.
+ * Points are bucketed CSR-style: {@code cells} maps a packed cell key to the
+ * {@code [start, end)} slot range of that cell. The coordinates are copied into
+ * slot order so each cell is a contiguous run of struct-of-arrays columns that
+ * can be fed straight to the batched distance kernel. Queries only walk the
+ * cells inside the bounds of the occupied ones, and fall back to visiting the
+ * occupied cells directly when the query cube holds more cells than those, so
+ * a huge radius costs at most one pass over the points.
+ */
+public class SpatialGrid {
+    
+    private final double cellSize;
+    private final double[] x;
+    private final double[] y;
+    private final double[] z;
+    private final int[] ids;
+    private final double[] slotX;
+    private final double[] slotY;
+    private final double[] slotZ;
+    private final Map<Long, int[]> cells;
+    private final int minCellX, maxCellX, minCellY, maxCellY, minCellZ, maxCellZ;
+    private final ThreadLocal<double[]> scratch;
+    
+    /**
+     * Build a grid over points given as coordinate columns; point ids are array indices.
+     */
+    public SpatialGrid(double[] x, double[] y, double[] z, double cellSize) {
+        this.cellSize = cellSize;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.ids = new int[x.length];
+        this.slotX = new double[x.length];
+        this.slotY = new double[x.length];
+        this.slotZ = new double[x.length];
+        
+        // Count points per cell, then lay the cells out contiguously
+        Map<Long, int[]> counts = new HashMap<>();
+        int[] bounds = {Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE,
+                Integer.MAX_VALUE, Integer.MIN_VALUE};
+        for (int i = 0; i < x.length; i++) {
+            int cx = cell(x[i]), cy = cell(y[i]), cz = cell(z[i]);
+            counts.computeIfAbsent(key(cx, cy, cz), k -> new int[2])[1]++;
+            bounds[0] = Math.min(bounds[0], cx);
+            bounds[1] = Math.max(bounds[1], cx);
+            bounds[2] = Math.min(bounds[2], cy);
+            bounds[3] = Math.max(bounds[3], cy);
+            bounds[4] = Math.min(bounds[4], cz);
+            bounds[5] = Math.max(bounds[5], cz);
+        }
+        this.minCellX = bounds[0];
+        this.maxCellX = bounds[1];
+        this.minCellY = bounds[2];
+        this.maxCellY = bounds[3];
+        this.minCellZ = bounds[4];
+        this.maxCellZ = bounds[5];
+        int offset = 0;
+        int largestCell = 0;
+        for (int[] range : counts.values()) {
+            range[0] = offset;
+            offset += range[1];
+            largestCell = Math.max(largestCell, range[1]);
+            range[1] = range[0];
+        }
+        for (int i = 0; i < x.length; i++) {
+            int[] range = counts.get(key(cell(x[i]), cell(y[i]), cell(z[i])));
+            int slot = range[1]++;
+            ids[slot] = i;
+            slotX[slot] = x[i];
+            slotY[slot] = y[i];
+            slotZ[slot] = z[i];
+        }
+        this.cells = counts;
+        
+        int scratchSize = largestCell;
+        this.scratch = ThreadLocal.withInitial(() -> new double[scratchSize]);
+    }
+    
+    public int size() {
+        return ids.length;
+    }
+    
+    public double x(int id) {
+        return x[id];
+    }
+    
+    public double y(int id) {
+        return y[id];
+    }
+    
+    public double z(int id) {
+        return z[id];
+    }
+    
+    /**
+     * Visit every point within {@code radius} of the query point.
+     */
+    public void withinRadius(double qx, double qy, double qz, double radius, IntConsumer consumer) {
+        double r2 = radius * radius;
+        double[] d2 = scratch.get();
+        int minX = Math.max(cell(qx - radius), minCellX), maxX = Math.min(cell(qx + radius), maxCellX);
+        int minY = Math.max(cell(qy - radius), minCellY), maxY = Math.min(cell(qy + radius), maxCellY);
+        int minZ = Math.max(cell(qz - radius), minCellZ), maxZ = Math.min(cell(qz + radius), maxCellZ);
+        if (minX > maxX || minY > maxY || minZ > maxZ) {
+            return;
+        }
+        
+        long cube = (long) (maxX - minX + 1) * (maxY - minY + 1) * (maxZ - minZ + 1);
+        if (cube > cells.size()) {
+            for (int[] range : cells.values()) {
+                visit(qx, qy, qz, r2, range, d2, consumer);
+            }
+            return;
+        }
+        for (int cx = minX; cx <= maxX; cx++) {
+            for (int cy = minY; cy <= maxY; cy++) {
+                for (int cz = minZ; cz <= maxZ; cz++) {
+                    int[] range = cells.get(key(cx, cy, cz));
+                    if (range != null) {
+                        visit(qx, qy, qz, r2, range, d2, consumer);
+                    }
+                }
+            }
+        }
+    }
+    
+    private void visit(double qx, double qy, double qz, double r2, int[] range, double[] d2, IntConsumer consumer) {
+        DistanceCalculator.squaredDistances(qx, qy, qz, slotX, slotY, slotZ, range[0], range[1], d2);
+        for (int slot = range[0]; slot < range[1]; slot++) {
+            if (d2[slot - range[0]] <= r2) {
+                consumer.accept(ids[slot]);
+            }
+        }
+    }
+    
+    private int cell(double coordinate) {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+    
+    private static long key(int cx, int cy, int cz) {
+        return ((long) (cx & 0x1FFFFF) << 42) | ((long) (cy & 0x1FFFFF) << 21) | (cz & 0x1FFFFF);
+    }
+}
@@ -0,0 +1,169 @@
+package com.edtradeplanner.index;
+
+import com.edtradeplanner.util.DistanceCalculator;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stations grouped into uniform grid cells, each summarised by a bounding
+ * sphere and the union of the commodities its stations sell. A query first
+ * tests the summaries, so clusters that are out of range or sell nothing still
+ * needed are discarded without looking at their stations.
+ */
+public class StationClusters {
+    
+    private final StationStore store;
+    private final int words;
+    private final double[] centerX;
+    private final double[] centerY;
+    private final double[] centerZ;
+    private final double[] radius;
+    private final long[] commodityBits;
+    private final int[] memberStart;
+    private final int[] members;
+    private final ThreadLocal<double[]> scratch;
+    
+    /**
+     * Cluster the given stations (already filtered by the caller) into cells of {@code cellSize} ly.
+     */
+    StationClusters(StationStore store, int[] stationIds, double cellSize) {
+        this.store = store;
+        this.words = (store.commodityCount() + 63) >>> 6;
+        
+        Map<Long, StationStore.IntColumn> cells = new HashMap<>();
+        for (int id : stationIds) {
+            long key = key(cell(store.x(id), cellSize), cell(store.y(id), cellSize), cell(store.z(id), cellSize));
+            cells.computeIfAbsent(key, k -> new StationStore.IntColumn()).add(id);
+        }
+        
+        int count = cells.size();
+        this.centerX = new double[count];
+        this.centerY = new double[count];
+        this.centerZ = new double[count];
+        this.radius = new double[count];
+        this.commodityBits = new long[count * words];
+        this.memberStart = new int[count + 1];
+        this.members = new int[stationIds.length];
+        
+        int cluster = 0;
+        int offset = 0;
+        for (StationStore.IntColumn cell : cells.values()) {
+            int[] ids = cell.toArray();
+            memberStart[cluster] = offset;
+            System.arraycopy(ids, 0, members, offset, ids.length);
+            offset += ids.length;
+            
+            // Centroid, then the farthest member sets the radius
+            double sx = 0, sy = 0, sz = 0;
+            for (int id : ids) {
+                sx += store.x(id);
+                sy += store.y(id);
+                sz += store.z(id);
+            }
+            centerX[cluster] = sx / ids.length;
+            centerY[cluster] = sy / ids.length;
+            centerZ[cluster] = sz / ids.length;
+            
+            double maxDist = 0;
+            for (int id : ids) {
+                double dx = store.x(id) - centerX[cluster];
+                double dy = store.y(id) - centerY[cluster];
+                double dz = store.z(id) - centerZ[cluster];
+                maxDist = Math.max(maxDist, Math.sqrt(dx * dx + dy * dy + dz * dz));
+                
+                for (int entry = store.marketStart(id); entry < store.marketEnd(id); entry++) {
+                    if (store.marketSupply(entry) >= 1) {
+                        int commodityId = store.marketCommodity(entry);
+                        commodityBits[cluster * words + (commodityId >>> 6)] |= 1L << commodityId;
+                    }
+                }
+            }
+            radius[cluster] = maxDist;
+            cluster++;
+        }
+        memberStart[count] = offset;
+        
+        this.scratch = ThreadLocal.withInitial(() -> new double[count]);
+    }
+    
+    public int clusterCount() {
+        return radius.length;
+    }
+    
+    /**
+     * Bitset over commodity ids, sized for {@link #forEachOffer}.
+     */
+    public long[] newCommoditySet() {
+        return new long[words];
+    }
+    
+    public static void addCommodity(long[] set, int commodityId) {
+        set[commodityId >>> 6] |= 1L << commodityId;
+    }
+    
+    /**
+     * Visit every (station, commodity) pair within {@code queryRadius} where the
+     * station sells a commodity in {@code needed}. Returns the number of clusters
+     * whose stations had to be scanned.
+     */
+    public int forEachOffer(double qx, double qy, double qz, double queryRadius, long[] needed, OfferConsumer consumer) {
+        int count = radius.length;
+        double[] centerDist = scratch.get();
+        DistanceCalculator.distances(qx, qy, qz, centerX, centerY, centerZ, 0, count, centerDist);
+        
+        double r2 = queryRadius * queryRadius;
+        int scanned = 0;
+        for (int cluster = 0; cluster < count; cluster++) {
+            if (centerDist[cluster] - radius[cluster] > queryRadius || !intersects(cluster, needed)) {
+                continue;
+            }
+            scanned++;
+            
+            // Clusters entirely inside the query sphere need no per-station distance check
+            boolean contained = centerDist[cluster] + radius[cluster] <= queryRadius;
+            for (int m = memberStart[cluster]; m < memberStart[cluster + 1]; m++) {
+                int id = members[m];
+                if (!contained) {
+                    double dx = store.x(id) - qx;
+                    double dy = store.y(id) - qy;
+                    double dz = store.z(id) - qz;
+                    if (dx * dx + dy * dy + dz * dz > r2) {
+                        continue;
+                    }
+                }
+                for (int entry = store.marketStart(id); entry < store.marketEnd(id); entry++) {
+                    int commodityId = store.marketCommodity(entry);
+                    int supply = store.marketSupply(entry);
+                    if (supply >= 1 && (needed[commodityId >>> 6] & (1L << commodityId)) != 0) {
+                        consumer.accept(id, commodityId, supply);
+                    }
+                }
+            }
+        }
+        return scanned;
+    }
+    
+    private boolean intersects(int cluster, long[] needed) {
+        int base = cluster * words;
+        for (int w = 0; w < words; w++) {
+            if ((commodityBits[base + w] & needed[w]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static int cell(double coordinate, double cellSize) {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+    
+    private static long key(int cx, int cy, int cz) {
+        return ((long) (cx & 0x1FFFFF) << 42) | ((long) (cy & 0x1FFFFF) << 21) | (cz & 0x1FFFFF);
+    }
+    
+    @FunctionalInterface
+    public interface OfferConsumer {
+        void accept(int stationId, int commodityId, int supply);
+    }
+}
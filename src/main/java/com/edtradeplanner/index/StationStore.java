@@ -0,0 +1,352 @@
+package com.edtradeplanner.index;
+
+import com.edtradeplanner.model.*;
+import com.edtradeplanner.util.StationScoreUtil;
+
+import java.util.*;
+
+/**
+ * Column-oriented table of every station that has a market. Stations are
+ * addressed by a dense int id so spatial indexes can share one copy of the
+ * coordinates and metadata instead of holding {@link StationInfo} objects.
+ * Market data is stored CSR-style: the entries of station {@code id} are
+ * {@code [marketStart[id], marketStart[id + 1])} in the commodity/supply columns.
+ * <p>
+ * The fixed-width columns can live off-heap (see {@link ColumnStorage}), which
+ * keeps the dataset out of the GC's way; repeated strings such as system names
+ * and economies are stored once in dictionaries and referenced by id.
+ */
+public class StationStore {
+    
+    public static final byte FLAG_CARRIER = 1;
+    public static final byte FLAG_LARGE_PAD = 2;
+    
+    private final int size;
+    private final boolean offHeap;
+    private final ColumnStorage.Doubles x;
+    private final ColumnStorage.Doubles y;
+    private final ColumnStorage.Doubles z;
+    private final String[] stationName;
+    private final ColumnStorage.Ints systemNameId;
+    private final ColumnStorage.Ints stationTypeId;
+    private final ColumnStorage.Ints economyId;
+    private final ColumnStorage.Ints stationEconomyComboId;
+    private final ColumnStorage.Ints prefPenalty;
+    private final ColumnStorage.Ints systemIndex;
+    private final ColumnStorage.Ints flags;
+    
+    private final ColumnStorage.Ints marketStart;
+    private final ColumnStorage.Ints marketCommodity;
+    private final ColumnStorage.Ints marketSupply;
+    
+    private final String[] systemNames;
+    private final String[] stationTypes;
+    private final String[] economies;
+    private final String[] stationEconomyCombos;
+    
+    private final String[] commodityNames;
+    private final Map<String, Integer> commodityIds;
+    
+    private StationStore(Builder builder, boolean offHeap) {
+        this.size = builder.stationName.size();
+        this.offHeap = offHeap;
+        this.x = ColumnStorage.doubles(builder.x.toArray(), offHeap);
+        this.y = ColumnStorage.doubles(builder.y.toArray(), offHeap);
+        this.z = ColumnStorage.doubles(builder.z.toArray(), offHeap);
+        this.stationName = builder.stationName.toArray(new String[0]);
+        this.systemNameId = ColumnStorage.ints(builder.systemNames.ids.toArray(), offHeap);
+        this.stationTypeId = ColumnStorage.ints(builder.stationTypes.ids.toArray(), offHeap);
+        this.economyId = ColumnStorage.ints(builder.economies.ids.toArray(), offHeap);
+        this.stationEconomyComboId = ColumnStorage.ints(builder.stationEconomyCombos.ids.toArray(), offHeap);
+        this.prefPenalty = ColumnStorage.ints(builder.prefPenalty.toArray(), offHeap);
+        this.systemIndex = ColumnStorage.ints(builder.systemIndex.toArray(), offHeap);
+        this.flags = ColumnStorage.bytes(builder.flags.toByteArray(), offHeap);
+        this.marketStart = ColumnStorage.ints(builder.marketStart.toArray(), offHeap);
+        this.marketCommodity = ColumnStorage.ints(builder.marketCommodity.toArray(), offHeap);
+        this.marketSupply = ColumnStorage.ints(builder.marketSupply.toArray(), offHeap);
+        this.systemNames = builder.systemNames.values();
+        this.stationTypes = builder.stationTypes.values();
+        this.economies = builder.economies.values();
+        this.stationEconomyCombos = builder.stationEconomyCombos.values();
+        this.commodityNames = builder.commodityNames.toArray(new String[0]);
+        this.commodityIds = Map.copyOf(builder.commodityIds);
+    }
+    
+    /**
+     * Build an on-heap store from the loaded systems. Stations without a market are skipped.
+     */
+    public static StationStore build(List<StarSystem> systems) {
+        return build(systems, false);
+    }
+    
+    /**
+     * Build the store from the loaded systems, keeping the fixed-width columns
+     * off-heap if {@code offHeap} is set. Stations without a market are skipped.
+     */
+    public static StationStore build(List<StarSystem> systems, boolean offHeap) {
+        Builder builder = new Builder();
+        builder.marketStart.add(0);
+        
+        for (int sysIdx = 0; sysIdx < systems.size(); sysIdx++) {
+            StarSystem sysData = systems.get(sysIdx);
+            if (sysData.getStations() == null || sysData.getCoords() == null) {
+                continue;
+            }
+            
+            for (Station st : sysData.getStations()) {
+                Market market = st.getMarket();
+                if (market == null || market.getCommodities() == null) {
+                    continue;
+                }
+                
+                String stType = st.getType();
+                // Use station economy if available, fall back to system economy
+                String stationEconomy = st.getEconomy() != null ? st.getEconomy() : sysData.getEconomy();
+                
+                byte stationFlags = 0;
+                if (stType != null &&
+                        (stType.toLowerCase().contains("carrier") || stType.toLowerCase().contains("drake"))) {
+                    stationFlags |= FLAG_CARRIER;
+                }
+                Map<String, Integer> pads = st.getLandingPads();
+                if (pads != null && pads.getOrDefault("large", 0) >= 1) {
+                    stationFlags |= FLAG_LARGE_PAD;
+                }
+                
+                builder.x.add(sysData.getCoords().getX());
+                builder.y.add(sysData.getCoords().getY());
+                builder.z.add(sysData.getCoords().getZ());
+                builder.systemNames.add(sysData.getName());
+                builder.stationName.add(st.getName());
+                builder.stationTypes.add(stType);
+                builder.economies.add(stationEconomy);
+                builder.stationEconomyCombos.add(stType + " " + stationEconomy);
+                builder.prefPenalty.add(StationScoreUtil.stationPreferencePenalty(stType != null ? stType : ""));
+                builder.systemIndex.add(sysIdx);
+                builder.flags.add(stationFlags);
+                
+                for (Commodity c : market.getCommodities()) {
+                    if (c.getName() == null || c.getName().isEmpty()) {
+                        continue;
+                    }
+                    int commodityId = builder.commodityIds.computeIfAbsent(c.getName(), name -> {
+                        builder.commodityNames.add(name);
+                        return builder.commodityNames.size() - 1;
+                    });
+                    builder.marketCommodity.add(commodityId);
+                    builder.marketSupply.add(c.getSupply());
+                }
+                builder.marketStart.add(builder.marketCommodity.size());
+            }
+        }
+        
+        return new StationStore(builder, offHeap);
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+    
+    /**
+     * Bytes held by the fixed-width columns, off-heap or not.
+     */
+    public long columnBytes() {
+        return x.byteSize() + y.byteSize() + z.byteSize()
+                + systemNameId.byteSize() + stationTypeId.byteSize() + economyId.byteSize()
+                + stationEconomyComboId.byteSize() + prefPenalty.byteSize() + systemIndex.byteSize()
+                + flags.byteSize() + marketStart.byteSize() + marketCommodity.byteSize() + marketSupply.byteSize();
+    }
+    
+    public double x(int id) {
+        return x.get(id);
+    }
+    
+    public double y(int id) {
+        return y.get(id);
+    }
+    
+    public double z(int id) {
+        return z.get(id);
+    }
+    
+    public Coordinates coords(int id) {
+        return new Coordinates(x.get(id), y.get(id), z.get(id));
+    }
+    
+    public String systemName(int id) {
+        return systemNames[systemNameId.get(id)];
+    }
+    
+    public String stationName(int id) {
+        return stationName[id];
+    }
+    
+    public String stationType(int id) {
+        return stationTypes[stationTypeId.get(id)];
+    }
+    
+    public String economy(int id) {
+        return economies[economyId.get(id)];
+    }
+    
+    public String stationEconomyCombo(int id) {
+        return stationEconomyCombos[stationEconomyComboId.get(id)];
+    }
+    
+    public int prefPenalty(int id) {
+        return prefPenalty.get(id);
+    }
+    
+    public int systemIndex(int id) {
+        return systemIndex.get(id);
+    }
+    
+    public boolean isCarrier(int id) {
+        return (flags.get(id) & FLAG_CARRIER) != 0;
+    }
+    
+    public boolean hasLargePad(int id) {
+        return (flags.get(id) & FLAG_LARGE_PAD) != 0;
+    }
+    
+    /**
+     * Whether the station passes the request's carrier and landing-pad filters.
+     */
+    public boolean passes(int id, boolean skipCarriers, boolean largePadOnly) {
+        return !(skipCarriers && isCarrier(id)) && !(largePadOnly && !hasLargePad(id));
+    }
+    
+    public int marketStart(int id) {
+        return marketStart.get(id);
+    }
+    
+    public int marketEnd(int id) {
+        return marketStart.get(id + 1);
+    }
+    
+    public int marketCommodity(int entry) {
+        return marketCommodity.get(entry);
+    }
+    
+    public int marketSupply(int entry) {
+        return marketSupply.get(entry);
+    }
+    
+    public int commodityCount() {
+        return commodityNames.length;
+    }
+    
+    public String commodityName(int commodityId) {
+        return commodityNames[commodityId];
+    }
+    
+    /**
+     * Dense id of a commodity, or -1 if no station lists it.
+     */
+    public int commodityId(String commodityName) {
+        return commodityIds.getOrDefault(commodityName, -1);
+    }
+    
+    public StationInfo toStationInfo(int id) {
+        return StationInfo.builder()
+                .system(systemName(id))
+                .station(stationName[id])
+                .coords(coords(id))
+                .prefPenalty(prefPenalty(id))
+                .stationType(stationType(id))
+                .economy(economy(id))
+                .stationEconomyCombo(stationEconomyCombo(id))
+                .build();
+    }
+    
+    /**
+     * Growable columns used while scanning the systems.
+     */
+    private static class Builder {
+        final DoubleColumn x = new DoubleColumn();
+        final DoubleColumn y = new DoubleColumn();
+        final DoubleColumn z = new DoubleColumn();
+        final List<String> stationName = new ArrayList<>();
+        final Dictionary systemNames = new Dictionary();
+        final Dictionary stationTypes = new Dictionary();
+        final Dictionary economies = new Dictionary();
+        final Dictionary stationEconomyCombos = new Dictionary();
+        final IntColumn prefPenalty = new IntColumn();
+        final IntColumn systemIndex = new IntColumn();
+        final IntColumn flags = new IntColumn();
+        final IntColumn marketStart = new IntColumn();
+        final IntColumn marketCommodity = new IntColumn();
+        final IntColumn marketSupply = new IntColumn();
+        final List<String> commodityNames = new ArrayList<>();
+        final Map<String, Integer> commodityIds = new HashMap<>();
+    }
+    
+    /**
+     * Distinct strings in first-seen order plus the id of each added value.
+     * Null is a valid value.
+     */
+    private static class Dictionary {
+        final List<String> values = new ArrayList<>();
+        final Map<String, Integer> idsByValue = new HashMap<>();
+        final IntColumn ids = new IntColumn();
+        
+        void add(String value) {
+            ids.add(idsByValue.computeIfAbsent(value, v -> {
+                values.add(v);
+                return values.size() - 1;
+            }));
+        }
+        
+        String[] values() {
+            return values.toArray(new String[0]);
+        }
+    }
+    
+    static class IntColumn {
+        private int[] data = new int[64];
+        private int size;
+        
+        void add(int value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = value;
+        }
+        
+        int size() {
+            return size;
+        }
+        
+        int[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+        
+        byte[] toByteArray() {
+            byte[] bytes = new byte[size];
+            for (int i = 0; i < size; i++) {
+                bytes[i] = (byte) data[i];
+            }
+            return bytes;
+        }
+    }
+    
+    static class DoubleColumn {
+        private double[] data = new double[64];
+        private int size;
+        
+        void add(double value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = value;
+        }
+        
+        double[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.edtradeplanner.index;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-commodity index of sellers bucketed into uniform grid cells, with each
+ * cell's entries sorted by supply (largest first). A query for stations within
+ * R that hold at least Q tons only looks at cells overlapping the query sphere
+ * and stops scanning a cell at the first entry below Q. Like {@link SpatialGrid},
+ * queries are clamped to the bounds of the commodity's occupied cells and fall
+ * back to visiting those cells directly when the query cube holds more cells.
+ */
+public class SupplyIndex {
+    
+    private final StationStore store;
+    private final double cellSize;
+    private final List<Cells> buckets;
+    
+    /**
+     * @param sellers for each commodity id, the seller station ids and their supply (parallel arrays)
+     */
+    SupplyIndex(StationStore store, int[][] sellers, int[][] supplies, double cellSize) {
+        this.store = store;
+        this.cellSize = cellSize;
+        
+        List<Cells> perCommodity = new ArrayList<>(sellers.length);
+        for (int commodityId = 0; commodityId < sellers.length; commodityId++) {
+            Map<Long, BucketBuilder> builders = new HashMap<>();
+            int[] bounds = {Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE,
+                    Integer.MAX_VALUE, Integer.MIN_VALUE};
+            int[] ids = sellers[commodityId];
+            for (int i = 0; i < ids.length; i++) {
+                int id = ids[i];
+                int cx = cell(store.x(id)), cy = cell(store.y(id)), cz = cell(store.z(id));
+                builders.computeIfAbsent(key(cx, cy, cz), k -> new BucketBuilder()).add(id, supplies[commodityId][i]);
+                bounds[0] = Math.min(bounds[0], cx);
+                bounds[1] = Math.max(bounds[1], cx);
+                bounds[2] = Math.min(bounds[2], cy);
+                bounds[3] = Math.max(bounds[3], cy);
+                bounds[4] = Math.min(bounds[4], cz);
+                bounds[5] = Math.max(bounds[5], cz);
+            }
+            
+            Map<Long, Bucket> cells = new HashMap<>(builders.size() * 2);
+            builders.forEach((key, builder) -> cells.put(key, builder.build()));
+            perCommodity.add(new Cells(cells, bounds));
+        }
+        this.buckets = List.copyOf(perCommodity);
+    }
+    
+    /**
+     * Visit the sellers of a commodity within {@code radius} holding at least
+     * {@code minSupply} tons. Returns the number of stations visited.
+     */
+    public int withinRadius(int commodityId, double qx, double qy, double qz, double radius,
+                            int minSupply, SupplyConsumer consumer) {
+        if (commodityId < 0) {
+            return 0;
+        }
+        
+        Cells cells = buckets.get(commodityId);
+        int[] bounds = cells.bounds();
+        double r2 = radius * radius;
+        int minX = Math.max(cell(qx - radius), bounds[0]), maxX = Math.min(cell(qx + radius), bounds[1]);
+        int minY = Math.max(cell(qy - radius), bounds[2]), maxY = Math.min(cell(qy + radius), bounds[3]);
+        int minZ = Math.max(cell(qz - radius), bounds[4]), maxZ = Math.min(cell(qz + radius), bounds[5]);
+        if (minX > maxX || minY > maxY || minZ > maxZ) {
+            return 0;
+        }
+        
+        int found = 0;
+        long cube = (long) (maxX - minX + 1) * (maxY - minY + 1) * (maxZ - minZ + 1);
+        if (cube > cells.buckets().size()) {
+            for (Bucket bucket : cells.buckets().values()) {
+                found += visit(qx, qy, qz, r2, minSupply, bucket, consumer);
+            }
+            return found;
+        }
+        for (int cx = minX; cx <= maxX; cx++) {
+            for (int cy = minY; cy <= maxY; cy++) {
+                for (int cz = minZ; cz <= maxZ; cz++) {
+                    Bucket bucket = cells.buckets().get(key(cx, cy, cz));
+                    if (bucket != null) {
+                        found += visit(qx, qy, qz, r2, minSupply, bucket, consumer);
+                    }
+                }
+            }
+        }
+        return found;
+    }
+    
+    private int visit(double qx, double qy, double qz, double r2, int minSupply, Bucket bucket,
+                      SupplyConsumer consumer) {
+        int found = 0;
+        for (int i = 0; i < bucket.stationIds.length; i++) {
+            // Entries are sorted by supply, so the rest of the cell holds less
+            if (bucket.supplies[i] < minSupply) {
+                break;
+            }
+            int id = bucket.stationIds[i];
+            double dx = store.x(id) - qx;
+            double dy = store.y(id) - qy;
+            double dz = store.z(id) - qz;
+            if (dx * dx + dy * dy + dz * dz <= r2) {
+                consumer.accept(id, bucket.supplies[i]);
+                found++;
+            }
+        }
+        return found;
+    }
+    
+    private int cell(double coordinate) {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+    
+    private static long key(int cx, int cy, int cz) {
+        return ((long) (cx & 0x1FFFFF) << 42) | ((long) (cy & 0x1FFFFF) << 21) | (cz & 0x1FFFFF);
+    }
+    
+    @FunctionalInterface
+    public interface SupplyConsumer {
+        void accept(int stationId, int supply);
+    }
+    
+    private record Bucket(int[] stationIds, int[] supplies) {
+    }
+    
+    /**
+     * One commodity's cells and the bounds of the occupied ones (min/max x, y, z).
+     */
+    private record Cells(Map<Long, Bucket> buckets, int[] bounds) {
+    }
+    
+    private static class BucketBuilder {
+        final StationStore.IntColumn ids = new StationStore.IntColumn();
+        final StationStore.IntColumn supplies = new StationStore.IntColumn();
+        
+        void add(int id, int supply) {
+            ids.add(id);
+            supplies.add(supply);
+        }
+        
+        Bucket build() {
+            int[] idArray = ids.toArray();
+            int[] supplyArray = supplies.toArray();
+            
+            // Sort by supply descending, keeping ids alongside
+            Integer[] order = new Integer[idArray.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            java.util.Arrays.sort(order, (a, b) -> Integer.compare(supplyArray[b], supplyArray[a]));
+            
+            int[] sortedIds = new int[order.length];
+            int[] sortedSupplies = new int[order.length];
+            for (int i = 0; i < order.length; i++) {
+                sortedIds[i] = idArray[order[i]];
+                sortedSupplies[i] = supplyArray[order[i]];
+            }
+            return new Bucket(sortedIds, sortedSupplies);
+        }
+    }
+}
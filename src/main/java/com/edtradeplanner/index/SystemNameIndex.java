@@ -0,0 +1,71 @@
+package com.edtradeplanner.index;
+
+import com.edtradeplanner.model.StarSystem;
+
+import java.util.*;
+
+/**
+ * Name lookup for star systems: an exact, case-insensitive map from the
+ * lowercased name to the original {@link StarSystem}, plus a BK-tree over the
+ * lowercased names for typo-tolerant suggestions.
+ */
+public class SystemNameIndex {
+    
+    private final Map<String, StarSystem> canonical;
+    private final BkTree bkTree = new BkTree();
+    
+    public SystemNameIndex(List<StarSystem> systems) {
+        this.canonical = new HashMap<>(Math.max(16, systems.size() * 2));
+        
+        for (StarSystem system : systems) {
+            if (system.getName() == null) {
+                continue;
+            }
+            String key = normalize(system.getName());
+            // Keep the first system for duplicate names, like the coordinates map
+            if (canonical.putIfAbsent(key, system) == null) {
+                bkTree.add(key);
+            }
+        }
+    }
+    
+    /**
+     * Look up a system by name, ignoring case and surrounding whitespace.
+     */
+    public Optional<StarSystem> find(String name) {
+        if (name == null || name.isBlank()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(canonical.get(normalize(name)));
+    }
+    
+    /**
+     * Closest system names to a (possibly misspelled) name, nearest first.
+     * Only names within {@code maxDistance} edits are considered.
+     */
+    public List<String> suggest(String name, int maxDistance, int limit) {
+        if (name == null || name.isBlank() || limit <= 0) {
+            return List.of();
+        }
+        
+        List<BkTree.Match> matches = bkTree.search(normalize(name), maxDistance);
+        matches.sort(Comparator.comparingInt(BkTree.Match::distance).thenComparing(BkTree.Match::term));
+        
+        List<String> result = new ArrayList<>();
+        for (BkTree.Match match : matches) {
+            if (result.size() >= limit) {
+                break;
+            }
+            result.add(canonical.get(match.term()).getName());
+        }
+        return result;
+    }
+    
+    public int size() {
+        return canonical.size();
+    }
+    
+    private static String normalize(String name) {
+        return name.trim().toLowerCase();
+    }
+}
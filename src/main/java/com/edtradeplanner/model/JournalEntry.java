@@ -0,0 +1,28 @@
+package com.edtradeplanner.model;
+
+import com.edtradeplanner.model.dto.RouteRequestDto;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * One line of the plan journal: the request options and needs of a plan,
+ * without anything identifying the client, and what the planner produced.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class JournalEntry {
+    private Instant recordedAt;
+    private RouteRequestDto request;
+    private List<CommodityNeed> needs;
+    private boolean success;
+    private double totalDistance;
+    private int binsCount;
+    private long planningMs;
+}
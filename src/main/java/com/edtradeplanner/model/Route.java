@@ -8,11 +8,13 @@ import lombok.NoArgsConstructor;
 import java.util.List;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class Route {
     private int binNumber;
     private double totalDistance;
+    private Integer totalJumps;
     private List<RouteLeg> legs;
+    private List<RouteAlternative> alternatives;
 }
\ No newline at end of file
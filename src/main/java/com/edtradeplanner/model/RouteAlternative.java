@@ -0,0 +1,18 @@
+package com.edtradeplanner.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RouteAlternative {
+    private double totalDistance;
+    private int stops;
+    private List<RouteLeg> legs;
+}
@@ -5,6 +5,8 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.Map;
+
 @Data
 @Builder
 @NoArgsConstructor
@@ -15,6 +17,8 @@ public class RouteLeg {
     private String systemName;
     private String stationName;
     private String commodity;
+    private Map<String, Integer> quantities;
     private double distance;
+    private Integer jumps;
     private String action;
 }
\ No newline at end of file
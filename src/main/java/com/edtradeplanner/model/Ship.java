@@ -0,0 +1,20 @@
+package com.edtradeplanner.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A ship type in a fleet plan and how many of it fly.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Ship {
+    private String name;
+    private int cargoCapacity;
+    private double maxRange;
+    private int count;
+}
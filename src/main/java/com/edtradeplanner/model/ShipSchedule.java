@@ -0,0 +1,24 @@
+package com.edtradeplanner.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * The trips one ship of a fleet flies, in order; {@code totalDistance} is its
+ * share of the makespan.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShipSchedule {
+    private String name;
+    private int cargoCapacity;
+    private double maxRange;
+    private double totalDistance;
+    private List<Route> routes;
+}
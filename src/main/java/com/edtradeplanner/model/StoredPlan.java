@@ -0,0 +1,29 @@
+package com.edtradeplanner.model;
+
+import com.edtradeplanner.model.dto.RouteRequestDto;
+import com.edtradeplanner.model.dto.RouteResponseDto;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A plan kept in the plan store: the options it was planned with, the needs it
+ * covers and the planned routes. Each replan bumps the revision.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoredPlan {
+    private String id;
+    private int revision;
+    private Instant createdAt;
+    private Instant updatedAt;
+    private RouteRequestDto request;
+    private List<CommodityNeed> needs;
+    private RouteResponseDto plan;
+}
@@ -0,0 +1,157 @@
+package com.edtradeplanner.model.dto;
+
+import com.edtradeplanner.model.HomeSystem;
+import com.edtradeplanner.model.Route;
+import com.edtradeplanner.model.RouteAlternative;
+import com.edtradeplanner.model.RouteLeg;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact form of {@link RouteResponseDto}. Every station visited by any route
+ * is listed once in {@code stations}, and legs refer to it by index instead of
+ * repeating names and coordinates. A leg starts where the previous one ended
+ * (the home system for the first leg), so start positions are not repeated
+ * either. {@code originalChunks} is left out; per-leg {@code quantities} carry
+ * the loaded tons.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CompactRouteResponseDto {
+    
+    public static final String MEDIA_TYPE = "application/vnd.edtradeplanner.compact+json";
+    
+    /** Leg target index for legs that end at home or at no station. */
+    public static final int NO_STATION = -1;
+    
+    private boolean success;
+    private String error;
+    private String planId;
+    private List<String> suggestions;
+    private double totalDistance;
+    private int shipCapacity;
+    private int binsCount;
+    private HomeSystem homeSystem;
+    private Map<String, Object> optimization;
+    private List<StationRef> stations;
+    private List<CompactRoute> routes;
+    
+    public static CompactRouteResponseDto from(RouteResponseDto response) {
+        StationTable table = new StationTable();
+        List<CompactRoute> routes = null;
+        if (response.getRoutes() != null) {
+            routes = new ArrayList<>(response.getRoutes().size());
+            for (Route route : response.getRoutes()) {
+                List<CompactAlternative> alternatives = null;
+                if (route.getAlternatives() != null) {
+                    alternatives = new ArrayList<>(route.getAlternatives().size());
+                    for (RouteAlternative alternative : route.getAlternatives()) {
+                        alternatives.add(new CompactAlternative(alternative.getTotalDistance(), alternative.getStops(),
+                                table.legs(alternative.getLegs())));
+                    }
+                }
+                routes.add(new CompactRoute(route.getBinNumber(), route.getTotalDistance(), route.getTotalJumps(),
+                        table.legs(route.getLegs()), alternatives));
+            }
+        }
+        
+        return CompactRouteResponseDto.builder()
+                .success(response.isSuccess())
+                .error(response.getError())
+                .planId(response.getPlanId())
+                .suggestions(response.getSuggestions())
+                .totalDistance(response.getTotalDistance())
+                .shipCapacity(response.getShipCapacity())
+                .binsCount(response.getBinsCount())
+                .homeSystem(response.getHomeSystem())
+                .optimization(response.getOptimization())
+                .stations(routes != null ? table.stations : null)
+                .routes(routes)
+                .build();
+    }
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class StationRef {
+        private String system;
+        private String station;
+        private double x;
+        private double y;
+        private double z;
+    }
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CompactRoute {
+        private int binNumber;
+        private double totalDistance;
+        private Integer totalJumps;
+        private List<CompactLeg> legs;
+        private List<CompactAlternative> alternatives;
+    }
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CompactAlternative {
+        private double totalDistance;
+        private int stops;
+        private List<CompactLeg> legs;
+    }
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CompactLeg {
+        private int to;
+        private String commodity;
+        private Map<String, Integer> quantities;
+        private double distance;
+        private Integer jumps;
+        private String action;
+    }
+    
+    /**
+     * Assigns table indices to stations in order of first appearance.
+     */
+    private static class StationTable {
+        final List<StationRef> stations = new ArrayList<>();
+        final Map<String, Integer> indices = new HashMap<>();
+        
+        List<CompactLeg> legs(List<RouteLeg> legs) {
+            if (legs == null) {
+                return null;
+            }
+            List<CompactLeg> compact = new ArrayList<>(legs.size());
+            for (RouteLeg leg : legs) {
+                compact.add(new CompactLeg(index(leg), leg.getCommodity(), leg.getQuantities(),
+                        leg.getDistance(), leg.getJumps(), leg.getAction()));
+            }
+            return compact;
+        }
+        
+        int index(RouteLeg leg) {
+            if (leg.getStationName() == null || leg.getEndPos() == null) {
+                return NO_STATION;
+            }
+            return indices.computeIfAbsent(leg.getSystemName() + "\u0000" + leg.getStationName(), key -> {
+                stations.add(new StationRef(leg.getSystemName(), leg.getStationName(),
+                        leg.getEndPos().getX(), leg.getEndPos().getY(), leg.getEndPos().getZ()));
+                return stations.size() - 1;
+            });
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.edtradeplanner.model.dto;
+
+import com.edtradeplanner.model.HomeSystem;
+import com.edtradeplanner.model.ShipSchedule;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FleetPlanResponseDto {
+    private boolean success;
+    private String error;
+    // Longest ship schedule, in ly
+    private double makespan;
+    private double totalDistance;
+    private int binsCount;
+    private HomeSystem homeSystem;
+    private List<ShipSchedule> ships;
+    private Map<String, Object> optimization;
+    private List<String> suggestions;
+    
+    public FleetPlanResponseDto(boolean success, String error) {
+        this.success = success;
+        this.error = error;
+    }
+}
@@ -0,0 +1,32 @@
+package com.edtradeplanner.model.dto;
+
+import com.edtradeplanner.model.Ship;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * A fleet plan: the options of a single-ship request, with the fleet's ship
+ * types in place of one cargo capacity and range.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FleetRequestDto {
+    private List<Ship> ships;
+    private String homeSystem;
+    private boolean useCoordinates;
+    private double homeX;
+    private double homeY;
+    private double homeZ;
+    private Boolean supplyAware;
+    private String planningMode;
+    private long beamTimeBudgetMs;
+    @JsonIgnore
+    private String requestId;
+}
@@ -1,5 +1,6 @@
 package com.edtradeplanner.model.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -13,6 +14,7 @@ import org.springframework.web.multipart.MultipartFile;
 public class RouteRequestDto {
     private int cargoCapacity;
     private double maxRange;
+    private double jumpRange;
     private String homeSystem;
     private boolean useCoordinates;
     private double homeX;
@@ -20,5 +22,13 @@ public class RouteRequestDto {
     private double homeZ;
     private boolean skipCarriers;
     private boolean largePadOnly;
+    private Boolean supplyAware;
+    private String planningMode;
+    private int beamWidth;
+    private long beamTimeBudgetMs;
+    @JsonIgnore
     private MultipartFile needsFile;
+    // Set from the X-Request-Id header, or generated; ties diagnostics to the request
+    @JsonIgnore
+    private String requestId;
 }
\ No newline at end of file
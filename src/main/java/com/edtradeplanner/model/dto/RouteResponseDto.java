@@ -13,13 +13,14 @@ import java.util.List;
 import java.util.Map;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class RouteResponseDto {
     private boolean success;
     private String error;
+    private String planId;
     private List<Route> routes;
     private double totalDistance;
     private int shipCapacity;
@@ -27,6 +28,7 @@ public class RouteResponseDto {
     private HomeSystem homeSystem;
     private List<Chunk> originalChunks;
     private Map<String, Object> optimization;
+    private List<String> suggestions;
     
     public RouteResponseDto(boolean success, String error) {
         this.success = success;
@@ -0,0 +1,26 @@
+package com.edtradeplanner.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Coordinator to worker: the stations within {@code radius} of a point that sell
+ * any of {@code commodities} and pass the station filters.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShardOffersRequestDto {
+    private double x;
+    private double y;
+    private double z;
+    private double radius;
+    private List<String> commodities;
+    private boolean skipCarriers;
+    private boolean largePadOnly;
+}
@@ -0,0 +1,152 @@
+package com.edtradeplanner.replay;
+
+import com.edtradeplanner.config.PlannerConfig;
+import com.edtradeplanner.model.JournalEntry;
+import com.edtradeplanner.model.dto.RouteResponseDto;
+import com.edtradeplanner.service.CommodityService;
+import com.edtradeplanner.service.PlanJournal;
+import com.edtradeplanner.service.RoutePlannerService;
+import com.edtradeplanner.service.SolverSelector;
+import com.edtradeplanner.service.WarmupService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Offline replay of a plan journal, run instead of serving when
+ * {@code replay-journal} is set (see scripts/replay-journal.sh).
+ *
+ * Every journaled request is planned {@code replay-passes} times after
+ * {@code replay-warmup-passes} unmeasured passes; a request's latency is the
+ * median of its passes. The report goes to {@code replay-report}, and if
+ * {@code replay-baseline} names an earlier report, distance, bin count and
+ * latency regressions against it are listed and the process exits with 1.
+ * With {@code replay-fit-solver-model} every request is planned once more in
+ * auto mode with every solver sampled, and the refitted solver models are logged.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class JournalReplayRunner implements ApplicationRunner {
+    
+    private final PlanJournal planJournal;
+    private final RoutePlannerService routePlannerService;
+    private final CommodityService commodityService;
+    private final WarmupService warmupService;
+    private final SolverSelector solverSelector;
+    private final ObjectMapper objectMapper;
+    private final PlannerConfig plannerConfig;
+    private final ConfigurableApplicationContext context;
+    
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        String journal = plannerConfig.getReplayJournal();
+        if (journal == null || journal.isBlank()) {
+            return;
+        }
+        
+        List<JournalEntry> entries = planJournal.read(Paths.get(journal));
+        log.info("Replaying {} journaled plans from {}", entries.size(), journal);
+        commodityService.whenCoreIndexesReady().join();
+        warmupService.whenDone().join();
+        
+        for (int pass = 0; pass < plannerConfig.getReplayWarmupPasses(); pass++) {
+            for (JournalEntry entry : entries) {
+                routePlannerService.planRoute(entry.getRequest(), entry.getNeeds());
+            }
+        }
+        
+        int passes = Math.max(1, plannerConfig.getReplayPasses());
+        double[][] latencies = new double[entries.size()][passes];
+        RouteResponseDto[] responses = new RouteResponseDto[entries.size()];
+        for (int pass = 0; pass < passes; pass++) {
+            for (int i = 0; i < entries.size(); i++) {
+                long start = System.nanoTime();
+                responses[i] = routePlannerService.planRoute(entries.get(i).getRequest(), entries.get(i).getNeeds());
+                latencies[i][pass] = (System.nanoTime() - start) / 1e6;
+            }
+        }
+        
+        if (plannerConfig.isReplayFitSolverModel()) {
+            fitSolverModel(entries);
+        }
+        
+        List<ReplayReport.Result> results = new ArrayList<>();
+        for (int i = 0; i < entries.size(); i++) {
+            results.add(ReplayReport.Result.builder()
+                    .index(i)
+                    .success(responses[i].isSuccess())
+                    .totalDistance(responses[i].getTotalDistance())
+                    .binsCount(responses[i].getBinsCount())
+                    .latencyMs(Math.round(ReplayReport.median(latencies[i]) * 100.0) / 100.0)
+                    .error(responses[i].getError())
+                    .build());
+        }
+        ReplayReport report = ReplayReport.builder()
+                .createdAt(Instant.now())
+                .journal(journal)
+                .dataset(plannerConfig.getSystemsJsonPath())
+                .passes(passes)
+                .results(results)
+                .build()
+                .summarize();
+        
+        for (ReplayReport.Result result : results) {
+            log.info("#{} {} ms, {} ly, {} bins{}", result.getIndex(), result.getLatencyMs(), result.getTotalDistance(),
+                    result.getBinsCount(), result.isSuccess() ? "" : " FAILED: " + result.getError());
+        }
+        log.info("Replay: p50 {} ms, p90 {} ms, p99 {} ms, max {} ms; {} ly in {} bins over {} requests",
+                report.getP50Ms(), report.getP90Ms(), report.getP99Ms(), report.getMaxMs(),
+                report.getTotalDistance(), report.getTotalBins(), results.size());
+        
+        Path reportPath = Paths.get(plannerConfig.getReplayReport());
+        if (reportPath.getParent() != null) {
+            Files.createDirectories(reportPath.getParent());
+        }
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(reportPath.toFile(), report);
+        log.info("Replay report written to {}", reportPath);
+        
+        int exitCode = 0;
+        String baselinePath = plannerConfig.getReplayBaseline();
+        if (baselinePath != null && !baselinePath.isBlank()) {
+            ReplayReport baseline = objectMapper.readValue(Paths.get(baselinePath).toFile(), ReplayReport.class);
+            ReplayReport.Diff diff = report.compareTo(baseline, plannerConfig.getReplayLatencyTolerance());
+            diff.getImprovements().forEach(line -> log.info("Improved: {}", line));
+            diff.getRegressions().forEach(line -> log.warn("Regressed: {}", line));
+            log.info("Against {}: {} regressions, {} improvements", baselinePath,
+                    diff.getRegressions().size(), diff.getImprovements().size());
+            exitCode = diff.getRegressions().isEmpty() ? 0 : 1;
+        }
+        
+        int code = exitCode;
+        System.exit(SpringApplication.exit(context, () -> code));
+    }
+    
+    private void fitSolverModel(List<JournalEntry> entries) {
+        solverSelector.setSampling(true);
+        try {
+            for (JournalEntry entry : entries) {
+                String mode = entry.getRequest().getPlanningMode();
+                entry.getRequest().setPlanningMode("auto");
+                routePlannerService.planRoute(entry.getRequest(), entry.getNeeds());
+                entry.getRequest().setPlanningMode(mode);
+            }
+        } finally {
+            solverSelector.setSampling(false);
+        }
+        solverSelector.fit();
+    }
+}
@@ -0,0 +1,142 @@
+package com.edtradeplanner.replay;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Result of replaying a plan journal: latency percentiles over the requests
+ * and, per request, the median latency, total distance and bin count. A
+ * saved report is the baseline the next replay is compared against.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReplayReport {
+    
+    // Sub-millisecond plans would flag on timer noise alone without some absolute slack
+    private static final double LATENCY_SLACK_MS = 1.0;
+    // Distances are reported to two decimals
+    private static final double DISTANCE_SLACK = 0.005;
+    
+    private Instant createdAt;
+    private String journal;
+    private String dataset;
+    private int passes;
+    private double p50Ms;
+    private double p90Ms;
+    private double p99Ms;
+    private double maxMs;
+    private double totalDistance;
+    private int totalBins;
+    private List<Result> results;
+    
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Result {
+        private int index;
+        private boolean success;
+        private double totalDistance;
+        private int binsCount;
+        private double latencyMs;
+        private String error;
+    }
+    
+    /**
+     * Fill in the percentiles and totals from the per-request results.
+     */
+    public ReplayReport summarize() {
+        double[] latencies = results.stream().mapToDouble(Result::getLatencyMs).sorted().toArray();
+        p50Ms = percentile(latencies, 50);
+        p90Ms = percentile(latencies, 90);
+        p99Ms = percentile(latencies, 99);
+        maxMs = latencies.length == 0 ? 0 : latencies[latencies.length - 1];
+        totalDistance = Math.round(results.stream().mapToDouble(Result::getTotalDistance).sum() * 100.0) / 100.0;
+        totalBins = results.stream().mapToInt(Result::getBinsCount).sum();
+        return this;
+    }
+    
+    /**
+     * Nearest-rank percentile of sorted values.
+     */
+    static double percentile(double[] sorted, double percent) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)];
+    }
+    
+    /**
+     * Median of the given values; sorts them in place.
+     */
+    static double median(double[] values) {
+        Arrays.sort(values);
+        return values[values.length / 2];
+    }
+    
+    /**
+     * Compare against a baseline: requests that failed, got longer or needed
+     * more bins, and latency percentiles more than {@code latencyTolerance}
+     * (a fraction) slower. Improvements are listed separately.
+     */
+    public Diff compareTo(ReplayReport baseline, double latencyTolerance) {
+        Diff diff = new Diff();
+        if (baseline.results.size() != results.size()) {
+            diff.regressions.add(String.format("baseline has %d requests, this replay %d",
+                    baseline.results.size(), results.size()));
+        }
+        for (int i = 0; i < Math.min(baseline.results.size(), results.size()); i++) {
+            Result before = baseline.results.get(i);
+            Result after = results.get(i);
+            if (before.success && !after.success) {
+                diff.regressions.add(String.format("#%d now fails: %s", i, after.error));
+                continue;
+            }
+            if (!before.success || !after.success) {
+                continue;
+            }
+            if (after.totalDistance > before.totalDistance + DISTANCE_SLACK) {
+                diff.regressions.add(String.format("#%d distance %.2f -> %.2f ly", i, before.totalDistance, after.totalDistance));
+            } else if (after.totalDistance < before.totalDistance - DISTANCE_SLACK) {
+                diff.improvements.add(String.format("#%d distance %.2f -> %.2f ly", i, before.totalDistance, after.totalDistance));
+            }
+            if (after.binsCount > before.binsCount) {
+                diff.regressions.add(String.format("#%d bins %d -> %d", i, before.binsCount, after.binsCount));
+            } else if (after.binsCount < before.binsCount) {
+                diff.improvements.add(String.format("#%d bins %d -> %d", i, before.binsCount, after.binsCount));
+            }
+        }
+        compareLatency(diff, "p50", baseline.p50Ms, p50Ms, latencyTolerance);
+        compareLatency(diff, "p90", baseline.p90Ms, p90Ms, latencyTolerance);
+        compareLatency(diff, "p99", baseline.p99Ms, p99Ms, latencyTolerance);
+        return diff;
+    }
+    
+    private static void compareLatency(Diff diff, String name, double before, double after, double tolerance) {
+        String change = String.format("%s latency %.1f -> %.1f ms", name, before, after);
+        if (after > before * (1 + tolerance) + LATENCY_SLACK_MS) {
+            diff.regressions.add(change);
+        } else if (after < before / (1 + tolerance) - LATENCY_SLACK_MS) {
+            diff.improvements.add(change);
+        }
+    }
+    
+    /**
+     * Differences from a baseline report.
+     */
+    @Data
+    public static class Diff {
+        private final List<String> regressions = new ArrayList<>();
+        private final List<String> improvements = new ArrayList<>();
+    }
+}
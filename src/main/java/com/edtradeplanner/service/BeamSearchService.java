@@ -0,0 +1,274 @@
+package com.edtradeplanner.service;
+
+import com.edtradeplanner.config.PlannerConfig;
+import com.edtradeplanner.index.CommodityIndex;
+import com.edtradeplanner.index.DistanceField;
+import com.edtradeplanner.index.StationStore;
+import com.edtradeplanner.model.Chunk;
+import com.edtradeplanner.model.Coordinates;
+import com.edtradeplanner.model.RouteAlternative;
+import com.edtradeplanner.model.RouteLeg;
+import com.edtradeplanner.util.DistanceCalculator;
+import com.edtradeplanner.util.StationScoreUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Beam search over pickup tours for one bin. Each step expands every partial
+ * tour in parallel into its best-scoring next stops, then keeps the top
+ * {@code beamWidth} partial tours ranked by the commodities they still have
+ * to cover, then by distance so far plus the distance back home. All partial
+ * tours of a step have the same number of stops. Completed tours are reduced
+ * to a Pareto set over total distance and stop count. Legs are priced by
+ * straight-line distance.
+ */
+@Slf4j
+@Service
+public class BeamSearchService {
+    
+    private final PlannerConfig plannerConfig;
+    private final Executor beamSearchTaskExecutor;
+    
+    public BeamSearchService(PlannerConfig plannerConfig,
+                             @Qualifier("beamSearchTaskExecutor") Executor beamSearchTaskExecutor) {
+        this.plannerConfig = plannerConfig;
+        this.beamSearchTaskExecutor = beamSearchTaskExecutor;
+    }
+    
+    /**
+     * Search for alternative tours covering the bin. Returns the Pareto set of
+     * completed tours sorted by distance, or an empty list if none completed
+     * before the deadline.
+     */
+    public List<RouteAlternative> search(
+            List<Chunk> binChunks,
+            CommodityIndex commodityIndex,
+            Coordinates homeCoords,
+            double maxRange,
+            Map<String, Set<String>> commodityStationEconomyMap,
+            int beamWidth,
+            boolean supplyAware,
+            long deadlineNanos) {
+        
+        List<String> commodities = binChunks.stream().map(Chunk::getCommodity).distinct().toList();
+        
+        int[] quantities = new int[commodities.size()];
+        for (Chunk chunk : binChunks) {
+            quantities[commodities.indexOf(chunk.getCommodity())] += chunk.getSize();
+        }
+        BitSet all = new BitSet(commodities.size());
+        all.set(0, commodities.size());
+        
+        SearchContext context = new SearchContext(commodities, quantities, supplyAware, commodityIndex, homeCoords, maxRange,
+                commodityStationEconomyMap, beamWidth);
+        List<Beam> active = List.of(new Beam(null, -1, null, all, homeCoords.getX(), homeCoords.getY(), homeCoords.getZ(), 0.0, 0.0, 0));
+        List<Beam> completed = new ArrayList<>();
+        
+        while (!active.isEmpty() && System.nanoTime() < deadlineNanos) {
+            // Expand all beams in parallel
+            List<CompletableFuture<List<Beam>>> expansions = active.stream()
+                    .map(beam -> CompletableFuture.supplyAsync(() -> context.expand(beam), beamSearchTaskExecutor))
+                    .toList();
+            
+            Map<BeamKey, Beam> next = new HashMap<>();
+            for (CompletableFuture<List<Beam>> expansion : expansions) {
+                for (Beam child : expansion.join()) {
+                    if (child.remaining.isEmpty()) {
+                        completed.add(child);
+                    } else {
+                        // Same stop with the same needs left: keep the shorter partial tour
+                        next.merge(new BeamKey(child.stationId, child.remaining), child,
+                                (a, b) -> a.distance <= b.distance ? a : b);
+                    }
+                }
+            }
+            
+            active = next.values().stream()
+                    .sorted(Comparator.comparingInt((Beam b) -> b.remaining.cardinality())
+                            .thenComparingDouble(b -> b.distance + b.toHome)
+                            .thenComparingInt(b -> b.stops))
+                    .limit(beamWidth)
+                    .toList();
+        }
+        
+        if (!active.isEmpty()) {
+            log.debug("Beam search hit its time budget with {} partial tours", active.size());
+        }
+        
+        List<RouteAlternative> alternatives = new ArrayList<>();
+        for (Beam beam : completed) {
+            alternatives.add(context.toAlternative(beam));
+        }
+        return paretoFront(alternatives);
+    }
+    
+    /**
+     * Keep the tours not dominated on (total distance, stops), shortest first,
+     * capped at the configured number of alternatives.
+     */
+    public List<RouteAlternative> paretoFront(List<RouteAlternative> alternatives) {
+        List<RouteAlternative> sorted = new ArrayList<>(alternatives);
+        sorted.sort(Comparator.comparingDouble(RouteAlternative::getTotalDistance)
+                .thenComparingInt(RouteAlternative::getStops));
+        
+        List<RouteAlternative> front = new ArrayList<>();
+        int fewestStops = Integer.MAX_VALUE;
+        for (RouteAlternative alternative : sorted) {
+            if (alternative.getStops() < fewestStops) {
+                front.add(alternative);
+                fewestStops = alternative.getStops();
+            }
+        }
+        return front.size() > plannerConfig.getBeamMaxAlternatives()
+                ? new ArrayList<>(front.subList(0, plannerConfig.getBeamMaxAlternatives()))
+                : front;
+    }
+    
+    /**
+     * Immutable partial tour; {@code parent} links back towards home, and
+     * {@code toHome} is the distance from the last stop back home.
+     */
+    private record Beam(Beam parent, int stationId, BitSet covered, BitSet remaining,
+                        double x, double y, double z, double distance, double toHome, int stops) {
+    }
+    
+    private record BeamKey(int stationId, BitSet remaining) {
+    }
+    
+    /**
+     * Per-bin data shared by all expansions.
+     */
+    private static class SearchContext {
+        final List<String> commodities;
+        final int[] quantities;
+        final boolean supplyAware;
+        final CommodityIndex commodityIndex;
+        final StationStore store;
+        final Coordinates homeCoords;
+        final double maxRange;
+        final Map<String, Set<String>> commodityStationEconomyMap;
+        final int branching;
+        final DistanceField field;
+        final int[] commodityIds;
+        
+        SearchContext(List<String> commodities, int[] quantities, boolean supplyAware, CommodityIndex commodityIndex,
+                      Coordinates homeCoords, double maxRange, Map<String, Set<String>> commodityStationEconomyMap,
+                      int branching) {
+            this.commodities = commodities;
+            this.quantities = quantities;
+            this.supplyAware = supplyAware;
+            this.commodityIndex = commodityIndex;
+            this.store = commodityIndex.getStore();
+            this.homeCoords = homeCoords;
+            this.maxRange = maxRange;
+            this.commodityStationEconomyMap = commodityStationEconomyMap;
+            this.branching = branching;
+            this.field = commodityIndex.getDistanceField();
+            this.commodityIds = commodities.stream().mapToInt(store::commodityId).toArray();
+        }
+        
+        /**
+         * The {@code branching} best next stops from a partial tour, by greedy score.
+         */
+        List<Beam> expand(Beam beam) {
+            Map<Integer, BitSet> candidates = new HashMap<>();
+            List<String> needed = new ArrayList<>();
+            for (int i = beam.remaining.nextSetBit(0); i >= 0; i = beam.remaining.nextSetBit(i + 1)) {
+                int commodityIdx = i;
+                needed.add(commodities.get(i));
+                if (field != null && field.lowerBound(commodityIds[i], beam.x, beam.y, beam.z) > maxRange) {
+                    // No seller within range of this stop
+                    continue;
+                }
+                if (supplyAware) {
+                    // Beam tours never split a pickup, so a stop must hold the whole quantity
+                    commodityIndex.withinRadiusWithSupply(commodities.get(i), beam.x, beam.y, beam.z, maxRange, quantities[i],
+                            (stationId, supply) -> candidates.computeIfAbsent(stationId, k -> new BitSet()).set(commodityIdx));
+                } else {
+                    commodityIndex.withinRadius(commodities.get(i), beam.x, beam.y, beam.z, maxRange,
+                            stationId -> candidates.computeIfAbsent(stationId, k -> new BitSet()).set(commodityIdx));
+                }
+            }
+            
+            List<double[]> scored = new ArrayList<>(candidates.size());
+            for (Map.Entry<Integer, BitSet> entry : candidates.entrySet()) {
+                int stationId = entry.getKey();
+                double dist = distance(beam, stationId);
+                double score = StationScoreUtil.stationScore(entry.getValue().cardinality(), dist, store.prefPenalty(stationId),
+                        StationScoreUtil.economyFactor(store.stationEconomyCombo(stationId), needed, commodityStationEconomyMap));
+                scored.add(new double[]{score, stationId, dist});
+            }
+            scored.sort((a, b) -> Double.compare(b[0], a[0]));
+            
+            List<Beam> children = new ArrayList<>(Math.min(branching, scored.size()));
+            for (int i = 0; i < scored.size() && i < branching; i++) {
+                int stationId = (int) scored.get(i)[1];
+                BitSet covered = candidates.get(stationId);
+                BitSet remaining = (BitSet) beam.remaining.clone();
+                remaining.andNot(covered);
+                double x = store.x(stationId), y = store.y(stationId), z = store.z(stationId);
+                children.add(new Beam(beam, stationId, covered, remaining, x, y, z,
+                        beam.distance + scored.get(i)[2],
+                        DistanceCalculator.distance(x, y, z, homeCoords.getX(), homeCoords.getY(), homeCoords.getZ()),
+                        beam.stops + 1));
+            }
+            return children;
+        }
+        
+        private double distance(Beam beam, int stationId) {
+            return DistanceCalculator.distance(beam.x, beam.y, beam.z, store.x(stationId), store.y(stationId), store.z(stationId));
+        }
+        
+        /**
+         * Turn a completed tour into legs in the same format as the greedy planner.
+         */
+        RouteAlternative toAlternative(Beam last) {
+            Deque<Beam> path = new ArrayDeque<>();
+            for (Beam beam = last; beam.parent != null; beam = beam.parent) {
+                path.push(beam);
+            }
+            
+            List<RouteLeg> legs = new ArrayList<>();
+            Coordinates currentPos = homeCoords;
+            for (Beam stop : path) {
+                Coordinates stationCoords = store.coords(stop.stationId);
+                Map<String, Integer> covered = new LinkedHashMap<>();
+                for (int i = stop.covered.nextSetBit(0); i >= 0; i = stop.covered.nextSetBit(i + 1)) {
+                    covered.put(commodities.get(i), quantities[i]);
+                }
+                double dist = DistanceCalculator.distance(currentPos, stationCoords);
+                legs.add(RouteLeg.builder()
+                        .startPos(currentPos)
+                        .endPos(stationCoords)
+                        .systemName(store.systemName(stop.stationId))
+                        .stationName(store.stationName(stop.stationId))
+                        .commodity("{" + String.join(", ", covered.keySet()) + "}")
+                        .quantities(covered)
+                        .distance(Math.round(dist * 100.0) / 100.0)
+                        .action("PICKUP_RATIO")
+                        .build());
+                currentPos = stationCoords;
+            }
+            
+            double distHome = DistanceCalculator.distance(currentPos, homeCoords);
+            legs.add(RouteLeg.builder()
+                    .startPos(currentPos)
+                    .endPos(homeCoords)
+                    .commodity("RETURN_HOME")
+                    .distance(Math.round(distHome * 100.0) / 100.0)
+                    .action("RETURN")
+                    .build());
+            
+            return RouteAlternative.builder()
+                    .totalDistance(Math.round((last.distance + distHome) * 100.0) / 100.0)
+                    .stops(last.stops)
+                    .legs(legs)
+                    .build();
+        }
+    }
+}
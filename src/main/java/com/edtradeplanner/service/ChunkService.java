@@ -1,9 +1,13 @@
 // ChunkService.java
 package com.edtradeplanner.service;
 
+import com.edtradeplanner.config.PlannerConfig;
+import com.edtradeplanner.diagnostics.BinPackingEvent;
 import com.edtradeplanner.model.Chunk;
 import com.edtradeplanner.model.CommodityNeed;
+import lombok.AllArgsConstructor;
 import lombok.RequiredArgsConstructor;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
@@ -16,6 +20,8 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class ChunkService {
     
+    private final PlannerConfig plannerConfig;
+    
     /**
      * Split commodity needs into chunks of up to the specified capacity.
      */
@@ -47,6 +53,257 @@ public class ChunkService {
         return chunks;
     }
     
+    /**
+     * Pack chunks into bins and try to close the gap to the bin-count lower bound.
+     * The economy-aware packing is used as the starting point; if it opens more bins
+     * than the lower bound, best-fit decreasing and then an exact search (bounded by
+     * the configured time budget) are tried, and the first solution using fewer bins wins.
+     */
+    public PackingResult packBins(
+            List<Chunk> chunks,
+            int capacity,
+            Map<String, Set<String>> commodityStationEconomyMap,
+            Map<String, Map<String, Integer>> coOccurrence) {
+        
+        BinPackingEvent event = new BinPackingEvent();
+        event.begin();
+        List<List<Chunk>> bins = economyAwareBinPacking(chunks, capacity, commodityStationEconomyMap, coOccurrence);
+        int lowerBound = binCountLowerBound(chunks, capacity);
+        String solver = "economy-aware";
+        
+        if (bins.size() > lowerBound) {
+            List<List<Chunk>> bestFit = bestFitDecreasing(chunks, capacity);
+            if (bestFit.size() < bins.size()) {
+                bins = bestFit;
+                solver = "best-fit-decreasing";
+            }
+        }
+        
+        if (bins.size() > lowerBound) {
+            long deadline = System.nanoTime() + plannerConfig.getPackingTimeBudgetMs() * 1_000_000L;
+            List<List<Chunk>> exact = exactPacking(chunks, capacity, lowerBound, bins.size() - 1, deadline);
+            if (exact != null) {
+                bins = exact;
+                solver = "exact";
+            }
+        }
+        
+        assignBinNumbers(bins);
+        if (!"economy-aware".equals(solver)) {
+            log.info("{} packing reduced bin count to {} (lower bound {})", solver, bins.size(), lowerBound);
+        }
+        if (event.shouldCommit()) {
+            event.chunks = chunks.size();
+            event.bins = bins.size();
+            event.lowerBound = lowerBound;
+            event.solver = solver;
+            event.commit();
+        }
+        return new PackingResult(bins, lowerBound, solver);
+    }
+    
+    /**
+     * Lower bound on the number of bins: the larger of the L1 (total size) and
+     * Martello-Toth L2 bounds.
+     */
+    public int binCountLowerBound(List<Chunk> chunks, int capacity) {
+        if (chunks.isEmpty() || capacity <= 0) {
+            return 0;
+        }
+        
+        int[] sizes = chunks.stream().mapToInt(Chunk::getSize).sorted().toArray();
+        long total = 0;
+        for (int size : sizes) {
+            total += size;
+        }
+        int l1 = (int) ((total + capacity - 1) / capacity);
+        
+        // L2: for each threshold k <= C/2, items larger than C-k need their own bin,
+        // items in (C/2, C-k] each need a bin that may still absorb items in [k, C/2]
+        Set<Integer> thresholds = new TreeSet<>();
+        thresholds.add(0);
+        for (int size : sizes) {
+            if (size <= capacity / 2) {
+                thresholds.add(size);
+            }
+        }
+        
+        int l2 = 0;
+        for (int k : thresholds) {
+            int large = 0;
+            int medium = 0;
+            long mediumFree = 0;
+            long smallTotal = 0;
+            for (int size : sizes) {
+                if (size > capacity - k) {
+                    large++;
+                } else if (size > capacity / 2) {
+                    medium++;
+                    mediumFree += capacity - size;
+                } else if (size >= k) {
+                    smallTotal += size;
+                }
+            }
+            long overflow = Math.max(0, smallTotal - mediumFree);
+            int bound = large + medium + (int) ((overflow + capacity - 1) / capacity);
+            l2 = Math.max(l2, bound);
+        }
+        
+        return Math.max(l1, l2);
+    }
+    
+    /**
+     * Classic best-fit decreasing: place each chunk (largest first) into the fullest bin it fits.
+     */
+    private List<List<Chunk>> bestFitDecreasing(List<Chunk> chunks, int capacity) {
+        List<List<Chunk>> bins = new ArrayList<>();
+        List<Integer> leftover = new ArrayList<>();
+        
+        List<Chunk> sorted = chunks.stream()
+                .sorted(Comparator.comparing(Chunk::getSize).reversed())
+                .collect(Collectors.toList());
+        
+        for (Chunk chunk : sorted) {
+            int bestBinIdx = -1;
+            int bestLeft = Integer.MAX_VALUE;
+            for (int binIdx = 0; binIdx < bins.size(); binIdx++) {
+                int left = leftover.get(binIdx) - chunk.getSize();
+                if (left >= 0 && left < bestLeft) {
+                    bestLeft = left;
+                    bestBinIdx = binIdx;
+                }
+            }
+            
+            if (bestBinIdx == -1) {
+                List<Chunk> newBin = new ArrayList<>();
+                newBin.add(chunk);
+                bins.add(newBin);
+                leftover.add(capacity - chunk.getSize());
+            } else {
+                bins.get(bestBinIdx).add(chunk);
+                leftover.set(bestBinIdx, bestLeft);
+            }
+        }
+        
+        return bins;
+    }
+    
+    /**
+     * Exact branch-and-bound search for the smallest feasible bin count in
+     * [minBins, maxBins]. Returns null if nothing was found before the deadline.
+     */
+    private List<List<Chunk>> exactPacking(List<Chunk> chunks, int capacity, int minBins, int maxBins, long deadline) {
+        // Full chunks always travel alone, so only the partial ones need searching
+        List<Chunk> full = new ArrayList<>();
+        List<Chunk> partial = new ArrayList<>();
+        for (Chunk chunk : chunks) {
+            if (chunk.getSize() >= capacity) {
+                full.add(chunk);
+            } else {
+                partial.add(chunk);
+            }
+        }
+        partial.sort(Comparator.comparing(Chunk::getSize).reversed());
+        
+        int[] sizes = partial.stream().mapToInt(Chunk::getSize).toArray();
+        long[] suffixSum = new long[sizes.length + 1];
+        for (int i = sizes.length - 1; i >= 0; i--) {
+            suffixSum[i] = suffixSum[i + 1] + sizes[i];
+        }
+        
+        for (int target = Math.max(minBins, full.size()); target <= maxBins; target++) {
+            int partialBins = target - full.size();
+            int[] assignment = new int[sizes.length];
+            int[] leftover = new int[Math.max(partialBins, 0)];
+            Arrays.fill(leftover, capacity);
+            
+            ExactSearch search = new ExactSearch(sizes, suffixSum, leftover, assignment, deadline);
+            if (partialBins >= 0 && search.place(0, 0)) {
+                List<List<Chunk>> bins = new ArrayList<>();
+                for (Chunk chunk : full) {
+                    bins.add(new ArrayList<>(List.of(chunk)));
+                }
+                List<List<Chunk>> partialPacking = new ArrayList<>();
+                for (int i = 0; i < partialBins; i++) {
+                    partialPacking.add(new ArrayList<>());
+                }
+                for (int i = 0; i < sizes.length; i++) {
+                    partialPacking.get(assignment[i]).add(partial.get(i));
+                }
+                partialPacking.removeIf(List::isEmpty);
+                bins.addAll(partialPacking);
+                return bins;
+            }
+            if (search.timedOut) {
+                log.debug("Exact packing hit its time budget at {} bins", target);
+                return null;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Depth-first search state for {@link #exactPacking}.
+     */
+    private static class ExactSearch {
+        private final int[] sizes;
+        private final long[] suffixSum;
+        private final int[] leftover;
+        private final int[] assignment;
+        private final long deadline;
+        private long nodes = 0;
+        private boolean timedOut = false;
+        
+        ExactSearch(int[] sizes, long[] suffixSum, int[] leftover, int[] assignment, long deadline) {
+            this.sizes = sizes;
+            this.suffixSum = suffixSum;
+            this.leftover = leftover;
+            this.assignment = assignment;
+            this.deadline = deadline;
+        }
+        
+        boolean place(int item, int openBins) {
+            if (item == sizes.length) {
+                return true;
+            }
+            if ((++nodes & 1023) == 0 && System.nanoTime() > deadline) {
+                timedOut = true;
+            }
+            if (timedOut) {
+                return false;
+            }
+            
+            // Prune when the remaining items cannot fit in the remaining free space
+            long free = 0;
+            for (int left : leftover) {
+                free += left;
+            }
+            if (free < suffixSum[item]) {
+                return false;
+            }
+            
+            int size = sizes[item];
+            Set<Integer> triedLeftovers = new HashSet<>();
+            int limit = Math.min(openBins + 1, leftover.length);
+            for (int bin = 0; bin < limit; bin++) {
+                // Bins with the same remaining space are interchangeable
+                if (leftover[bin] < size || !triedLeftovers.add(leftover[bin])) {
+                    continue;
+                }
+                leftover[bin] -= size;
+                assignment[item] = bin;
+                if (place(item + 1, Math.max(openBins, bin + 1))) {
+                    return true;
+                }
+                leftover[bin] += size;
+                if (timedOut) {
+                    return false;
+                }
+            }
+            return false;
+        }
+    }
+    
     /**
      * Enhanced bin packing that considers station-economy combinations and co-occurrence patterns.
      */
@@ -141,16 +398,22 @@ public class ChunkService {
                     .forEach(chunk -> placeChunkInBestBin(chunk, bins, leftover, capacity, coOccurrence));
         }
         
-        // Assign bin numbers to chunks
+        assignBinNumbers(bins);
+        
+        log.info("Packed {} chunks into {} bins", chunks.size(), bins.size());
+        return bins;
+    }
+    
+    /**
+     * Assign 1-based bin numbers to the chunks of each bin.
+     */
+    private void assignBinNumbers(List<List<Chunk>> bins) {
         for (int i = 0; i < bins.size(); i++) {
             int binNumber = i + 1;
             for (Chunk chunk : bins.get(i)) {
                 chunk.setBin(binNumber);
             }
         }
-        
-        log.info("Packed {} chunks into {} bins", chunks.size(), bins.size());
-        return bins;
     }
     
     /**
@@ -215,4 +478,19 @@ public class ChunkService {
             leftover.set(bestBinIdx, leftover.get(bestBinIdx) - chunk.getSize());
         }
     }
+    
+    /**
+     * Result of packing: the bins, the lower bound on the bin count and the solver that produced them.
+     */
+    @Value
+    @AllArgsConstructor
+    public static class PackingResult {
+        List<List<Chunk>> bins;
+        int lowerBound;
+        String solver;
+        
+        public int getGap() {
+            return bins.size() - lowerBound;
+        }
+    }
 }
\ No newline at end of file
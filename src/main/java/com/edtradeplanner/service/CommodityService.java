@@ -1,10 +1,14 @@
 package com.edtradeplanner.service;
 
 import com.edtradeplanner.config.PlannerConfig;
+import com.edtradeplanner.diagnostics.IndexBuildEvent;
+import com.edtradeplanner.index.CommodityIndex;
+import com.edtradeplanner.index.DistanceField;
+import com.edtradeplanner.index.StationStore;
 import com.edtradeplanner.model.*;
 import com.edtradeplanner.util.StationScoreUtil;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
@@ -13,26 +17,51 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class CommodityService {
 
     private final SystemService systemService;
     private final PlannerConfig plannerConfig;
+    private final Executor startupTaskExecutor;
     
     // Maps commodity names to lists of station info
-    private Map<String, List<StationInfo>> commodityMap = new ConcurrentHashMap<>();
+    private volatile Map<String, List<StationInfo>> commodityMap = new ConcurrentHashMap<>();
     
     // Maps commodities to station-economy combinations
-    private Map<String, Set<String>> commodityStationEconomyMap = new ConcurrentHashMap<>();
+    private volatile Map<String, Set<String>> commodityStationEconomyMap = new ConcurrentHashMap<>();
     
     // Maps commodities to co-occurrence counts with other commodities
-    private Map<String, Map<String, Integer>> commodityCoOccurrence = new ConcurrentHashMap<>();
+    private volatile Map<String, Map<String, Integer>> commodityCoOccurrence = new ConcurrentHashMap<>();
+    
+    // Column store of all stations with markets, shared by the spatial indexes
+    private volatile StationStore stationStore = StationStore.build(List.of());
+    
+    // Per-commodity k-d trees, one index per carrier/landing-pad filter combination
+    private final Map<String, CommodityIndex> commodityIndexes = new ConcurrentHashMap<>();
+    
+    // Startup tasks by name, in the order they are started
+    private final Map<String, CompletableFuture<Void>> startupTasks = new LinkedHashMap<>();
+    
+    // Completes once everything a route request reads has been built
+    private final CompletableFuture<Void> coreIndexes = new CompletableFuture<>();
+    
+    public CommodityService(SystemService systemService,
+                            PlannerConfig plannerConfig,
+                            @Qualifier("startupTaskExecutor") Executor startupTaskExecutor) {
+        this.systemService = systemService;
+        this.plannerConfig = plannerConfig;
+        this.startupTaskExecutor = startupTaskExecutor;
+    }
 
     @PostConstruct
     public void initialize() {
@@ -40,34 +69,154 @@ public class CommodityService {
     }
     
     /**
-     * Load and initialize all commodity-related data
+     * Start loading all commodity-related data. Independent steps run in parallel
+     * on the startup executor; the ones route planning depends on complete
+     * {@link #whenCoreIndexesReady()}, the rest finish in the background.
      */
     private void loadCommodityData() {
-        try {
-            // Build the commodity map with default settings
-            buildCommodityMap(
-                    systemService.getAllSystems(), 
-                    plannerConfig.isSkipCarriersDefault(), 
-                    plannerConfig.isLargePadOnlyDefault()
-            );
-            log.info("Built commodity map with {} commodities", commodityMap.size());
-            
-            // Load station-economy data
+        long start = System.nanoTime();
+        CompletableFuture<Void> systems = systemService.whenLoaded();
+        synchronized (startupTasks) {
+            startupTasks.put("systems", systems);
+        }
+        
+        // Station-economy data does not depend on the systems
+        CompletableFuture<Void> economy = startupTask("economyMap", CompletableFuture.completedFuture(null), () -> {
             loadCommodityEconomyMap();
             log.info("Loaded station-economy data for {} commodities", commodityStationEconomyMap.size());
-            
-            // Analyze commodity co-occurrence
-            analyzeCommodityCoOccurrence();
+        });
+        
+        CompletableFuture<Void> index = startupTask("stationIndex", systems, () -> {
+            // Build the station store and the default per-commodity spatial index
+            stationStore = StationStore.build(systemService.getAllSystems(), plannerConfig.isOffHeapStationStore());
+            commodityIndexes.clear();
+            CommodityIndex defaultIndex = getCommodityIndex(plannerConfig.isSkipCarriersDefault(), plannerConfig.isLargePadOnlyDefault());
+            log.info("Indexed {} stations selling {} commodities in {} clusters ({} KB of columns {})", stationStore.size(),
+                    stationStore.commodityCount(), defaultIndex.getClusters().clusterCount(),
+                    stationStore.columnBytes() / 1024, stationStore.isOffHeap() ? "off-heap" : "on heap");
+        });
+        
+        // Off-heap, everything is read from the station store so the systems can drop their stations
+        boolean offHeap = plannerConfig.isOffHeapStationStore();
+        CompletableFuture<Void> coOccurrence = startupTask("coOccurrence", offHeap ? index : systems, () -> {
+            if (offHeap) {
+                analyzeCommodityCoOccurrence(stationStore);
+            } else {
+                analyzeCommodityCoOccurrence();
+            }
             log.info("Analyzed co-occurrence patterns for commodities");
-            
-        } catch (Exception e) {
-            log.error("Error initializing commodity data", e);
-            commodityMap = new ConcurrentHashMap<>();
-            commodityStationEconomyMap = new ConcurrentHashMap<>();
-            commodityCoOccurrence = new ConcurrentHashMap<>();
+        });
+        if (offHeap) {
+            startupTask("releaseStations", CompletableFuture.allOf(index, coOccurrence), systemService::releaseStations);
+        }
+        
+        CompletableFuture.allOf(systems, economy, index, coOccurrence).whenComplete((ignored, error) -> {
+            log.info("Core indexes ready after {} ms", (System.nanoTime() - start) / 1_000_000);
+            coreIndexes.complete(null);
+        });
+        
+        // Secondary indexes: the legacy commodity map and the other filter combinations.
+        // The legacy map is one object per station and commodity, so it is not built
+        // up front when the station store is off-heap; getCommodityMap() builds it from the store on first use.
+        CompletableFuture<Void> secondary = startupTask("secondaryIndexes", index, () -> {
+            if (!offHeap) {
+                buildCommodityMap(
+                        systemService.getAllSystems(), 
+                        plannerConfig.isSkipCarriersDefault(), 
+                        plannerConfig.isLargePadOnlyDefault()
+                );
+            }
+            for (boolean skipCarriers : new boolean[]{true, false}) {
+                for (boolean largePadOnly : new boolean[]{true, false}) {
+                    getCommodityIndex(skipCarriers, largePadOnly);
+                }
+            }
+            log.info("Built commodity map with {} commodities and {} filter indexes", commodityMap.size(), commodityIndexes.size());
+        });
+        
+        // Nearest-seller distance fields only speed up routing, so plans do not wait for them
+        if (plannerConfig.isDistanceFieldEnabled()) {
+            startupTask("distanceFields", secondary, this::buildDistanceFields);
+        }
+    }
+    
+    /**
+     * Attach a nearest-seller distance field to every filter index, each built
+     * across all cores.
+     */
+    private void buildDistanceFields() {
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        for (CommodityIndex index : commodityIndexes.values()) {
+            long start = System.nanoTime();
+            DistanceField field = DistanceField.build(stationStore, index.isSkipCarriers(), index.isLargePadOnly(),
+                    plannerConfig.getDistanceFieldCellSize(), plannerConfig.getDistanceFieldMaxCells(),
+                    startupTaskExecutor, parallelism);
+            index.setDistanceField(field);
+            log.info("Built distance fields for skipCarriers={}, largePadOnly={} in {} ms: {} ly cells, {} KB, error at most {} ly",
+                    index.isSkipCarriers(), index.isLargePadOnly(), (System.nanoTime() - start) / 1_000_000,
+                    Math.round(field.cellSize() * 10.0) / 10.0, field.bytes() / 1024,
+                    Math.round(field.errorBound() * 10.0) / 10.0);
+        }
+    }
+    
+    /**
+     * Run a named startup step once {@code after} completes. Failures are logged
+     * and leave that step's data empty, as a failed load always has.
+     */
+    private CompletableFuture<Void> startupTask(String name, CompletableFuture<Void> after, Runnable task) {
+        CompletableFuture<Void> future = after.thenRunAsync(() -> {
+            IndexBuildEvent event = new IndexBuildEvent();
+            event.begin();
+            try {
+                task.run();
+                event.success = true;
+            } catch (Exception e) {
+                log.error("Error initializing commodity data ({})", name, e);
+            }
+            event.index = name;
+            event.stations = stationStore.size();
+            event.commit();
+        }, startupTaskExecutor);
+        synchronized (startupTasks) {
+            startupTasks.put(name, future);
+        }
+        return future;
+    }
+    
+    /**
+     * Completes once the station store, default index, station-economy map and
+     * co-occurrence counts have been built.
+     */
+    public CompletableFuture<Void> whenCoreIndexesReady() {
+        return coreIndexes;
+    }
+    
+    /**
+     * Wait up to {@code timeoutMs} for the core indexes. Returns whether they are ready.
+     */
+    public boolean awaitCoreIndexes(long timeoutMs) {
+        try {
+            coreIndexes.get(timeoutMs, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException | ExecutionException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
         }
     }
     
+    /**
+     * Startup step names mapped to whether they have finished.
+     */
+    public Map<String, Boolean> getStartupProgress() {
+        Map<String, Boolean> progress = new LinkedHashMap<>();
+        synchronized (startupTasks) {
+            startupTasks.forEach((name, future) -> progress.put(name, future.isDone()));
+        }
+        return progress;
+    }
+    
     /**
      * Build a map of commodities to stations that sell them.
      */
@@ -150,6 +299,32 @@ public class CommodityService {
         return result;
     }
     
+    /**
+     * The commodity map for the given filters, built from the station store
+     * rather than the systems (which no longer hold stations when it is off-heap).
+     */
+    private Map<String, List<StationInfo>> buildCommodityMap(StationStore store, boolean skipCarriers,
+                                                             boolean largePadOnly) {
+        Map<String, List<StationInfo>> result = new ConcurrentHashMap<>();
+        for (int id = 0; id < store.size(); id++) {
+            if (!store.passes(id, skipCarriers, largePadOnly)) {
+                continue;
+            }
+            StationInfo entry = null;
+            for (int market = store.marketStart(id); market < store.marketEnd(id); market++) {
+                if (store.marketSupply(market) < 1) {
+                    continue;
+                }
+                if (entry == null) {
+                    entry = store.toStationInfo(id);
+                }
+                result.computeIfAbsent(store.commodityName(store.marketCommodity(market)), k -> new ArrayList<>())
+                        .add(entry);
+            }
+        }
+        return result;
+    }
+    
     /**
      * Load and parse combined station-economy data.
      */
@@ -216,8 +391,38 @@ public class CommodityService {
         this.commodityCoOccurrence = result;
     }
     
+    /**
+     * Same counts as {@link #analyzeCommodityCoOccurrence()}, taken from the station store.
+     */
+    private void analyzeCommodityCoOccurrence(StationStore store) {
+        Map<String, Map<String, Integer>> result = new HashMap<>();
+        List<String> commodities = new ArrayList<>();
+        for (int id = 0; id < store.size(); id++) {
+            commodities.clear();
+            for (int market = store.marketStart(id); market < store.marketEnd(id); market++) {
+                if (store.marketSupply(market) > 0) {
+                    commodities.add(store.commodityName(store.marketCommodity(market)));
+                }
+            }
+            for (int i = 0; i < commodities.size(); i++) {
+                for (int j = i + 1; j < commodities.size(); j++) {
+                    String comm1 = commodities.get(i);
+                    String comm2 = commodities.get(j);
+                    result.computeIfAbsent(comm1, k -> new HashMap<>()).merge(comm2, 1, Integer::sum);
+                    result.computeIfAbsent(comm2, k -> new HashMap<>()).merge(comm1, 1, Integer::sum);
+                }
+            }
+        }
+        
+        this.commodityCoOccurrence = result;
+    }
+    
     // Getters for maps
     public Map<String, List<StationInfo>> getCommodityMap() {
+        if (commodityMap.isEmpty() && plannerConfig.isOffHeapStationStore()) {
+            commodityMap = buildCommodityMap(stationStore,
+                    plannerConfig.isSkipCarriersDefault(), plannerConfig.isLargePadOnlyDefault());
+        }
         return commodityMap;
     }
     
@@ -225,13 +430,38 @@ public class CommodityService {
         // If requested settings match current map settings, return the existing map
         if (skipCarriers == plannerConfig.isSkipCarriersDefault() && 
             largePadOnly == plannerConfig.isLargePadOnlyDefault()) {
-            return commodityMap;
+            return getCommodityMap();
+        }
+        if (plannerConfig.isOffHeapStationStore()) {
+            return buildCommodityMap(stationStore, skipCarriers, largePadOnly);
         }
         
         // Otherwise, rebuild the map with the requested settings
         return buildCommodityMap(systemService.getAllSystems(), skipCarriers, largePadOnly);
     }
     
+    /**
+     * Get the per-commodity spatial index for the requested filters, building it on first use.
+     */
+    public CommodityIndex getCommodityIndex(boolean skipCarriers, boolean largePadOnly) {
+        String key = skipCarriers + ":" + largePadOnly;
+        return commodityIndexes.computeIfAbsent(key, k -> {
+            IndexBuildEvent event = new IndexBuildEvent();
+            event.begin();
+            CommodityIndex index = new CommodityIndex(stationStore, skipCarriers, largePadOnly,
+                    plannerConfig.getSupplyIndexCellSize(), plannerConfig.getClusterCellSize());
+            event.index = "commodityIndex[" + key + "]";
+            event.stations = stationStore.size();
+            event.success = true;
+            event.commit();
+            return index;
+        });
+    }
+    
+    public StationStore getStationStore() {
+        return stationStore;
+    }
+    
     public Map<String, Set<String>> getCommodityStationEconomyMap() {
         return commodityStationEconomyMap;
     }
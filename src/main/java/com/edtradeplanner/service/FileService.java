@@ -14,6 +14,7 @@ import org.springframework.web.multipart.MultipartFile;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.Reader;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -34,31 +35,9 @@ public class FileService {
         File tempFile = null;
         try {
             tempFile = FileUtil.createSecureTempFile(file, plannerConfig);
-            Map<String, Integer> needs = new HashMap<>();
-            
-            // Parse CSV file
-            try (FileReader reader = new FileReader(tempFile);
-                 CSVParser csvParser = new CSVParser(reader, CSVFormat.Builder.create()
-                 .setHeader()
-                 .setIgnoreHeaderCase(true)
-                 .setTrim(true)
-                 .build())) {
-                
-                for (CSVRecord record : csvParser) {
-                    String commodityName = record.get("Commodity");
-                    int quantity = Integer.parseInt(record.get("QuantityNeeded"));
-                    
-                    // Aggregate quantities for duplicate commodities
-                    needs.put(commodityName, needs.getOrDefault(commodityName, 0) + quantity);
-                }
-            }
-            
-            // Convert to list of CommodityNeed objects
-            List<CommodityNeed> result = new ArrayList<>();
-            for (Map.Entry<String, Integer> entry : needs.entrySet()) {
-                if (entry.getValue() > 0) {
-                    result.add(new CommodityNeed(entry.getKey(), entry.getValue()));
-                }
+            List<CommodityNeed> result;
+            try (FileReader reader = new FileReader(tempFile)) {
+                result = parseCommodityNeeds(reader);
             }
             
             log.info("Processed commodity needs file with {} unique commodities", result.size());
@@ -75,5 +54,37 @@ public class FileService {
             }
         }
     }
+    
+    /**
+     * Parse needs CSV (Commodity, QuantityNeeded columns), summing duplicate commodities.
+     */
+    public List<CommodityNeed> parseCommodityNeeds(Reader reader) throws IOException {
+        Map<String, Integer> needs = new HashMap<>();
+        
+        // Parse CSV file
+        try (CSVParser csvParser = new CSVParser(reader, CSVFormat.Builder.create()
+                .setHeader()
+                .setIgnoreHeaderCase(true)
+                .setTrim(true)
+                .build())) {
+            
+            for (CSVRecord record : csvParser) {
+                String commodityName = record.get("Commodity");
+                int quantity = Integer.parseInt(record.get("QuantityNeeded"));
+                
+                // Aggregate quantities for duplicate commodities
+                needs.put(commodityName, needs.getOrDefault(commodityName, 0) + quantity);
+            }
+        }
+        
+        // Convert to list of CommodityNeed objects
+        List<CommodityNeed> result = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : needs.entrySet()) {
+            if (entry.getValue() > 0) {
+                result.add(new CommodityNeed(entry.getKey(), entry.getValue()));
+            }
+        }
+        return result;
+    }
 }
 
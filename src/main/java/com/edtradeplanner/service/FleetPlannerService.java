@@ -0,0 +1,473 @@
+package com.edtradeplanner.service;
+
+import com.edtradeplanner.config.PlannerConfig;
+import com.edtradeplanner.model.CommodityNeed;
+import com.edtradeplanner.model.Route;
+import com.edtradeplanner.model.Ship;
+import com.edtradeplanner.model.ShipSchedule;
+import com.edtradeplanner.model.dto.FleetPlanResponseDto;
+import com.edtradeplanner.model.dto.FleetRequestDto;
+import com.edtradeplanner.model.dto.RouteRequestDto;
+import com.edtradeplanner.model.dto.RouteResponseDto;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Plans for a fleet of ships of several types at once.
+ *
+ * Ships with the same capacity and range form a type. The needs are split
+ * between the types, whole cargo loads at a time, in proportion to each type's
+ * share of the fleet's capacity. Every type is then packed and routed like a
+ * single-ship plan, all types submitted together through the
+ * {@link PlanAdmissionScheduler} (so a fleet is queued and charged like the
+ * same number of single-ship requests), and its trips are assigned to its
+ * ships to minimise the longest schedule: longest trip first onto the least
+ * loaded ship, then moves and swaps between the most and least loaded ships.
+ * Because the distance per ton differs between types, the split is corrected
+ * from the measured rates and the plan repeated (up to
+ * {@code fleet-rebalance-passes} times); the pass with the shortest makespan
+ * is returned. Makespan is measured in ly flown.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FleetPlannerService {
+    
+    private final PlanAdmissionScheduler admissionScheduler;
+    private final PlannerConfig plannerConfig;
+    
+    /**
+     * Plan a fleet on the fleet executor; the type plans themselves run under
+     * admission control as {@code clientKey}. The future fails with
+     * {@link RejectedExecutionException} when admission turns a type plan away.
+     */
+    @Async("fleetPlanningTaskExecutor")
+    public CompletableFuture<FleetPlanResponseDto> planFleet(FleetRequestDto request, List<CommodityNeed> needs,
+                                                            String clientKey) {
+        try {
+            return CompletableFuture.completedFuture(plan(request, needs, clientKey));
+        } catch (RuntimeException e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof RejectedExecutionException) {
+                return CompletableFuture.failedFuture(cause);
+            }
+            log.error("Error planning fleet", e);
+            return CompletableFuture.completedFuture(
+                    new FleetPlanResponseDto(false, "Error planning fleet: " + e.getMessage()));
+        }
+    }
+    
+    private FleetPlanResponseDto plan(FleetRequestDto request, List<CommodityNeed> needs, String clientKey) {
+        String invalid = validateShips(request.getShips(), plannerConfig);
+        if (invalid != null) {
+            return new FleetPlanResponseDto(false, invalid);
+        }
+        List<ShipType> types = shipTypes(request.getShips());
+        
+        // Start from each type's share of the fleet's capacity
+        double[] shares = new double[types.size()];
+        for (int t = 0; t < types.size(); t++) {
+            shares[t] = (double) types.get(t).names.size() * types.get(t).capacity;
+        }
+        
+        FleetPass best = null;
+        int passes = 0;
+        for (int pass = 0; pass <= plannerConfig.getFleetRebalancePasses(); pass++) {
+            FleetPass current = planPass(request, needs, types, shares, clientKey);
+            passes++;
+            if (current.error != null) {
+                return current.error;
+            }
+            if (best == null || current.makespan < best.makespan) {
+                best = current;
+            }
+            
+            // Equal schedules need each type's tons in proportion to its ships over its ly per ton
+            double[] next = new double[types.size()];
+            for (int t = 0; t < types.size(); t++) {
+                TypePlan plan = current.types.get(t);
+                next[t] = plan.tons > 0 && plan.distance > 0
+                        ? types.get(t).names.size() * plan.tons / plan.distance
+                        : shares[t];
+            }
+            if (maxShareChange(shares, next) < plannerConfig.getFleetShareTolerance()) {
+                break;
+            }
+            shares = next;
+        }
+        return response(best, types, passes, request);
+    }
+    
+    /**
+     * Split, route and assign once for the given shares; every type's route
+     * plan is queued with admission before waiting for any of them, and each
+     * type's trips are assigned as soon as its plan completes.
+     */
+    private FleetPass planPass(FleetRequestDto request, List<CommodityNeed> needs, List<ShipType> types,
+                               double[] shares, String clientKey) {
+        List<List<CommodityNeed>> split = splitNeeds(needs, types, shares);
+        List<CompletableFuture<TypePlan>> futures = new ArrayList<>();
+        for (int t = 0; t < types.size(); t++) {
+            ShipType type = types.get(t);
+            List<CommodityNeed> typeNeeds = split.get(t);
+            futures.add(typeNeeds.isEmpty()
+                    ? CompletableFuture.completedFuture(schedule(type, typeNeeds, null))
+                    : admissionScheduler.submit(typeRequest(request, type), typeNeeds, clientKey)
+                            .thenApply(response -> schedule(type, typeNeeds, response)));
+        }
+        
+        FleetPass pass = new FleetPass();
+        for (int t = 0; t < types.size(); t++) {
+            TypePlan plan = futures.get(t).join();
+            if (plan.response != null && !plan.response.isSuccess()) {
+                FleetPlanResponseDto error = new FleetPlanResponseDto(false, plan.response.getError());
+                error.setSuggestions(plan.response.getSuggestions());
+                pass.error = error;
+                return pass;
+            }
+            pass.types.add(plan);
+            for (ShipSchedule schedule : plan.schedules) {
+                pass.makespan = Math.max(pass.makespan, schedule.getTotalDistance());
+            }
+        }
+        return pass;
+    }
+    
+    private RouteRequestDto typeRequest(FleetRequestDto request, ShipType type) {
+        return RouteRequestDto.builder()
+                .cargoCapacity(type.capacity)
+                .maxRange(type.maxRange)
+                .homeSystem(request.getHomeSystem())
+                .useCoordinates(request.isUseCoordinates())
+                .homeX(request.getHomeX())
+                .homeY(request.getHomeY())
+                .homeZ(request.getHomeZ())
+                .skipCarriers(plannerConfig.isSkipCarriersDefault())
+                .largePadOnly(plannerConfig.isLargePadOnlyDefault())
+                .supplyAware(request.getSupplyAware())
+                .planningMode(request.getPlanningMode())
+                .beamWidth(plannerConfig.getDefaultBeamWidth())
+                .beamTimeBudgetMs(request.getBeamTimeBudgetMs())
+                .requestId(request.getRequestId())
+                .build();
+    }
+    
+    /**
+     * Assign a type's routed trips (none if it got no needs) to its ships.
+     * The response may be shared with coalesced requests, so its routes are
+     * copied before they are renumbered per ship.
+     */
+    static TypePlan schedule(ShipType type, List<CommodityNeed> needs, RouteResponseDto response) {
+        TypePlan plan = new TypePlan();
+        plan.tons = needs.stream().mapToLong(CommodityNeed::getQuantityNeeded).sum();
+        plan.response = response;
+        if (response != null && !response.isSuccess()) {
+            return plan;
+        }
+        List<Route> routes = response != null ? response.getRoutes() : List.of();
+        
+        List<List<Route>> assigned = assign(routes, type.names.size());
+        for (int i = 0; i < type.names.size(); i++) {
+            List<Route> trips = assigned.get(i);
+            double distance = 0.0;
+            for (int trip = 0; trip < trips.size(); trip++) {
+                trips.set(trip, trips.get(trip).toBuilder().binNumber(trip + 1).build());
+                distance += trips.get(trip).getTotalDistance();
+            }
+            plan.distance += distance;
+            plan.schedules.add(ShipSchedule.builder()
+                    .name(type.names.get(i))
+                    .cargoCapacity(type.capacity)
+                    .maxRange(type.maxRange)
+                    .totalDistance(Math.round(distance * 100.0) / 100.0)
+                    .routes(trips)
+                    .build());
+        }
+        return plan;
+    }
+    
+    /**
+     * Split the needs between the ship types in proportion to {@code shares},
+     * handing out one cargo load of the type furthest below its target at a time.
+     */
+    static List<List<CommodityNeed>> splitNeeds(List<CommodityNeed> needs, List<ShipType> types, double[] shares) {
+        double shareSum = 0.0;
+        for (double share : shares) {
+            shareSum += share;
+        }
+        long total = needs.stream().mapToLong(need -> Math.max(0, need.getQuantityNeeded())).sum();
+        double[] deficit = new double[types.size()];
+        for (int t = 0; t < types.size(); t++) {
+            deficit[t] = total * shares[t] / shareSum;
+        }
+        
+        List<Map<String, Integer>> tons = new ArrayList<>();
+        for (int t = 0; t < types.size(); t++) {
+            tons.add(new LinkedHashMap<>());
+        }
+        List<CommodityNeed> largestFirst = new ArrayList<>(needs);
+        largestFirst.sort(Comparator.comparingInt(CommodityNeed::getQuantityNeeded).reversed());
+        for (CommodityNeed need : largestFirst) {
+            int remaining = need.getQuantityNeeded();
+            while (remaining > 0) {
+                int t = 0;
+                for (int u = 1; u < types.size(); u++) {
+                    if (deficit[u] > deficit[t]) {
+                        t = u;
+                    }
+                }
+                int load = Math.min(remaining, types.get(t).capacity);
+                tons.get(t).merge(need.getCommodity(), load, Integer::sum);
+                deficit[t] -= load;
+                remaining -= load;
+            }
+        }
+        
+        List<List<CommodityNeed>> split = new ArrayList<>();
+        for (Map<String, Integer> typeTons : tons) {
+            List<CommodityNeed> typeNeeds = new ArrayList<>();
+            typeTons.forEach((commodity, quantity) -> typeNeeds.add(new CommodityNeed(commodity, quantity)));
+            split.add(typeNeeds);
+        }
+        return split;
+    }
+    
+    /**
+     * Assign trips to {@code ships} identical ships, minimising the longest
+     * schedule: longest processing time first, then moves and swaps from the
+     * most to the least loaded ship while they shorten the longer of the two.
+     */
+    static List<List<Route>> assign(List<Route> routes, int ships) {
+        List<List<Route>> schedules = new ArrayList<>();
+        double[] load = new double[ships];
+        for (int i = 0; i < ships; i++) {
+            schedules.add(new ArrayList<>());
+        }
+        
+        List<Route> longestFirst = new ArrayList<>(routes);
+        longestFirst.sort(Comparator.comparingDouble(Route::getTotalDistance).reversed());
+        PriorityQueue<Integer> leastLoaded = new PriorityQueue<>(
+                Comparator.comparingDouble((Integer i) -> load[i]).thenComparingInt(i -> i));
+        for (int i = 0; i < ships; i++) {
+            leastLoaded.add(i);
+        }
+        for (Route route : longestFirst) {
+            int ship = leastLoaded.poll();
+            schedules.get(ship).add(route);
+            load[ship] += route.getTotalDistance();
+            leastLoaded.add(ship);
+        }
+        
+        for (int iteration = 0; iteration < 10 * routes.size() && ships > 1; iteration++) {
+            int max = 0, min = 0;
+            for (int i = 1; i < ships; i++) {
+                if (load[i] > load[max]) {
+                    max = i;
+                }
+                if (load[i] < load[min]) {
+                    min = i;
+                }
+            }
+            double gap = load[max] - load[min];
+            List<Route> from = schedules.get(max);
+            List<Route> to = schedules.get(min);
+            
+            // The best change moves half the gap; anything strictly inside (0, gap) helps
+            int bestFrom = -1, bestTo = -1;
+            double bestError = gap / 2;
+            for (int a = 0; a < from.size(); a++) {
+                double moved = from.get(a).getTotalDistance();
+                if (moved > 0 && moved < gap && Math.abs(moved - gap / 2) < bestError) {
+                    bestFrom = a;
+                    bestTo = -1;
+                    bestError = Math.abs(moved - gap / 2);
+                }
+                for (int b = 0; b < to.size(); b++) {
+                    double delta = moved - to.get(b).getTotalDistance();
+                    if (delta > 0 && delta < gap && Math.abs(delta - gap / 2) < bestError) {
+                        bestFrom = a;
+                        bestTo = b;
+                        bestError = Math.abs(delta - gap / 2);
+                    }
+                }
+            }
+            if (bestFrom < 0) {
+                break;
+            }
+            Route out = from.remove(bestFrom);
+            to.add(out);
+            load[max] -= out.getTotalDistance();
+            load[min] += out.getTotalDistance();
+            if (bestTo >= 0) {
+                Route back = to.remove(bestTo);
+                from.add(back);
+                load[min] -= back.getTotalDistance();
+                load[max] += back.getTotalDistance();
+            }
+        }
+        
+        // Fly each ship's longest trips first
+        for (List<Route> schedule : schedules) {
+            schedule.sort(Comparator.comparingDouble(Route::getTotalDistance).reversed());
+        }
+        return schedules;
+    }
+    
+    /**
+     * Why the ships cannot be planned for, or null if they can: each needs a
+     * positive capacity, a positive range within {@code max-range-limit} and a
+     * count that is not negative (0 means one), and the fleet must stay within
+     * {@code fleet-max-ships} ships and {@code fleet-max-ship-types} types.
+     * Checked before any ship is named.
+     */
+    public static String validateShips(List<Ship> ships, PlannerConfig plannerConfig) {
+        if (ships == null || ships.isEmpty()) {
+            return "No ships provided";
+        }
+        long shipCount = 0;
+        Set<String> types = new HashSet<>();
+        int number = 0;
+        for (Ship ship : ships) {
+            number++;
+            if (ship == null || ship.getCargoCapacity() <= 0 || ship.getMaxRange() <= 0) {
+                return "Ship " + number + " needs a positive cargo capacity and range";
+            }
+            if (!(ship.getMaxRange() <= plannerConfig.getMaxRangeLimit())) {
+                return "Ship " + number + " has a range above " + plannerConfig.getMaxRangeLimit() + " ly";
+            }
+            if (ship.getCount() < 0) {
+                return "Ship " + number + " has a negative count";
+            }
+            shipCount += Math.max(1, ship.getCount());
+            types.add(typeKey(ship));
+        }
+        if (shipCount > plannerConfig.getFleetMaxShips()) {
+            return "A fleet plan takes at most " + plannerConfig.getFleetMaxShips() + " ships";
+        }
+        if (types.size() > plannerConfig.getFleetMaxShipTypes()) {
+            return "A fleet plan takes at most " + plannerConfig.getFleetMaxShipTypes()
+                    + " ship types (cargo capacity and range combinations)";
+        }
+        return null;
+    }
+    
+    private static String typeKey(Ship ship) {
+        return ship.getCargoCapacity() + "@" + ship.getMaxRange();
+    }
+    
+    /**
+     * Group ships that passed {@link #validateShips} into types, naming each ship.
+     */
+    private static List<ShipType> shipTypes(List<Ship> ships) {
+        Map<String, ShipType> types = new LinkedHashMap<>();
+        int number = 0;
+        for (Ship ship : ships) {
+            number++;
+            String name = ship.getName() != null && !ship.getName().isBlank() ? ship.getName().trim() : "Ship " + number;
+            int count = Math.max(1, ship.getCount());
+            ShipType type = types.computeIfAbsent(typeKey(ship),
+                    k -> new ShipType(ship.getCargoCapacity(), ship.getMaxRange()));
+            for (int i = 1; i <= count; i++) {
+                type.names.add(count > 1 ? name + " #" + i : name);
+            }
+        }
+        return new ArrayList<>(types.values());
+    }
+    
+    private static double maxShareChange(double[] shares, double[] next) {
+        double sum = 0.0, nextSum = 0.0;
+        for (int t = 0; t < shares.length; t++) {
+            sum += shares[t];
+            nextSum += next[t];
+        }
+        double change = 0.0;
+        for (int t = 0; t < shares.length; t++) {
+            change = Math.max(change, Math.abs(shares[t] / sum - next[t] / nextSum));
+        }
+        return change;
+    }
+    
+    private FleetPlanResponseDto response(FleetPass pass, List<ShipType> types, int passes, FleetRequestDto request) {
+        List<ShipSchedule> schedules = new ArrayList<>();
+        List<Map<String, Object>> typeSummaries = new ArrayList<>();
+        double totalDistance = 0.0;
+        int bins = 0;
+        RouteResponseDto any = null;
+        for (int t = 0; t < types.size(); t++) {
+            TypePlan plan = pass.types.get(t);
+            schedules.addAll(plan.schedules);
+            int typeBins = plan.response != null ? plan.response.getBinsCount() : 0;
+            totalDistance += plan.distance;
+            bins += typeBins;
+            if (plan.response != null) {
+                any = plan.response;
+            }
+            
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("cargoCapacity", types.get(t).capacity);
+            summary.put("maxRange", types.get(t).maxRange);
+            summary.put("ships", types.get(t).names.size());
+            summary.put("tons", plan.tons);
+            summary.put("bins", typeBins);
+            summary.put("makespan", plan.schedules.stream().mapToDouble(ShipSchedule::getTotalDistance).max().orElse(0.0));
+            typeSummaries.add(summary);
+        }
+        
+        Map<String, Object> optimization = new LinkedHashMap<>();
+        optimization.put("assignment", "lpt+local-search");
+        optimization.put("passes", passes);
+        optimization.put("shipTypes", typeSummaries);
+        if (any != null && any.getOptimization() != null) {
+            optimization.put("planningMode", any.getOptimization().get("planningMode"));
+            optimization.put("costModel", any.getOptimization().get("costModel"));
+        }
+        
+        return FleetPlanResponseDto.builder()
+                .success(true)
+                .makespan(Math.round(pass.makespan * 100.0) / 100.0)
+                .totalDistance(Math.round(totalDistance * 100.0) / 100.0)
+                .binsCount(bins)
+                .homeSystem(any != null ? any.getHomeSystem() : null)
+                .ships(schedules)
+                .optimization(optimization)
+                .build();
+    }
+    
+    static final class ShipType {
+        final int capacity;
+        final double maxRange;
+        final List<String> names = new ArrayList<>();
+        
+        ShipType(int capacity, double maxRange) {
+            this.capacity = capacity;
+            this.maxRange = maxRange;
+        }
+    }
+    
+    static final class TypePlan {
+        RouteResponseDto response;
+        long tons;
+        double distance;
+        final List<ShipSchedule> schedules = new ArrayList<>();
+    }
+    
+    private static final class FleetPass {
+        final List<TypePlan> types = new ArrayList<>();
+        double makespan;
+        FleetPlanResponseDto error;
+    }
+}
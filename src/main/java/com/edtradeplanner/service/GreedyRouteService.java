@@ -0,0 +1,955 @@
+package com.edtradeplanner.service;
+
+import com.edtradeplanner.config.PlannerConfig;
+import com.edtradeplanner.index.CommodityIndex;
+import com.edtradeplanner.index.DistanceField;
+import com.edtradeplanner.index.StationClusters;
+import com.edtradeplanner.index.StationStore;
+import com.edtradeplanner.index.SupplyIndex;
+import com.edtradeplanner.model.Chunk;
+import com.edtradeplanner.model.Coordinates;
+import com.edtradeplanner.model.RouteLeg;
+import com.edtradeplanner.util.DistanceCalculator;
+import com.edtradeplanner.util.StationScoreUtil;
+import lombok.AllArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+/**
+ * Greedy tour for one bin: from the current position, repeatedly move to the
+ * station with the best coverage per unit of travel cost and load what it can
+ * supply, until the bin is loaded.
+ *
+ * The loop works on dense station and commodity ids in per-thread scratch
+ * buffers that are reused between calls, so once the buffers have grown a step
+ * allocates nothing. Route legs are only built when the tour is final.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class GreedyRouteService {
+    
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+    // Second set of buffers for certifying a decision while the step's own offers are still needed
+    private static final ThreadLocal<Scratch> CERTIFY_SCRATCH = ThreadLocal.withInitial(Scratch::new);
+    // Contenders must stay this far below the remembered station's score, for rounding in the batched distances
+    private static final double MEMO_MARGIN = 1e-9;
+    
+    private final PlannerConfig plannerConfig;
+    private final JumpGraphService jumpGraphService;
+    private final StationDecisionMemo stationDecisionMemo;
+    
+    /**
+     * Plan the tour for one bin. With a positive {@code jumpRange} legs are priced
+     * by jump count instead of distance, and stations beyond {@code maxRange} are
+     * reachable if the jump graph connects them. When {@code supplyAware} is set
+     * each stop only loads what the station has in stock, and a commodity no
+     * single station in range can fully supply is split over several stops.
+     */
+    public RouteResult plan(
+            List<Chunk> binChunks,
+            CommodityIndex commodityIndex,
+            Coordinates homeCoords,
+            double maxRange,
+            double jumpRange,
+            boolean supplyAware,
+            Map<String, Set<String>> commodityStationEconomyMap) {
+        
+        StationStore store = commodityIndex.getStore();
+        boolean jumpModel = jumpRange > 0;
+        double searchRadius = jumpModel
+                ? Math.max(maxRange, jumpRange * plannerConfig.getMaxJumpsPerLeg())
+                : maxRange;
+        
+        Scratch s = SCRATCH.get();
+        s.reset(store, supplyAware);
+        for (Chunk chunk : binChunks) {
+            s.addNeed(store, chunk.getCommodity(), chunk.getSize());
+        }
+        
+        double x = homeCoords.getX(), y = homeCoords.getY(), z = homeCoords.getZ();
+        double totalDist = 0.0;
+        int totalJumps = 0;
+        int steps = 0;
+        int candidatesScored = 0;
+        int memoHits = 0;
+        boolean unreachable = false;
+        
+        DistanceField field = commodityIndex.getDistanceField();
+        // Remembered decisions only cover the distance model; jump counts depend on more than position
+        StationDecisionMemo.Context memo = stationDecisionMemo != null && !jumpModel
+                ? stationDecisionMemo.context(commodityIndex, maxRange, supplyAware,
+                        commodityStationEconomyMap != null && !commodityStationEconomyMap.isEmpty())
+                : null;
+        
+        while (s.activeCount > 0) {
+            StationDecisionMemo.Key memoKey = null;
+            // After a partial load a visited station may be offered again with what it has left,
+            // which the memo's certificates do not account for
+            if (memo != null && !s.hasPartialLoad) {
+                long[] needs = s.needsKey(supplyAware);
+                memoKey = needs != null ? memo.key(x, y, z, needs) : null;
+                StationDecisionMemo.Decision decision = memoKey != null ? memo.get(memoKey) : null;
+                if (decision != null && holds(decision, store, x, y, z, maxRange)) {
+                    int stationId = decision.station();
+                    double travelDist = DistanceCalculator.distance(x, y, z, store.x(stationId), store.y(stationId), store.z(stationId));
+                    s.beginStep();
+                    for (int commodityId : decision.loaded()) {
+                        int slot = s.slotOf[commodityId];
+                        s.addOffer(stationId, slot, s.needRemaining[slot], true);
+                    }
+                    s.recordStop(stationId, 0, travelDist);
+                    steps++;
+                    memoHits++;
+                    
+                    x = store.x(stationId);
+                    y = store.y(stationId);
+                    z = store.z(stationId);
+                    totalDist += travelDist;
+                    continue;
+                }
+            }
+            
+            // Commodities with no seller within the search radius need no search; if that is all of them, stop
+            if (!markReachable(s, field, x, y, z, searchRadius)) {
+                unreachable = true;
+                break;
+            }
+            
+            // Gather the tons each station within range could load
+            s.beginStep();
+            if (plannerConfig.isClusterCandidateSearch()) {
+                gatherFromClusters(s, commodityIndex, x, y, z, searchRadius);
+            } else {
+                gatherPerCommodity(s, commodityIndex, x, y, z, searchRadius);
+            }
+            s.collectCandidates();
+            steps++;
+            candidatesScored += s.candidateCount;
+            
+            int best = s.candidateCount == 0 ? -1 : findBestCandidate(
+                    s, store, x, y, z, maxRange, jumpRange, commodityStationEconomyMap);
+            if (best < 0) {
+                // No reachable station can supply what is left
+                unreachable = true;
+                break;
+            }
+            
+            int stationId = s.candidateStation[best];
+            if (memoKey != null) {
+                StationDecisionMemo.Decision decision = certify(s, commodityIndex, stationId, x, y, z, maxRange,
+                        memo, commodityStationEconomyMap);
+                if (decision != null) {
+                    memo.put(memoKey, decision);
+                }
+            }
+            double travelDist = DistanceCalculator.distance(x, y, z, store.x(stationId), store.y(stationId), store.z(stationId));
+            s.recordStop(stationId, s.bestJumps, travelDist);
+            
+            x = store.x(stationId);
+            y = store.y(stationId);
+            z = store.z(stationId);
+            totalDist += travelDist;
+            totalJumps += s.bestJumps;
+        }
+        
+        List<RouteLeg> routeLegs = buildLegs(s, store, homeCoords, jumpModel);
+        Coordinates currentPos = routeLegs.isEmpty() ? homeCoords : routeLegs.get(routeLegs.size() - 1).getEndPos();
+        if (unreachable) {
+            for (int i = 0; i < s.activeCount; i++) {
+                int slot = s.active[i];
+                logNearestSupplier(commodityIndex, s.needName[slot], currentPos);
+                routeLegs.add(RouteLeg.builder()
+                        .startPos(currentPos)
+                        .commodity(s.needName[slot])
+                        .quantities(Map.of(s.needName[slot], s.needRemaining[slot]))
+                        .action("NO_STATION_FOUND")
+                        .distance(0.0)
+                        .build());
+            }
+        }
+        
+        // Return home
+        double distHome = DistanceCalculator.distance(currentPos, homeCoords);
+        Integer jumpsHome = null;
+        if (jumpModel) {
+            int jumps = jumpGraphService.jumps(currentPos, homeCoords, jumpRange);
+            // The pilot has to get home regardless; fall back to the straight-line estimate
+            jumpsHome = jumps != JumpGraphService.UNREACHABLE ? jumps : JumpGraphService.minJumps(distHome, jumpRange);
+            totalJumps += jumpsHome;
+        }
+        routeLegs.add(RouteLeg.builder()
+                .startPos(currentPos)
+                .endPos(homeCoords)
+                .commodity("RETURN_HOME")
+                .distance(Math.round(distHome * 100.0) / 100.0)
+                .jumps(jumpsHome)
+                .action("RETURN")
+                .build());
+        
+        totalDist += distHome;
+        
+        return new RouteResult(routeLegs, totalDist, jumpModel ? totalJumps : null, steps, candidatesScored, memoHits);
+    }
+    
+    /**
+     * Whether a remembered decision is the one the search would make from
+     * (x, y, z): its station is in range and outscores every contender there.
+     */
+    private static boolean holds(StationDecisionMemo.Decision decision, StationStore store,
+                                 double x, double y, double z, double maxRange) {
+        int stationId = decision.station();
+        double distance = DistanceCalculator.distance(x, y, z, store.x(stationId), store.y(stationId), store.z(stationId));
+        if (distance > maxRange) {
+            return false;
+        }
+        double score = StationScoreUtil.stationScore(decision.coverage(), distance, store.prefPenalty(stationId),
+                decision.economyFactor());
+        int[] contenders = decision.contenders();
+        for (int i = 0; i < contenders.length; i++) {
+            int contender = contenders[i];
+            double contenderDist = DistanceCalculator.distance(x, y, z, store.x(contender), store.y(contender), store.z(contender));
+            if (contenderDist <= maxRange && decision.contenderWeights()[i]
+                    / (contenderDist + store.prefPenalty(contender) + 1.0) >= score * (1 - MEMO_MARGIN)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Certificate for choosing {@code stationId} from (x, y, z), or null if the
+     * decision cannot be remembered. Every station within range of any point
+     * of the cell is gathered with all its offers, partial ones included, as an
+     * upper bound on its coverage; those whose score could reach the chosen
+     * station's worst score in the cell become contenders. Only decisions for a
+     * station that fully supplies everything it loads are kept, since partial
+     * loads depend on which other stations are in range.
+     */
+    private StationDecisionMemo.Decision certify(Scratch s, CommodityIndex commodityIndex, int stationId,
+                                                 double x, double y, double z, double maxRange,
+                                                 StationDecisionMemo.Context memo,
+                                                 Map<String, Set<String>> commodityStationEconomyMap) {
+        StationStore store = commodityIndex.getStore();
+        double diagonal = memo.cellDiagonal();
+        double radius = maxRange + diagonal;
+        
+        Scratch c = CERTIFY_SCRATCH.get();
+        c.reset(store, s.supplyAware);
+        for (int i = 0; i < s.activeCount; i++) {
+            c.addNeed(store, s.needName[s.active[i]], s.needRemaining[s.active[i]]);
+        }
+        c.beginStep();
+        if (plannerConfig.isClusterCandidateSearch()) {
+            Arrays.fill(c.neededBits, 0L);
+            for (int i = 0; i < c.activeCount; i++) {
+                StationClusters.addCommodity(c.neededBits, c.needCommodity[c.active[i]]);
+            }
+            commodityIndex.getClusters().forEachOffer(x, y, z, radius, c.neededBits, c);
+        } else {
+            for (int i = 0; i < c.activeCount; i++) {
+                int commodityId = c.needCommodity[c.active[i]];
+                String commodity = c.needName[c.active[i]];
+                if (c.supplyAware) {
+                    commodityIndex.withinRadiusWithSupply(commodity, x, y, z, radius, 1,
+                            (station, supply) -> c.accept(station, commodityId, supply));
+                } else {
+                    commodityIndex.withinRadius(commodity, x, y, z, radius,
+                            station -> c.accept(station, commodityId, Integer.MAX_VALUE));
+                }
+            }
+        }
+        c.collectAllOffers();
+        
+        if (c.candidateStamp[stationId] != c.stamp) {
+            return null;
+        }
+        int chosen = c.candidateOf[stationId];
+        if (c.candidatePartial[chosen]) {
+            return null;
+        }
+        double coverage = c.candidateCoverage[chosen];
+        double economyFactor = StationScoreUtil.economyFactor(store.stationEconomyCombo(stationId),
+                s.activeNames, s.activeCount, commodityStationEconomyMap);
+        double chosenDist = DistanceCalculator.distance(x, y, z, store.x(stationId), store.y(stationId), store.z(stationId));
+        // The chosen station's score can drop no lower than this anywhere in the cell
+        double worstScore = StationScoreUtil.stationScore(coverage, chosenDist + diagonal, store.prefPenalty(stationId),
+                economyFactor);
+        
+        for (int i = 0; i < c.candidateCount; i++) {
+            int station = c.candidateStation[i];
+            c.xs[i] = store.x(station);
+            c.ys[i] = store.y(station);
+            c.zs[i] = store.z(station);
+        }
+        DistanceCalculator.distances(x, y, z, c.xs, c.ys, c.zs, 0, c.candidateCount, c.distances);
+        int[] contenders = new int[memo.maxContenders()];
+        double[] weights = new double[memo.maxContenders()];
+        int contenderCount = 0;
+        for (int i = 0; i < c.candidateCount; i++) {
+            if (i == chosen) {
+                continue;
+            }
+            int station = c.candidateStation[i];
+            double weight = c.candidateCoverage[i] * StationScoreUtil.economyFactor(store.stationEconomyCombo(station),
+                    s.activeNames, s.activeCount, commodityStationEconomyMap);
+            double bestCase = weight / (Math.max(0.0, c.distances[i] - diagonal) + store.prefPenalty(station) + 1.0);
+            if (bestCase >= worstScore * (1 - MEMO_MARGIN)) {
+                if (contenderCount == contenders.length) {
+                    return null;
+                }
+                contenders[contenderCount] = station;
+                weights[contenderCount] = weight * (1 + MEMO_MARGIN);
+                contenderCount++;
+            }
+        }
+        
+        int[] loaded = new int[c.offerCount];
+        int loadedCount = 0;
+        for (int offer = 0; offer < c.offerCount; offer++) {
+            if (c.offerStation[offer] == stationId) {
+                loaded[loadedCount++] = c.needCommodity[c.offerSlot[offer]];
+            }
+        }
+        return new StationDecisionMemo.Decision(stationId, coverage, economyFactor, Arrays.copyOf(loaded, loadedCount),
+                Arrays.copyOf(contenders, contenderCount), Arrays.copyOf(weights, contenderCount));
+    }
+    
+    /**
+     * Flag the needs that may have a seller within {@code searchRadius} by the
+     * distance field's lower bound (all of them without a field). Returns
+     * whether any does.
+     */
+    private static boolean markReachable(Scratch s, DistanceField field, double x, double y, double z,
+                                         double searchRadius) {
+        boolean any = false;
+        for (int i = 0; i < s.activeCount; i++) {
+            int slot = s.active[i];
+            s.needReachable[slot] = field == null
+                    || field.lowerBound(s.needCommodity[slot], x, y, z) <= searchRadius;
+            any |= s.needReachable[slot];
+        }
+        return any;
+    }
+    
+    /**
+     * Offers via one k-d tree (or supply index) query per needed commodity. With
+     * supply awareness, partial suppliers are only queried for a commodity no
+     * station in range can fully supply.
+     */
+    private void gatherPerCommodity(Scratch s, CommodityIndex commodityIndex,
+                                    double x, double y, double z, double searchRadius) {
+        for (int i = 0; i < s.activeCount; i++) {
+            int slot = s.active[i];
+            if (!s.needReachable[slot]) {
+                continue;
+            }
+            s.currentSlot = slot;
+            s.currentFull = true;
+            if (!s.supplyAware) {
+                commodityIndex.withinRadius(s.needName[slot], x, y, z, searchRadius, s);
+                continue;
+            }
+            
+            commodityIndex.withinRadiusWithSupply(s.needName[slot],
+                    x, y, z, searchRadius, s.needRemaining[slot], s);
+            if (!s.slotHasFull[slot]) {
+                s.currentFull = false;
+                commodityIndex.withinRadiusWithSupply(s.needName[slot], x, y, z, searchRadius, 1, s);
+            }
+        }
+    }
+    
+    /**
+     * Same offers as {@link #gatherPerCommodity}, found in a single pass over the
+     * station clusters; clusters out of range or selling nothing still needed
+     * are skipped as a whole.
+     */
+    private void gatherFromClusters(Scratch s, CommodityIndex commodityIndex,
+                                    double x, double y, double z, double searchRadius) {
+        Arrays.fill(s.neededBits, 0L);
+        for (int i = 0; i < s.activeCount; i++) {
+            int commodityId = s.needCommodity[s.active[i]];
+            if (commodityId >= 0 && s.needReachable[s.active[i]]) {
+                StationClusters.addCommodity(s.neededBits, commodityId);
+            }
+        }
+        commodityIndex.getClusters().forEachOffer(x, y, z, searchRadius, s.neededBits, s);
+    }
+    
+    /**
+     * Index of the best candidate, or -1; equal scores go to the nearer station
+     * (jump counts make ties common). Under the jump model, candidates beyond
+     * {@code maxRange} are first scored optimistically from the straight-line
+     * jump count; only the most promising ones are checked with an A* search,
+     * stopping once no remaining optimistic score can beat the best exact one.
+     */
+    private int findBestCandidate(
+            Scratch s,
+            StationStore store,
+            double x, double y, double z,
+            double maxRange,
+            double jumpRange,
+            Map<String, Set<String>> commodityStationEconomyMap) {
+        
+        boolean jumpModel = jumpRange > 0;
+        int best = -1;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        s.bestJumps = 0;
+        s.beyondCount = 0;
+        
+        // Compute all candidate distances in one batch over coordinate columns
+        int candidateCount = s.candidateCount;
+        for (int i = 0; i < candidateCount; i++) {
+            int stationId = s.candidateStation[i];
+            s.xs[i] = store.x(stationId);
+            s.ys[i] = store.y(stationId);
+            s.zs[i] = store.z(stationId);
+        }
+        DistanceCalculator.distances(x, y, z, s.xs, s.ys, s.zs, 0, candidateCount, s.distances);
+        
+        // Score all candidate stations
+        for (int i = 0; i < candidateCount; i++) {
+            int stationId = s.candidateStation[i];
+            double stationDist = s.distances[i];
+            
+            // Skip stations beyond max range unless the jump model can reach them
+            if (stationDist > maxRange && !jumpModel) {
+                continue;
+            }
+            
+            int jumps = jumpModel ? JumpGraphService.minJumps(stationDist, jumpRange) : 0;
+            double legCost = jumpModel ? jumpLegCost(jumps, jumpRange) : stationDist;
+            
+            // Base score is coverage / cost
+            double score = StationScoreUtil.stationScore(s.candidateCoverage[i], legCost, store.prefPenalty(stationId),
+                    StationScoreUtil.economyFactor(store.stationEconomyCombo(stationId),
+                            s.activeNames, s.activeCount, commodityStationEconomyMap));
+            
+            if (stationDist > maxRange) {
+                s.addBeyond(i, score);
+            } else if (score > bestScore || (score == bestScore && stationDist < s.distances[best])) {
+                bestScore = score;
+                best = i;
+                s.bestJumps = jumps;
+            }
+        }
+        
+        if (s.beyondCount > 0) {
+            Coordinates currentPos = new Coordinates(x, y, z);
+            for (int searches = 0; searches < plannerConfig.getMaxJumpSearchesPerStep(); searches++) {
+                // Next most promising candidate, nearest first on ties
+                int next = -1;
+                for (int b = 0; b < s.beyondCount; b++) {
+                    if (s.beyondCandidate[b] >= 0 && (next < 0 || s.beyondScore[b] > s.beyondScore[next]
+                            || (s.beyondScore[b] == s.beyondScore[next]
+                                && s.distances[s.beyondCandidate[b]] < s.distances[s.beyondCandidate[next]]))) {
+                        next = b;
+                    }
+                }
+                if (next < 0 || s.beyondScore[next] <= bestScore) {
+                    break;
+                }
+                int candidate = s.beyondCandidate[next];
+                s.beyondCandidate[next] = -1;
+                
+                int stationId = s.candidateStation[candidate];
+                int jumps = jumpGraphService.jumps(currentPos, store.coords(stationId), jumpRange);
+                if (jumps == JumpGraphService.UNREACHABLE) {
+                    continue;
+                }
+                double score = StationScoreUtil.stationScore(s.candidateCoverage[candidate],
+                        jumpLegCost(jumps, jumpRange), store.prefPenalty(stationId),
+                        StationScoreUtil.economyFactor(store.stationEconomyCombo(stationId),
+                                s.activeNames, s.activeCount, commodityStationEconomyMap));
+                if (score > bestScore || (score == bestScore && s.distances[candidate] < s.distances[best])) {
+                    bestScore = score;
+                    best = candidate;
+                    s.bestJumps = jumps;
+                }
+            }
+        }
+        
+        return best;
+    }
+    
+    /**
+     * Cost of a leg under the jump model, in light-year equivalents so it stays
+     * comparable with the station preference penalty.
+     */
+    private double jumpLegCost(int jumps, double jumpRange) {
+        return (jumps + plannerConfig.getJumpOverhead()) * jumpRange;
+    }
+    
+    /**
+     * Turn the recorded stops into route legs.
+     */
+    private static List<RouteLeg> buildLegs(Scratch s, StationStore store, Coordinates homeCoords, boolean jumpModel) {
+        List<RouteLeg> routeLegs = new ArrayList<>(s.stopCount + s.activeCount + 1);
+        Coordinates currentPos = homeCoords;
+        int load = 0;
+        for (int stop = 0; stop < s.stopCount; stop++) {
+            int stationId = s.stopStation[stop];
+            Coordinates stationCoords = store.coords(stationId);
+            
+            Map<String, Integer> loaded = new LinkedHashMap<>();
+            for (; load < s.stopLoadEnd[stop]; load++) {
+                loaded.put(s.needName[s.loadSlot[load]], s.loadQty[load]);
+            }
+            
+            routeLegs.add(RouteLeg.builder()
+                    .startPos(currentPos)
+                    .endPos(stationCoords)
+                    .systemName(store.systemName(stationId))
+                    .stationName(store.stationName(stationId))
+                    // Format the commodities in a way the UI can parse
+                    .commodity("{" + String.join(", ", loaded.keySet()) + "}")
+                    .quantities(loaded)
+                    .distance(Math.round(s.stopDistance[stop] * 100.0) / 100.0)
+                    .jumps(jumpModel ? s.stopJumps[stop] : null)
+                    .action("PICKUP_RATIO")
+                    .build());
+            currentPos = stationCoords;
+        }
+        return routeLegs;
+    }
+    
+    /**
+     * Log where the nearest seller of an unreachable commodity is, to help explain NO_STATION_FOUND.
+     */
+    private void logNearestSupplier(CommodityIndex commodityIndex, String commodity, Coordinates pos) {
+        if (!log.isDebugEnabled()) {
+            return;
+        }
+        int nearest = commodityIndex.nearest(commodity, pos.getX(), pos.getY(), pos.getZ(), Double.POSITIVE_INFINITY);
+        if (nearest < 0) {
+            log.debug("No station sells {}", commodity);
+        } else {
+            StationStore store = commodityIndex.getStore();
+            log.debug("Nearest seller of {} is {} / {} at {} ly", commodity,
+                    store.systemName(nearest), store.stationName(nearest),
+                    String.format("%.1f", DistanceCalculator.distance(pos, store.coords(nearest))));
+        }
+    }
+    
+    /**
+     * A planned tour: its legs, total distance and, under the jump model, total
+     * jumps, plus how many candidate searches it made, stations it scored and
+     * steps it took from remembered decisions.
+     */
+    @Value
+    @AllArgsConstructor
+    public static class RouteResult {
+        List<RouteLeg> legs;
+        double totalDistance;
+        Integer totalJumps;
+        int steps;
+        int candidatesScored;
+        int memoHits;
+    }
+    
+    /**
+     * Per-thread working state of one tour. Needs are kept in slots (one per
+     * commodity in the bin); offers, candidates and stops are parallel primitive
+     * arrays that only ever grow.
+     */
+    private static final class Scratch implements StationClusters.OfferConsumer, SupplyIndex.SupplyConsumer, IntConsumer {
+        
+        boolean supplyAware;
+        
+        // Needs, one slot per commodity in bin order
+        String[] needName = new String[16];
+        int[] needCommodity = new int[16];
+        int[] needRemaining = new int[16];
+        boolean[] slotHasFull = new boolean[16];
+        // Whether the current step searches for the slot; see markReachable
+        boolean[] needReachable = new boolean[16];
+        int needCount;
+        
+        // Slots still to load, in bin order
+        int[] active = new int[16];
+        String[] activeNames = new String[16];
+        int activeCount;
+        
+        // Commodity id to slot, -1 when not in the bin
+        int[] slotOf = new int[0];
+        long[] neededBits = new long[0];
+        
+        // Offers found in the current step
+        int[] offerStation = new int[256];
+        int[] offerSlot = new int[256];
+        int[] offerQty = new int[256];
+        boolean[] offerFull = new boolean[256];
+        int offerCount;
+        int currentSlot;
+        boolean currentFull;
+        
+        // Candidate stations of the current step; candidateOf is valid where candidateStamp == stamp
+        int[] candidateOf = new int[0];
+        int[] candidateStamp = new int[0];
+        int stamp;
+        int[] candidateStation = new int[256];
+        double[] candidateCoverage = new double[256];
+        // Whether the candidate has a partial offer; only kept by collectAllOffers
+        boolean[] candidatePartial = new boolean[256];
+        double[] xs = new double[256];
+        double[] ys = new double[256];
+        double[] zs = new double[256];
+        double[] distances = new double[256];
+        int candidateCount;
+        int bestJumps;
+        
+        // Jump-model candidates beyond the direct range
+        int[] beyondCandidate = new int[64];
+        double[] beyondScore = new double[64];
+        int beyondCount;
+        
+        // Stations stopped at in this tour are those with visitedStamp == tour
+        int[] visitedStamp = new int[0];
+        int tour;
+        boolean hasPartialLoad;
+        
+        // Stops of the tour so far, with their loads in loadSlot/loadQty
+        int[] stopStation = new int[32];
+        int[] stopJumps = new int[32];
+        int[] stopLoadEnd = new int[32];
+        double[] stopDistance = new double[32];
+        int stopCount;
+        int[] loadSlot = new int[64];
+        int[] loadQty = new int[64];
+        int loadCount;
+        
+        void reset(StationStore store, boolean supplyAware) {
+            this.supplyAware = supplyAware;
+            if (slotOf.length != store.commodityCount()) {
+                slotOf = new int[store.commodityCount()];
+                Arrays.fill(slotOf, -1);
+                neededBits = new long[(store.commodityCount() + 63) >>> 6];
+            } else {
+                for (int slot = 0; slot < needCount; slot++) {
+                    if (needCommodity[slot] >= 0) {
+                        slotOf[needCommodity[slot]] = -1;
+                    }
+                }
+            }
+            if (candidateOf.length < store.size()) {
+                candidateOf = new int[store.size()];
+                candidateStamp = new int[store.size()];
+                stamp = 0;
+                visitedStamp = new int[store.size()];
+                tour = 0;
+            }
+            if (++tour == Integer.MAX_VALUE) {
+                Arrays.fill(visitedStamp, 0);
+                tour = 1;
+            }
+            hasPartialLoad = false;
+            Arrays.fill(needName, 0, needCount, null);
+            needCount = 0;
+            activeCount = 0;
+            stopCount = 0;
+            loadCount = 0;
+        }
+        
+        void addNeed(StationStore store, String commodity, int tons) {
+            for (int slot = 0; slot < needCount; slot++) {
+                if (needName[slot].equals(commodity)) {
+                    needRemaining[slot] += tons;
+                    return;
+                }
+            }
+            if (needCount == needName.length) {
+                int size = needCount * 2;
+                needName = Arrays.copyOf(needName, size);
+                needCommodity = Arrays.copyOf(needCommodity, size);
+                needRemaining = Arrays.copyOf(needRemaining, size);
+                slotHasFull = Arrays.copyOf(slotHasFull, size);
+                needReachable = Arrays.copyOf(needReachable, size);
+                active = Arrays.copyOf(active, size);
+                activeNames = Arrays.copyOf(activeNames, size);
+            }
+            int slot = needCount++;
+            int commodityId = store.commodityId(commodity);
+            needName[slot] = commodity;
+            needCommodity[slot] = commodityId;
+            needRemaining[slot] = tons;
+            if (commodityId >= 0) {
+                slotOf[commodityId] = slot;
+            }
+            active[activeCount] = slot;
+            activeNames[activeCount] = commodity;
+            activeCount++;
+        }
+        
+        void beginStep() {
+            offerCount = 0;
+            candidateCount = 0;
+            Arrays.fill(slotHasFull, 0, needCount, false);
+            if (++stamp == Integer.MAX_VALUE) {
+                Arrays.fill(candidateStamp, 0);
+                stamp = 1;
+            }
+        }
+        
+        @Override
+        public void accept(int stationId, int commodityId, int supply) {
+            int slot = slotOf[commodityId];
+            if (slot < 0 || needRemaining[slot] <= 0) {
+                return;
+            }
+            int quantity = needRemaining[slot];
+            if (!supplyAware) {
+                addOffer(stationId, slot, quantity, true);
+                return;
+            }
+            int left = supply - taken(stationId, slot);
+            if (left >= quantity) {
+                addOffer(stationId, slot, quantity, true);
+            } else if (left > 0) {
+                addOffer(stationId, slot, left, false);
+            }
+        }
+        
+        /**
+         * Supply index callback: the first query (currentFull) reports stations
+         * listing at least the tons needed, the second any seller, for slots the
+         * first left without a full supplier.
+         */
+        @Override
+        public void accept(int stationId, int supply) {
+            int quantity = needRemaining[currentSlot];
+            if (!currentFull && supply >= quantity) {
+                // Already seen by the first query
+                return;
+            }
+            int left = supply - taken(stationId, currentSlot);
+            if (left >= quantity) {
+                addOffer(stationId, currentSlot, quantity, true);
+            } else if (left > 0) {
+                addOffer(stationId, currentSlot, left, false);
+            }
+        }
+        
+        @Override
+        public void accept(int stationId) {
+            addOffer(stationId, currentSlot, needRemaining[currentSlot], true);
+        }
+        
+        /**
+         * Tons of the slot already loaded at the station earlier in this tour.
+         */
+        int taken(int stationId, int slot) {
+            if (visitedStamp[stationId] != tour) {
+                return 0;
+            }
+            int tons = 0;
+            for (int stop = 0; stop < stopCount; stop++) {
+                if (stopStation[stop] != stationId) {
+                    continue;
+                }
+                for (int load = stop == 0 ? 0 : stopLoadEnd[stop - 1]; load < stopLoadEnd[stop]; load++) {
+                    if (loadSlot[load] == slot) {
+                        tons += loadQty[load];
+                    }
+                }
+            }
+            return tons;
+        }
+        
+        private void addOffer(int stationId, int slot, int quantity, boolean full) {
+            if (offerCount == offerStation.length) {
+                int size = offerCount * 2;
+                offerStation = Arrays.copyOf(offerStation, size);
+                offerSlot = Arrays.copyOf(offerSlot, size);
+                offerQty = Arrays.copyOf(offerQty, size);
+                offerFull = Arrays.copyOf(offerFull, size);
+            }
+            offerStation[offerCount] = stationId;
+            offerSlot[offerCount] = slot;
+            offerQty[offerCount] = quantity;
+            offerFull[offerCount] = full;
+            offerCount++;
+            if (full) {
+                slotHasFull[slot] = true;
+            }
+        }
+        
+        /**
+         * Whether an offer counts: partial suppliers only count for commodities
+         * nobody in range can fully supply.
+         */
+        boolean counts(int offer) {
+            return offerFull[offer] || !slotHasFull[offerSlot[offer]];
+        }
+        
+        /**
+         * Group the counted offers by station, full loads first, summing each
+         * station's coverage (a partial load counts as the fraction it takes).
+         */
+        void collectCandidates() {
+            for (int pass = 0; pass < 2; pass++) {
+                boolean full = pass == 0;
+                for (int offer = 0; offer < offerCount; offer++) {
+                    if (offerFull[offer] != full || !counts(offer)) {
+                        continue;
+                    }
+                    int stationId = offerStation[offer];
+                    int candidate;
+                    if (candidateStamp[stationId] == stamp) {
+                        candidate = candidateOf[stationId];
+                    } else {
+                        candidate = newCandidate(stationId);
+                    }
+                    candidateCoverage[candidate] += (double) offerQty[offer] / needRemaining[offerSlot[offer]];
+                }
+            }
+        }
+        
+        /**
+         * Group every offer by station whether it counts or not, so each
+         * station's coverage is the most it could reach.
+         */
+        void collectAllOffers() {
+            for (int offer = 0; offer < offerCount; offer++) {
+                int stationId = offerStation[offer];
+                int candidate = candidateStamp[stationId] == stamp ? candidateOf[stationId] : newCandidate(stationId);
+                candidateCoverage[candidate] += (double) offerQty[offer] / needRemaining[offerSlot[offer]];
+                candidatePartial[candidate] |= !offerFull[offer];
+            }
+        }
+        
+        /**
+         * Memo key of the remaining needs: a bitset of their commodity ids, then
+         * (supply-aware) their remaining tons in id order. Null if a commodity is
+         * unknown to the store.
+         */
+        long[] needsKey(boolean withTons) {
+            int words = neededBits.length;
+            long[] key = new long[words + (withTons ? activeCount : 0)];
+            for (int i = 0; i < activeCount; i++) {
+                int commodityId = needCommodity[active[i]];
+                if (commodityId < 0) {
+                    return null;
+                }
+                key[commodityId >>> 6] |= 1L << commodityId;
+            }
+            if (withTons) {
+                int next = words;
+                for (int w = 0; w < words; w++) {
+                    for (long bits = key[w]; bits != 0; bits &= bits - 1) {
+                        int commodityId = (w << 6) + Long.numberOfTrailingZeros(bits);
+                        key[next++] = needRemaining[slotOf[commodityId]];
+                    }
+                }
+            }
+            return key;
+        }
+        
+        private int newCandidate(int stationId) {
+            if (candidateCount == candidateStation.length) {
+                int size = candidateCount * 2;
+                candidateStation = Arrays.copyOf(candidateStation, size);
+                candidateCoverage = Arrays.copyOf(candidateCoverage, size);
+                candidatePartial = Arrays.copyOf(candidatePartial, size);
+                xs = Arrays.copyOf(xs, size);
+                ys = Arrays.copyOf(ys, size);
+                zs = Arrays.copyOf(zs, size);
+                distances = Arrays.copyOf(distances, size);
+            }
+            int candidate = candidateCount++;
+            candidateStamp[stationId] = stamp;
+            candidateOf[stationId] = candidate;
+            candidateStation[candidate] = stationId;
+            candidateCoverage[candidate] = 0.0;
+            candidatePartial[candidate] = false;
+            return candidate;
+        }
+        
+        void addBeyond(int candidate, double score) {
+            if (beyondCount == beyondCandidate.length) {
+                int size = beyondCount * 2;
+                beyondCandidate = Arrays.copyOf(beyondCandidate, size);
+                beyondScore = Arrays.copyOf(beyondScore, size);
+            }
+            beyondCandidate[beyondCount] = candidate;
+            beyondScore[beyondCount] = score;
+            beyondCount++;
+        }
+        
+        /**
+         * Record a stop at the chosen station, load its counted offers and drop
+         * commodities that are now fully loaded.
+         */
+        void recordStop(int stationId, int jumps, double distance) {
+            if (stopCount == stopStation.length) {
+                int size = stopCount * 2;
+                stopStation = Arrays.copyOf(stopStation, size);
+                stopJumps = Arrays.copyOf(stopJumps, size);
+                stopLoadEnd = Arrays.copyOf(stopLoadEnd, size);
+                stopDistance = Arrays.copyOf(stopDistance, size);
+            }
+            
+            for (int pass = 0; pass < 2; pass++) {
+                boolean full = pass == 0;
+                int passStart = loadCount;
+                for (int offer = 0; offer < offerCount; offer++) {
+                    if (offerStation[offer] != stationId || offerFull[offer] != full || !counts(offer)) {
+                        continue;
+                    }
+                    if (loadCount == loadSlot.length) {
+                        loadSlot = Arrays.copyOf(loadSlot, loadCount * 2);
+                        loadQty = Arrays.copyOf(loadQty, loadCount * 2);
+                    }
+                    loadSlot[loadCount] = offerSlot[offer];
+                    loadQty[loadCount] = offerQty[offer];
+                    loadCount++;
+                    hasPartialLoad |= !full;
+                }
+                // Bin order within the pass, however the offers were gathered
+                for (int i = passStart + 1; i < loadCount; i++) {
+                    int slot = loadSlot[i];
+                    int qty = loadQty[i];
+                    int j = i - 1;
+                    for (; j >= passStart && loadSlot[j] > slot; j--) {
+                        loadSlot[j + 1] = loadSlot[j];
+                        loadQty[j + 1] = loadQty[j];
+                    }
+                    loadSlot[j + 1] = slot;
+                    loadQty[j + 1] = qty;
+                }
+            }
+            
+            stopStation[stopCount] = stationId;
+            visitedStamp[stationId] = tour;
+            stopJumps[stopCount] = jumps;
+            stopDistance[stopCount] = distance;
+            for (int load = stopCount == 0 ? 0 : stopLoadEnd[stopCount - 1]; load < loadCount; load++) {
+                needRemaining[loadSlot[load]] -= loadQty[load];
+            }
+            stopLoadEnd[stopCount] = loadCount;
+            stopCount++;
+            
+            // Keep the still-needed slots in bin order
+            int kept = 0;
+            for (int i = 0; i < activeCount; i++) {
+                int slot = active[i];
+                if (needRemaining[slot] > 0) {
+                    active[kept] = slot;
+                    activeNames[kept] = needName[slot];
+                    kept++;
+                }
+            }
+            activeCount = kept;
+        }
+    }
+}
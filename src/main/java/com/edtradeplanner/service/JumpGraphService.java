@@ -0,0 +1,157 @@
+package com.edtradeplanner.service;
+
+import com.edtradeplanner.config.PlannerConfig;
+import com.edtradeplanner.index.SpatialGrid;
+import com.edtradeplanner.model.Coordinates;
+import com.edtradeplanner.model.StarSystem;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Jump counts between points, using A* over the system graph where two systems
+ * are connected if they are within one jump of each other. Neighbours are found
+ * through a {@link SpatialGrid}, and results are cached per dataset snapshot.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class JumpGraphService {
+    
+    public static final int UNREACHABLE = -1;
+    
+    private final SystemService systemService;
+    private final PlannerConfig plannerConfig;
+    
+    private volatile Snapshot snapshot;
+    
+    /**
+     * Lower bound on the number of jumps between two points: every jump covers at most {@code jumpRange}.
+     */
+    public static int minJumps(double distance, double jumpRange) {
+        return (int) Math.ceil(distance / jumpRange);
+    }
+    
+    /**
+     * Fewest jumps needed to travel between two points through known systems,
+     * or {@link #UNREACHABLE} if no route within the configured jump limit exists.
+     */
+    public int jumps(Coordinates from, Coordinates to, double jumpRange) {
+        Snapshot current = currentSnapshot();
+        JumpKey key = new JumpKey(from.getX(), from.getY(), from.getZ(), to.getX(), to.getY(), to.getZ(), jumpRange);
+        return current.cache.get(key, k -> search(current.grid, k));
+    }
+    
+    private int search(SpatialGrid grid, JumpKey key) {
+        double jumpRange = key.jumpRange();
+        double direct = distance(key.fx(), key.fy(), key.fz(), key.tx(), key.ty(), key.tz());
+        if (direct <= jumpRange) {
+            return direct == 0 ? 0 : 1;
+        }
+        
+        int maxJumps = plannerConfig.getMaxJumpsPerLeg();
+        int maxExpansions = plannerConfig.getJumpSearchMaxExpansions();
+        if (minJumps(direct, jumpRange) > maxJumps) {
+            return UNREACHABLE;
+        }
+        
+        // A* from the start point; node -1 is the (virtual) start
+        Map<Integer, Integer> bestJumps = new HashMap<>();
+        PriorityQueue<long[]> open = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+        open.add(new long[]{minJumps(direct, jumpRange), -1, 0});
+        int expansions = 0;
+        
+        while (!open.isEmpty()) {
+            long[] entry = open.poll();
+            int node = (int) entry[1];
+            int jumpsSoFar = (int) entry[2];
+            if (node >= 0 && bestJumps.getOrDefault(node, Integer.MAX_VALUE) < jumpsSoFar) {
+                continue;
+            }
+            
+            double nx = node < 0 ? key.fx() : grid.x(node);
+            double ny = node < 0 ? key.fy() : grid.y(node);
+            double nz = node < 0 ? key.fz() : grid.z(node);
+            
+            // Goal test: the destination is within one jump
+            if (distance(nx, ny, nz, key.tx(), key.ty(), key.tz()) <= jumpRange) {
+                return jumpsSoFar + 1;
+            }
+            // Reaching the goal from here takes at least two more jumps
+            if (jumpsSoFar + 2 > maxJumps) {
+                continue;
+            }
+            if (++expansions > maxExpansions) {
+                log.debug("Jump search gave up after {} expansions", maxExpansions);
+                return UNREACHABLE;
+            }
+            
+            int nextJumps = jumpsSoFar + 1;
+            grid.withinRadius(nx, ny, nz, jumpRange, neighbour -> {
+                if (nextJumps < bestJumps.getOrDefault(neighbour, Integer.MAX_VALUE)) {
+                    bestJumps.put(neighbour, nextJumps);
+                    double remaining = distance(grid.x(neighbour), grid.y(neighbour), grid.z(neighbour),
+                            key.tx(), key.ty(), key.tz());
+                    open.add(new long[]{nextJumps + minJumps(remaining, jumpRange), neighbour, nextJumps});
+                }
+            });
+        }
+        
+        return UNREACHABLE;
+    }
+    
+    private Snapshot currentSnapshot() {
+        long version = systemService.getDatasetVersion();
+        Snapshot current = snapshot;
+        if (current == null || current.version != version) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null || current.version != version) {
+                    current = buildSnapshot(version, systemService.getAllSystems());
+                    snapshot = current;
+                }
+            }
+        }
+        return current;
+    }
+    
+    private Snapshot buildSnapshot(long version, List<StarSystem> systems) {
+        List<StarSystem> located = systems.stream().filter(s -> s.getCoords() != null).toList();
+        double[] x = new double[located.size()];
+        double[] y = new double[located.size()];
+        double[] z = new double[located.size()];
+        for (int i = 0; i < located.size(); i++) {
+            Coordinates c = located.get(i).getCoords();
+            x[i] = c.getX();
+            y[i] = c.getY();
+            z[i] = c.getZ();
+        }
+        
+        SpatialGrid grid = new SpatialGrid(x, y, z, plannerConfig.getJumpGridCellSize());
+        Cache<JumpKey, Integer> cache = Caffeine.newBuilder()
+                .maximumSize(plannerConfig.getJumpCacheSize())
+                .build();
+        log.info("Built jump graph grid over {} systems", grid.size());
+        return new Snapshot(version, grid, cache);
+    }
+    
+    private static double distance(double ax, double ay, double az, double bx, double by, double bz) {
+        double dx = ax - bx;
+        double dy = ay - by;
+        double dz = az - bz;
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+    
+    private record Snapshot(long version, SpatialGrid grid, Cache<JumpKey, Integer> cache) {
+    }
+    
+    private record JumpKey(double fx, double fy, double fz, double tx, double ty, double tz, double jumpRange) {
+    }
+}
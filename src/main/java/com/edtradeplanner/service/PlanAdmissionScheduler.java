@@ -0,0 +1,254 @@
+package com.edtradeplanner.service;
+
+import com.edtradeplanner.config.PlannerConfig;
+import com.edtradeplanner.model.CommodityNeed;
+import com.edtradeplanner.model.dto.RouteRequestDto;
+import com.edtradeplanner.model.dto.RouteResponseDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Orders plan requests so cheap ones are not stuck behind expensive ones.
+ *
+ * Each request gets a virtual deadline: its arrival time (or its client's
+ * previous deadline, if later) plus its estimated cost converted to
+ * milliseconds. Requests run in deadline order, at most
+ * {@code admission-concurrency} at a time. Cheap requests therefore overtake
+ * expensive ones, an expensive request still runs once the clock passes its
+ * deadline, and a client sending a burst only pushes back its own requests.
+ *
+ * Identical requests (same needs, options and dataset version) that arrive
+ * while one of them is queued or running share its result instead of planning
+ * again.
+ */
+@Slf4j
+@Service
+public class PlanAdmissionScheduler {
+    
+    // Relative cost of the planner features on top of the chunk count
+    private static final double JUMP_COST_FACTOR = 4.0;
+    private static final double SUPPLY_AWARE_COST_FACTOR = 1.5;
+    private static final int STALE_CLIENT_SWEEP_SIZE = 1000;
+    
+    private final RoutePlannerService routePlannerService;
+    private final SystemService systemService;
+    private final PlanJournal planJournal;
+    private final PlannerConfig plannerConfig;
+    private final Executor executor;
+    
+    private final PriorityQueue<Job> queue = new PriorityQueue<>();
+    private final Map<String, Long> clientTags = new HashMap<>();
+    private final Map<String, Job> inFlight = new HashMap<>();
+    private long sequence;
+    private int running;
+    
+    public PlanAdmissionScheduler(RoutePlannerService routePlannerService,
+                                  SystemService systemService,
+                                  PlanJournal planJournal,
+                                  PlannerConfig plannerConfig,
+                                  @Qualifier("routePlannerTaskExecutor") Executor executor) {
+        this.routePlannerService = routePlannerService;
+        this.systemService = systemService;
+        this.planJournal = planJournal;
+        this.plannerConfig = plannerConfig;
+        this.executor = executor;
+    }
+    
+    /**
+     * Queue a plan, or join an identical one already queued or running. The
+     * future fails with {@link RejectedExecutionException} when the queue is full.
+     * Each caller gets its own future, so cancelling one leaves the others and
+     * the shared computation untouched.
+     */
+    public CompletableFuture<RouteResponseDto> submit(RouteRequestDto requestDto, List<CommodityNeed> commodityNeeds,
+                                                      String clientKey) {
+        String key = planKey(requestDto, commodityNeeds, systemService.getDatasetVersion());
+        double cost = estimateCost(requestDto, commodityNeeds);
+        long now = System.nanoTime();
+        long costNanos = (long) (cost * plannerConfig.getAdmissionMsPerCostUnit() * 1_000_000);
+        
+        Job job;
+        synchronized (this) {
+            Job existing = inFlight.get(key);
+            if (existing != null) {
+                log.debug("Plan from {} joins an identical request in flight", clientKey);
+                return existing.result.copy();
+            }
+            if (queue.size() >= plannerConfig.getAdmissionMaxQueued()) {
+                log.warn("Rejecting plan from {}: {} requests already queued", clientKey, queue.size());
+                return CompletableFuture.failedFuture(
+                        new RejectedExecutionException("Server is busy, please try again shortly"));
+            }
+            long start = Math.max(now, clientTags.getOrDefault(clientKey, now));
+            long deadline = start + costNanos;
+            clientTags.put(clientKey, deadline);
+            if (clientTags.size() > STALE_CLIENT_SWEEP_SIZE) {
+                clientTags.values().removeIf(tag -> tag - now < 0);
+            }
+            job = new Job(deadline, sequence++, now, cost, requestDto, commodityNeeds);
+            queue.add(job);
+            inFlight.put(key, job);
+        }
+        job.result.whenComplete((response, ex) -> {
+            synchronized (this) {
+                inFlight.remove(key, job);
+            }
+        });
+        log.debug("Queued plan from {} with cost {}", clientKey, String.format("%.1f", cost));
+        dispatch();
+        return job.result.copy();
+    }
+    
+    /**
+     * Hash of everything that affects the plan: the needs in commodity order, the
+     * request options and the loaded dataset.
+     */
+    static String planKey(RouteRequestDto requestDto, List<CommodityNeed> commodityNeeds, long datasetVersion) {
+        StringBuilder canonical = new StringBuilder();
+        canonical.append(datasetVersion)
+                .append('|').append(requestDto.getCargoCapacity())
+                .append('|').append(requestDto.getMaxRange())
+                .append('|').append(requestDto.getJumpRange())
+                .append('|').append(requestDto.isSkipCarriers())
+                .append('|').append(requestDto.isLargePadOnly())
+                .append('|').append(requestDto.getSupplyAware())
+                .append('|').append(requestDto.getPlanningMode() == null
+                        ? "" : requestDto.getPlanningMode().toLowerCase(Locale.ROOT))
+                .append('|').append(requestDto.getBeamWidth())
+                .append('|').append(requestDto.getBeamTimeBudgetMs());
+        if (requestDto.isUseCoordinates()) {
+            canonical.append("|@").append(requestDto.getHomeX())
+                    .append(',').append(requestDto.getHomeY())
+                    .append(',').append(requestDto.getHomeZ());
+        } else {
+            canonical.append('|').append(requestDto.getHomeSystem() == null
+                    ? "" : requestDto.getHomeSystem().trim().toLowerCase(Locale.ROOT));
+        }
+        commodityNeeds.stream()
+                .sorted(Comparator.comparing(CommodityNeed::getCommodity))
+                .forEach(need -> canonical.append('|').append(need.getCommodity())
+                        .append('=').append(need.getQuantityNeeded()));
+        
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(canonical.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    /**
+     * Estimated planning cost in chunk units: one per cargo load, scaled up for
+     * beam search (which auto mode may run on every bin), jump routing and
+     * supply-aware pickups.
+     */
+    static double estimateCost(RouteRequestDto requestDto, List<CommodityNeed> commodityNeeds) {
+        int capacity = Math.max(1, requestDto.getCargoCapacity());
+        long chunks = 0;
+        for (CommodityNeed need : commodityNeeds) {
+            chunks += (Math.max(0, need.getQuantityNeeded()) + capacity - 1) / capacity;
+        }
+        double cost = Math.max(1, chunks);
+        if ("beam".equalsIgnoreCase(requestDto.getPlanningMode()) || "auto".equalsIgnoreCase(requestDto.getPlanningMode())) {
+            cost *= Math.max(1, requestDto.getBeamWidth());
+        }
+        if (requestDto.getJumpRange() > 0) {
+            cost *= JUMP_COST_FACTOR;
+        }
+        if (Boolean.TRUE.equals(requestDto.getSupplyAware())) {
+            cost *= SUPPLY_AWARE_COST_FACTOR;
+        }
+        return cost;
+    }
+    
+    public synchronized int queuedCount() {
+        return queue.size();
+    }
+    
+    public synchronized int runningCount() {
+        return running;
+    }
+    
+    private void dispatch() {
+        while (true) {
+            Job job;
+            synchronized (this) {
+                if (running >= plannerConfig.getAdmissionConcurrency() || queue.isEmpty()) {
+                    return;
+                }
+                job = queue.poll();
+                running++;
+            }
+            try {
+                executor.execute(() -> run(job));
+            } catch (RejectedExecutionException e) {
+                synchronized (this) {
+                    running--;
+                }
+                job.result.completeExceptionally(e);
+            }
+        }
+    }
+    
+    private void run(Job job) {
+        long queuedMs = (System.nanoTime() - job.arrivalNanos) / 1_000_000;
+        try {
+            long start = System.nanoTime();
+            RouteResponseDto response = routePlannerService.planRoute(job.requestDto, job.commodityNeeds);
+            planJournal.record(job.requestDto, job.commodityNeeds, response, (System.nanoTime() - start) / 1_000_000);
+            if (response.getOptimization() != null) {
+                response.getOptimization().put("estimatedCost", Math.round(job.cost * 10.0) / 10.0);
+                response.getOptimization().put("queuedMs", queuedMs);
+            }
+            job.result.complete(response);
+        } catch (Throwable t) {
+            job.result.completeExceptionally(t);
+        } finally {
+            synchronized (this) {
+                running--;
+            }
+            dispatch();
+        }
+    }
+    
+    private static final class Job implements Comparable<Job> {
+        final long deadline;
+        final long sequence;
+        final long arrivalNanos;
+        final double cost;
+        final RouteRequestDto requestDto;
+        final List<CommodityNeed> commodityNeeds;
+        final CompletableFuture<RouteResponseDto> result = new CompletableFuture<>();
+        
+        Job(long deadline, long sequence, long arrivalNanos, double cost,
+            RouteRequestDto requestDto, List<CommodityNeed> commodityNeeds) {
+            this.deadline = deadline;
+            this.sequence = sequence;
+            this.arrivalNanos = arrivalNanos;
+            this.cost = cost;
+            this.requestDto = requestDto;
+            this.commodityNeeds = commodityNeeds;
+        }
+        
+        @Override
+        public int compareTo(Job other) {
+            int byDeadline = Long.compare(deadline - other.deadline, 0);
+            return byDeadline != 0 ? byDeadline : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.edtradeplanner.service;
+
+import com.edtradeplanner.config.PlannerConfig;
+import com.edtradeplanner.model.CommodityNeed;
+import com.edtradeplanner.model.JournalEntry;
+import com.edtradeplanner.model.dto.RouteRequestDto;
+import com.edtradeplanner.model.dto.RouteResponseDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Opt-in JSON-lines journal of plan requests, for replaying real traffic
+ * against another build or dataset. Only the request options and needs are
+ * kept: no client id, address or request id.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PlanJournal {
+    
+    private final ObjectMapper objectMapper;
+    private final PlannerConfig plannerConfig;
+    
+    private BufferedWriter writer;
+    private boolean failed;
+    
+    public boolean isEnabled() {
+        return plannerConfig.isPlanJournalEnabled();
+    }
+    
+    /**
+     * Append a planned request. Failures to write are logged once and then
+     * ignored, so the journal never breaks planning.
+     */
+    public synchronized void record(RouteRequestDto request, List<CommodityNeed> needs,
+                                    RouteResponseDto response, long planningMs) {
+        if (!isEnabled() || failed) {
+            return;
+        }
+        JournalEntry entry = JournalEntry.builder()
+                .recordedAt(Instant.now())
+                .request(request)
+                .needs(needs)
+                .success(response.isSuccess())
+                .totalDistance(response.getTotalDistance())
+                .binsCount(response.getBinsCount())
+                .planningMs(planningMs)
+                .build();
+        try {
+            if (writer == null) {
+                Path path = Paths.get(plannerConfig.getPlanJournalPath());
+                if (path.getParent() != null) {
+                    Files.createDirectories(path.getParent());
+                }
+                writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                log.info("Recording plan requests to {}", path);
+            }
+            writer.write(objectMapper.writeValueAsString(entry));
+            writer.newLine();
+            writer.flush();
+        } catch (IOException e) {
+            log.error("Could not write the plan journal; journaling stopped", e);
+            failed = true;
+        }
+    }
+    
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+    
+    /**
+     * Read a journal, skipping blank lines.
+     */
+    public List<JournalEntry> read(Path path) throws IOException {
+        List<JournalEntry> entries = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    entries.add(objectMapper.readValue(line, JournalEntry.class));
+                }
+            }
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,192 @@
+package com.edtradeplanner.service;
+
+import com.edtradeplanner.config.PlannerConfig;
+import com.edtradeplanner.model.CommodityNeed;
+import com.edtradeplanner.model.StoredPlan;
+import com.edtradeplanner.model.dto.RouteRequestDto;
+import com.edtradeplanner.model.dto.RouteResponseDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Plans kept on local disk, one JSON file per plan id, so they can be replanned
+ * after partial deliveries. Files are replaced atomically. At startup and then
+ * every {@code plan-store-prune-interval-ms}, plans not updated within the
+ * retention period are deleted, and the least recently updated ones beyond
+ * {@code plan-store-max-plans}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PlanStore {
+    
+    private static final Pattern PLAN_ID = Pattern.compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}");
+    
+    private final ObjectMapper objectMapper;
+    private final PlannerConfig plannerConfig;
+    
+    // Striped per-plan locks
+    private final Object[] locks = Stream.generate(Object::new).limit(64).toArray();
+    
+    @PostConstruct
+    public void initialize() {
+        prune();
+    }
+    
+    @Scheduled(initialDelayString = "${tradeplanner.plan-store-prune-interval-ms:3600000}",
+            fixedDelayString = "${tradeplanner.plan-store-prune-interval-ms:3600000}")
+    public void prune() {
+        if (plannerConfig.isPlanStoreEnabled()) {
+            pruneFiles();
+        }
+    }
+    
+    public boolean isEnabled() {
+        return plannerConfig.isPlanStoreEnabled();
+    }
+    
+    /**
+     * Store a new plan and return it with its id.
+     */
+    public StoredPlan create(RouteRequestDto request, List<CommodityNeed> needs, RouteResponseDto plan) {
+        Instant now = Instant.now();
+        StoredPlan stored = StoredPlan.builder()
+                .id(UUID.randomUUID().toString())
+                .revision(1)
+                .createdAt(now)
+                .updatedAt(now)
+                .request(request)
+                .needs(needs)
+                .plan(plan)
+                .build();
+        write(stored);
+        return stored;
+    }
+    
+    public Optional<StoredPlan> find(String id) {
+        if (!PLAN_ID.matcher(id).matches()) {
+            return Optional.empty();
+        }
+        Path file = file(id);
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(objectMapper.readValue(file.toFile(), StoredPlan.class));
+        } catch (IOException e) {
+            log.error("Could not read stored plan {}", id, e);
+            return Optional.empty();
+        }
+    }
+    
+    /**
+     * Run {@code action} holding the lock for a plan id, so a read-modify-write
+     * of one plan (such as a replan) does not interleave with another.
+     */
+    public <T> T withLock(String id, Supplier<T> action) {
+        synchronized (locks[Math.floorMod(id.hashCode(), locks.length)]) {
+            return action.get();
+        }
+    }
+    
+    /**
+     * Write back a changed plan, bumping its revision.
+     */
+    public void save(StoredPlan stored) {
+        stored.setRevision(stored.getRevision() + 1);
+        stored.setUpdatedAt(Instant.now());
+        write(stored);
+    }
+    
+    private void write(StoredPlan stored) {
+        try {
+            Path dir = directory();
+            Files.createDirectories(dir);
+            Path temp = Files.createTempFile(dir, stored.getId(), ".tmp");
+            try {
+                objectMapper.writeValue(temp.toFile(), stored);
+                Files.move(temp, file(stored.getId()), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file(stored.getId()), StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not store plan " + stored.getId(), e);
+        }
+    }
+    
+    private void pruneFiles() {
+        Path dir = directory();
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        Instant cutoff = plannerConfig.getPlanStoreRetentionDays() > 0
+                ? Instant.now().minus(Duration.ofDays(plannerConfig.getPlanStoreRetentionDays()))
+                : Instant.MIN;
+        List<StoredFile> kept = new ArrayList<>();
+        int expired = 0;
+        int overLimit = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.json")) {
+            for (Path file : files) {
+                Instant modified = Files.getLastModifiedTime(file).toInstant();
+                if (modified.isBefore(cutoff)) {
+                    Files.deleteIfExists(file);
+                    expired++;
+                } else {
+                    kept.add(new StoredFile(file, modified));
+                }
+            }
+            int excess = kept.size() - plannerConfig.getPlanStoreMaxPlans();
+            if (plannerConfig.getPlanStoreMaxPlans() > 0 && excess > 0) {
+                kept.sort(Comparator.comparing(StoredFile::modified));
+                for (int i = 0; i < excess; i++) {
+                    Files.deleteIfExists(kept.get(i).file());
+                    overLimit++;
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not prune stored plans in {}", dir, e);
+        }
+        if (expired > 0) {
+            log.info("Removed {} stored plans older than {} days", expired, plannerConfig.getPlanStoreRetentionDays());
+        }
+        if (overLimit > 0) {
+            log.info("Removed {} least recently updated stored plans over the limit of {}", overLimit,
+                    plannerConfig.getPlanStoreMaxPlans());
+        }
+    }
+    
+    private Path directory() {
+        return Paths.get(plannerConfig.getPlanStoreDir());
+    }
+    
+    private Path file(String id) {
+        return directory().resolve(id + ".json");
+    }
+    
+    private record StoredFile(Path file, Instant modified) {}
+}
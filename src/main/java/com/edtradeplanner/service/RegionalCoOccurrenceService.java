@@ -0,0 +1,152 @@
+package com.edtradeplanner.service;
+
+import com.edtradeplanner.config.PlannerConfig;
+import com.edtradeplanner.index.SpatialGrid;
+import com.edtradeplanner.index.StationStore;
+import com.edtradeplanner.model.Coordinates;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Commodity co-occurrence counted over the stations around a home system
+ * rather than the whole galaxy, for the bin packer.
+ *
+ * Home positions are quantized to cubic cells of
+ * {@code co-occurrence-region-cell-size} and ranges rounded up to a multiple of
+ * it; the counts are taken over the stations within that range of the cell's
+ * centre, so every request from the same region with a similar range shares
+ * one cache entry. Stations are found through a {@link SpatialGrid} over the
+ * station store, and the cache is dropped with it when the data is reloaded.
+ * Regions with fewer than {@code co-occurrence-min-stations} stations fall
+ * back to the galaxy-wide counts.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RegionalCoOccurrenceService {
+    
+    private final CommodityService commodityService;
+    private final SystemService systemService;
+    private final PlannerConfig plannerConfig;
+    
+    private volatile Snapshot snapshot;
+    
+    /**
+     * Co-occurrence counts among the stations passing the filters within
+     * roughly {@code radius} of {@code home}.
+     */
+    public Map<String, Map<String, Integer>> coOccurrence(Coordinates home, double radius,
+                                                          boolean skipCarriers, boolean largePadOnly) {
+        if (!plannerConfig.isRegionalCoOccurrenceEnabled() || home == null) {
+            return commodityService.getCommodityCoOccurrence();
+        }
+        Snapshot current = currentSnapshot();
+        if (current == null) {
+            return commodityService.getCommodityCoOccurrence();
+        }
+        double cellSize = plannerConfig.getCoOccurrenceRegionCellSize();
+        RegionKey key = new RegionKey(
+                (int) Math.floor(home.getX() / cellSize),
+                (int) Math.floor(home.getY() / cellSize),
+                (int) Math.floor(home.getZ() / cellSize),
+                (int) Math.ceil(Math.max(radius, cellSize) / cellSize),
+                skipCarriers, largePadOnly);
+        Map<String, Map<String, Integer>> regional = current.cache.get(key, k -> count(current, k, cellSize));
+        return regional.isEmpty() ? commodityService.getCommodityCoOccurrence() : regional;
+    }
+    
+    /**
+     * Counts for one region; empty if the region holds too few stations to say anything.
+     */
+    private Map<String, Map<String, Integer>> count(Snapshot current, RegionKey key, double cellSize) {
+        StationStore store = current.store;
+        int commodityCount = store.commodityCount();
+        int[] pairs = new int[commodityCount * commodityCount];
+        int[] sold = new int[commodityCount];
+        int[] stations = new int[1];
+        current.grid.withinRadius((key.cx() + 0.5) * cellSize, (key.cy() + 0.5) * cellSize,
+                (key.cz() + 0.5) * cellSize, key.radiusCells() * cellSize, id -> {
+                    if (!store.passes(id, key.skipCarriers(), key.largePadOnly())) {
+                        return;
+                    }
+                    int n = 0;
+                    for (int entry = store.marketStart(id); entry < store.marketEnd(id); entry++) {
+                        if (store.marketSupply(entry) > 0 && n < sold.length) {
+                            sold[n++] = store.marketCommodity(entry);
+                        }
+                    }
+                    for (int i = 0; i < n; i++) {
+                        for (int j = i + 1; j < n; j++) {
+                            pairs[sold[i] * commodityCount + sold[j]]++;
+                            pairs[sold[j] * commodityCount + sold[i]]++;
+                        }
+                    }
+                    stations[0]++;
+                });
+        if (stations[0] < plannerConfig.getCoOccurrenceMinStations()) {
+            return Map.of();
+        }
+        
+        Map<String, Map<String, Integer>> result = new HashMap<>();
+        for (int a = 0; a < commodityCount; a++) {
+            for (int b = 0; b < commodityCount; b++) {
+                int together = pairs[a * commodityCount + b];
+                if (together > 0) {
+                    result.computeIfAbsent(store.commodityName(a), k -> new HashMap<>())
+                            .put(store.commodityName(b), together);
+                }
+            }
+        }
+        log.debug("Co-occurrence for region {} from {} stations", key, stations[0]);
+        return result;
+    }
+    
+    private Snapshot currentSnapshot() {
+        long version = systemService.getDatasetVersion();
+        StationStore store = commodityService.getStationStore();
+        if (store == null) {
+            return null;
+        }
+        Snapshot current = snapshot;
+        if (current == null || current.version != version || current.store != store) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null || current.version != version || current.store != store) {
+                    current = buildSnapshot(version, store);
+                    snapshot = current;
+                }
+            }
+        }
+        return current;
+    }
+    
+    private Snapshot buildSnapshot(long version, StationStore store) {
+        double[] x = new double[store.size()];
+        double[] y = new double[store.size()];
+        double[] z = new double[store.size()];
+        for (int id = 0; id < store.size(); id++) {
+            x[id] = store.x(id);
+            y[id] = store.y(id);
+            z[id] = store.z(id);
+        }
+        SpatialGrid grid = new SpatialGrid(x, y, z, plannerConfig.getCoOccurrenceRegionCellSize());
+        Cache<RegionKey, Map<String, Map<String, Integer>>> cache = Caffeine.newBuilder()
+                .maximumSize(plannerConfig.getCoOccurrenceCacheSize())
+                .build();
+        log.info("Built co-occurrence station grid over {} stations", grid.size());
+        return new Snapshot(version, store, grid, cache);
+    }
+    
+    private record Snapshot(long version, StationStore store, SpatialGrid grid,
+                            Cache<RegionKey, Map<String, Map<String, Integer>>> cache) {
+    }
+    
+    private record RegionKey(int cx, int cy, int cz, int radiusCells, boolean skipCarriers, boolean largePadOnly) {
+    }
+}
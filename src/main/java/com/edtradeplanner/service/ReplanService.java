@@ -0,0 +1,238 @@
+package com.edtradeplanner.service;
+
+import com.edtradeplanner.config.PlannerConfig;
+import com.edtradeplanner.index.CommodityIndex;
+import com.edtradeplanner.model.Chunk;
+import com.edtradeplanner.model.CommodityNeed;
+import com.edtradeplanner.model.Coordinates;
+import com.edtradeplanner.model.Route;
+import com.edtradeplanner.model.RouteLeg;
+import com.edtradeplanner.model.StoredPlan;
+import com.edtradeplanner.model.dto.RouteRequestDto;
+import com.edtradeplanner.model.dto.RouteResponseDto;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Updates a stored plan for a new needs list without planning from scratch.
+ *
+ * Lower quantities are taken out of the bins in bin order, on the assumption
+ * that pilots fly the bins in order and the first ones are the ones delivered.
+ * Higher quantities and new commodities become new chunks. Only the bins that
+ * lost cargo are repacked, together with the new chunks, and only the
+ * repacked bins get new routes. Every other bin keeps its number and route, so
+ * the work is proportional to the change. Repacked bins are always routed
+ * greedily, whatever planning mode the stored plan used; the response says so
+ * in its replan statistics.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReplanService {
+    
+    private final PlanStore planStore;
+    private final CommodityService commodityService;
+    private final ChunkService chunkService;
+    private final GreedyRouteService greedyRouteService;
+    private final ShardCoordinator shardCoordinator;
+    private final RegionalCoOccurrenceService regionalCoOccurrenceService;
+    private final PlannerConfig plannerConfig;
+    
+    /**
+     * Replan the stored plan {@code planId} for {@code needs} and save the result.
+     * Empty if there is no such plan.
+     */
+    public Optional<RouteResponseDto> replan(String planId, List<CommodityNeed> needs) {
+        return planStore.withLock(planId, () -> planStore.find(planId).map(stored -> {
+            RouteResponseDto response = replan(stored, needs);
+            if (response.isSuccess()) {
+                stored.setNeeds(needs);
+                stored.setPlan(response);
+                planStore.save(stored);
+                response = response.toBuilder().planId(planId).build();
+            }
+            return response;
+        }));
+    }
+    
+    private RouteResponseDto replan(StoredPlan stored, List<CommodityNeed> needs) {
+        if (!commodityService.awaitCoreIndexes(plannerConfig.getIndexReadyWaitMs())) {
+            return new RouteResponseDto(false, "Station data is still loading, please try again shortly");
+        }
+        
+        RouteRequestDto request = stored.getRequest();
+        RouteResponseDto previous = stored.getPlan();
+        int capacity = request.getCargoCapacity();
+        BinDelta delta = BinDelta.compute(previous.getRoutes(), stored.getNeeds(), needs);
+        
+        // Repack what the shrunk bins still hold together with the added cargo
+        List<Chunk> pool = new ArrayList<>();
+        delta.changed.forEach((binNumber, contents) -> contents.forEach((commodity, tons) ->
+                pool.add(new Chunk(commodity, tons, 0))));
+        pool.addAll(chunkService.buildChunks(delta.added, capacity));
+        
+        Coordinates homeCoords = previous.getHomeSystem().getCoords();
+        Map<String, Set<String>> economyMap = commodityService.getCommodityStationEconomyMap();
+        boolean useEconomyData = !economyMap.isEmpty();
+        List<List<Chunk>> repacked = pool.isEmpty() ? List.of() : chunkService.packBins(pool, capacity,
+                useEconomyData ? economyMap : null,
+                useEconomyData ? (shardCoordinator.isEnabled()
+                        ? shardCoordinator.getCoOccurrence()
+                        : regionalCoOccurrenceService.coOccurrence(homeCoords, request.getMaxRange(),
+                                request.isSkipCarriers(), request.isLargePadOnly())) : null).getBins();
+        
+        // Repacked bins take over the numbers of the bins they replace, then continue after the last one
+        List<Integer> binNumbers = new ArrayList<>(delta.changed.keySet());
+        int nextBin = previous.getRoutes().stream().mapToInt(Route::getBinNumber).max().orElse(0);
+        while (binNumbers.size() < repacked.size()) {
+            binNumbers.add(++nextBin);
+        }
+        
+        CommodityIndex commodityIndex = commodityService.getCommodityIndex(request.isSkipCarriers(), request.isLargePadOnly());
+        ShardCoordinator.Session shardSession = shardCoordinator.isEnabled()
+                ? shardCoordinator.openSession(pool.stream().map(Chunk::getCommodity).toList(),
+                        request.isSkipCarriers(), request.isLargePadOnly())
+                : null;
+        List<Route> routes = new ArrayList<>(delta.kept);
+        for (int i = 0; i < repacked.size(); i++) {
+            List<Chunk> bin = repacked.get(i);
+            int binNumber = binNumbers.get(i);
+            bin.forEach(chunk -> chunk.setBin(binNumber));
+            GreedyRouteService.RouteResult result = shardSession != null
+                    ? shardCoordinator.plan(shardSession, bin, homeCoords, request.getMaxRange(), request.getJumpRange(),
+                            Boolean.TRUE.equals(request.getSupplyAware()), useEconomyData ? economyMap : null)
+                    : greedyRouteService.plan(bin, commodityIndex, homeCoords, request.getMaxRange(),
+                            request.getJumpRange(), Boolean.TRUE.equals(request.getSupplyAware()),
+                            useEconomyData ? economyMap : null);
+            routes.add(Route.builder()
+                    .binNumber(binNumber)
+                    .totalDistance(Math.round(result.getTotalDistance() * 100.0) / 100.0)
+                    .totalJumps(result.getTotalJumps())
+                    .legs(result.getLegs())
+                    .build());
+        }
+        routes.sort(Comparator.comparingInt(Route::getBinNumber));
+        
+        List<Chunk> chunks = new ArrayList<>();
+        for (Route route : routes) {
+            binContents(route).forEach((commodity, tons) -> chunks.add(new Chunk(commodity, tons, route.getBinNumber())));
+        }
+        int lowerBound = chunkService.binCountLowerBound(chunks, capacity);
+        
+        Map<String, Object> replanStats = new LinkedHashMap<>();
+        replanStats.put("revision", stored.getRevision() + 1);
+        replanStats.put("keptBins", delta.kept.size());
+        replanStats.put("repackedBins", delta.changed.size());
+        replanStats.put("emptiedBins", delta.emptied);
+        replanStats.put("routedBins", repacked.size());
+        replanStats.put("planningMode", "greedy");
+        String storedMode = previous.getOptimization() != null
+                ? String.valueOf(previous.getOptimization().get("planningMode"))
+                : "greedy";
+        if (!repacked.isEmpty() && !"greedy".equalsIgnoreCase(storedMode)) {
+            replanStats.put("note", "Repacked bins were routed greedily; kept bins keep their "
+                    + storedMode + " routes");
+        }
+        
+        Map<String, Object> optimization = new LinkedHashMap<>();
+        if (previous.getOptimization() != null) {
+            optimization.putAll(previous.getOptimization());
+        }
+        optimization.put("binLowerBound", lowerBound);
+        optimization.put("binGap", routes.size() - lowerBound);
+        optimization.put("replan", replanStats);
+        
+        log.info("Replanned {}: kept {} bins, repacked {} into {}, {} emptied",
+                stored.getId(), delta.kept.size(), delta.changed.size(), repacked.size(), delta.emptied);
+        
+        return RouteResponseDto.builder()
+                .success(true)
+                .routes(routes)
+                .totalDistance(Math.round(routes.stream().mapToDouble(Route::getTotalDistance).sum() * 100.0) / 100.0)
+                .shipCapacity(capacity)
+                .binsCount(routes.size())
+                .homeSystem(previous.getHomeSystem())
+                .originalChunks(chunks)
+                .optimization(optimization)
+                .build();
+    }
+    
+    /**
+     * Tons of each commodity a route loads, including what it could not find a station for.
+     */
+    static Map<String, Integer> binContents(Route route) {
+        Map<String, Integer> contents = new LinkedHashMap<>();
+        for (RouteLeg leg : route.getLegs()) {
+            if (leg.getQuantities() != null) {
+                leg.getQuantities().forEach((commodity, tons) -> contents.merge(commodity, tons, Integer::sum));
+            }
+        }
+        return contents;
+    }
+    
+    /**
+     * How a new needs list changes the bins of a plan: the routes left as they
+     * were, what remains in the bins that lost cargo (by bin number), how many
+     * bins were emptied, and the quantities to add.
+     */
+    static final class BinDelta {
+        final List<Route> kept = new ArrayList<>();
+        final Map<Integer, Map<String, Integer>> changed = new TreeMap<>();
+        final List<CommodityNeed> added = new ArrayList<>();
+        int emptied;
+        
+        static BinDelta compute(List<Route> routes, List<CommodityNeed> oldNeeds, List<CommodityNeed> newNeeds) {
+            Map<String, Integer> change = new LinkedHashMap<>();
+            for (CommodityNeed need : newNeeds) {
+                change.merge(need.getCommodity(), need.getQuantityNeeded(), Integer::sum);
+            }
+            for (CommodityNeed need : oldNeeds) {
+                change.merge(need.getCommodity(), -need.getQuantityNeeded(), Integer::sum);
+            }
+            
+            BinDelta delta = new BinDelta();
+            List<Route> ordered = new ArrayList<>(routes);
+            ordered.sort(Comparator.comparingInt(Route::getBinNumber));
+            for (Route route : ordered) {
+                Map<String, Integer> contents = binContents(route);
+                boolean shrunk = false;
+                for (Map.Entry<String, Integer> load : contents.entrySet()) {
+                    int shortfall = -change.getOrDefault(load.getKey(), 0);
+                    if (shortfall > 0) {
+                        int removed = Math.min(shortfall, load.getValue());
+                        load.setValue(load.getValue() - removed);
+                        change.put(load.getKey(), removed - shortfall);
+                        shrunk = true;
+                    }
+                }
+                if (!shrunk) {
+                    delta.kept.add(route);
+                    continue;
+                }
+                contents.values().removeIf(tons -> tons <= 0);
+                if (contents.isEmpty()) {
+                    delta.emptied++;
+                } else {
+                    delta.changed.put(route.getBinNumber(), contents);
+                }
+            }
+            
+            change.forEach((commodity, tons) -> {
+                if (tons > 0) {
+                    delta.added.add(new CommodityNeed(commodity, tons));
+                }
+            });
+            return delta;
+        }
+    }
+}
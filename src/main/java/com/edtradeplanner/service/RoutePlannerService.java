@@ -1,22 +1,20 @@
 package com.edtradeplanner.service;
 
 import com.edtradeplanner.config.PlannerConfig;
+import com.edtradeplanner.diagnostics.BinRouteEvent;
+import com.edtradeplanner.diagnostics.PlanRequestEvent;
+import com.edtradeplanner.diagnostics.PlanStageEvent;
+import com.edtradeplanner.index.CommodityIndex;
 import com.edtradeplanner.model.*;
 import com.edtradeplanner.model.dto.RouteRequestDto;
 import com.edtradeplanner.model.dto.RouteResponseDto;
-import com.edtradeplanner.util.DistanceCalculator;
+import com.edtradeplanner.util.TourImprover;
 
-import lombok.AllArgsConstructor;
 import lombok.RequiredArgsConstructor;
-import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
-import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
-import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -25,20 +23,51 @@ public class RoutePlannerService {
     
     private final SystemService systemService;
     private final CommodityService commodityService;
-    private final FileService fileService;
     private final ChunkService chunkService;
+    private final BeamSearchService beamSearchService;
+    private final GreedyRouteService greedyRouteService;
+    private final ShardCoordinator shardCoordinator;
+    private final SolverSelector solverSelector;
+    private final RegionalCoOccurrenceService regionalCoOccurrenceService;
     private final PlannerConfig plannerConfig;
     
     /**
-     * Plan a route based on the provided request parameters.
+     * Plan a route for needs that have already been read from the request file.
+     * Runs on the calling thread and records a {@link PlanRequestEvent}.
      */
-    @Async("routePlannerTaskExecutor")
-    public CompletableFuture<RouteResponseDto> planRoute(RouteRequestDto requestDto) {
+    public RouteResponseDto planRoute(RouteRequestDto requestDto, List<CommodityNeed> commodityNeeds) {
+        PlanRequestEvent event = new PlanRequestEvent();
+        event.begin();
+        RouteResponseDto response = plan(requestDto, commodityNeeds);
+        if (event.shouldCommit()) {
+            event.requestId = requestDto.getRequestId();
+            event.planningMode = response.getOptimization() != null
+                    ? String.valueOf(response.getOptimization().get("planningMode"))
+                    : requestDto.getPlanningMode();
+            event.costModel = requestDto.getJumpRange() > 0 ? "jumps" : "distance";
+            event.commodities = commodityNeeds.size();
+            event.chunks = response.getOriginalChunks() != null ? response.getOriginalChunks().size() : 0;
+            event.bins = response.getBinsCount();
+            event.totalDistance = response.getTotalDistance();
+            event.success = response.isSuccess();
+            event.commit();
+        }
+        return response;
+    }
+    
+    private RouteResponseDto plan(RouteRequestDto requestDto, List<CommodityNeed> commodityNeeds) {
+        String requestId = requestDto.getRequestId();
         try {
-            // Process the uploaded file
-            List<CommodityNeed> commodityNeeds = fileService.processCommodityNeedsFile(requestDto.getNeedsFile());
+            // Requests that arrive while the indexes are still building wait for them
+            PlanStageEvent stage = PlanStageEvent.start(requestId, "indexWait");
+            boolean ready = commodityService.awaitCoreIndexes(plannerConfig.getIndexReadyWaitMs());
+            stage.commit();
+            if (!ready) {
+                return new RouteResponseDto(false, "Station data is still loading, please try again shortly");
+            }
             
             // Determine coordinates of home system
+            stage = PlanStageEvent.start(requestId, "resolveHome");
             Coordinates homeCoords;
             String homeSystemName;
             
@@ -50,75 +79,214 @@ public class RoutePlannerService {
                 );
                 homeSystemName = String.format("Custom (%.1f, %.1f, %.1f)",
                         requestDto.getHomeX(), requestDto.getHomeY(), requestDto.getHomeZ());
+            } else if (requestDto.getHomeSystem() == null || requestDto.getHomeSystem().isBlank()) {
+                // Default to Sol if no home system provided
+                homeCoords = new Coordinates(0, 0, 0);
+                homeSystemName = "Sol (default)";
             } else {
-                homeCoords = systemService.getSystemCoordinates(requestDto.getHomeSystem());
+                Optional<StarSystem> homeSystem = systemService.findSystem(requestDto.getHomeSystem());
                 
-                if (homeCoords.getX() == 0 && homeCoords.getY() == 0 && homeCoords.getZ() == 0 && 
-                        (requestDto.getHomeSystem() == null || requestDto.getHomeSystem().isBlank())) {
-                    // Default to Sol if no home system provided
-                    homeSystemName = "Sol (default)";
-                } else {
-                    // Get original case of system name
-                    String lowerCaseName = requestDto.getHomeSystem().trim().toLowerCase();
-                    homeSystemName = systemService.getAllSystems().stream()
-                            .filter(sys -> sys.getName().toLowerCase().equals(lowerCaseName))
-                            .findFirst()
-                            .map(StarSystem::getName)
-                            .orElse(requestDto.getHomeSystem());
+                if (homeSystem.isEmpty() || homeSystem.get().getCoords() == null) {
+                    // Don't silently plan from Sol for a misspelled name
+                    List<String> suggestions = systemService.suggestSystems(
+                            requestDto.getHomeSystem(), plannerConfig.getMaxResultsLimit());
+                    String error = "Unknown home system: " + requestDto.getHomeSystem().trim();
+                    if (!suggestions.isEmpty()) {
+                        error += ". Did you mean: " + String.join(", ", suggestions) + "?";
+                    }
+                    RouteResponseDto response = new RouteResponseDto(false, error);
+                    response.setSuggestions(suggestions);
+                    return response;
                 }
+                
+                // Use original case of system name
+                homeCoords = homeSystem.get().getCoords();
+                homeSystemName = homeSystem.get().getName();
             }
+            stage.commit();
             
-            // Get or build commodity map based on requested settings
-            Map<String, List<StationInfo>> commodityMap = commodityService.getCommodityMap(
+            // Get the per-commodity spatial index for the requested settings
+            CommodityIndex commodityIndex = commodityService.getCommodityIndex(
                     requestDto.isSkipCarriers(), 
                     requestDto.isLargePadOnly()
             );
             
             // Create chunks from commodity needs
+            stage = PlanStageEvent.start(requestId, "chunking");
             List<Chunk> chunks = chunkService.buildChunks(commodityNeeds, requestDto.getCargoCapacity());
+            stage.commit();
             
             // Determine if we have economy data to enhance routing
             boolean useEconomyData = !commodityService.getCommodityStationEconomyMap().isEmpty();
             
-            // Use economy-aware bin packing
-            List<List<Chunk>> bins = chunkService.economyAwareBinPacking(
+            // Use economy-aware bin packing, tightened towards the bin-count lower bound
+            stage = PlanStageEvent.start(requestId, "packing");
+            ChunkService.PackingResult packing = chunkService.packBins(
                     chunks,
                     requestDto.getCargoCapacity(),
                     useEconomyData ? commodityService.getCommodityStationEconomyMap() : null,
-                    useEconomyData ? commodityService.getCommodityCoOccurrence() : null
+                    useEconomyData ? coOccurrence(homeCoords, requestDto) : null
             );
+            List<List<Chunk>> bins = packing.getBins();
+            stage.commit();
             
             String optimizationMethod = useEconomyData ? "economy-aware" : "basic";
             log.info("Using {} bin packing strategy", optimizationMethod);
             
+            // A coordinator fetches stations from the shard workers as the greedy tours reach them
+            ShardCoordinator.Session shardSession = shardCoordinator.isEnabled()
+                    ? shardCoordinator.openSession(chunks.stream().map(Chunk::getCommodity).toList(),
+                            requestDto.isSkipCarriers(), requestDto.isLargePadOnly())
+                    : null;
+            
+            // Beam search and 2-opt price legs by distance, so they only apply without a jump range.
+            // Their searches cannot be checked for shard coverage, so a coordinator plans greedily.
+            boolean distanceModel = requestDto.getJumpRange() <= 0 && shardSession == null;
+            boolean beamMode = "beam".equalsIgnoreCase(requestDto.getPlanningMode()) && distanceModel;
+            boolean autoMode = "auto".equalsIgnoreCase(requestDto.getPlanningMode()) && distanceModel;
+            long beamDeadline = System.nanoTime() + requestDto.getBeamTimeBudgetMs() * 1_000_000L;
+            
+            // Auto mode: features and solver choice per bin, within the request's time budget
+            double density = autoMode
+                    ? solverSelector.density(commodityIndex, homeCoords, requestDto.getMaxRange(),
+                            chunks.stream().map(Chunk::getCommodity).distinct().toList())
+                    : 0.0;
+            Map<String, Integer> solverBins = new LinkedHashMap<>();
+            double predictedMs = 0.0;
+            long solverNanos = 0;
+            
             // Plan routes for each bin
+            stage = PlanStageEvent.start(requestId, "routing");
             List<Route> routes = new ArrayList<>();
             double grandTotal = 0.0;
             
             for (int i = 0; i < bins.size(); i++) {
                 List<Chunk> binChunks = bins.get(i);
                 int binNumber = i + 1;
+                BinRouteEvent binEvent = new BinRouteEvent();
+                binEvent.begin();
                 
                 // Plan economy-aware route for this bin
 
-                RouteResult routeResult = planEconomyAwareRoute(
-                    binChunks, 
-                    commodityMap, 
-                    homeCoords, 
-                    requestDto.getMaxRange(),
-                    useEconomyData ? commodityService.getCommodityStationEconomyMap() : null
-                );
+                GreedyRouteService.RouteResult routeResult = shardSession != null
+                    ? shardCoordinator.plan(
+                        shardSession,
+                        binChunks,
+                        homeCoords,
+                        requestDto.getMaxRange(),
+                        requestDto.getJumpRange(),
+                        Boolean.TRUE.equals(requestDto.getSupplyAware()),
+                        useEconomyData ? commodityService.getCommodityStationEconomyMap() : null)
+                    : greedyRouteService.plan(
+                        binChunks, 
+                        commodityIndex, 
+                        homeCoords, 
+                        requestDto.getMaxRange(),
+                        requestDto.getJumpRange(),
+                        Boolean.TRUE.equals(requestDto.getSupplyAware()),
+                        useEconomyData ? commodityService.getCommodityStationEconomyMap() : null
+                    );
+                
+                List<RouteLeg> legs = routeResult.getLegs();
+                double binDistance = routeResult.getTotalDistance();
+                List<RouteAlternative> alternatives = null;
+                String solver = SolverSelector.GREEDY;
+                
+                if (beamMode) {
+                    solver = SolverSelector.BEAM;
+                    // Split what is left of the time budget evenly over the remaining bins
+                    long now = System.nanoTime();
+                    long binDeadline = now + Math.max(0, beamDeadline - now) / (bins.size() - i);
+                    
+                    List<RouteAlternative> found = new ArrayList<>(beamSearch(requestDto, binChunks, commodityIndex,
+                            homeCoords, useEconomyData, binDeadline));
+                    
+                    // The greedy tour competes too, so beam mode is never worse than greedy
+                    addGreedyTour(found, legs, binDistance);
+                    
+                    alternatives = beamSearchService.paretoFront(found);
+                    if (!alternatives.isEmpty()) {
+                        legs = alternatives.get(0).getLegs();
+                        binDistance = alternatives.get(0).getTotalDistance();
+                    }
+                } else if (autoMode) {
+                    long now = System.nanoTime();
+                    long binBudget = Math.max(0, beamDeadline - now) / (bins.size() - i);
+                    SolverSelector.Features features = solverSelector.features(commodityIndex, homeCoords,
+                            requestDto.getMaxRange(), binChunks, density);
+                    boolean sampling = solverSelector.isSampling();
+                    solver = sampling ? SolverSelector.BEAM
+                            : solverSelector.choose(features, requestDto.getBeamWidth(), binBudget / 1e6);
+                    predictedMs += solverSelector.predictedCostMs(solver, features, requestDto.getBeamWidth());
+                    
+                    if (!SolverSelector.GREEDY.equals(solver)) {
+                        double greedyDistance = Math.round(binDistance * 100.0) / 100.0;
+                        long start = System.nanoTime();
+                        RouteAlternative improved = TourImprover.improve(legs, homeCoords, requestDto.getMaxRange());
+                        long improvedNanos = System.nanoTime() - start;
+                        
+                        if (SolverSelector.BEAM.equals(solver)) {
+                            // A sampling run gives every bin the whole request budget, to measure what beam search costs unhurried
+                            long binDeadline = sampling
+                                    ? System.nanoTime() + requestDto.getBeamTimeBudgetMs() * 1_000_000L
+                                    : now + binBudget;
+                            start = System.nanoTime();
+                            List<RouteAlternative> found = new ArrayList<>(beamSearch(requestDto, binChunks,
+                                    commodityIndex, homeCoords, useEconomyData, binDeadline));
+                            long beamNanos = System.nanoTime() - start;
+                            addGreedyTour(found, legs, binDistance);
+                            if (improved != null) {
+                                found.add(improved);
+                            }
+                            alternatives = beamSearchService.paretoFront(found);
+                            if (!alternatives.isEmpty()) {
+                                legs = alternatives.get(0).getLegs();
+                                binDistance = alternatives.get(0).getTotalDistance();
+                            }
+                            solverNanos += beamNanos;
+                            
+                            if (sampling && greedyDistance > 0) {
+                                solverSelector.record(new SolverSelector.Sample(features, requestDto.getBeamWidth(),
+                                        improvedNanos / 1e6,
+                                        improved != null ? (greedyDistance - improved.getTotalDistance()) / greedyDistance : 0.0,
+                                        (improvedNanos + beamNanos) / 1e6,
+                                        (greedyDistance - Math.min(greedyDistance, binDistance)) / greedyDistance));
+                            }
+                        } else if (improved != null && improved.getTotalDistance() < greedyDistance) {
+                            legs = improved.getLegs();
+                            binDistance = improved.getTotalDistance();
+                        }
+                        solverNanos += improvedNanos;
+                    }
+                    solverBins.merge(solver, 1, Integer::sum);
+                }
                 
                 // Create route object
                 Route route = Route.builder()
                         .binNumber(binNumber)
-                        .totalDistance(Math.round(routeResult.getTotalDistance() * 100.0) / 100.0)
-                        .legs(routeResult.getLegs())
+                        .totalDistance(Math.round(binDistance * 100.0) / 100.0)
+                        .totalJumps(routeResult.getTotalJumps())
+                        .legs(legs)
+                        .alternatives(alternatives)
                         .build();
                 
                 routes.add(route);
-                grandTotal += routeResult.getTotalDistance();
+                grandTotal += binDistance;
+                
+                if (binEvent.shouldCommit()) {
+                    binEvent.requestId = requestId;
+                    binEvent.binNumber = binNumber;
+                    binEvent.chunks = binChunks.size();
+                    binEvent.steps = routeResult.getSteps();
+                    binEvent.candidatesScored = routeResult.getCandidatesScored();
+                    binEvent.memoHits = routeResult.getMemoHits();
+                    binEvent.solver = solver;
+                    binEvent.alternatives = alternatives != null ? alternatives.size() : 0;
+                    binEvent.distance = binDistance;
+                    binEvent.commit();
+                }
             }
+            stage.commit();
             
             // Create home system info
             HomeSystem homeSystem = HomeSystem.builder()
@@ -127,241 +295,80 @@ public class RoutePlannerService {
                     .build();
             
             // Create optimization metadata
-            Map<String, Object> optimization = Map.of("method", optimizationMethod);
+            Map<String, Object> optimization = new LinkedHashMap<>();
+            optimization.put("method", optimizationMethod);
+            optimization.put("packingSolver", packing.getSolver());
+            optimization.put("binLowerBound", packing.getLowerBound());
+            optimization.put("binGap", packing.getGap());
+            optimization.put("planningMode", beamMode ? "beam" : autoMode ? "auto" : "greedy");
+            optimization.put("costModel", requestDto.getJumpRange() > 0 ? "jumps" : "distance");
+            optimization.put("supplyAware", Boolean.TRUE.equals(requestDto.getSupplyAware()));
+            if (autoMode) {
+                Map<String, Object> selection = new LinkedHashMap<>();
+                selection.put("budgetMs", requestDto.getBeamTimeBudgetMs());
+                selection.put("predictedMs", Math.round(predictedMs * 100.0) / 100.0);
+                selection.put("usedMs", Math.round(solverNanos / 10_000.0) / 100.0);
+                selection.put("bins", solverBins);
+                optimization.put("solverSelection", selection);
+            }
+            if (shardSession != null) {
+                optimization.put("sharded", shardSession.stats());
+            }
             
             // Return the response
-            return CompletableFuture.completedFuture(
-                    RouteResponseDto.builder()
-                            .success(true)
-                            .routes(routes)
-                            .totalDistance(Math.round(grandTotal * 100.0) / 100.0)
-                            .shipCapacity(requestDto.getCargoCapacity())
-                            .binsCount(bins.size())
-                            .homeSystem(homeSystem)
-                            .originalChunks(chunks)
-                            .optimization(optimization)
-                            .build()
-            );
+            return RouteResponseDto.builder()
+                    .success(true)
+                    .routes(routes)
+                    .totalDistance(Math.round(grandTotal * 100.0) / 100.0)
+                    .shipCapacity(requestDto.getCargoCapacity())
+                    .binsCount(bins.size())
+                    .homeSystem(homeSystem)
+                    .originalChunks(chunks)
+                    .optimization(optimization)
+                    .build();
             
-        } catch (IOException e) {
-            log.error("Error processing commodity needs file", e);
-            return CompletableFuture.completedFuture(
-                    new RouteResponseDto(false, "Error processing commodity needs file: " + e.getMessage())
-            );
         } catch (Exception e) {
             log.error("Error planning route", e);
-            return CompletableFuture.completedFuture(
-                    new RouteResponseDto(false, "Error planning route: " + e.getMessage())
-            );
+            return new RouteResponseDto(false, "Error planning route: " + e.getMessage());
         }
     }
     
-    /**
-     * Plan an optimized route using station-economy awareness if available.
-     */
-    private RouteResult planEconomyAwareRoute(
-            List<Chunk> binChunks, 
-            Map<String, List<StationInfo>> commodityMap, 
-            Coordinates homeCoords, 
-            double maxRange,
-            Map<String, Set<String>> commodityStationEconomyMap) {
-        
-        Set<String> neededCommodities = binChunks.stream()
-                .map(Chunk::getCommodity)
-                .collect(Collectors.toSet());
-        
-        List<RouteLeg> routeLegs = new ArrayList<>();
-        Coordinates currentPos = homeCoords;
-        double totalDist = 0.0;
-        
-        while (!neededCommodities.isEmpty()) {
-            // Gather station coverage
-            Map<StationKey, Set<String>> stationCandidates = new HashMap<>();
-            
-            for (String commodity : neededCommodities) {
-                List<StationInfo> stationsForCommodity = commodityMap.getOrDefault(commodity, List.of());
-                
-                for (StationInfo stationInfo : stationsForCommodity) {
-                    StationKey stationKey = new StationKey(
-                            stationInfo.getSystem(),
-                            stationInfo.getStation(),
-                            stationInfo.getCoords(),
-                            stationInfo.getPrefPenalty()
-                    );
-                    
-                    stationCandidates.computeIfAbsent(stationKey, k -> new HashSet<>()).add(commodity);
-                }
-            }
-            
-            if (stationCandidates.isEmpty()) {
-                // No station can supply these commodities
-                for (String commodity : neededCommodities) {
-                    routeLegs.add(RouteLeg.builder()
-                            .startPos(currentPos)
-                            .commodity(commodity)
-                            .action("NO_STATION_FOUND")
-                            .distance(0.0)
-                            .build());
-                }
-                neededCommodities.clear();
-                break;
-            }
-            
-            // Find the best station
-            Map.Entry<StationKey, Set<String>> bestStation = findBestStation(
-                    stationCandidates, 
-                    currentPos, 
-                    maxRange,
-                    neededCommodities,
-                    commodityMap,
-                    commodityStationEconomyMap
-            );
-            
-            if (bestStation == null) {
-                // All stations outside max range
-                for (String commodity : neededCommodities) {
-                    routeLegs.add(RouteLeg.builder()
-                            .startPos(currentPos)
-                            .commodity(commodity)
-                            .action("NO_STATION_FOUND")
-                            .distance(0.0)
-                            .build());
-                }
-                neededCommodities.clear();
-                break;
-            }
-            
-            // Extract station info for the leg
-            StationKey stationKey = bestStation.getKey();
-            Set<String> coveredCommodities = bestStation.getValue();
-            
-            double travelDist = DistanceCalculator.distance(currentPos, stationKey.coords);
-            
-            // Format the commodities in a way the UI can parse
-            String formattedCovset = "{" + String.join(", ", coveredCommodities) + "}";
-            
-            // Add the leg
-            routeLegs.add(RouteLeg.builder()
-                    .startPos(currentPos)
-                    .endPos(stationKey.coords)
-                    .systemName(stationKey.systemName)
-                    .stationName(stationKey.stationName)
-                    .commodity(formattedCovset)
-                    .distance(Math.round(travelDist * 100.0) / 100.0)
-                    .action("PICKUP_RATIO")
-                    .build());
-            
-            // Update for next iteration
-            currentPos = stationKey.coords;
-            totalDist += travelDist;
-            neededCommodities.removeAll(coveredCommodities);
-        }
-        
-        // Return home
-        double distHome = DistanceCalculator.distance(currentPos, homeCoords);
-        routeLegs.add(RouteLeg.builder()
-                .startPos(currentPos)
-                .endPos(homeCoords)
-                .commodity("RETURN_HOME")
-                .distance(Math.round(distHome * 100.0) / 100.0)
-                .action("RETURN")
-                .build());
-        
-        totalDist += distHome;
-        
-        return new RouteResult(routeLegs, totalDist);
+    private List<RouteAlternative> beamSearch(RouteRequestDto requestDto, List<Chunk> binChunks,
+                                              CommodityIndex commodityIndex, Coordinates homeCoords,
+                                              boolean useEconomyData, long deadlineNanos) {
+        return beamSearchService.search(
+                binChunks,
+                commodityIndex,
+                homeCoords,
+                requestDto.getMaxRange(),
+                useEconomyData ? commodityService.getCommodityStationEconomyMap() : null,
+                requestDto.getBeamWidth(),
+                Boolean.TRUE.equals(requestDto.getSupplyAware()),
+                deadlineNanos
+        );
     }
     
     /**
-     * Find the best station from a set of candidates based on various criteria.
+     * Add the greedy tour to the candidates, unless it left needs unserved.
      */
-    private Map.Entry<StationKey, Set<String>> findBestStation(
-            Map<StationKey, Set<String>> stationCandidates,
-            Coordinates currentPos,
-            double maxRange,
-            Set<String> neededCommodities,
-            Map<String, List<StationInfo>> commodityMap,
-            Map<String, Set<String>> commodityStationEconomyMap) {
-        
-        Map.Entry<StationKey, Set<String>> bestStation = null;
-        double bestScore = Double.NEGATIVE_INFINITY;
-        
-        // Score all candidate stations
-        for (Map.Entry<StationKey, Set<String>> entry : stationCandidates.entrySet()) {
-            StationKey stationKey = entry.getKey();
-            Set<String> coveredCommodities = entry.getValue();
-            
-            double stationDist = DistanceCalculator.distance(currentPos, stationKey.coords);
-            
-            // Skip stations beyond max range
-            if (stationDist > maxRange) {
-                continue;
-            }
-            
-            // Base score is coverage / distance
-            int coverageCount = coveredCommodities.size();
-            double score = coverageCount / (stationDist + stationKey.prefPenalty + 1.0);
-            
-            // If economy data is available, enhance scoring
-            if (commodityStationEconomyMap != null && !commodityStationEconomyMap.isEmpty()) {
-                String systemName = stationKey.systemName;
-                String stationName = stationKey.stationName;
-                
-                // Try to find the station entry with economy info
-                for (String commodity : coveredCommodities) {
-                    List<StationInfo> stationEntries = commodityMap.getOrDefault(commodity, List.of()).stream()
-                            .filter(s -> s.getSystem().equals(systemName) && s.getStation().equals(stationName))
-                            .collect(Collectors.toList());
-                    
-                    if (!stationEntries.isEmpty()) {
-                        StationInfo station = stationEntries.get(0);
-                        // Get station-economy combo
-                        String stationEconomyCombo = station.getStationEconomyCombo();
-                        
-                        // Calculate how many needed commodities can be found at this station type
-                        int comboMatchCount = 0;
-                        for (String comm : neededCommodities) {
-                            Set<String> stationEconomyCombos = commodityStationEconomyMap.getOrDefault(comm, Set.of());
-                            if (stationEconomyCombos.contains(stationEconomyCombo)) {
-                                comboMatchCount++;
-                            }
-                        }
-                        
-                        // Enhance score with economy matching
-                        double matchRatio = (double) comboMatchCount / Math.max(1, neededCommodities.size());
-                        score *= (1.0 + 0.5 * matchRatio);
-                        break;
-                    }
-                }
-            }
-            
-            if (score > bestScore) {
-                bestScore = score;
-                bestStation = entry;
-            }
+    private static void addGreedyTour(List<RouteAlternative> found, List<RouteLeg> legs, double distance) {
+        if (legs.stream().noneMatch(leg -> "NO_STATION_FOUND".equals(leg.getAction()))) {
+            found.add(RouteAlternative.builder()
+                    .totalDistance(Math.round(distance * 100.0) / 100.0)
+                    .stops((int) legs.stream().filter(leg -> "PICKUP_RATIO".equals(leg.getAction())).count())
+                    .legs(legs)
+                    .build());
         }
-        
-        return bestStation;
-    }
-    
-    /**
-     * Simple class to hold a route planning result.
-     */
-    @Value
-    @AllArgsConstructor
-    private static class RouteResult {
-        List<RouteLeg> legs;
-        double totalDistance;
     }
     
     /**
-     * Simple class to use as a map key for stations.
+     * Co-occurrence counts: summed over the shard workers on a coordinator,
+     * otherwise local to the stations within range of home.
      */
-    @lombok.Value
-    private static class StationKey {
-        String systemName;
-        String stationName;
-        Coordinates coords;
-        int prefPenalty;
+    private Map<String, Map<String, Integer>> coOccurrence(Coordinates homeCoords, RouteRequestDto requestDto) {
+        return shardCoordinator.isEnabled()
+                ? shardCoordinator.getCoOccurrence()
+                : regionalCoOccurrenceService.coOccurrence(homeCoords, requestDto.getMaxRange(),
+                        requestDto.isSkipCarriers(), requestDto.isLargePadOnly());
     }
-}
\ No newline at end of file
+}
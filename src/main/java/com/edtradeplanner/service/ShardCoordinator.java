@@ -0,0 +1,274 @@
+package com.edtradeplanner.service;
+
+import com.edtradeplanner.config.PlannerConfig;
+import com.edtradeplanner.index.CommodityIndex;
+import com.edtradeplanner.index.SectorPartition;
+import com.edtradeplanner.index.StationStore;
+import com.edtradeplanner.model.Chunk;
+import com.edtradeplanner.model.Coordinates;
+import com.edtradeplanner.model.RouteLeg;
+import com.edtradeplanner.model.StarSystem;
+import com.edtradeplanner.model.dto.ShardOffersRequestDto;
+import com.edtradeplanner.util.DistanceCalculator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClient;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Plans against the shard workers when this node is a coordinator.
+ *
+ * A plan works on a request-local index of the stations fetched so far. Each
+ * bin is routed greedily on that index; then every point the tour searched
+ * from (home and each stop) is checked against the spheres already fetched.
+ * If a search sphere is not fully covered, the missing region is fetched from
+ * the workers owning its sectors, the index is rebuilt and the bin routed
+ * again. Once every search was answered from complete data the tour is the
+ * one a single node holding all stations would have planned.
+ */
+@Slf4j
+@Service
+public class ShardCoordinator {
+    
+    private static final ParameterizedTypeReference<List<StarSystem>> SYSTEM_LIST = new ParameterizedTypeReference<>() {};
+    private static final ParameterizedTypeReference<Map<String, Map<String, Integer>>> CO_OCCURRENCE =
+            new ParameterizedTypeReference<>() {};
+    
+    private final PlannerConfig plannerConfig;
+    private final GreedyRouteService greedyRouteService;
+    private final Executor executor;
+    private final RestClient restClient;
+    private final boolean enabled;
+    private final SectorPartition partition;
+    
+    private volatile Map<String, Map<String, Integer>> coOccurrence;
+    
+    public ShardCoordinator(PlannerConfig plannerConfig,
+                            GreedyRouteService greedyRouteService,
+                            RestClient.Builder restClientBuilder,
+                            @Qualifier("shardFetchTaskExecutor") Executor executor) {
+        this.plannerConfig = plannerConfig;
+        this.greedyRouteService = greedyRouteService;
+        this.executor = executor;
+        
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout((int) plannerConfig.getShardRequestTimeoutMs());
+        requestFactory.setReadTimeout((int) plannerConfig.getShardRequestTimeoutMs());
+        this.restClient = restClientBuilder.requestFactory(requestFactory).build();
+        this.enabled = "coordinator".equalsIgnoreCase(plannerConfig.getClusterRole())
+                && !plannerConfig.getShardWorkerUrls().isEmpty();
+        if (enabled && plannerConfig.getShardCount() != plannerConfig.getShardWorkerUrls().size()) {
+            // Workers assign sectors by shard-count; a different count here would send queries to the wrong workers
+            throw new IllegalStateException("shard-count is " + plannerConfig.getShardCount() + " but "
+                    + plannerConfig.getShardWorkerUrls().size() + " shard-worker-urls are configured; they must match");
+        }
+        this.partition = enabled
+                ? new SectorPartition(plannerConfig.getShardSectorSize(), plannerConfig.getShardCount())
+                : null;
+        if (enabled) {
+            log.info("Coordinating {} shard workers: {}", plannerConfig.getShardWorkerUrls().size(),
+                    plannerConfig.getShardWorkerUrls());
+        }
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * Start a plan's candidate session for the commodities it needs.
+     */
+    public Session openSession(Collection<String> commodities, boolean skipCarriers, boolean largePadOnly) {
+        return new Session(new ArrayList<>(new TreeSet<>(commodities)), skipCarriers, largePadOnly);
+    }
+    
+    /**
+     * Route one bin greedily, fetching stations from the workers until every
+     * search the tour made was covered.
+     */
+    public GreedyRouteService.RouteResult plan(Session session,
+                                               List<Chunk> binChunks,
+                                               Coordinates homeCoords,
+                                               double maxRange,
+                                               double jumpRange,
+                                               boolean supplyAware,
+                                               Map<String, Set<String>> commodityStationEconomyMap) {
+        double searchRadius = jumpRange > 0
+                ? Math.max(maxRange, jumpRange * plannerConfig.getMaxJumpsPerLeg())
+                : maxRange;
+        session.ensureCovered(List.of(homeCoords), searchRadius);
+        while (true) {
+            GreedyRouteService.RouteResult result = greedyRouteService.plan(binChunks, session.index(), homeCoords,
+                    maxRange, jumpRange, supplyAware, commodityStationEconomyMap);
+            List<Coordinates> searchedFrom = new ArrayList<>();
+            searchedFrom.add(homeCoords);
+            for (RouteLeg leg : result.getLegs()) {
+                if (leg.getEndPos() != null && !"RETURN".equals(leg.getAction())) {
+                    searchedFrom.add(leg.getEndPos());
+                }
+            }
+            if (!session.ensureCovered(searchedFrom, searchRadius)) {
+                return result;
+            }
+            session.reroutes++;
+        }
+    }
+    
+    /**
+     * Co-occurrence counts summed over the workers. Fetched once; empty (and
+     * retried on the next call) while a worker cannot answer.
+     */
+    public Map<String, Map<String, Integer>> getCoOccurrence() {
+        Map<String, Map<String, Integer>> cached = coOccurrence;
+        if (cached != null) {
+            return cached;
+        }
+        try {
+            List<CompletableFuture<Map<String, Map<String, Integer>>>> futures = new ArrayList<>();
+            for (String url : plannerConfig.getShardWorkerUrls()) {
+                futures.add(CompletableFuture.supplyAsync(() -> restClient.get()
+                        .uri(url + "/internal/shard/co-occurrence")
+                        .retrieve()
+                        .body(CO_OCCURRENCE), executor));
+            }
+            Map<String, Map<String, Integer>> merged = new HashMap<>();
+            for (CompletableFuture<Map<String, Map<String, Integer>>> future : futures) {
+                future.join().forEach((commodity, partners) -> {
+                    Map<String, Integer> counts = merged.computeIfAbsent(commodity, k -> new HashMap<>());
+                    partners.forEach((partner, count) -> counts.merge(partner, count, Integer::sum));
+                });
+            }
+            coOccurrence = merged;
+            return merged;
+        } catch (CompletionException e) {
+            log.warn("Could not fetch co-occurrence counts from the shard workers", e.getCause());
+            return Map.of();
+        }
+    }
+    
+    private List<StarSystem> fetch(int shard, ShardOffersRequestDto query) {
+        String url = plannerConfig.getShardWorkerUrls().get(shard);
+        try {
+            List<StarSystem> systems = restClient.post()
+                    .uri(url + "/internal/shard/offers")
+                    .body(query)
+                    .retrieve()
+                    .body(SYSTEM_LIST);
+            return systems != null ? systems : List.of();
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("Shard worker " + shard + " (" + url + ") did not answer: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * The stations fetched for one plan and the spheres they cover.
+     */
+    public class Session {
+        private final List<String> commodities;
+        private final boolean skipCarriers;
+        private final boolean largePadOnly;
+        private final List<double[]> covered = new ArrayList<>();
+        private final Map<String, StarSystem> systems = new LinkedHashMap<>();
+        private CommodityIndex index;
+        private int fetches;
+        private int reroutes;
+        
+        private Session(List<String> commodities, boolean skipCarriers, boolean largePadOnly) {
+            this.commodities = commodities;
+            this.skipCarriers = skipCarriers;
+            this.largePadOnly = largePadOnly;
+        }
+        
+        /**
+         * Fetch what is missing for a search of {@code radius} around each point.
+         * Returns whether anything was fetched.
+         */
+        boolean ensureCovered(List<Coordinates> points, double radius) {
+            double fetchRadius = radius * Math.max(1.0, plannerConfig.getShardFetchRadiusFactor());
+            List<double[]> spheres = new ArrayList<>();
+            for (Coordinates p : points) {
+                if (!isCovered(covered, p, radius) && !isCovered(spheres, p, radius)) {
+                    spheres.add(new double[]{p.getX(), p.getY(), p.getZ(), fetchRadius});
+                }
+            }
+            if (spheres.isEmpty()) {
+                return false;
+            }
+            
+            List<CompletableFuture<List<StarSystem>>> futures = new ArrayList<>();
+            for (double[] sphere : spheres) {
+                ShardOffersRequestDto query = ShardOffersRequestDto.builder()
+                        .x(sphere[0]).y(sphere[1]).z(sphere[2]).radius(sphere[3])
+                        .commodities(commodities)
+                        .skipCarriers(skipCarriers)
+                        .largePadOnly(largePadOnly)
+                        .build();
+                BitSet shards = partition.shardsWithin(sphere[0], sphere[1], sphere[2], sphere[3]);
+                for (int shard = shards.nextSetBit(0); shard >= 0; shard = shards.nextSetBit(shard + 1)) {
+                    int target = shard;
+                    futures.add(CompletableFuture.supplyAsync(() -> fetch(target, query), executor));
+                }
+            }
+            try {
+                for (CompletableFuture<List<StarSystem>> future : futures) {
+                    for (StarSystem system : future.join()) {
+                        // Every station of a system shares its coordinates, so a system is fetched whole or not at all
+                        Coordinates c = system.getCoords();
+                        systems.putIfAbsent(system.getName() + "@" + c.getX() + "," + c.getY() + "," + c.getZ(), system);
+                    }
+                }
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+            covered.addAll(spheres);
+            fetches += futures.size();
+            index = null;
+            return true;
+        }
+        
+        CommodityIndex index() {
+            if (index == null) {
+                index = new CommodityIndex(StationStore.build(new ArrayList<>(systems.values())), skipCarriers,
+                        largePadOnly, plannerConfig.getSupplyIndexCellSize(), plannerConfig.getClusterCellSize());
+            }
+            return index;
+        }
+        
+        /**
+         * Fetch statistics for the optimization map.
+         */
+        public Map<String, Object> stats() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("workers", partition.shardCount());
+            stats.put("fetches", fetches);
+            stats.put("reroutes", reroutes);
+            stats.put("stations", index().getStore().size());
+            return stats;
+        }
+        
+        private static boolean isCovered(List<double[]> spheres, Coordinates p, double radius) {
+            for (double[] sphere : spheres) {
+                if (DistanceCalculator.distance(p.getX(), p.getY(), p.getZ(), sphere[0], sphere[1], sphere[2])
+                        + radius <= sphere[3]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.edtradeplanner.service;
+
+import com.edtradeplanner.index.CommodityIndex;
+import com.edtradeplanner.index.StationStore;
+import com.edtradeplanner.model.Commodity;
+import com.edtradeplanner.model.Coordinates;
+import com.edtradeplanner.model.Market;
+import com.edtradeplanner.model.StarSystem;
+import com.edtradeplanner.model.Station;
+import com.edtradeplanner.model.dto.ShardOffersRequestDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Answers a coordinator's candidate queries from this worker's shard. Offers
+ * go back in the dataset's own system/station/market shape, cut down to the
+ * requested commodities, so the coordinator can index them like local data.
+ */
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "tradeplanner", name = "cluster-role", havingValue = "worker")
+public class ShardWorkerService {
+    
+    private final CommodityService commodityService;
+    
+    public List<StarSystem> offers(ShardOffersRequestDto query) {
+        CommodityIndex index = commodityService.getCommodityIndex(query.isSkipCarriers(), query.isLargePadOnly());
+        StationStore store = index.getStore();
+        
+        BitSet stations = new BitSet(store.size());
+        Set<Integer> wanted = new HashSet<>();
+        for (String commodity : query.getCommodities()) {
+            int commodityId = store.commodityId(commodity);
+            if (commodityId >= 0) {
+                wanted.add(commodityId);
+                index.withinRadius(commodity, query.getX(), query.getY(), query.getZ(), query.getRadius(), stations::set);
+            }
+        }
+        
+        Map<Integer, StarSystem> systems = new LinkedHashMap<>();
+        for (int id = stations.nextSetBit(0); id >= 0; id = stations.nextSetBit(id + 1)) {
+            List<Commodity> market = new ArrayList<>();
+            for (int entry = store.marketStart(id); entry < store.marketEnd(id); entry++) {
+                int commodityId = store.marketCommodity(entry);
+                if (wanted.contains(commodityId) && store.marketSupply(entry) >= 1) {
+                    market.add(new Commodity(store.commodityName(commodityId), store.marketSupply(entry)));
+                }
+            }
+            int stationId = id;
+            StarSystem system = systems.computeIfAbsent(store.systemIndex(id), sysIdx -> StarSystem.builder()
+                    .name(store.systemName(stationId))
+                    .coords(new Coordinates(store.x(stationId), store.y(stationId), store.z(stationId)))
+                    .stations(new ArrayList<>())
+                    .build());
+            system.getStations().add(Station.builder()
+                    .name(store.stationName(id))
+                    .type(store.stationType(id))
+                    .economy(store.economy(id))
+                    .landingPads(store.hasLargePad(id) ? Map.of("large", 1) : Map.of())
+                    .market(new Market(market))
+                    .build());
+        }
+        return new ArrayList<>(systems.values());
+    }
+    
+    public Map<String, Map<String, Integer>> coOccurrence() {
+        return commodityService.getCommodityCoOccurrence();
+    }
+}
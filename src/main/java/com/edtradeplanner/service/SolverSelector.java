@@ -0,0 +1,249 @@
+package com.edtradeplanner.service;
+
+import com.edtradeplanner.config.PlannerConfig;
+import com.edtradeplanner.index.CommodityIndex;
+import com.edtradeplanner.model.Chunk;
+import com.edtradeplanner.model.Coordinates;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Chooses the router for each bin of an {@code auto} plan from a linear
+ * cost/benefit model over cheap features of the bin.
+ *
+ * Greedy always runs. On top of it a bin may get the 2-opt improved tour
+ * ("improved") or a beam search in which the greedy and improved tours compete
+ * ("beam"). Each has a predicted cost in milliseconds and a predicted gain, the
+ * fraction of the greedy distance saved; the solver with the largest gain whose
+ * cost fits the bin's share of the request budget is used. The coefficients
+ * come from {@code solver-*} in the configuration and are fitted offline by
+ * the journal replay (see {@link #fit()}).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SolverSelector {
+    
+    public static final String GREEDY = "greedy";
+    public static final String IMPROVED = "improved";
+    public static final String BEAM = "beam";
+    
+    // Keeps a long sampling replay from growing without bound
+    private static final int MAX_SAMPLES = 20_000;
+    private static final double RIDGE = 1e-6;
+    
+    private final PlannerConfig plannerConfig;
+    
+    private final List<Sample> samples = new ArrayList<>();
+    private volatile boolean sampling;
+    
+    /**
+     * What the models see of a bin.
+     *
+     * @param commodities distinct commodities in the bin
+     * @param candidates  distinct stations within range of home selling any of them
+     * @param density     stations within range of home selling anything the request needs, per 1000 ly³
+     */
+    public record Features(int commodities, int candidates, double density) {}
+    
+    /**
+     * Measured cost and gain of both optional solvers on one bin.
+     */
+    public record Sample(Features features, int beamWidth, double improvedMs, double improvedGain,
+                         double beamMs, double beamGain) {}
+    
+    /**
+     * Station density around home for a whole request.
+     */
+    public double density(CommodityIndex index, Coordinates home, double maxRange, Collection<String> commodities) {
+        BitSet stations = stationsInRange(index, home, maxRange, commodities);
+        double volume = 4.0 / 3.0 * Math.PI * maxRange * maxRange * maxRange / 1000.0;
+        return volume > 0 ? stations.cardinality() / volume : 0.0;
+    }
+    
+    public Features features(CommodityIndex index, Coordinates home, double maxRange, List<Chunk> binChunks,
+                             double density) {
+        List<String> commodities = binChunks.stream().map(Chunk::getCommodity).distinct().toList();
+        BitSet stations = stationsInRange(index, home, maxRange, commodities);
+        return new Features(commodities.size(), stations.cardinality(), density);
+    }
+    
+    public double predictedCostMs(String solver, Features f, int beamWidth) {
+        return switch (solver) {
+            case IMPROVED -> Math.max(0.0, dot(plannerConfig.getSolverImprovedCost(), costTerms(f)));
+            case BEAM -> Math.max(0.0, beamWidth * dot(plannerConfig.getSolverBeamCost(), costTerms(f)));
+            default -> 0.0;
+        };
+    }
+    
+    public double predictedGain(String solver, Features f) {
+        return switch (solver) {
+            case IMPROVED -> dot(plannerConfig.getSolverImprovedGain(), gainTerms(f));
+            case BEAM -> dot(plannerConfig.getSolverBeamGain(), gainTerms(f));
+            default -> 0.0;
+        };
+    }
+    
+    /**
+     * The solver with the best predicted gain that fits in {@code budgetMs};
+     * greedy if none is predicted to save at least {@code solver-min-gain}.
+     */
+    public String choose(Features f, int beamWidth, double budgetMs) {
+        String best = GREEDY;
+        double bestGain = plannerConfig.getSolverMinGain();
+        for (String solver : List.of(IMPROVED, BEAM)) {
+            double gain = predictedGain(solver, f);
+            if (gain >= bestGain && predictedCostMs(solver, f, beamWidth) <= budgetMs) {
+                best = solver;
+                bestGain = gain;
+            }
+        }
+        return best;
+    }
+    
+    /**
+     * While sampling, auto plans run every solver on every bin and record what
+     * each cost and saved.
+     */
+    public boolean isSampling() {
+        return sampling;
+    }
+    
+    public void setSampling(boolean sampling) {
+        this.sampling = sampling;
+    }
+    
+    public void record(Sample sample) {
+        synchronized (samples) {
+            if (samples.size() < MAX_SAMPLES) {
+                samples.add(sample);
+            }
+        }
+    }
+    
+    /**
+     * Least-squares fit of all four models to the recorded samples, logged as
+     * configuration to paste into tradeplanner.yml. Returns false when there
+     * are too few samples to fit.
+     */
+    public boolean fit() {
+        List<Sample> data;
+        synchronized (samples) {
+            data = new ArrayList<>(samples);
+        }
+        if (data.size() < 8) {
+            log.warn("Only {} solver samples recorded; need at least 8 to fit the solver models", data.size());
+            return false;
+        }
+        
+        double[][] costX = new double[data.size()][];
+        double[][] gainX = new double[data.size()][];
+        double[] improvedMs = new double[data.size()];
+        double[] improvedGain = new double[data.size()];
+        double[] beamMsPerWidth = new double[data.size()];
+        double[] beamGain = new double[data.size()];
+        for (int i = 0; i < data.size(); i++) {
+            Sample s = data.get(i);
+            costX[i] = costTerms(s.features());
+            gainX[i] = gainTerms(s.features());
+            improvedMs[i] = s.improvedMs();
+            improvedGain[i] = s.improvedGain();
+            beamMsPerWidth[i] = s.beamMs() / Math.max(1, s.beamWidth());
+            beamGain[i] = s.beamGain();
+        }
+        
+        log.info("Solver models fitted to {} bins:\n  solver-improved-cost: {}\n  solver-improved-gain: {}\n"
+                        + "  solver-beam-cost: {}\n  solver-beam-gain: {}", data.size(),
+                format(leastSquares(costX, improvedMs)), format(leastSquares(gainX, improvedGain)),
+                format(leastSquares(costX, beamMsPerWidth)), format(leastSquares(gainX, beamGain)));
+        return true;
+    }
+    
+    /**
+     * Ordinary least squares with a small ridge term, solved through the
+     * normal equations; the models have four terms, so this is a 4x4 system.
+     */
+    static double[] leastSquares(double[][] x, double[] y) {
+        int k = x[0].length;
+        double[][] a = new double[k][k + 1];
+        for (int r = 0; r < x.length; r++) {
+            for (int i = 0; i < k; i++) {
+                for (int j = 0; j < k; j++) {
+                    a[i][j] += x[r][i] * x[r][j];
+                }
+                a[i][k] += x[r][i] * y[r];
+            }
+        }
+        for (int i = 0; i < k; i++) {
+            a[i][i] += RIDGE;
+        }
+        
+        // Gaussian elimination with partial pivoting
+        for (int col = 0; col < k; col++) {
+            int pivot = col;
+            for (int r = col + 1; r < k; r++) {
+                if (Math.abs(a[r][col]) > Math.abs(a[pivot][col])) {
+                    pivot = r;
+                }
+            }
+            double[] tmp = a[col];
+            a[col] = a[pivot];
+            a[pivot] = tmp;
+            for (int r = col + 1; r < k; r++) {
+                double factor = a[r][col] / a[col][col];
+                for (int c = col; c <= k; c++) {
+                    a[r][c] -= factor * a[col][c];
+                }
+            }
+        }
+        double[] beta = new double[k];
+        for (int i = k - 1; i >= 0; i--) {
+            double sum = a[i][k];
+            for (int j = i + 1; j < k; j++) {
+                sum -= a[i][j] * beta[j];
+            }
+            beta[i] = sum / a[i][i];
+        }
+        return beta;
+    }
+    
+    static double[] costTerms(Features f) {
+        return new double[]{1.0, f.commodities(), f.candidates(), (double) f.commodities() * f.candidates()};
+    }
+    
+    static double[] gainTerms(Features f) {
+        return new double[]{1.0, f.commodities(), Math.log1p(f.candidates()), f.density()};
+    }
+    
+    private static BitSet stationsInRange(CommodityIndex index, Coordinates home, double maxRange,
+                                          Collection<String> commodities) {
+        BitSet stations = new BitSet(index.getStore().size());
+        for (String commodity : commodities) {
+            index.withinRadius(commodity, home.getX(), home.getY(), home.getZ(), maxRange, stations::set);
+        }
+        return stations;
+    }
+    
+    private static double dot(List<Double> coefficients, double[] terms) {
+        double sum = 0.0;
+        for (int i = 0; i < terms.length && i < coefficients.size(); i++) {
+            sum += coefficients.get(i) * terms[i];
+        }
+        return sum;
+    }
+    
+    private static String format(double[] beta) {
+        List<String> parts = new ArrayList<>();
+        for (double b : beta) {
+            parts.add(String.format(Locale.ROOT, "%.6g", b));
+        }
+        return "[" + String.join(", ", parts) + "]";
+    }
+}
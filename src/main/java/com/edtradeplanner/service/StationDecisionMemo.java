@@ -0,0 +1,154 @@
+package com.edtradeplanner.service;
+
+import com.edtradeplanner.config.PlannerConfig;
+import com.edtradeplanner.index.CommodityIndex;
+import com.edtradeplanner.index.StationStore;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+
+/**
+ * Remembered greedy decisions: from a position in a small cubic cell, with
+ * these commodities (and, supply-aware, these tons) still to load, which
+ * station is next. Requests from the same hub ask the same question over and
+ * over, usually from exactly the same position (the home system, or a station
+ * an earlier stop ended at).
+ *
+ * A decision is only stored with a certificate: every station that could beat
+ * it from anywhere in the cell, found with the cell diagonal as the bound on
+ * how much any distance can change. Before it is used from another position
+ * the chosen station and those contenders are scored exactly from there, so a
+ * remembered decision is always the one the full search would make. Entries
+ * are kept per station store (so a reload starts afresh) in a bounded Caffeine
+ * cache.
+ */
+@Service
+@RequiredArgsConstructor
+public class StationDecisionMemo {
+    
+    private final PlannerConfig plannerConfig;
+    
+    private volatile Snapshot snapshot;
+    
+    /**
+     * The station chosen from a cell, and what it loads (all full loads, so
+     * the same wherever in the cell the step starts).
+     *
+     * @param coverage          commodities the station fully supplies
+     * @param economyFactor     the station's economy score multiplier for these needs
+     * @param loaded            commodity ids it loads
+     * @param contenders        stations that might score higher somewhere in the cell
+     * @param contenderWeights  an upper bound on each contender's coverage times its economy factor
+     */
+    public record Decision(int station, double coverage, double economyFactor, int[] loaded,
+                           int[] contenders, double[] contenderWeights) {}
+    
+    /**
+     * Memo lookups for one tour; null from {@link #context} when disabled.
+     */
+    public Context context(CommodityIndex index, double maxRange, boolean supplyAware, boolean economy) {
+        if (!plannerConfig.isStationMemoEnabled()) {
+            return null;
+        }
+        StationStore store = index.getStore();
+        Snapshot current = snapshot;
+        if (current == null || current.store != store) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null || current.store != store) {
+                    current = new Snapshot(store, Caffeine.newBuilder()
+                            .maximumSize(plannerConfig.getStationMemoCacheSize())
+                            .build());
+                    snapshot = current;
+                }
+            }
+        }
+        return new Context(current.cache, plannerConfig.getStationMemoCellSize(),
+                plannerConfig.getStationMemoMaxContenders(), index.isSkipCarriers(), index.isLargePadOnly(),
+                supplyAware, economy, maxRange);
+    }
+    
+    public static final class Context {
+        
+        private final Cache<Key, Decision> cache;
+        private final double cellSize;
+        private final int maxContenders;
+        private final boolean skipCarriers;
+        private final boolean largePadOnly;
+        private final boolean supplyAware;
+        private final boolean economy;
+        private final double maxRange;
+        
+        private Context(Cache<Key, Decision> cache, double cellSize, int maxContenders, boolean skipCarriers,
+                        boolean largePadOnly, boolean supplyAware, boolean economy, double maxRange) {
+            this.cache = cache;
+            this.cellSize = cellSize;
+            this.maxContenders = maxContenders;
+            this.skipCarriers = skipCarriers;
+            this.largePadOnly = largePadOnly;
+            this.supplyAware = supplyAware;
+            this.economy = economy;
+            this.maxRange = maxRange;
+        }
+        
+        /**
+         * Key for a step from (x, y, z); {@code needs} is the bitset of remaining
+         * commodity ids followed, when supply-aware, by their remaining tons in id order.
+         */
+        public Key key(double x, double y, double z, long[] needs) {
+            return new Key(skipCarriers, largePadOnly, supplyAware, economy, maxRange,
+                    (int) Math.floor(x / cellSize), (int) Math.floor(y / cellSize), (int) Math.floor(z / cellSize),
+                    new Needs(needs));
+        }
+        
+        public Decision get(Key key) {
+            return cache.getIfPresent(key);
+        }
+        
+        public void put(Key key, Decision decision) {
+            cache.put(key, decision);
+        }
+        
+        /**
+         * The most any distance can change between two points of one cell.
+         */
+        public double cellDiagonal() {
+            return cellSize * Math.sqrt(3);
+        }
+        
+        public int maxContenders() {
+            return maxContenders;
+        }
+    }
+    
+    public record Key(boolean skipCarriers, boolean largePadOnly, boolean supplyAware, boolean economy,
+                      double maxRange, int cx, int cy, int cz, Needs needs) {}
+    
+    /**
+     * Array wrapper with value equality, for use in keys.
+     */
+    public static final class Needs {
+        private final long[] words;
+        private final int hash;
+        
+        Needs(long[] words) {
+            this.words = words;
+            this.hash = Arrays.hashCode(words);
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Needs other && hash == other.hash && Arrays.equals(words, other.words);
+        }
+        
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+    
+    private record Snapshot(StationStore store, Cache<Key, Decision> cache) {}
+}
@@ -1,13 +1,16 @@
 package com.edtradeplanner.service;
 
 import com.edtradeplanner.config.PlannerConfig;
+import com.edtradeplanner.index.SectorPartition;
+import com.edtradeplanner.index.SystemNameIndex;
 import com.edtradeplanner.model.Coordinates;
 import com.edtradeplanner.model.StarSystem;  // Import renamed to StarSystem to avoid ambiguity
 import com.edtradeplanner.model.dto.SystemSearchResponseDto;
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.stereotype.Service;
@@ -19,29 +22,99 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class SystemService {
     
     private final ResourceLoader resourceLoader;
     private final PlannerConfig plannerConfig;
     private final ObjectMapper objectMapper;
+    private final Executor startupTaskExecutor;
     
-    private List<StarSystem> systemsList = new ArrayList<>();
-    private Map<String, Coordinates> systemCoordsMap = new HashMap<>();
+    private volatile List<StarSystem> systemsList = new ArrayList<>();
+    private volatile Map<String, Coordinates> systemCoordsMap = new HashMap<>();
+    private volatile SystemNameIndex nameIndex = new SystemNameIndex(List.of());
+    private volatile long datasetVersion = 0;
+    private final CompletableFuture<Void> loaded = new CompletableFuture<>();
+    
+    public SystemService(ResourceLoader resourceLoader,
+                         PlannerConfig plannerConfig,
+                         ObjectMapper objectMapper,
+                         @Qualifier("startupTaskExecutor") Executor startupTaskExecutor) {
+        this.resourceLoader = resourceLoader;
+        this.plannerConfig = plannerConfig;
+        this.objectMapper = objectMapper;
+        this.startupTaskExecutor = startupTaskExecutor;
+    }
     
     @PostConstruct
     public void initialize() {
-        loadSystemData();
+        // Parse the dataset off the startup thread; dependent indexes chain on whenLoaded()
+        startupTaskExecutor.execute(() -> {
+            try {
+                loadSystemData();
+            } finally {
+                loaded.complete(null);
+            }
+        });
+    }
+    
+    /**
+     * Completes once the system data has been loaded (or failed to load and was left empty).
+     */
+    public CompletableFuture<Void> whenLoaded() {
+        return loaded;
+    }
+    
+    /**
+     * Stream the systems array, keeping only what this node's cluster role needs:
+     * a worker keeps the systems of its own shard, a coordinator keeps every
+     * system but drops the stations. Systems are filtered as they are parsed, so
+     * a worker never holds the whole dataset.
+     */
+    private List<StarSystem> readSystems(InputStream inputStream) throws IOException {
+        String role = plannerConfig.getClusterRole();
+        boolean worker = "worker".equalsIgnoreCase(role);
+        boolean coordinator = "coordinator".equalsIgnoreCase(role);
+        SectorPartition partition = worker
+                ? new SectorPartition(plannerConfig.getShardSectorSize(), plannerConfig.getShardCount())
+                : null;
+        
+        List<StarSystem> systems = new ArrayList<>();
+        int skipped = 0;
+        try (JsonParser parser = objectMapper.createParser(inputStream)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Expected a JSON array of systems");
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                StarSystem system = objectMapper.readValue(parser, StarSystem.class);
+                if (worker && (system.getCoords() == null || partition.shardOf(system.getCoords().getX(),
+                        system.getCoords().getY(), system.getCoords().getZ()) != plannerConfig.getShardIndex())) {
+                    skipped++;
+                    continue;
+                }
+                if (coordinator) {
+                    system.setStations(null);
+                }
+                systems.add(system);
+            }
+        }
+        if (worker) {
+            log.info("Shard {} of {}: kept {} systems, skipped {} owned by other shards",
+                    plannerConfig.getShardIndex(), plannerConfig.getShardCount(), systems.size(), skipped);
+        }
+        return systems;
     }
     
     private void loadSystemData() {
         try {
             InputStream inputStream = resourceLoader.getResource("classpath:" + plannerConfig.getSystemsJsonPath()).getInputStream();
-            systemsList = objectMapper.readValue(inputStream, new TypeReference<List<StarSystem>>() {});
+            systemsList = readSystems(inputStream);
             
             // Build system coordinates map
             systemCoordsMap = systemsList.stream()
@@ -52,6 +125,10 @@ public class SystemService {
                             (existing, replacement) -> existing
                     ));
             
+            // Build name index for canonical lookups and typo suggestions
+            nameIndex = new SystemNameIndex(systemsList);
+            datasetVersion = System.currentTimeMillis();
+            
             log.info("Loaded {} systems and built coordinates map with {} entries", 
                     systemsList.size(), systemCoordsMap.size());
             
@@ -59,10 +136,12 @@ public class SystemService {
             log.error("Error loading system data", e);
             systemsList = new ArrayList<>();
             systemCoordsMap = new HashMap<>();
+            nameIndex = new SystemNameIndex(List.of());
         }
     }
     
-    @Cacheable("systemSearch")
+    // Empty results are not cached, so searches made while the data is loading are not remembered
+    @Cacheable(value = "systemSearch", unless = "#result.isEmpty()")
     public List<SystemSearchResponseDto> searchSystems(String query, int limit) {
         return systemsList.stream()
                 .filter(system -> system.getName() != null && 
@@ -74,10 +153,29 @@ public class SystemService {
                 .collect(Collectors.toList());
     }
     
+    /**
+     * Drop every system's stations once the off-heap station store holds them,
+     * so the object graph is not kept alive for the GC to trace. Name search and
+     * the jump graph only need names and coordinates.
+     */
+    public void releaseStations() {
+        for (StarSystem system : systemsList) {
+            system.setStations(null);
+        }
+        log.info("Released the stations of {} systems; station data is read from the station store", systemsList.size());
+    }
+    
     public List<StarSystem> getAllSystems() {
         return systemsList;
     }
     
+    /**
+     * Identifies the currently loaded snapshot of the system data; changes whenever it is reloaded.
+     */
+    public long getDatasetVersion() {
+        return datasetVersion;
+    }
+    
     public Coordinates getSystemCoordinates(String systemName) {
         if (systemName == null || systemName.isBlank()) {
             return new Coordinates(0, 0, 0); // Default to Sol
@@ -88,4 +186,18 @@ public class SystemService {
                 new Coordinates(0, 0, 0)
         );
     }
+    
+    /**
+     * Find a system by name, ignoring case and surrounding whitespace.
+     */
+    public Optional<StarSystem> findSystem(String systemName) {
+        return nameIndex.find(systemName);
+    }
+    
+    /**
+     * Suggest existing system names close to a misspelled one.
+     */
+    public List<String> suggestSystems(String systemName, int limit) {
+        return nameIndex.suggest(systemName, plannerConfig.getNameSuggestionMaxDistance(), limit);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,196 @@
+package com.edtradeplanner.service;
+
+import com.edtradeplanner.config.PlannerConfig;
+import com.edtradeplanner.index.StationStore;
+import com.edtradeplanner.model.CommodityNeed;
+import com.edtradeplanner.model.Coordinates;
+import com.edtradeplanner.model.dto.CompactRouteResponseDto;
+import com.edtradeplanner.model.dto.RouteRequestDto;
+import com.edtradeplanner.model.dto.RouteResponseDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs synthetic plan requests through the planner, JSON serialisation, the
+ * CSV parser and system search once the indexes are built, so the JIT has
+ * compiled the hot paths before the instance reports ready. The searches go
+ * through the cache like real ones, so it is cleared again afterwards.
+ */
+@Slf4j
+@Service
+public class WarmupService {
+    
+    // Iterations per latency block in the convergence log
+    private static final int BLOCK_SIZE = 5;
+    private static final int COMMODITIES_PER_REQUEST = 8;
+    
+    private final CommodityService commodityService;
+    private final SystemService systemService;
+    private final RoutePlannerService routePlannerService;
+    private final FileService fileService;
+    private final ObjectMapper objectMapper;
+    private final CacheManager cacheManager;
+    private final PlannerConfig plannerConfig;
+    private final Executor startupTaskExecutor;
+    
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+    private volatile int completedIterations;
+    
+    public WarmupService(CommodityService commodityService,
+                         SystemService systemService,
+                         RoutePlannerService routePlannerService,
+                         FileService fileService,
+                         ObjectMapper objectMapper,
+                         CacheManager cacheManager,
+                         PlannerConfig plannerConfig,
+                         @Qualifier("startupTaskExecutor") Executor startupTaskExecutor) {
+        this.commodityService = commodityService;
+        this.systemService = systemService;
+        this.routePlannerService = routePlannerService;
+        this.fileService = fileService;
+        this.objectMapper = objectMapper;
+        this.cacheManager = cacheManager;
+        this.plannerConfig = plannerConfig;
+        this.startupTaskExecutor = startupTaskExecutor;
+    }
+    
+    @PostConstruct
+    public void initialize() {
+        if (!plannerConfig.isWarmupEnabled() || plannerConfig.getWarmupIterations() <= 0) {
+            done.complete(null);
+            return;
+        }
+        commodityService.whenCoreIndexesReady()
+                .thenRunAsync(this::warmUp, startupTaskExecutor)
+                .whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        log.warn("JIT warm-up failed; continuing without it", error);
+                    }
+                    clearSearchCache();
+                    done.complete(null);
+                });
+    }
+    
+    /**
+     * Completes once the warm-up has finished, failed or been skipped.
+     */
+    public CompletableFuture<Void> whenDone() {
+        return done;
+    }
+    
+    public int getCompletedIterations() {
+        return completedIterations;
+    }
+    
+    private void warmUp() {
+        StationStore store = commodityService.getStationStore();
+        if (store.size() == 0 || store.commodityCount() == 0) {
+            log.info("Skipping JIT warm-up: no station data loaded");
+            return;
+        }
+        
+        int iterations = plannerConfig.getWarmupIterations();
+        long deadline = System.nanoTime() + plannerConfig.getWarmupTimeCapMs() * 1_000_000;
+        Random random = new Random(42);
+        long[] latencies = new long[iterations];
+        int completed = 0;
+        
+        log.info("JIT warm-up: up to {} plans within {} ms", iterations, plannerConfig.getWarmupTimeCapMs());
+        long start = System.nanoTime();
+        while (completed < iterations && System.nanoTime() < deadline) {
+            int stationId = random.nextInt(store.size());
+            long iterationStart = System.nanoTime();
+            try {
+                runIteration(store, stationId, completed, random);
+            } catch (Exception e) {
+                log.debug("Warm-up iteration {} failed", completed, e);
+            }
+            latencies[completed] = System.nanoTime() - iterationStart;
+            completed++;
+            completedIterations = completed;
+            
+            if (completed % BLOCK_SIZE == 0) {
+                log.info("Warm-up plans {}-{}: median {} ms", completed - BLOCK_SIZE + 1, completed,
+                        medianMs(latencies, completed - BLOCK_SIZE, completed));
+            }
+        }
+        
+        if (completed == 0) {
+            return;
+        }
+        int lastBlock = Math.max(0, completed - BLOCK_SIZE);
+        log.info("JIT warm-up finished: {} plans in {} ms, first {} ms, last {} median {} ms{}",
+                completed, (System.nanoTime() - start) / 1_000_000, latencies[0] / 1_000_000,
+                completed - lastBlock, medianMs(latencies, lastBlock, completed),
+                completed < iterations ? " (time cap reached)" : "");
+    }
+    
+    /**
+     * One synthetic request: parse a generated needs CSV, plan from a station's
+     * position, serialise the response in both formats and search for its system.
+     */
+    private void runIteration(StationStore store, int stationId, int iteration, Random random) throws Exception {
+        StringBuilder csv = new StringBuilder("Commodity,QuantityNeeded\n");
+        for (int i = 0; i < COMMODITIES_PER_REQUEST; i++) {
+            csv.append(store.commodityName(random.nextInt(store.commodityCount())))
+                    .append(',').append(500 + random.nextInt(4500)).append('\n');
+        }
+        List<CommodityNeed> needs = fileService.parseCommodityNeeds(new StringReader(csv.toString()));
+        
+        Coordinates home = store.coords(stationId);
+        boolean beam = iteration % BLOCK_SIZE == BLOCK_SIZE - 1;
+        RouteRequestDto request = RouteRequestDto.builder()
+                .cargoCapacity(plannerConfig.getDefaultCargoCapacity())
+                .maxRange(plannerConfig.getDefaultMaxRange())
+                .useCoordinates(true)
+                .homeX(home.getX())
+                .homeY(home.getY())
+                .homeZ(home.getZ())
+                .skipCarriers(plannerConfig.isSkipCarriersDefault())
+                .largePadOnly(plannerConfig.isLargePadOnlyDefault())
+                .supplyAware(iteration % 2 == 0)
+                .planningMode(beam ? "beam" : "auto")
+                .beamWidth(plannerConfig.getDefaultBeamWidth())
+                .beamTimeBudgetMs(Math.min(plannerConfig.getDefaultBeamTimeBudgetMs(), 200))
+                .build();
+        RouteResponseDto response = routePlannerService.planRoute(request, needs);
+        
+        objectMapper.writeValueAsBytes(response);
+        objectMapper.writeValueAsBytes(CompactRouteResponseDto.from(response));
+        
+        String systemName = store.systemName(stationId);
+        if (systemName != null && systemName.length() >= 3) {
+            systemService.searchSystems(systemName.substring(0, 3).toLowerCase(Locale.ROOT),
+                    plannerConfig.getMaxResultsLimit());
+        }
+    }
+    
+    /**
+     * Drops the synthetic searches, so they do not hold cache entries real users would evict.
+     */
+    private void clearSearchCache() {
+        Cache cache = cacheManager.getCache("systemSearch");
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+    
+    private static long medianMs(long[] latencies, int from, int to) {
+        long[] block = Arrays.copyOfRange(latencies, from, to);
+        Arrays.sort(block);
+        return block[block.length / 2] / 1_000_000;
+    }
+}
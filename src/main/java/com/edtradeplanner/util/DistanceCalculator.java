@@ -4,6 +4,15 @@ import com.edtradeplanner.model.Coordinates;
 
 public class DistanceCalculator {
     
+    /**
+     * Whether the SIMD kernels can be used: the incubator module has to be
+     * resolved at runtime ({@code --add-modules jdk.incubator.vector}). Native
+     * images always use the scalar loops, since the Vector API is not supported there.
+     */
+    private static final boolean VECTOR_KERNEL = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+            && System.getProperty("org.graalvm.nativeimage.imagecode") == null
+            && !Boolean.getBoolean("tradeplanner.scalar-distance");
+    
     /**
      * Calculate the Euclidean distance between two 3D points
      */
@@ -25,4 +34,92 @@ public class DistanceCalculator {
         
         return Math.sqrt(dx * dx + dy * dy + dz * dz);
     }
+    
+    /**
+     * Calculate the Euclidean distance between two 3D points
+     */
+    public static double distance(double ax, double ay, double az, double bx, double by, double bz) {
+        double dx = ax - bx;
+        double dy = ay - by;
+        double dz = az - bz;
+        
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+    
+    /**
+     * Distances from one origin to the points {@code [from, to)} of struct-of-arrays
+     * coordinate columns, written to {@code out[0 .. to - from)}.
+     */
+    public static void distances(double ox, double oy, double oz,
+                                 double[] xs, double[] ys, double[] zs,
+                                 int from, int to, double[] out) {
+        if (VECTOR_KERNEL) {
+            VectorDistanceKernel.squaredDistances(ox, oy, oz, xs, ys, zs, from, to, out, true);
+            return;
+        }
+        for (int i = from; i < to; i++) {
+            double dx = xs[i] - ox;
+            double dy = ys[i] - oy;
+            double dz = zs[i] - oz;
+            out[i - from] = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        }
+    }
+    
+    /**
+     * Squared distances, for comparisons against a squared radius without a sqrt.
+     */
+    public static void squaredDistances(double ox, double oy, double oz,
+                                        double[] xs, double[] ys, double[] zs,
+                                        int from, int to, double[] out) {
+        if (VECTOR_KERNEL) {
+            VectorDistanceKernel.squaredDistances(ox, oy, oz, xs, ys, zs, from, to, out, false);
+            return;
+        }
+        for (int i = from; i < to; i++) {
+            double dx = xs[i] - ox;
+            double dy = ys[i] - oy;
+            double dz = zs[i] - oz;
+            out[i - from] = dx * dx + dy * dy + dz * dz;
+        }
+    }
+    
+    /**
+     * Single-precision variant of {@link #distances(double, double, double, double[], double[], double[], int, int, double[])}.
+     */
+    public static void distances(float ox, float oy, float oz,
+                                 float[] xs, float[] ys, float[] zs,
+                                 int from, int to, float[] out) {
+        if (VECTOR_KERNEL) {
+            VectorDistanceKernel.squaredDistances(ox, oy, oz, xs, ys, zs, from, to, out, true);
+            return;
+        }
+        for (int i = from; i < to; i++) {
+            float dx = xs[i] - ox;
+            float dy = ys[i] - oy;
+            float dz = zs[i] - oz;
+            out[i - from] = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+        }
+    }
+    
+    /**
+     * Single-precision squared distances.
+     */
+    public static void squaredDistances(float ox, float oy, float oz,
+                                        float[] xs, float[] ys, float[] zs,
+                                        int from, int to, float[] out) {
+        if (VECTOR_KERNEL) {
+            VectorDistanceKernel.squaredDistances(ox, oy, oz, xs, ys, zs, from, to, out, false);
+            return;
+        }
+        for (int i = from; i < to; i++) {
+            float dx = xs[i] - ox;
+            float dy = ys[i] - oy;
+            float dz = zs[i] - oz;
+            out[i - from] = dx * dx + dy * dy + dz * dz;
+        }
+    }
+    
+    public static boolean isVectorized() {
+        return VECTOR_KERNEL;
+    }
 }
@@ -1,5 +1,9 @@
 package com.edtradeplanner.util;
 
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
 public class StationScoreUtil {
     
     /**
@@ -20,4 +24,65 @@ public class StationScoreUtil {
             return 15;
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * Greedy station score: commodities covered per unit of travel cost, where the
+     * station preference penalty is added to the cost. A commodity the station
+     * can only partly supply counts as the fraction it covers.
+     */
+    public static double stationScore(double coverage, double legCost, int prefPenalty, double economyFactor) {
+        return coverage / (legCost + prefPenalty + 1.0) * economyFactor;
+    }
+    
+    /**
+     * Score multiplier for stations whose type/economy combination is known to
+     * sell many of the still-needed commodities.
+     */
+    public static double economyFactor(
+            String stationEconomyCombo,
+            Collection<String> neededCommodities,
+            Map<String, Set<String>> commodityStationEconomyMap) {
+        
+        if (commodityStationEconomyMap == null || commodityStationEconomyMap.isEmpty()) {
+            return 1.0;
+        }
+        
+        // Calculate how many needed commodities can be found at this station type
+        int comboMatchCount = 0;
+        for (String comm : neededCommodities) {
+            Set<String> stationEconomyCombos = commodityStationEconomyMap.getOrDefault(comm, Set.of());
+            if (stationEconomyCombos.contains(stationEconomyCombo)) {
+                comboMatchCount++;
+            }
+        }
+        
+        double matchRatio = (double) comboMatchCount / Math.max(1, neededCommodities.size());
+        return 1.0 + 0.5 * matchRatio;
+    }
+    
+    /**
+     * {@link #economyFactor(String, Collection, Map)} over the first {@code count}
+     * entries of an array, for callers that keep the needed commodities in scratch buffers.
+     */
+    public static double economyFactor(
+            String stationEconomyCombo,
+            String[] neededCommodities,
+            int count,
+            Map<String, Set<String>> commodityStationEconomyMap) {
+        
+        if (commodityStationEconomyMap == null || commodityStationEconomyMap.isEmpty()) {
+            return 1.0;
+        }
+        
+        int comboMatchCount = 0;
+        for (int i = 0; i < count; i++) {
+            Set<String> stationEconomyCombos = commodityStationEconomyMap.get(neededCommodities[i]);
+            if (stationEconomyCombos != null && stationEconomyCombos.contains(stationEconomyCombo)) {
+                comboMatchCount++;
+            }
+        }
+        
+        double matchRatio = (double) comboMatchCount / Math.max(1, count);
+        return 1.0 + 0.5 * matchRatio;
+    }
+}
@@ -0,0 +1,118 @@
+package com.edtradeplanner.util;
+
+import com.edtradeplanner.model.Coordinates;
+import com.edtradeplanner.model.RouteAlternative;
+import com.edtradeplanner.model.RouteLeg;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 2-opt improvement of a finished tour. The stops and what is loaded at each
+ * stay the same; only their order changes, so the tour covers the bin exactly
+ * as before and can only get shorter. Moves that would make a pickup leg
+ * longer than the ship's range are not taken; the leg back home is exempt,
+ * as it is for the greedy planner.
+ */
+public class TourImprover {
+    
+    // Full sweeps over all segment pairs; tours are a handful of stops, so this is never reached in practice
+    private static final int MAX_SWEEPS = 50;
+    
+    /**
+     * Reorder the pickup stops of a distance-priced tour from and back to
+     * {@code home} with 2-opt moves until no move shortens it without a
+     * pickup leg exceeding {@code maxRange}. Returns null
+     * for tours it cannot reorder: those with unserved needs or fewer than
+     * three stops.
+     */
+    public static RouteAlternative improve(List<RouteLeg> legs, Coordinates home, double maxRange) {
+        List<RouteLeg> stops = new ArrayList<>();
+        for (RouteLeg leg : legs) {
+            if ("PICKUP_RATIO".equals(leg.getAction())) {
+                stops.add(leg);
+            } else if (!"RETURN".equals(leg.getAction())) {
+                return null;
+            }
+        }
+        int n = stops.size();
+        if (n < 3) {
+            return null;
+        }
+        
+        // Positions 0 and n + 1 are home
+        double[][] p = new double[n + 2][];
+        p[0] = new double[]{home.getX(), home.getY(), home.getZ()};
+        p[n + 1] = p[0];
+        for (int i = 0; i < n; i++) {
+            Coordinates c = stops.get(i).getEndPos();
+            p[i + 1] = new double[]{c.getX(), c.getY(), c.getZ()};
+        }
+        int[] order = new int[n + 2];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        
+        boolean improved = true;
+        for (int sweep = 0; improved && sweep < MAX_SWEEPS; sweep++) {
+            improved = false;
+            for (int i = 1; i < n; i++) {
+                for (int j = i + 1; j <= n; j++) {
+                    double before = DistanceCalculator.distance(p[order[i - 1]], p[order[i]])
+                            + DistanceCalculator.distance(p[order[j]], p[order[j + 1]]);
+                    double first = DistanceCalculator.distance(p[order[i - 1]], p[order[j]]);
+                    double second = DistanceCalculator.distance(p[order[i]], p[order[j + 1]]);
+                    // Legs inside the reversed segment keep their lengths; the second new leg is the return when j == n
+                    boolean inRange = first <= maxRange && (j == n || second <= maxRange);
+                    if (inRange && first + second < before - 1e-9) {
+                        reverse(order, i, j);
+                        improved = true;
+                    }
+                }
+            }
+        }
+        
+        List<RouteLeg> reordered = new ArrayList<>(n + 1);
+        Coordinates current = home;
+        double total = 0.0;
+        for (int i = 1; i <= n; i++) {
+            RouteLeg stop = stops.get(order[i] - 1);
+            double distance = DistanceCalculator.distance(current, stop.getEndPos());
+            reordered.add(RouteLeg.builder()
+                    .startPos(current)
+                    .endPos(stop.getEndPos())
+                    .systemName(stop.getSystemName())
+                    .stationName(stop.getStationName())
+                    .commodity(stop.getCommodity())
+                    .quantities(stop.getQuantities())
+                    .distance(Math.round(distance * 100.0) / 100.0)
+                    .action(stop.getAction())
+                    .build());
+            total += distance;
+            current = stop.getEndPos();
+        }
+        double distHome = DistanceCalculator.distance(current, home);
+        reordered.add(RouteLeg.builder()
+                .startPos(current)
+                .endPos(home)
+                .commodity("RETURN_HOME")
+                .distance(Math.round(distHome * 100.0) / 100.0)
+                .action("RETURN")
+                .build());
+        total += distHome;
+        
+        return RouteAlternative.builder()
+                .totalDistance(Math.round(total * 100.0) / 100.0)
+                .stops(n)
+                .legs(reordered)
+                .build();
+    }
+    
+    private static void reverse(int[] order, int from, int to) {
+        while (from < to) {
+            int tmp = order[from];
+            order[from++] = order[to];
+            order[to--] = tmp;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.edtradeplanner.util;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD implementations of the batched kernels in {@link DistanceCalculator}.
+ * Only loaded when the {@code jdk.incubator.vector} module is present. Each lane
+ * performs the same subtract/multiply/add/sqrt sequence as the scalar code
+ * (no fused multiply-add), so results are bit-identical to it.
+ */
+final class VectorDistanceKernel {
+    
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+    
+    private VectorDistanceKernel() {
+    }
+    
+    static void squaredDistances(double ox, double oy, double oz,
+                                 double[] xs, double[] ys, double[] zs,
+                                 int from, int to, double[] out, boolean sqrt) {
+        int i = from;
+        int upper = from + DOUBLES.loopBound(to - from);
+        for (; i < upper; i += DOUBLES.length()) {
+            DoubleVector dx = DoubleVector.fromArray(DOUBLES, xs, i).sub(ox);
+            DoubleVector dy = DoubleVector.fromArray(DOUBLES, ys, i).sub(oy);
+            DoubleVector dz = DoubleVector.fromArray(DOUBLES, zs, i).sub(oz);
+            DoubleVector d2 = dx.mul(dx).add(dy.mul(dy)).add(dz.mul(dz));
+            (sqrt ? d2.lanewise(VectorOperators.SQRT) : d2).intoArray(out, i - from);
+        }
+        for (; i < to; i++) {
+            double dx = xs[i] - ox;
+            double dy = ys[i] - oy;
+            double dz = zs[i] - oz;
+            double d2 = dx * dx + dy * dy + dz * dz;
+            out[i - from] = sqrt ? Math.sqrt(d2) : d2;
+        }
+    }
+    
+    static void squaredDistances(float ox, float oy, float oz,
+                                 float[] xs, float[] ys, float[] zs,
+                                 int from, int to, float[] out, boolean sqrt) {
+        int i = from;
+        int upper = from + FLOATS.loopBound(to - from);
+        for (; i < upper; i += FLOATS.length()) {
+            FloatVector dx = FloatVector.fromArray(FLOATS, xs, i).sub(ox);
+            FloatVector dy = FloatVector.fromArray(FLOATS, ys, i).sub(oy);
+            FloatVector dz = FloatVector.fromArray(FLOATS, zs, i).sub(oz);
+            FloatVector d2 = dx.mul(dx).add(dy.mul(dy)).add(dz.mul(dz));
+            (sqrt ? d2.lanewise(VectorOperators.SQRT) : d2).intoArray(out, i - from);
+        }
+        for (; i < to; i++) {
+            float dx = xs[i] - ox;
+            float dy = ys[i] - oy;
+            float dz = zs[i] - oz;
+            float d2 = dx * dx + dy * dy + dz * dz;
+            out[i - from] = sqrt ? (float) Math.sqrt(d2) : d2;
+        }
+    }
+}
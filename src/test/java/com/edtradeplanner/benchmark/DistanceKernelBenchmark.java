@@ -0,0 +1,93 @@
+package com.edtradeplanner.benchmark;
+
+import com.edtradeplanner.model.Coordinates;
+import com.edtradeplanner.util.DistanceCalculator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the per-pair {@link DistanceCalculator#distance(Coordinates, Coordinates)}
+ * loop the router used to run with the batched struct-of-arrays kernels.
+ *
+ * Run {@link #main} (or {@code org.openjdk.jmh.Main DistanceKernelBenchmark})
+ * from the test classpath after {@code mvn test-compile}. Add
+ * {@code -jvmArgsAppend -Dtradeplanner.scalar-distance=true} to measure the scalar fallback.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class DistanceKernelBenchmark {
+    
+    @Param({"1024", "16384"})
+    private int stations;
+    
+    private Coordinates origin;
+    private Coordinates[] boxed;
+    private double[] xs, ys, zs, out;
+    private float[] fxs, fys, fzs, fout;
+    
+    @Setup
+    public void setup() {
+        Random random = new Random(7);
+        origin = new Coordinates(12.5, -3.25, 40.0);
+        boxed = new Coordinates[stations];
+        xs = new double[stations];
+        ys = new double[stations];
+        zs = new double[stations];
+        out = new double[stations];
+        fxs = new float[stations];
+        fys = new float[stations];
+        fzs = new float[stations];
+        fout = new float[stations];
+        for (int i = 0; i < stations; i++) {
+            xs[i] = random.nextDouble() * 1000 - 500;
+            ys[i] = random.nextDouble() * 200 - 100;
+            zs[i] = random.nextDouble() * 1000 - 500;
+            fxs[i] = (float) xs[i];
+            fys[i] = (float) ys[i];
+            fzs[i] = (float) zs[i];
+            boxed[i] = new Coordinates(xs[i], ys[i], zs[i]);
+        }
+    }
+    
+    @Benchmark
+    public void boxedPerPair(Blackhole blackhole) {
+        for (Coordinates station : boxed) {
+            blackhole.consume(DistanceCalculator.distance(origin, station));
+        }
+    }
+    
+    @Benchmark
+    public double[] batchedDistances() {
+        DistanceCalculator.distances(origin.getX(), origin.getY(), origin.getZ(), xs, ys, zs, 0, stations, out);
+        return out;
+    }
+    
+    @Benchmark
+    public double[] batchedSquaredDistances() {
+        DistanceCalculator.squaredDistances(origin.getX(), origin.getY(), origin.getZ(), xs, ys, zs, 0, stations, out);
+        return out;
+    }
+    
+    @Benchmark
+    public float[] batchedFloatSquaredDistances() {
+        DistanceCalculator.squaredDistances((float) origin.getX(), (float) origin.getY(), (float) origin.getZ(),
+                fxs, fys, fzs, 0, stations, fout);
+        return fout;
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(DistanceKernelBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
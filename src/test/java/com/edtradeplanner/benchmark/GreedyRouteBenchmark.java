@@ -0,0 +1,96 @@
+package com.edtradeplanner.benchmark;
+
+import com.edtradeplanner.config.PlannerConfig;
+import com.edtradeplanner.index.CommodityIndex;
+import com.edtradeplanner.index.StationStore;
+import com.edtradeplanner.model.*;
+import com.edtradeplanner.service.GreedyRouteService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Greedy tour of one bin over a synthetic galaxy, run with the GC profiler.
+ * Once the per-thread scratch buffers have grown, the steps themselves should
+ * not allocate: {@code gc.alloc.rate.norm} is only the route legs built at the
+ * end, so it stays flat as the station count grows.
+ *
+ * Run {@link #main} (or {@code org.openjdk.jmh.Main GreedyRouteBenchmark -prof gc})
+ * from the test classpath after {@code mvn test-compile}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class GreedyRouteBenchmark {
+    
+    private static final int COMMODITIES = 40;
+    
+    @Param({"2000", "8000"})
+    private int stations;
+    
+    @Param({"false", "true"})
+    private boolean supplyAware;
+    
+    private GreedyRouteService greedyRouteService;
+    private CommodityIndex index;
+    private List<Chunk> bin;
+    private Coordinates home;
+    
+    @Setup
+    public void setup() {
+        Random random = new Random(11);
+        List<StarSystem> systems = new ArrayList<>(stations);
+        for (int i = 0; i < stations; i++) {
+            List<Commodity> commodities = new ArrayList<>();
+            for (int c = 0; c < 10; c++) {
+                commodities.add(new Commodity("Commodity " + random.nextInt(COMMODITIES), random.nextInt(20_000)));
+            }
+            Station station = Station.builder()
+                    .name("Station " + i)
+                    .type("Coriolis Starport")
+                    .economy("Industrial")
+                    .landingPads(Map.of("large", 1))
+                    .market(new Market(commodities))
+                    .build();
+            systems.add(StarSystem.builder()
+                    .name("System " + i)
+                    .coords(new Coordinates(random.nextDouble() * 1000 - 500, random.nextDouble() * 200 - 100,
+                            random.nextDouble() * 1000 - 500))
+                    .stations(List.of(station))
+                    .build());
+        }
+        StationStore store = StationStore.build(systems);
+        index = new CommodityIndex(store, true, true, 100.0, 50.0);
+        
+        // Distance model only, so no jump graph is needed
+        greedyRouteService = new GreedyRouteService(new PlannerConfig(), null, null);
+        home = new Coordinates(0, 0, 0);
+        bin = new ArrayList<>();
+        for (int c = 0; c < 6; c++) {
+            bin.add(new Chunk("Commodity " + (c * 5), 60 + c * 30, 1));
+        }
+    }
+    
+    @Benchmark
+    public GreedyRouteService.RouteResult greedyTour() {
+        return greedyRouteService.plan(bin, index, home, 166.0, 0, supplyAware, null);
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(GreedyRouteBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,24 @@
+package com.edtradeplanner.config;
+
+import com.edtradeplanner.model.StarSystem;
+import com.edtradeplanner.model.Station;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NativeRuntimeHintsTest {
+
+	@Test
+	void registersModelsAndDataFiles() {
+		RuntimeHints hints = new RuntimeHints();
+		new NativeRuntimeHints().registerHints(hints, getClass().getClassLoader());
+
+		assertTrue(RuntimeHintsPredicates.reflection().onType(StarSystem.class).test(hints));
+		assertTrue(RuntimeHintsPredicates.reflection().onType(Station.class).test(hints));
+		assertTrue(RuntimeHintsPredicates.reflection().onType(PlannerConfig.class).test(hints));
+		assertTrue(RuntimeHintsPredicates.resource().forResource("even_smaller_stations.json").test(hints));
+		assertTrue(RuntimeHintsPredicates.resource().forResource("commodity_data.txt").test(hints));
+	}
+}
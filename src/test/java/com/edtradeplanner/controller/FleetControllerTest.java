@@ -0,0 +1,172 @@
+package com.edtradeplanner.controller;
+
+import com.edtradeplanner.config.PlannerConfig;
+import com.edtradeplanner.model.CommodityNeed;
+import com.edtradeplanner.model.dto.FleetPlanResponseDto;
+import com.edtradeplanner.service.FileService;
+import com.edtradeplanner.service.FleetPlannerService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class FleetControllerTest {
+
+	private static final MockMultipartFile NEEDS = new MockMultipartFile(
+			"needsFile", "needs.csv", "text/csv", "Steel,1000\n".getBytes(StandardCharsets.UTF_8));
+
+	private FleetPlannerService fleetPlannerService;
+	private FileService fileService;
+	private MockMvc mockMvc;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		fleetPlannerService = mock(FleetPlannerService.class);
+		fileService = mock(FileService.class);
+		when(fileService.processCommodityNeedsFile(any())).thenReturn(List.of(new CommodityNeed("Steel", 1000)));
+		PlannerConfig config = new PlannerConfig();
+		config.setFleetMaxShips(10);
+		config.setFleetMaxShipTypes(2);
+		mockMvc = MockMvcBuilders.standaloneSetup(new FleetController(fleetPlannerService, fileService, config)).build();
+	}
+
+	@Test
+	void rejectsANegativeCount() throws Exception {
+		expectBadRequest(fleet("{\"cargoCapacity\": 700, \"maxRange\": 40, \"count\": -1}"), "Ship 1 has a negative count");
+	}
+
+	@Test
+	void rejectsARangeAboveTheLimit() throws Exception {
+		expectBadRequest(fleet("{\"cargoCapacity\": 700, \"maxRange\": 40}", "{\"cargoCapacity\": 700, \"maxRange\": 40000}"),
+				"Ship 2 has a range above 1000.0 ly");
+	}
+
+	@Test
+	void rejectsTooManyShipsWithoutNamingThem() throws Exception {
+		expectBadRequest(fleet("{\"cargoCapacity\": 700, \"maxRange\": 40, \"count\": 2000000000}"),
+				"A fleet plan takes at most 10 ships");
+		expectBadRequest(fleet("{\"cargoCapacity\": 700, \"maxRange\": 40, \"count\": 6}",
+				"{\"cargoCapacity\": 700, \"maxRange\": 40, \"count\": 5}"), "A fleet plan takes at most 10 ships");
+	}
+
+	@Test
+	void rejectsTooManyShipTypes() throws Exception {
+		expectBadRequest(fleet("{\"cargoCapacity\": 700, \"maxRange\": 40}",
+				"{\"cargoCapacity\": 500, \"maxRange\": 40}",
+				"{\"cargoCapacity\": 700, \"maxRange\": 60}"),
+				"A fleet plan takes at most 2 ship types (cargo capacity and range combinations)");
+	}
+
+	@Test
+	void rejectsAMissingNeedsFileAndAnEmptyFleet() throws Exception {
+		MvcResult noFile = mockMvc.perform(multipart("/api/plan-fleet")
+						.file(fleet("{\"cargoCapacity\": 700, \"maxRange\": 40}")))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		mockMvc.perform(asyncDispatch(noFile))
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.error").value("No needs file provided"));
+
+		expectBadRequest(fleet(), "No ships provided");
+	}
+
+	@Test
+	void busyAdmissionIsServiceUnavailable() throws Exception {
+		when(fleetPlannerService.planFleet(any(), anyList(), anyString()))
+				.thenReturn(CompletableFuture.failedFuture(new RejectedExecutionException("queue full")));
+
+		MvcResult result = mockMvc.perform(multipart("/api/plan-fleet")
+						.file(fleet("{\"cargoCapacity\": 700, \"maxRange\": 40, \"count\": 2}"))
+						.file(NEEDS))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isServiceUnavailable())
+				.andExpect(jsonPath("$.success").value(false));
+	}
+
+	@Test
+	void aMalformedNeedsFileIsAJsonError() throws Exception {
+		when(fileService.processCommodityNeedsFile(any())).thenThrow(new NumberFormatException("For input string: \"lots\""));
+
+		MvcResult result = mockMvc.perform(multipart("/api/plan-fleet")
+						.file(fleet("{\"cargoCapacity\": 700, \"maxRange\": 40}"))
+						.file(NEEDS))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.error").value("Error planning fleet: For input string: \"lots\""));
+		verify(fleetPlannerService, never()).planFleet(any(), anyList(), anyString());
+	}
+
+	@Test
+	void aSynchronousPlanningFailureIsAJsonError() throws Exception {
+		when(fleetPlannerService.planFleet(any(), anyList(), anyString()))
+				.thenThrow(new IllegalStateException("index closed"));
+
+		MvcResult result = mockMvc.perform(multipart("/api/plan-fleet")
+						.file(fleet("{\"cargoCapacity\": 700, \"maxRange\": 40}"))
+						.file(NEEDS))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.error").value("Error planning fleet: index closed"));
+	}
+
+	@Test
+	void validFleetIsPlannedForTheClient() throws Exception {
+		FleetPlanResponseDto planned = FleetPlanResponseDto.builder().success(true).makespan(12.5).build();
+		when(fleetPlannerService.planFleet(any(), anyList(), anyString()))
+				.thenReturn(CompletableFuture.completedFuture(planned));
+
+		MvcResult result = mockMvc.perform(multipart("/api/plan-fleet")
+						.file(fleet("{\"cargoCapacity\": 700, \"maxRange\": 40, \"count\": 10}"))
+						.file(NEEDS)
+						.header("X-Client-Id", "hauler"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.makespan").value(12.5));
+		verify(fleetPlannerService).planFleet(any(), anyList(), eq("hauler"));
+	}
+
+	private void expectBadRequest(MockMultipartFile fleet, String error) throws Exception {
+		MvcResult result = mockMvc.perform(multipart("/api/plan-fleet").file(fleet).file(NEEDS))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.error").value(error));
+		verify(fleetPlannerService, never()).planFleet(any(), anyList(), anyString());
+	}
+
+	private static MockMultipartFile fleet(String... ships) {
+		String json = "{\"homeSystem\": \"Sol\", \"ships\": [" + String.join(", ", ships) + "]}";
+		return new MockMultipartFile("fleet", "", MediaType.APPLICATION_JSON_VALUE, json.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,68 @@
+package com.edtradeplanner.controller;
+
+import com.edtradeplanner.config.PlannerConfig;
+import com.edtradeplanner.model.CommodityNeed;
+import com.edtradeplanner.service.FileService;
+import com.edtradeplanner.service.PlanStore;
+import com.edtradeplanner.service.ReplanService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class PlanControllerTest {
+
+	private static final MockMultipartFile NEEDS = new MockMultipartFile(
+			"needsFile", "needs.csv", "text/csv", "Steel,1000\n".getBytes(StandardCharsets.UTF_8));
+
+	private FileService fileService;
+	private ReplanService replanService;
+	private MockMvc mockMvc;
+
+	@BeforeEach
+	void setUp() {
+		PlanStore planStore = mock(PlanStore.class);
+		when(planStore.isEnabled()).thenReturn(true);
+		replanService = mock(ReplanService.class);
+		fileService = mock(FileService.class);
+		mockMvc = MockMvcBuilders.standaloneSetup(
+				new PlanController(planStore, replanService, fileService, new PlannerConfig())).build();
+	}
+
+	@Test
+	void aMalformedNeedsFileIsAJsonError() throws Exception {
+		when(fileService.processCommodityNeedsFile(any())).thenThrow(new NumberFormatException("For input string: \"lots\""));
+
+		mockMvc.perform(multipart("/api/plans/abc/replan").file(NEEDS))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.success").value(false))
+				.andExpect(jsonPath("$.error").value("Error planning route: For input string: \"lots\""));
+		verify(replanService, never()).replan(any(), anyList());
+	}
+
+	@Test
+	void aFailedReplanIsAJsonError() throws Exception {
+		when(fileService.processCommodityNeedsFile(any())).thenReturn(List.of(new CommodityNeed("Steel", 1000)));
+		when(replanService.replan(eq("abc"), anyList())).thenThrow(new IllegalStateException("index closed"));
+
+		mockMvc.perform(multipart("/api/plans/abc/replan").file(NEEDS))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.success").value(false))
+				.andExpect(jsonPath("$.error").value("Error planning route: index closed"));
+	}
+}
@@ -0,0 +1,147 @@
+package com.edtradeplanner.controller;
+
+import com.edtradeplanner.config.PlannerConfig;
+import com.edtradeplanner.diagnostics.PlanProfiler;
+import com.edtradeplanner.model.CommodityNeed;
+import com.edtradeplanner.model.Coordinates;
+import com.edtradeplanner.model.HomeSystem;
+import com.edtradeplanner.model.Route;
+import com.edtradeplanner.model.RouteLeg;
+import com.edtradeplanner.model.dto.CompactRouteResponseDto;
+import com.edtradeplanner.model.dto.RouteResponseDto;
+import com.edtradeplanner.service.FileService;
+import com.edtradeplanner.service.PlanAdmissionScheduler;
+import com.edtradeplanner.service.PlanStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class RouteControllerTest {
+
+	private static final MockMultipartFile NEEDS = new MockMultipartFile(
+			"needsFile", "needs.csv", "text/csv", "Steel,1000\n".getBytes(StandardCharsets.UTF_8));
+
+	private PlanAdmissionScheduler admissionScheduler;
+	private MockMvc mockMvc;
+	private RouteResponseDto planned;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		Coordinates home = new Coordinates(0, 0, 0);
+		Coordinates port = new Coordinates(10, 0, 5);
+		planned = RouteResponseDto.builder()
+				.success(true)
+				.totalDistance(22.4)
+				.shipCapacity(700)
+				.binsCount(1)
+				.homeSystem(new HomeSystem("Sol", home))
+				.optimization(Map.of("mode", "greedy"))
+				.routes(List.of(Route.builder()
+						.binNumber(1)
+						.totalDistance(22.4)
+						.legs(List.of(
+								RouteLeg.builder().startPos(home).endPos(port).systemName("Alpha").stationName("Port A")
+										.commodity("Steel").quantities(Map.of("Steel", 700)).distance(11.2)
+										.action("PICKUP_RATIO").build(),
+								RouteLeg.builder().startPos(port).endPos(home).systemName("Sol")
+										.distance(11.2).action("RETURN").build()))
+						.build()))
+				.build();
+
+		admissionScheduler = mock(PlanAdmissionScheduler.class);
+		when(admissionScheduler.submit(any(), anyList(), anyString())).thenReturn(CompletableFuture.completedFuture(planned));
+		FileService fileService = mock(FileService.class);
+		when(fileService.processCommodityNeedsFile(any())).thenReturn(List.of(new CommodityNeed("Steel", 1000)));
+		mockMvc = MockMvcBuilders.standaloneSetup(new RouteController(admissionScheduler, fileService,
+				mock(PlanStore.class), mock(PlanProfiler.class), new PlannerConfig())).build();
+	}
+
+	@Test
+	void fullJsonUnlessACompactTypeIsListedFirst() throws Exception {
+		mockMvc.perform(asyncDispatch(plan(null)))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+				.andExpect(content().contentTypeCompatibleWith("application/json"))
+				.andExpect(jsonPath("$.routes[0].legs[0].stationName").value("Port A"));
+
+		mockMvc.perform(asyncDispatch(plan("application/json, application/cbor")))
+				.andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+				.andExpect(content().contentTypeCompatibleWith("application/json"))
+				.andExpect(jsonPath("$.routes[0].legs[0].systemName").value("Alpha"));
+
+		mockMvc.perform(asyncDispatch(plan("text/html;q=0.9, " + CompactRouteResponseDto.MEDIA_TYPE)))
+				.andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+				.andExpect(content().contentTypeCompatibleWith(CompactRouteResponseDto.MEDIA_TYPE))
+				.andExpect(jsonPath("$.stations[0].station").value("Port A"))
+				.andExpect(jsonPath("$.routes[0].legs[0].to").value(0))
+				.andExpect(jsonPath("$.routes[0].legs[1].to").value(CompactRouteResponseDto.NO_STATION));
+	}
+
+	@Test
+	void rejectsAMaxRangeAboveTheLimit() throws Exception {
+		MvcResult result = mockMvc.perform(multipart("/api/plan-route").file(NEEDS)
+						.param("homeSystem", "Sol")
+						.param("maxRange", "40000"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.error").value("Max range must be at most 1000.0 ly"));
+		verify(admissionScheduler, never()).submit(any(), anyList(), anyString());
+	}
+
+	@Test
+	void smileAndCborDecodeToTheCompactForm() throws Exception {
+		CompactRouteResponseDto expected = CompactRouteResponseDto.from(planned);
+
+		byte[] smile = mockMvc.perform(asyncDispatch(plan("application/x-jackson-smile")))
+				.andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+				.andExpect(content().contentTypeCompatibleWith("application/x-jackson-smile"))
+				.andReturn().getResponse().getContentAsByteArray();
+		assertEquals(expected, new ObjectMapper(new SmileFactory()).readValue(smile, CompactRouteResponseDto.class));
+
+		byte[] cbor = mockMvc.perform(asyncDispatch(plan("application/cbor")))
+				.andExpect(content().contentTypeCompatibleWith("application/cbor"))
+				.andReturn().getResponse().getContentAsByteArray();
+		assertEquals(expected, new ObjectMapper(new CBORFactory()).readValue(cbor, CompactRouteResponseDto.class));
+	}
+
+	private MvcResult plan(String accept) throws Exception {
+		var planRequest = multipart("/api/plan-route").file(NEEDS).param("homeSystem", "Sol");
+		if (accept != null) {
+			planRequest.header(HttpHeaders.ACCEPT, accept);
+		}
+		return mockMvc.perform(planRequest)
+				.andExpect(request().asyncStarted())
+				.andReturn();
+	}
+}
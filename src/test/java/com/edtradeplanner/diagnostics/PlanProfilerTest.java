@@ -0,0 +1,51 @@
+package com.edtradeplanner.diagnostics;
+
+import com.edtradeplanner.config.PlannerConfig;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PlanProfilerTest {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void captureForOneRequestIdRecordsOnlyWhileThatRequestRuns() throws Exception {
+		PlannerConfig config = new PlannerConfig();
+		config.setProfilingDir(dir.toString());
+		PlanProfiler profiler = new PlanProfiler(config);
+
+		String captureId = (String) profiler.captureRequest("slow-one").get("id");
+		profiler.requestStarted("other");
+		stage("other");
+		profiler.requestFinished("other");
+		assertEquals("ARMED", profiler.status().get("state"));
+
+		profiler.requestStarted("slow-one");
+		stage("slow-one");
+		profiler.requestFinished("other");
+		assertEquals("RECORDING", profiler.status().get("state"));
+		profiler.requestFinished("slow-one");
+		assertEquals("DONE", profiler.status().get("state"));
+
+		Path file = profiler.recordingFile(captureId).orElseThrow();
+		List<RecordedEvent> stages = RecordingFile.readAllEvents(file).stream()
+				.filter(event -> event.getEventType().getName().equals("edtradeplanner.PlanStage"))
+				.toList();
+		assertEquals(1, stages.size());
+		assertEquals("slow-one", stages.get(0).getString("requestId"));
+		assertTrue(profiler.recordingFile("../" + captureId).isEmpty());
+	}
+
+	private static void stage(String requestId) {
+		PlanStageEvent.start(requestId, "packing").commit();
+	}
+}
@@ -0,0 +1,135 @@
+package com.edtradeplanner.index;
+
+import com.edtradeplanner.model.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CommodityIndexTest {
+
+	@Test
+	void queriesMatchBruteForce() {
+		Random random = new Random(42);
+		List<StarSystem> systems = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			Station station = Station.builder()
+					.name("Station " + i)
+					.type("Coriolis Starport")
+					.landingPads(Map.of("large", 1))
+					.market(new Market(List.of(new Commodity(i % 3 == 0 ? "Steel" : "Titanium", 100))))
+					.build();
+			systems.add(StarSystem.builder()
+					.name("System " + i)
+					.coords(new Coordinates(random.nextDouble() * 400 - 200, random.nextDouble() * 400 - 200, random.nextDouble() * 400 - 200))
+					.stations(List.of(station))
+					.build());
+		}
+		StationStore store = StationStore.build(systems);
+		CommodityIndex index = new CommodityIndex(store, true, true, 100.0, 50.0);
+
+		for (int q = 0; q < 50; q++) {
+			double x = random.nextDouble() * 400 - 200, y = random.nextDouble() * 400 - 200, z = random.nextDouble() * 400 - 200;
+			Integer[] steel = new Integer[store.size()];
+			int n = 0;
+			for (int id = 0; id < store.size(); id++) {
+				if (id % 3 == 0) {
+					steel[n++] = id;
+				}
+			}
+			Integer[] sorted = Arrays.copyOf(steel, n);
+			Arrays.sort(sorted, Comparator.comparingDouble(id -> d2(store, id, x, y, z)));
+
+			assertEquals((int) sorted[0], index.nearest("Steel", x, y, z, Double.POSITIVE_INFINITY));
+			assertArrayEquals(Arrays.stream(sorted).limit(5).mapToInt(Integer::intValue).toArray(),
+					index.kNearest("Steel", x, y, z, 5, Double.POSITIVE_INFINITY));
+
+			Set<Integer> expected = new HashSet<>();
+			for (Integer id : sorted) {
+				if (d2(store, id, x, y, z) <= 80 * 80) {
+					expected.add(id);
+				}
+			}
+			Set<Integer> actual = new HashSet<>();
+			index.withinRadius("Steel", x, y, z, 80, actual::add);
+			assertEquals(expected, actual);
+
+			long[] needed = index.getClusters().newCommoditySet();
+			StationClusters.addCommodity(needed, store.commodityId("Steel"));
+			Set<Integer> offered = new HashSet<>();
+			index.getClusters().forEachOffer(x, y, z, 80, needed, (id, commodityId, supply) -> offered.add(id));
+			assertEquals(expected, offered);
+		}
+	}
+
+	@Test
+	void supplyQueryMatchesBruteForce() {
+		Random random = new Random(7);
+		StationStore store = steelSellers(random, 500);
+		CommodityIndex index = new CommodityIndex(store, true, true, 60.0, 50.0);
+
+		for (int q = 0; q < 50; q++) {
+			double x = random.nextDouble() * 400 - 200, y = random.nextDouble() * 400 - 200, z = random.nextDouble() * 400 - 200;
+			int minSupply = random.nextInt(1000);
+			Map<Integer, Integer> expected = new HashMap<>();
+			for (int id = 0; id < store.size(); id++) {
+				int supply = store.marketSupply(store.marketStart(id));
+				if (supply >= minSupply && d2(store, id, x, y, z) <= 120 * 120) {
+					expected.put(id, supply);
+				}
+			}
+			Map<Integer, Integer> actual = new HashMap<>();
+			int found = index.withinRadiusWithSupply("Steel", x, y, z, 120, minSupply, actual::put);
+			assertEquals(expected, actual);
+			assertEquals(expected.size(), found);
+		}
+	}
+
+	@Test
+	void aHugeSupplyRadiusVisitsEverySellerOnceWithoutWalkingEmptyCells() {
+		Random random = new Random(32);
+		StationStore store = steelSellers(random, 500);
+		CommodityIndex index = new CommodityIndex(store, true, true, 60.0, 50.0);
+
+		Map<Integer, Integer> all = new HashMap<>();
+		for (int id = 0; id < store.size(); id++) {
+			all.put(id, store.marketSupply(store.marketStart(id)));
+		}
+		long start = System.nanoTime();
+		for (double radius : new double[]{4_000, 40_000, 1e12}) {
+			Map<Integer, Integer> actual = new HashMap<>();
+			int found = index.withinRadiusWithSupply("Steel", 10, 0, -10, radius, 0, actual::put);
+			assertEquals(all, actual, "radius " + radius);
+			assertEquals(all.size(), found);
+		}
+		// Far outside the map: nothing, and nothing walked
+		assertEquals(0, index.withinRadiusWithSupply("Steel", 1e7, 0, 0, 100, 0, (id, supply) -> { }));
+		assertTrue(System.nanoTime() - start < 1_000_000_000L, "huge radii took over a second");
+	}
+
+	private static StationStore steelSellers(Random random, int count) {
+		List<StarSystem> systems = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			Station station = Station.builder()
+					.name("Station " + i)
+					.type("Coriolis Starport")
+					.landingPads(Map.of("large", 1))
+					.market(new Market(List.of(new Commodity("Steel", 1 + random.nextInt(1000)))))
+					.build();
+			systems.add(StarSystem.builder()
+					.name("System " + i)
+					.coords(new Coordinates(random.nextDouble() * 400 - 200, random.nextDouble() * 400 - 200, random.nextDouble() * 400 - 200))
+					.stations(List.of(station))
+					.build());
+		}
+		return StationStore.build(systems);
+	}
+
+	private static double d2(StationStore store, int id, double x, double y, double z) {
+		double dx = store.x(id) - x, dy = store.y(id) - y, dz = store.z(id) - z;
+		return dx * dx + dy * dy + dz * dz;
+	}
+}
@@ -0,0 +1,60 @@
+package com.edtradeplanner.index;
+
+import com.edtradeplanner.model.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DistanceFieldTest {
+
+	@Test
+	void lowerBoundIsNeverAboveTheNearestSellerAndWithinTheErrorBoundInsideTheGrid() {
+		Random random = new Random(7);
+		List<StarSystem> systems = new ArrayList<>();
+		for (int i = 0; i < 400; i++) {
+			Station station = Station.builder()
+					.name("Station " + i)
+					.type("Coriolis Starport")
+					.landingPads(Map.of("large", 1))
+					.market(new Market(List.of(new Commodity(i % 10 == 0 ? "Gold" : "Steel", 100))))
+					.build();
+			systems.add(StarSystem.builder()
+					.name("System " + i)
+					.coords(new Coordinates(random.nextDouble() * 600 - 300, random.nextDouble() * 200 - 100, random.nextDouble() * 600 - 300))
+					.stations(List.of(station))
+					.build());
+		}
+		StationStore store = StationStore.build(systems);
+		DistanceField field = DistanceField.build(store, true, true, 10.0, 4096, Runnable::run, 2);
+		assertTrue(field.cellSize() > 10.0, "cells grow to fit the cell budget");
+
+		int gold = store.commodityId("Gold");
+		for (int q = 0; q < 2000; q++) {
+			// Mostly inside the populated box, some well outside it
+			double spread = q % 4 == 0 ? 1500 : 500;
+			double x = random.nextDouble() * spread - spread / 2;
+			double y = random.nextDouble() * spread / 3 - spread / 6;
+			double z = random.nextDouble() * spread - spread / 2;
+			double nearest = Double.POSITIVE_INFINITY;
+			for (int id = 0; id < store.size(); id += 10) {
+				nearest = Math.min(nearest, Math.sqrt(d2(store, id, x, y, z)));
+			}
+
+			double bound = field.lowerBound(gold, x, y, z);
+			assertTrue(bound <= nearest + 1e-9, "lower bound " + bound + " above " + nearest);
+			if (Math.abs(x) < 250 && Math.abs(y) < 80 && Math.abs(z) < 250) {
+				assertTrue(nearest - bound <= field.errorBound(), "lower bound " + bound + " too far below " + nearest);
+			}
+		}
+
+		assertEquals(Double.POSITIVE_INFINITY, field.lowerBound(store.commodityId("Silver"), 0, 0, 0));
+	}
+
+	private static double d2(StationStore store, int id, double x, double y, double z) {
+		double dx = store.x(id) - x, dy = store.y(id) - y, dz = store.z(id) - z;
+		return dx * dx + dy * dy + dz * dz;
+	}
+}
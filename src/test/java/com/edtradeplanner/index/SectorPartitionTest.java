@@ -0,0 +1,29 @@
+package com.edtradeplanner.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SectorPartitionTest {
+
+	@Test
+	void queryShardsIncludeTheOwnerOfEveryPointInTheSphere() {
+		SectorPartition partition = new SectorPartition(500.0, 5);
+		Random random = new Random(7);
+		for (int i = 0; i < 1000; i++) {
+			double x = random.nextDouble(-5000, 5000), y = random.nextDouble(-1000, 1000), z = random.nextDouble(-5000, 5000);
+			double radius = random.nextDouble(10, 800);
+			BitSet shards = partition.shardsWithin(x, y, z, radius);
+
+			// A point inside the sphere, in any direction
+			double dx = random.nextGaussian(), dy = random.nextGaussian(), dz = random.nextGaussian();
+			double scale = radius * random.nextDouble() / Math.sqrt(dx * dx + dy * dy + dz * dz);
+			int owner = partition.shardOf(x + dx * scale, y + dy * scale, z + dz * scale);
+
+			assertTrue(shards.get(owner), "shard " + owner + " missing from " + shards);
+		}
+	}
+}
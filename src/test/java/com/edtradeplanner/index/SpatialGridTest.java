@@ -0,0 +1,97 @@
+package com.edtradeplanner.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpatialGridTest {
+
+	@Test
+	void withinRadiusFindsTheSamePointsAsALinearScan() {
+		Random random = new Random(29);
+		int n = 2000;
+		double[] x = new double[n];
+		double[] y = new double[n];
+		double[] z = new double[n];
+		for (int i = 0; i < n; i++) {
+			// Negative coordinates and points on cell boundaries included
+			x[i] = i % 50 == 0 ? 20.0 * random.nextInt(10) : random.nextDouble() * 400 - 200;
+			y[i] = random.nextDouble() * 80 - 40;
+			z[i] = random.nextDouble() * 400 - 200;
+		}
+		SpatialGrid grid = new SpatialGrid(x, y, z, 20.0);
+
+		int found = 0;
+		for (int q = 0; q < 300; q++) {
+			double qx = random.nextDouble() * 500 - 250;
+			double qy = random.nextDouble() * 100 - 50;
+			double qz = random.nextDouble() * 500 - 250;
+			double radius = q % 10 == 0 ? 0.0 : random.nextDouble() * 60;
+
+			List<Integer> expected = new ArrayList<>();
+			for (int i = 0; i < n; i++) {
+				double dx = x[i] - qx, dy = y[i] - qy, dz = z[i] - qz;
+				if (dx * dx + dy * dy + dz * dz <= radius * radius) {
+					expected.add(i);
+				}
+			}
+			List<Integer> actual = new ArrayList<>();
+			grid.withinRadius(qx, qy, qz, radius, actual::add);
+			actual.sort(null);
+
+			assertEquals(expected, actual, "query " + q);
+			found += actual.size();
+		}
+		assertTrue(found > 1000, "queries found only " + found + " points");
+	}
+
+	@Test
+	void aHugeRadiusVisitsEveryPointOnceWithoutWalkingEmptyCells() {
+		Random random = new Random(30);
+		int n = 500;
+		double[] x = new double[n];
+		double[] y = new double[n];
+		double[] z = new double[n];
+		for (int i = 0; i < n; i++) {
+			x[i] = random.nextDouble() * 1000 - 500;
+			y[i] = random.nextDouble() * 100 - 50;
+			z[i] = random.nextDouble() * 1000 - 500;
+		}
+		SpatialGrid grid = new SpatialGrid(x, y, z, 25.0);
+
+		List<Integer> all = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			all.add(i);
+		}
+		long start = System.nanoTime();
+		for (double radius : new double[]{4_000, 40_000, 1e12}) {
+			List<Integer> found = new ArrayList<>();
+			grid.withinRadius(10, 0, -10, radius, found::add);
+			found.sort(null);
+			assertEquals(all, found, "radius " + radius);
+		}
+		// Far outside the map: nothing, and nothing walked
+		List<Integer> none = new ArrayList<>();
+		grid.withinRadius(1e7, 0, 0, 100, none::add);
+		assertTrue(none.isEmpty());
+		assertTrue(System.nanoTime() - start < 1_000_000_000L, "huge radii took over a second");
+
+		List<Integer> empty = new ArrayList<>();
+		new SpatialGrid(new double[0], new double[0], new double[0], 25.0).withinRadius(0, 0, 0, 1e12, empty::add);
+		assertTrue(empty.isEmpty());
+	}
+
+	@Test
+	void aPointIsWithinAZeroRadiusOfItself() {
+		SpatialGrid grid = new SpatialGrid(new double[]{-20, 0, 40}, new double[]{0, 0, 0}, new double[]{0, 0, 0}, 20.0);
+
+		List<Integer> found = new ArrayList<>();
+		grid.withinRadius(-20, 0, 0, 0, found::add);
+		assertEquals(List.of(0), found);
+	}
+}
@@ -0,0 +1,55 @@
+package com.edtradeplanner.index;
+
+import com.edtradeplanner.model.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StationStoreTest {
+
+	@Test
+	void offHeapStoreMatchesHeapStore() {
+		Random random = new Random(3);
+		List<StarSystem> systems = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			List<Commodity> commodities = new ArrayList<>();
+			int marketSize = random.nextInt(5);
+			for (int c = 0; c < marketSize; c++) {
+				commodities.add(new Commodity("Commodity " + random.nextInt(20), random.nextInt(2000)));
+			}
+			Station station = Station.builder()
+					.name("Station " + i)
+					.type(i % 7 == 0 ? "Drake-Class Carrier" : "Coriolis Starport")
+					.economy(i % 2 == 0 ? "Industrial" : null)
+					.landingPads(Map.of("large", i % 3))
+					.market(new Market(commodities))
+					.build();
+			systems.add(StarSystem.builder()
+					.name("System " + i / 2)
+					.economy("Refinery")
+					.coords(new Coordinates(random.nextGaussian() * 100, random.nextGaussian() * 100, random.nextGaussian() * 100))
+					.stations(List.of(station))
+					.build());
+		}
+
+		StationStore heap = StationStore.build(systems, false);
+		StationStore offHeap = StationStore.build(systems, true);
+		assertTrue(offHeap.isOffHeap());
+		assertEquals(heap.size(), offHeap.size());
+		assertEquals(heap.commodityCount(), offHeap.commodityCount());
+		for (int id = 0; id < heap.size(); id++) {
+			assertEquals(heap.toStationInfo(id), offHeap.toStationInfo(id));
+			assertEquals(heap.systemIndex(id), offHeap.systemIndex(id));
+			assertEquals(heap.isCarrier(id), offHeap.isCarrier(id));
+			assertEquals(heap.hasLargePad(id), offHeap.hasLargePad(id));
+			assertEquals(heap.marketEnd(id) - heap.marketStart(id), offHeap.marketEnd(id) - offHeap.marketStart(id));
+			for (int entry = heap.marketStart(id); entry < heap.marketEnd(id); entry++) {
+				assertEquals(heap.commodityName(heap.marketCommodity(entry)), offHeap.commodityName(offHeap.marketCommodity(entry)));
+				assertEquals(heap.marketSupply(entry), offHeap.marketSupply(entry));
+			}
+		}
+	}
+}
@@ -0,0 +1,32 @@
+package com.edtradeplanner.index;
+
+import com.edtradeplanner.model.Coordinates;
+import com.edtradeplanner.model.StarSystem;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SystemNameIndexTest {
+
+	private final SystemNameIndex index = new SystemNameIndex(List.of(
+			system("Sol"), system("Shinrarta Dezhra"), system("Alpha Centauri"), system("Achenar")));
+
+	@Test
+	void findsSystemIgnoringCase() {
+		assertEquals("Shinrarta Dezhra", index.find("  shinrarta DEZHRA ").orElseThrow().getName());
+		assertTrue(index.find("Lave").isEmpty());
+	}
+
+	@Test
+	void suggestsClosestNamesForTypos() {
+		assertEquals(List.of("Shinrarta Dezhra"), index.suggest("Shinrata Dezra", 3, 5));
+		assertEquals("Achenar", index.suggest("Achernar", 2, 5).get(0));
+	}
+
+	private static StarSystem system(String name) {
+		return StarSystem.builder().name(name).coords(new Coordinates(0, 0, 0)).build();
+	}
+}
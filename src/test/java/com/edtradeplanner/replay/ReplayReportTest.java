@@ -0,0 +1,44 @@
+package com.edtradeplanner.replay;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReplayReportTest {
+
+	@Test
+	void longerRoutesExtraBinsAndSlowerPercentilesAreRegressions() {
+		ReplayReport baseline = report(
+				result(0, 100.0, 3, 10.0),
+				result(1, 200.0, 5, 20.0),
+				result(2, 50.0, 1, 30.0));
+		ReplayReport current = report(
+				result(0, 100.001, 3, 10.5),
+				result(1, 210.5, 6, 21.0),
+				result(2, 40.0, 1, 90.0));
+
+		ReplayReport.Diff diff = current.compareTo(baseline, 0.2);
+
+		assertEquals(List.of("#1 distance 200.00 -> 210.50 ly", "#1 bins 5 -> 6", "p90 latency 30.0 -> 90.0 ms",
+				"p99 latency 30.0 -> 90.0 ms"), diff.getRegressions());
+		assertEquals(List.of("#2 distance 50.00 -> 40.00 ly"), diff.getImprovements());
+		assertEquals(350.0, baseline.getTotalDistance());
+		assertEquals(20.0, baseline.getP50Ms());
+	}
+
+	private static ReplayReport report(ReplayReport.Result... results) {
+		return ReplayReport.builder().results(List.of(results)).build().summarize();
+	}
+
+	private static ReplayReport.Result result(int index, double distance, int bins, double latencyMs) {
+		return ReplayReport.Result.builder()
+				.index(index)
+				.success(true)
+				.totalDistance(distance)
+				.binsCount(bins)
+				.latencyMs(latencyMs)
+				.build();
+	}
+}
@@ -0,0 +1,101 @@
+package com.edtradeplanner.service;
+
+import com.edtradeplanner.config.PlannerConfig;
+import com.edtradeplanner.index.CommodityIndex;
+import com.edtradeplanner.index.StationStore;
+import com.edtradeplanner.model.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BeamSearchServiceTest {
+
+	private final PlannerConfig config = new PlannerConfig();
+	private final BeamSearchService beamSearch = new BeamSearchService(config, Runnable::run);
+
+	@Test
+	void paretoFrontDropsDominatedToursAndKeepsTheShortestFirst() {
+		List<RouteAlternative> front = beamSearch.paretoFront(List.of(
+				alternative(11, 3),
+				alternative(15, 2),
+				alternative(10, 3),
+				alternative(12, 2),
+				alternative(20, 1),
+				alternative(10, 4)));
+
+		assertEquals(List.of("10.0/3", "12.0/2", "20.0/1"), describe(front));
+
+		config.setBeamMaxAlternatives(2);
+		assertEquals(List.of("10.0/3", "12.0/2"), describe(beamSearch.paretoFront(List.of(
+				alternative(20, 1), alternative(12, 2), alternative(10, 3)))));
+	}
+
+	@Test
+	void aTourThatCoversMoreIsKeptOverShorterOnesThatCoverLess() {
+		// From A the greedy score sends one tour on to C and one to the two-commodity
+		// seller BC; BC's tour is the longest of the second step but the only one
+		// that finishes in three stops
+		CommodityIndex index = index(
+				station("A", 2, "Aluminium"),
+				station("B", -2, "Beer"),
+				station("C", 3, "Copper"),
+				station("D", -3, "Dyes"),
+				station("BC", 8, "Beer", "Copper"));
+		List<Chunk> bin = List.of(new Chunk("Aluminium", 100, 1), new Chunk("Beer", 100, 1),
+				new Chunk("Copper", 100, 1), new Chunk("Dyes", 100, 1));
+
+		List<RouteAlternative> alternatives = beamSearch.search(bin, index, new Coordinates(0, 0, 0), 100.0,
+				null, 2, false, System.nanoTime() + 10_000_000_000L);
+
+		RouteAlternative fewestStops = alternatives.get(alternatives.size() - 1);
+		assertEquals(3, fewestStops.getStops());
+		assertEquals(List.of("A", "BC", "D"), fewestStops.getLegs().stream()
+				.filter(leg -> "PICKUP_RATIO".equals(leg.getAction())).map(RouteLeg::getSystemName).toList());
+		assertEquals(22.0, fewestStops.getTotalDistance(), 1e-9);
+	}
+
+	@Test
+	void returnsNothingOncePastTheDeadline() {
+		CommodityIndex index = index(station("A", 2, "Aluminium"));
+		List<Chunk> bin = List.of(new Chunk("Aluminium", 100, 1));
+
+		assertTrue(beamSearch.search(bin, index, new Coordinates(0, 0, 0), 100.0, null, 2, false,
+				System.nanoTime() - 1).isEmpty());
+		assertEquals(1, beamSearch.search(bin, index, new Coordinates(0, 0, 0), 100.0, null, 2, false,
+				System.nanoTime() + 10_000_000_000L).size());
+	}
+
+	private static RouteAlternative alternative(double distance, int stops) {
+		return RouteAlternative.builder().totalDistance(distance).stops(stops).legs(List.of()).build();
+	}
+
+	private static List<String> describe(List<RouteAlternative> alternatives) {
+		return alternatives.stream().map(a -> a.getTotalDistance() + "/" + a.getStops()).toList();
+	}
+
+	private static CommodityIndex index(StarSystem... systems) {
+		return new CommodityIndex(StationStore.build(List.of(systems)), false, false, 100.0, 50.0);
+	}
+
+	private static StarSystem station(String name, double x, String... sold) {
+		List<Commodity> commodities = new ArrayList<>();
+		for (String commodity : sold) {
+			commodities.add(new Commodity(commodity, 500));
+		}
+		return StarSystem.builder()
+				.name(name)
+				.coords(new Coordinates(x, 0, 0))
+				.stations(List.of(Station.builder()
+						.name(name + " Port")
+						.type("Coriolis Starport")
+						.landingPads(Map.of("large", 1))
+						.market(new Market(commodities))
+						.build()))
+				.build();
+	}
+}
@@ -0,0 +1,43 @@
+package com.edtradeplanner.service;
+
+import com.edtradeplanner.config.PlannerConfig;
+import com.edtradeplanner.model.Chunk;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChunkServiceTest {
+
+	private final ChunkService chunkService = new ChunkService(new PlannerConfig());
+
+	@Test
+	void lowerBoundCountsItemsThatCannotShareABin() {
+		// Three items over half the capacity can never share, even though L1 says 2 bins
+		List<Chunk> chunks = List.of(chunk("A", 60), chunk("B", 60), chunk("C", 60));
+		assertEquals(3, chunkService.binCountLowerBound(chunks, 100));
+	}
+
+	@Test
+	void packingReachesLowerBoundWhenGreedyOverpacks() {
+		List<Chunk> chunks = new ArrayList<>(List.of(
+				chunk("A", 50), chunk("B", 30), chunk("C", 30),
+				chunk("D", 40), chunk("E", 20), chunk("F", 30)));
+
+		ChunkService.PackingResult result = chunkService.packBins(chunks, 100, null, null);
+
+		assertEquals(2, result.getLowerBound());
+		assertEquals(2, result.getBins().size());
+		assertEquals(0, result.getGap());
+		for (List<Chunk> bin : result.getBins()) {
+			assertTrue(bin.stream().mapToInt(Chunk::getSize).sum() <= 100);
+		}
+	}
+
+	private static Chunk chunk(String commodity, int size) {
+		return new Chunk(commodity, size, 0);
+	}
+}
@@ -0,0 +1,111 @@
+package com.edtradeplanner.service;
+
+import com.edtradeplanner.config.PlannerConfig;
+import com.edtradeplanner.model.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CommodityServiceTest {
+
+	@Test
+	void offHeapBuildsTheSameMapsFromTheStoreAndReleasesTheStations() {
+		CommodityService onHeap = service(galaxy(), false);
+		List<StarSystem> systems = galaxy();
+		CommodityService offHeap = service(systems, true);
+
+		assertTrue(offHeap.getStationStore().isOffHeap());
+		assertTrue(systems.stream().allMatch(system -> system.getStations() == null), "stations still held");
+		assertEquals(onHeap.getCommodityCoOccurrence(), offHeap.getCommodityCoOccurrence());
+		assertEquals(sorted(onHeap.getCommodityMap()), sorted(offHeap.getCommodityMap()));
+		assertEquals(sorted(onHeap.getCommodityMap(false, false)), sorted(offHeap.getCommodityMap(false, false)));
+		assertEquals(onHeap.getCommodityIndex(true, true).getStore().size(),
+				offHeap.getCommodityIndex(true, true).getStore().size());
+	}
+
+	@Test
+	void onHeapKeepsTheStations() {
+		List<StarSystem> systems = galaxy();
+		SystemService systemService = systemService(systems);
+		PlannerConfig config = new PlannerConfig();
+		config.setDistanceFieldEnabled(false);
+		new CommodityService(systemService, config, Runnable::run).initialize();
+
+		verify(systemService, never()).releaseStations();
+		assertTrue(systems.stream().allMatch(system -> system.getStations() != null));
+	}
+
+	private static CommodityService service(List<StarSystem> systems, boolean offHeap) {
+		PlannerConfig config = new PlannerConfig();
+		config.setOffHeapStationStore(offHeap);
+		config.setDistanceFieldEnabled(false);
+		CommodityService service = new CommodityService(systemService(systems), config, Runnable::run);
+		service.initialize();
+		return service;
+	}
+
+	private static SystemService systemService(List<StarSystem> systems) {
+		SystemService systemService = mock(SystemService.class);
+		when(systemService.whenLoaded()).thenReturn(CompletableFuture.completedFuture(null));
+		when(systemService.getAllSystems()).thenReturn(systems);
+		doAnswer(invocation -> {
+			systems.forEach(system -> system.setStations(null));
+			return null;
+		}).when(systemService).releaseStations();
+		return systemService;
+	}
+
+	/**
+	 * Each commodity's stations in a fixed order, as the two builds visit them differently.
+	 */
+	private static Map<String, List<String>> sorted(Map<String, List<StationInfo>> commodityMap) {
+		Map<String, List<String>> result = new TreeMap<>();
+		commodityMap.forEach((commodity, stations) -> result.put(commodity, stations.stream()
+				.map(StationInfo::toString)
+				.sorted(Comparator.naturalOrder())
+				.toList()));
+		return result;
+	}
+
+	private static List<StarSystem> galaxy() {
+		Random random = new Random(36);
+		List<StarSystem> systems = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			List<Station> stations = new ArrayList<>();
+			for (int s = 0; s < 2; s++) {
+				List<Commodity> commodities = new ArrayList<>();
+				for (int c = 0; c < 4; c++) {
+					commodities.add(new Commodity("C" + (4 * s + c + random.nextInt(3)) % 10, random.nextInt(3) * 100));
+				}
+				stations.add(Station.builder()
+						.name("Port " + i + "-" + s)
+						.type(i % 7 == 0 ? "Drake-Class Carrier" : s == 0 ? "Coriolis Starport" : "Outpost")
+						.economy(i % 2 == 0 ? "Industrial" : null)
+						.landingPads(s == 0 ? Map.of("large", 1) : Map.of("medium", 2))
+						.market(new Market(commodities))
+						.build());
+			}
+			systems.add(StarSystem.builder()
+					.name("S" + i)
+					.economy("Refinery")
+					.coords(new Coordinates(random.nextDouble() * 100, random.nextDouble() * 10, random.nextDouble() * 100))
+					.stations(stations)
+					.build());
+		}
+		return systems;
+	}
+}
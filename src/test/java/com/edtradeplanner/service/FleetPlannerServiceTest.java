@@ -0,0 +1,65 @@
+package com.edtradeplanner.service;
+
+import com.edtradeplanner.model.CommodityNeed;
+import com.edtradeplanner.model.Route;
+import com.edtradeplanner.model.ShipSchedule;
+import com.edtradeplanner.model.dto.RouteResponseDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FleetPlannerServiceTest {
+
+	@Test
+	void assignmentBalancesTripsWhereLongestFirstAloneDoesNot() {
+		// Longest first gives 3+2+2 = 7 and 3+2 = 5; the optimum is 3+3 and 2+2+2
+		List<Route> routes = new ArrayList<>();
+		for (double distance : new double[]{3, 3, 2, 2, 2}) {
+			routes.add(Route.builder().totalDistance(distance).build());
+		}
+
+		List<List<Route>> schedules = FleetPlannerService.assign(routes, 2);
+
+		assertEquals(2, schedules.size());
+		assertEquals(5, schedules.stream().mapToInt(List::size).sum());
+		for (List<Route> schedule : schedules) {
+			assertEquals(6.0, schedule.stream().mapToDouble(Route::getTotalDistance).sum(), 1e-9);
+		}
+	}
+
+	@Test
+	void schedulingLeavesTheSharedResponsesRoutesAlone() {
+		// Coalesced requests get copies of one response that wrap the same routes
+		List<Route> routes = new ArrayList<>();
+		for (int bin = 1; bin <= 4; bin++) {
+			routes.add(Route.builder().binNumber(bin).totalDistance(10 * bin).legs(List.of()).build());
+		}
+		RouteResponseDto shared = RouteResponseDto.builder().success(true).routes(routes).binsCount(4).build();
+		FleetPlannerService.ShipType type = new FleetPlannerService.ShipType(100, 50);
+		type.names.addAll(List.of("A", "B"));
+
+		FleetPlannerService.TypePlan plan = FleetPlannerService.schedule(type,
+				List.of(new CommodityNeed("Steel", 400)), shared);
+
+		assertEquals(List.of(1, 2, 3, 4), shared.getRoutes().stream().map(Route::getBinNumber).toList());
+		for (ShipSchedule schedule : plan.schedules) {
+			assertEquals(List.of(1, 2), schedule.getRoutes().stream().map(Route::getBinNumber).toList());
+		}
+		assertEquals(100.0, plan.distance, 1e-9);
+	}
+
+	@Test
+	void needsAreSplitInWholeLoadsByShare() {
+		List<FleetPlannerService.ShipType> types = List.of(
+				new FleetPlannerService.ShipType(100, 50), new FleetPlannerService.ShipType(100, 20));
+		List<CommodityNeed> needs = List.of(new CommodityNeed("Steel", 700), new CommodityNeed("Gold", 50));
+
+		List<List<CommodityNeed>> split = FleetPlannerService.splitNeeds(needs, types, new double[]{2, 1});
+
+		assertEquals(500, split.get(0).stream().mapToInt(CommodityNeed::getQuantityNeeded).sum());
+		assertEquals(250, split.get(1).stream().mapToInt(CommodityNeed::getQuantityNeeded).sum());
+	}
+}
@@ -0,0 +1,271 @@
+package com.edtradeplanner.service;
+
+import com.edtradeplanner.config.PlannerConfig;
+import com.edtradeplanner.index.CommodityIndex;
+import com.edtradeplanner.index.StationStore;
+import com.edtradeplanner.model.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class GreedyRouteServiceTest {
+
+	// Tours from the map-based greedy loop that RoutePlannerService ran before GreedyRouteService, on the
+	// galaxy below with a 40 ly range (12 ly jumps for the jump model). That loop left equal scores to HashMap
+	// order; these were recorded with ties going to the nearer station, as they do now, and leave out the
+	// queries where it collected a partial load twice from the same station.
+	private static final Map<Integer, String> DISTANCE = Map.ofEntries(
+			Map.entry(0, "S917{C2=103} S569{C4=396, C9=519} 52.13"),
+			Map.entry(1, "S544{C2=262, C5=407} S584{C1=354} 34.96"),
+			Map.entry(2, "S1074{C8=143} S439{C6=553, C7=416} 36.30"),
+			Map.entry(3, "S201{C4=631} S1192{C5=486} 22.33"),
+			Map.entry(4, "S976{C2=423, C7=156} S947{C0=459} 20.28"),
+			Map.entry(5, "S1074{C9=573} S1174{C4=407, C7=663} 29.03"),
+			Map.entry(6, "S298{C0=605, C3=128} S704{C1=647} 37.98"),
+			Map.entry(7, "S962{C2=593} S368{C6=535, C8=257} 47.72"),
+			Map.entry(8, "S506{C4=327, C7=170, C9=208} 11.05"),
+			Map.entry(9, "S1166{C5=636, C9=567} S1074{C8=460} 28.73"));
+
+	private static final Map<Integer, String> DISTANCE_SUPPLY_AWARE = Map.ofEntries(
+			Map.entry(0, "S917{C2=103} S219{C9=519} S674{C4=396} 61.49"),
+			Map.entry(1, "S1021{C2=262, C5=407} S902{C1=354} 50.89"),
+			Map.entry(2, "S1074{C8=143} S614{C6=553, C7=416} 53.49"),
+			Map.entry(3, "S201{C4=631} S1192{C5=486} 22.33"),
+			Map.entry(4, "S976{C7=156} S796{C0=459} S813{C2=423} 43.37"),
+			Map.entry(5, "S1166{C9=573} S973{C4=407, C7=663} 24.90"),
+			Map.entry(6, "S298{C0=605, C3=128} S704{C1=647} 37.98"),
+			Map.entry(7, "S962{C2=593} S922{C8=257} S869{C6=535} 48.89"),
+			Map.entry(8, "S506{C4=327, C9=208} S943{C7=170} 42.09"),
+			Map.entry(9, "S1166{C9=567} S922{C5=636, C8=460} 53.94"));
+
+	private static final Map<Integer, String> JUMPS = Map.ofEntries(
+			Map.entry(0, "S708{C4=396, C9=519} S1031{C2=103} 73.02"),
+			Map.entry(1, "S1021{C1=354, C2=262, C5=407} 30.90"),
+			Map.entry(2, "S439{C6=553, C7=416} S1032{C8=143} 44.48"),
+			Map.entry(3, "S699{C4=631, C5=486} 44.01"),
+			Map.entry(4, "S796{C0=459, C2=423, C7=156} 30.82"),
+			Map.entry(5, "S973{C4=407, C7=663} S1166{C9=573} 24.90"),
+			Map.entry(6, "S298{C0=605, C3=128} S704{C1=647} 37.98"),
+			Map.entry(7, "S711{C2=593, C6=535, C8=257} 52.24"),
+			Map.entry(8, "S506{C4=327, C7=170, C9=208} 11.05"),
+			Map.entry(9, "S1166{C5=636, C9=567} S1074{C8=460} 28.73"));
+
+	private static final Map<Integer, String> JUMPS_SUPPLY_AWARE = Map.ofEntries(
+			Map.entry(0, "S708{C4=396, C9=519} S1031{C2=103} 73.02"),
+			Map.entry(1, "S1021{C2=262, C5=407} S902{C1=354} 50.89"),
+			Map.entry(2, "S1174{C7=416, C8=143} S614{C6=553} 60.98"),
+			Map.entry(3, "S526{C4=631, C5=486} 55.94"),
+			Map.entry(4, "S999{C0=459, C7=156} S948{C2=423} 37.56"),
+			Map.entry(5, "S973{C4=407, C7=663} S1166{C9=573} 24.90"),
+			Map.entry(6, "S298{C0=605, C3=128} S704{C1=647} 37.98"),
+			Map.entry(7, "S869{C2=593, C6=535} S836{C8=257} 57.28"),
+			Map.entry(8, "S506{C4=327, C9=208} S943{C7=170} 42.09"),
+			Map.entry(9, "S751{C5=636, C9=567} S922{C8=460} 53.15"));
+
+	@Test
+	void rememberedDecisionsGiveTheSameToursAsTheFullSearch() {
+		Random random = new Random(5);
+		List<StarSystem> systems = new ArrayList<>();
+		for (int i = 0; i < 1500; i++) {
+			List<Commodity> commodities = new ArrayList<>();
+			for (int c = 0; c < 4; c++) {
+				commodities.add(new Commodity("Commodity " + random.nextInt(12), random.nextInt(800)));
+			}
+			Station station = Station.builder()
+					.name("Station " + i)
+					.type(i % 4 == 0 ? "Outpost" : "Coriolis Starport")
+					.landingPads(Map.of("large", 1))
+					.market(new Market(commodities))
+					.build();
+			systems.add(StarSystem.builder()
+					.name("System " + i)
+					.coords(new Coordinates(random.nextDouble() * 300 - 150, random.nextDouble() * 60 - 30,
+							random.nextDouble() * 300 - 150))
+					.stations(List.of(station))
+					.build());
+		}
+		CommodityIndex index = new CommodityIndex(StationStore.build(systems), true, true, 100.0, 50.0);
+
+		PlannerConfig config = new PlannerConfig();
+		config.setStationMemoCellSize(5.0);
+		GreedyRouteService memoized = new GreedyRouteService(config, null, new StationDecisionMemo(config));
+		GreedyRouteService plain = new GreedyRouteService(new PlannerConfig(), null, null);
+
+		int hits = 0;
+		for (int q = 0; q < 300; q++) {
+			// A handful of homes and bins, repeated with small offsets so cells are shared
+			Random pick = new Random(q % 20);
+			Coordinates home = new Coordinates(pick.nextDouble() * 200 - 100 + random.nextDouble(),
+					pick.nextDouble() * 40 - 20, pick.nextDouble() * 200 - 100);
+			List<Chunk> bin = new ArrayList<>();
+			for (int c = 0; c < 3; c++) {
+				bin.add(new Chunk("Commodity " + pick.nextInt(12), 100 + pick.nextInt(400), 1));
+			}
+			boolean supplyAware = q % 2 == 0;
+
+			GreedyRouteService.RouteResult expected = plain.plan(bin, index, home, 40.0, 0, supplyAware, null);
+			GreedyRouteService.RouteResult actual = memoized.plan(bin, index, home, 40.0, 0, supplyAware, null);
+			assertEquals(expected.getLegs(), actual.getLegs());
+			assertEquals(expected.getTotalDistance(), actual.getTotalDistance(), 1e-9);
+			hits += actual.getMemoHits();
+		}
+		assertTrue(hits > 50, "only " + hits + " steps answered from the memo");
+	}
+
+	@Test
+	void aStationIsNotAskedForStockItAlreadyGaveUp() {
+		// B1 holds 700 t of the 704 t needed; the last 4 t have to come from B2, further out
+		List<StarSystem> systems = List.of(
+				system("B1", 10, 0, 0, 700),
+				system("B2", 30, 0, 0, 50));
+		CommodityIndex index = new CommodityIndex(StationStore.build(systems), true, true, 100.0, 50.0);
+		List<Chunk> bin = List.of(new Chunk("Steel", 704, 1));
+
+		for (boolean clusters : new boolean[]{true, false}) {
+			PlannerConfig config = new PlannerConfig();
+			config.setClusterCandidateSearch(clusters);
+			GreedyRouteService service = new GreedyRouteService(config, null, null);
+
+			List<RouteLeg> legs = service.plan(bin, index, new Coordinates(0, 0, 0), 100.0, 0, true, null).getLegs();
+
+			assertEquals(3, legs.size(), "two pickups and the return, clusters=" + clusters);
+			assertEquals("B1", legs.get(0).getSystemName());
+			assertEquals(Map.of("Steel", 700), legs.get(0).getQuantities());
+			assertEquals("B2", legs.get(1).getSystemName());
+			assertEquals(Map.of("Steel", 4), legs.get(1).getQuantities());
+		}
+	}
+
+	@Test
+	void toursMatchTheLoopBeforeTheRewrite() {
+		List<StarSystem> systems = galaxy();
+		CommodityIndex index = new CommodityIndex(StationStore.build(systems), true, true, 100.0, 50.0);
+		SystemService systemService = mock(SystemService.class);
+		when(systemService.getAllSystems()).thenReturn(systems);
+		PlannerConfig config = new PlannerConfig();
+		GreedyRouteService service = new GreedyRouteService(config, new JumpGraphService(systemService, config), null);
+
+		assertTours(service, index, 0, false, DISTANCE);
+		assertTours(service, index, 0, true, DISTANCE_SUPPLY_AWARE);
+		assertTours(service, index, 12, false, JUMPS);
+		assertTours(service, index, 12, true, JUMPS_SUPPLY_AWARE);
+	}
+
+	@Test
+	void clusterSearchGivesTheSameToursAsPerCommoditySearch() {
+		List<StarSystem> systems = galaxy();
+		SystemService systemService = mock(SystemService.class);
+		when(systemService.getAllSystems()).thenReturn(systems);
+		PlannerConfig clusterConfig = new PlannerConfig();
+		PlannerConfig perCommodityConfig = new PlannerConfig();
+		perCommodityConfig.setClusterCandidateSearch(false);
+		GreedyRouteService clusters = new GreedyRouteService(clusterConfig,
+				new JumpGraphService(systemService, clusterConfig), null);
+		GreedyRouteService perCommodity = new GreedyRouteService(perCommodityConfig,
+				new JumpGraphService(systemService, perCommodityConfig), null);
+
+		for (boolean filtered : new boolean[]{true, false}) {
+			CommodityIndex index = new CommodityIndex(StationStore.build(systems), filtered, filtered, 100.0, 50.0);
+			for (int q = 0; q < 200; q++) {
+				boolean supplyAware = q % 2 == 0;
+				double jumpRange = q % 3 == 0 ? 12 : 0;
+				double maxRange = 25 + q % 4 * 10;
+				GreedyRouteService.RouteResult expected = perCommodity.plan(bin(q), index, home(q), maxRange, jumpRange,
+						supplyAware, null);
+				GreedyRouteService.RouteResult actual = clusters.plan(bin(q), index, home(q), maxRange, jumpRange,
+						supplyAware, null);
+				assertEquals(describe(expected.getLegs(), expected.getTotalDistance()),
+						describe(actual.getLegs(), actual.getTotalDistance()),
+						"query " + q + ", filtered " + filtered);
+				assertEquals(expected.getLegs(), actual.getLegs());
+			}
+		}
+	}
+
+	private static void assertTours(GreedyRouteService service, CommodityIndex index, double jumpRange,
+									boolean supplyAware, Map<Integer, String> expected) {
+		expected.forEach((query, tour) -> {
+			GreedyRouteService.RouteResult result = service.plan(bin(query), index, home(query), 40.0, jumpRange,
+					supplyAware, null);
+			assertEquals(tour, describe(result.getLegs(), result.getTotalDistance()),
+					"query " + query + ", jump range " + jumpRange + ", supply-aware " + supplyAware);
+		});
+	}
+
+	private static List<StarSystem> galaxy() {
+		Random random = new Random(41);
+		List<StarSystem> systems = new ArrayList<>();
+		for (int i = 0; i < 1200; i++) {
+			List<Commodity> commodities = new ArrayList<>();
+			List<Integer> sold = new ArrayList<>(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9));
+			Collections.shuffle(sold, random);
+			for (int c = 0; c < 4; c++) {
+				commodities.add(new Commodity("C" + sold.get(c), 50 + random.nextInt(900)));
+			}
+			Station station = Station.builder()
+					.name("Port " + i)
+					.type(i % 5 == 0 ? "Outpost" : "Coriolis Starport")
+					.landingPads(Map.of("large", 1))
+					.market(new Market(commodities))
+					.build();
+			systems.add(StarSystem.builder()
+					.name("S" + i)
+					.coords(new Coordinates(random.nextDouble() * 240 - 120, random.nextDouble() * 50 - 25,
+							random.nextDouble() * 240 - 120))
+					.stations(List.of(station))
+					.build());
+		}
+		return systems;
+	}
+
+	private static Coordinates home(int query) {
+		Random pick = new Random(1000 + query);
+		return new Coordinates(pick.nextDouble() * 160 - 80, pick.nextDouble() * 30 - 15, pick.nextDouble() * 160 - 80);
+	}
+
+	private static List<Chunk> bin(int query) {
+		Random pick = new Random(2000 + query);
+		List<Chunk> bin = new ArrayList<>();
+		for (int c = 0; c < 3; c++) {
+			bin.add(new Chunk("C" + pick.nextInt(10), 100 + pick.nextInt(600), 1));
+		}
+		return bin;
+	}
+
+	private static String describe(List<RouteLeg> legs, double totalDistance) {
+		StringBuilder tour = new StringBuilder();
+		for (RouteLeg leg : legs) {
+			if ("PICKUP_RATIO".equals(leg.getAction())) {
+				tour.append(leg.getSystemName()).append(new TreeMap<>(leg.getQuantities())).append(' ');
+			} else if ("NO_STATION_FOUND".equals(leg.getAction())) {
+				tour.append("none").append(new TreeMap<>(leg.getQuantities())).append(' ');
+			}
+		}
+		return tour.append(String.format(Locale.ROOT, "%.2f", totalDistance)).toString();
+	}
+
+	private static StarSystem system(String name, double x, double y, double z, int steel) {
+		Station station = Station.builder()
+				.name(name + " Port")
+				.type("Coriolis Starport")
+				.landingPads(Map.of("large", 1))
+				.market(new Market(List.of(new Commodity("Steel", steel))))
+				.build();
+		return StarSystem.builder()
+				.name(name)
+				.coords(new Coordinates(x, y, z))
+				.stations(List.of(station))
+				.build();
+	}
+}
@@ -0,0 +1,129 @@
+package com.edtradeplanner.service;
+
+import com.edtradeplanner.config.PlannerConfig;
+import com.edtradeplanner.model.Coordinates;
+import com.edtradeplanner.model.StarSystem;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class JumpGraphServiceTest {
+
+	private static final double JUMP_RANGE = 15.0;
+
+	@Test
+	void jumpCountsMatchABreadthFirstSearch() {
+		List<StarSystem> systems = galaxy();
+		PlannerConfig config = new PlannerConfig();
+		config.setMaxJumpsPerLeg(1000);
+		config.setJumpSearchMaxExpansions(1_000_000);
+		JumpGraphService jumpGraph = new JumpGraphService(systemService(systems), config);
+
+		Random random = new Random(3);
+		int reachable = 0;
+		for (int q = 0; q < 200; q++) {
+			Coordinates from = q % 2 == 0 ? systems.get(random.nextInt(systems.size())).getCoords() : point(random);
+			Coordinates to = point(random);
+
+			int expected = bfsJumps(systems, from, to);
+			assertEquals(expected, jumpGraph.jumps(from, to, JUMP_RANGE), "query " + q);
+			if (expected > 1) {
+				reachable++;
+			}
+		}
+		assertTrue(reachable > 50, "only " + reachable + " multi-jump queries");
+	}
+
+	@Test
+	void legsLongerThanTheJumpLimitAreUnreachable() {
+		List<StarSystem> systems = galaxy();
+		PlannerConfig config = new PlannerConfig();
+		config.setMaxJumpsPerLeg(4);
+		JumpGraphService jumpGraph = new JumpGraphService(systemService(systems), config);
+
+		Random random = new Random(4);
+		for (int q = 0; q < 200; q++) {
+			Coordinates from = point(random);
+			Coordinates to = point(random);
+
+			int expected = bfsJumps(systems, from, to);
+			assertEquals(expected > 4 ? JumpGraphService.UNREACHABLE : expected, jumpGraph.jumps(from, to, JUMP_RANGE),
+					"query " + q);
+		}
+	}
+
+	/**
+	 * Jumps from {@code from} to {@code to} by breadth-first search over every
+	 * pair of systems, or {@link JumpGraphService#UNREACHABLE}.
+	 */
+	private static int bfsJumps(List<StarSystem> systems, Coordinates from, Coordinates to) {
+		double direct = distance(from, to);
+		if (direct <= JUMP_RANGE) {
+			return direct == 0 ? 0 : 1;
+		}
+		int[] jumps = new int[systems.size()];
+		Arrays.fill(jumps, -1);
+		Deque<Integer> queue = new ArrayDeque<>();
+		for (int i = 0; i < systems.size(); i++) {
+			if (distance(from, systems.get(i).getCoords()) <= JUMP_RANGE) {
+				jumps[i] = 1;
+				queue.add(i);
+			}
+		}
+		while (!queue.isEmpty()) {
+			int node = queue.poll();
+			Coordinates at = systems.get(node).getCoords();
+			if (distance(at, to) <= JUMP_RANGE) {
+				return jumps[node] + 1;
+			}
+			for (int next = 0; next < systems.size(); next++) {
+				if (jumps[next] < 0 && distance(at, systems.get(next).getCoords()) <= JUMP_RANGE) {
+					jumps[next] = jumps[node] + 1;
+					queue.add(next);
+				}
+			}
+		}
+		return JumpGraphService.UNREACHABLE;
+	}
+
+	private static List<StarSystem> galaxy() {
+		Random random = new Random(17);
+		List<StarSystem> systems = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			systems.add(StarSystem.builder()
+					.name("S" + i)
+					.coords(point(random))
+					.stations(List.of())
+					.build());
+		}
+		return systems;
+	}
+
+	private static Coordinates point(Random random) {
+		return new Coordinates(random.nextDouble() * 200 - 100, random.nextDouble() * 20 - 10,
+				random.nextDouble() * 200 - 100);
+	}
+
+	private static SystemService systemService(List<StarSystem> systems) {
+		SystemService systemService = mock(SystemService.class);
+		when(systemService.getAllSystems()).thenReturn(systems);
+		return systemService;
+	}
+
+	private static double distance(Coordinates a, Coordinates b) {
+		double dx = a.getX() - b.getX();
+		double dy = a.getY() - b.getY();
+		double dz = a.getZ() - b.getZ();
+		return Math.sqrt(dx * dx + dy * dy + dz * dz);
+	}
+}
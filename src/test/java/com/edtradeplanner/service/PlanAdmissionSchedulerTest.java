@@ -0,0 +1,85 @@
+package com.edtradeplanner.service;
+
+import com.edtradeplanner.config.PlannerConfig;
+import com.edtradeplanner.model.CommodityNeed;
+import com.edtradeplanner.model.dto.RouteRequestDto;
+import com.edtradeplanner.model.dto.RouteResponseDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PlanAdmissionSchedulerTest {
+
+	@Test
+	void cheapPlanOvertakesExpensivePlanQueuedBeforeIt() {
+		PlannerConfig config = new PlannerConfig();
+		config.setAdmissionConcurrency(1);
+
+		List<Integer> started = new ArrayList<>();
+		RoutePlannerService planner = mock(RoutePlannerService.class);
+		when(planner.planRoute(any(RouteRequestDto.class), any())).thenAnswer(invocation -> {
+			started.add(invocation.getArgument(0, RouteRequestDto.class).getBeamWidth());
+			return new RouteResponseDto(true, null);
+		});
+
+		Queue<Runnable> tasks = new ArrayDeque<>();
+		PlanAdmissionScheduler scheduler = new PlanAdmissionScheduler(
+				planner, mock(SystemService.class), mock(PlanJournal.class), config, tasks::add);
+
+		// The first plan occupies the only slot; the other two wait in the queue
+		scheduler.submit(request(1), needs(700), "a");
+		scheduler.submit(request(2), needs(70_000), "b");
+		scheduler.submit(request(3), needs(700), "c");
+		assertEquals(2, scheduler.queuedCount());
+
+		while (!tasks.isEmpty()) {
+			tasks.poll().run();
+		}
+		assertEquals(List.of(1, 3, 2), started);
+	}
+
+	@Test
+	void identicalPlansInFlightShareOneComputation() {
+		RouteResponseDto planned = new RouteResponseDto(true, null);
+		RoutePlannerService planner = mock(RoutePlannerService.class);
+		when(planner.planRoute(any(RouteRequestDto.class), any())).thenReturn(planned);
+
+		Queue<Runnable> tasks = new ArrayDeque<>();
+		PlanAdmissionScheduler scheduler = new PlanAdmissionScheduler(
+				planner, mock(SystemService.class), mock(PlanJournal.class), new PlannerConfig(), tasks::add);
+
+		CompletableFuture<RouteResponseDto> first = scheduler.submit(request(1), needs(700), "a");
+		CompletableFuture<RouteResponseDto> second = scheduler.submit(request(1), needs(700), "b");
+		// Cancelling one caller must not affect the other
+		first.cancel(true);
+		tasks.forEach(Runnable::run);
+
+		verify(planner, times(1)).planRoute(any(RouteRequestDto.class), any());
+		assertTrue(first.isCancelled());
+		assertFalse(second.isCompletedExceptionally());
+		assertSame(planned, second.join());
+	}
+
+	private static RouteRequestDto request(int id) {
+		// Beam width is only used here to tell the requests apart
+		return RouteRequestDto.builder().cargoCapacity(700).planningMode("greedy").beamWidth(id).build();
+	}
+
+	private static List<CommodityNeed> needs(int quantity) {
+		return List.of(new CommodityNeed("Steel", quantity));
+	}
+}
@@ -0,0 +1,68 @@
+package com.edtradeplanner.service;
+
+import com.edtradeplanner.config.PlannerConfig;
+import com.edtradeplanner.model.CommodityNeed;
+import com.edtradeplanner.model.StoredPlan;
+import com.edtradeplanner.model.dto.RouteRequestDto;
+import com.edtradeplanner.model.dto.RouteResponseDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PlanStoreTest {
+
+	@Test
+	void pruneDropsExpiredPlansThenTheOldestOverTheLimit(@TempDir Path dir) throws Exception {
+		PlannerConfig config = new PlannerConfig();
+		config.setPlanStoreEnabled(true);
+		config.setPlanStoreDir(dir.toString());
+		config.setPlanStoreRetentionDays(30);
+		config.setPlanStoreMaxPlans(3);
+		PlanStore store = new PlanStore(new ObjectMapper().registerModule(new JavaTimeModule()), config);
+
+		// Plan i was last updated i days ago; plan 5 is past the retention period
+		List<StoredPlan> plans = new ArrayList<>();
+		for (int i = 0; i < 6; i++) {
+			StoredPlan plan = store.create(new RouteRequestDto(), List.of(new CommodityNeed("Steel", 100)),
+					new RouteResponseDto(true, null));
+			Files.setLastModifiedTime(dir.resolve(plan.getId() + ".json"),
+					FileTime.from(Instant.now().minus(Duration.ofDays(i == 5 ? 40 : i))));
+			plans.add(plan);
+		}
+
+		store.prune();
+
+		for (int i = 0; i < 6; i++) {
+			assertEquals(i < 3, store.find(plans.get(i).getId()).isPresent(), "plan " + i);
+		}
+		try (var files = Files.list(dir)) {
+			assertEquals(3, files.count());
+		}
+	}
+
+	@Test
+	void pruneLeavesTheDirectoryAloneWhenTheStoreIsOff(@TempDir Path dir) throws Exception {
+		Path stale = Files.writeString(dir.resolve("00000000-0000-0000-0000-000000000000.json"), "{}");
+		Files.setLastModifiedTime(stale, FileTime.from(Instant.now().minus(Duration.ofDays(400))));
+		PlannerConfig config = new PlannerConfig();
+		config.setPlanStoreDir(dir.toString());
+		PlanStore store = new PlanStore(new ObjectMapper(), config);
+
+		assertFalse(store.isEnabled());
+		store.prune();
+		assertTrue(Files.exists(stale));
+	}
+}
@@ -0,0 +1,64 @@
+package com.edtradeplanner.service;
+
+import com.edtradeplanner.config.PlannerConfig;
+import com.edtradeplanner.index.StationStore;
+import com.edtradeplanner.model.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RegionalCoOccurrenceServiceTest {
+
+	@Test
+	void countsOnlyStationsAroundHomeAndSharesTheRegionsEntry() {
+		// Steel sells with Gold near the origin and with Copper 1000 ly away
+		List<StarSystem> systems = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			systems.add(system("Near " + i, i, 0, 0, "Steel", "Gold"));
+			systems.add(system("Far " + i, 1000 + i, 0, 0, "Steel", "Copper"));
+		}
+		CommodityService commodityService = mock(CommodityService.class);
+		SystemService systemService = mock(SystemService.class);
+		Map<String, Map<String, Integer>> galaxy = Map.of("Steel", Map.of("Gold", 10, "Copper", 10));
+		when(commodityService.getStationStore()).thenReturn(StationStore.build(systems));
+		when(commodityService.getCommodityCoOccurrence()).thenReturn(galaxy);
+		PlannerConfig config = new PlannerConfig();
+		config.setCoOccurrenceMinStations(5);
+		RegionalCoOccurrenceService service = new RegionalCoOccurrenceService(commodityService, systemService, config);
+
+		Map<String, Map<String, Integer>> near = service.coOccurrence(new Coordinates(3, 1, 0), 50, false, false);
+		assertEquals(Map.of("Gold", 10), near.get("Steel"));
+		assertSame(near, service.coOccurrence(new Coordinates(10, 2, 1), 40, false, false));
+
+		// Too few stations in range
+		assertSame(galaxy, service.coOccurrence(new Coordinates(500, 0, 0), 30, false, false));
+
+		config.setRegionalCoOccurrenceEnabled(false);
+		assertSame(galaxy, service.coOccurrence(new Coordinates(3, 1, 0), 50, false, false));
+	}
+
+	private static StarSystem system(String name, double x, double y, double z, String... sold) {
+		List<Commodity> commodities = new ArrayList<>();
+		for (String commodity : sold) {
+			commodities.add(new Commodity(commodity, 100));
+		}
+		Station station = Station.builder()
+				.name(name + " Port")
+				.type("Coriolis Starport")
+				.landingPads(Map.of("large", 1))
+				.market(new Market(commodities))
+				.build();
+		return StarSystem.builder()
+				.name(name)
+				.coords(new Coordinates(x, y, z))
+				.stations(List.of(station))
+				.build();
+	}
+}
@@ -0,0 +1,40 @@
+package com.edtradeplanner.service;
+
+import com.edtradeplanner.model.CommodityNeed;
+import com.edtradeplanner.model.Route;
+import com.edtradeplanner.model.RouteLeg;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReplanServiceTest {
+
+	@Test
+	void deliveriesShrinkEarlyBinsAndIncreasesBecomeNewCargo() {
+		List<Route> routes = List.of(
+				route(1, Map.of("Steel", 700)),
+				route(2, Map.of("Steel", 300, "Titanium", 400)),
+				route(3, Map.of("Titanium", 700)));
+		List<CommodityNeed> oldNeeds = List.of(new CommodityNeed("Steel", 1000), new CommodityNeed("Titanium", 1100));
+		// 800 Steel delivered, and the build now also needs Polymers
+		List<CommodityNeed> newNeeds = List.of(new CommodityNeed("Steel", 200), new CommodityNeed("Titanium", 1100),
+				new CommodityNeed("Polymers", 50));
+
+		ReplanService.BinDelta delta = ReplanService.BinDelta.compute(routes, oldNeeds, newNeeds);
+
+		assertEquals(1, delta.emptied);
+		assertEquals(Map.of(2, Map.of("Steel", 200, "Titanium", 400)), delta.changed);
+		assertEquals(List.of(3), delta.kept.stream().map(Route::getBinNumber).toList());
+		assertEquals(List.of(new CommodityNeed("Polymers", 50)), delta.added);
+	}
+
+	private static Route route(int binNumber, Map<String, Integer> loads) {
+		return Route.builder()
+				.binNumber(binNumber)
+				.legs(List.of(RouteLeg.builder().action("PICKUP_RATIO").quantities(loads).build()))
+				.build();
+	}
+}
@@ -0,0 +1,182 @@
+package com.edtradeplanner.service;
+
+import com.edtradeplanner.config.PlannerConfig;
+import com.edtradeplanner.index.CommodityIndex;
+import com.edtradeplanner.index.SectorPartition;
+import com.edtradeplanner.index.StationStore;
+import com.edtradeplanner.model.*;
+import com.edtradeplanner.model.dto.ShardOffersRequestDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestClient;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ShardCoordinatorTest {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final List<HttpServer> workers = new ArrayList<>();
+
+	@AfterEach
+	void stopWorkers() {
+		workers.forEach(server -> server.stop(0));
+	}
+
+	@Test
+	void aStopOutsideTheFetchedSpheresIsFetchedAndTheBinRoutedAgain() throws Exception {
+		// Home at the origin, 40 ly range: the first fetch covers 80 ly, so C2 at 110 ly is only found from B
+		List<StarSystem> systems = List.of(
+				system("A", 35, "C0"),
+				system("B", 70, "C1"),
+				system("C", 110, "C2"));
+		PlannerConfig config = coordinatorConfig(systems, 2, 100.0);
+		ShardCoordinator coordinator = coordinator(config);
+		List<Chunk> bin = List.of(new Chunk("C0", 100, 1), new Chunk("C1", 100, 1), new Chunk("C2", 100, 1));
+
+		ShardCoordinator.Session session = coordinator.openSession(List.of("C0", "C1", "C2"), false, false);
+		GreedyRouteService.RouteResult result = coordinator.plan(session, bin, new Coordinates(0, 0, 0), 40.0, 0, false, null);
+
+		assertEquals(List.of("A", "B", "C"), result.getLegs().stream()
+				.filter(leg -> "PICKUP_RATIO".equals(leg.getAction())).map(RouteLeg::getSystemName).toList());
+		Map<String, Object> stats = session.stats();
+		assertEquals(1, stats.get("reroutes"));
+		assertEquals(3, stats.get("stations"));
+	}
+
+	@Test
+	void toursMatchASingleNodeHoldingEveryStation() throws Exception {
+		Random random = new Random(43);
+		List<StarSystem> systems = new ArrayList<>();
+		for (int i = 0; i < 600; i++) {
+			systems.add(StarSystem.builder()
+					.name("S" + i)
+					.coords(new Coordinates(random.nextDouble() * 400 - 200, random.nextDouble() * 40 - 20,
+							random.nextDouble() * 400 - 200))
+					.stations(List.of(Station.builder()
+							.name("Port " + i)
+							.type("Coriolis Starport")
+							.landingPads(Map.of("large", 1))
+							.market(new Market(List.of(
+									new Commodity("C" + random.nextInt(6), 100 + random.nextInt(900)),
+									new Commodity("C" + (6 + random.nextInt(6)), 100 + random.nextInt(900)))))
+							.build()))
+					.build());
+		}
+		PlannerConfig config = coordinatorConfig(systems, 3, 60.0);
+		ShardCoordinator coordinator = coordinator(config);
+		GreedyRouteService local = new GreedyRouteService(new PlannerConfig(), null, null);
+		CommodityIndex everything = new CommodityIndex(StationStore.build(systems), false, false, 100.0, 50.0);
+
+		int reroutes = 0;
+		for (int q = 0; q < 20; q++) {
+			Random pick = new Random(q);
+			Coordinates home = new Coordinates(pick.nextDouble() * 200 - 100, 0, pick.nextDouble() * 200 - 100);
+			List<Chunk> bin = new ArrayList<>();
+			List<String> commodities = new ArrayList<>();
+			for (int c = 0; c < 4; c++) {
+				String commodity = "C" + pick.nextInt(12);
+				if (!commodities.contains(commodity)) {
+					commodities.add(commodity);
+					bin.add(new Chunk(commodity, 200 + pick.nextInt(500), 1));
+				}
+			}
+			boolean supplyAware = q % 2 == 0;
+
+			ShardCoordinator.Session session = coordinator.openSession(commodities, false, false);
+			GreedyRouteService.RouteResult sharded = coordinator.plan(session, bin, home, 30.0, 0, supplyAware, null);
+			GreedyRouteService.RouteResult expected = local.plan(bin, everything, home, 30.0, 0, supplyAware, null);
+
+			assertEquals(expected.getLegs(), sharded.getLegs(), "query " + q);
+			assertEquals(expected.getTotalDistance(), sharded.getTotalDistance(), 1e-9);
+			reroutes += (int) session.stats().get("reroutes");
+		}
+		assertTrue(reroutes > 0, "no query needed a second fetch");
+	}
+
+	@Test
+	void shardCountMustMatchTheWorkerUrls() {
+		PlannerConfig config = new PlannerConfig();
+		config.setClusterRole("coordinator");
+		config.setShardWorkerUrls(List.of("http://localhost:1", "http://localhost:2"));
+		config.setShardCount(3);
+
+		IllegalStateException e = assertThrows(IllegalStateException.class, () -> coordinator(config));
+		assertTrue(e.getMessage().contains("shard-count is 3"), e.getMessage());
+
+		config.setClusterRole("standalone");
+		assertFalse(coordinator(config).isEnabled());
+	}
+
+	/**
+	 * Coordinator settings for {@code shards} workers, each started on a local
+	 * port and answering from its share of {@code systems} with a real
+	 * {@link ShardWorkerService}.
+	 */
+	private PlannerConfig coordinatorConfig(List<StarSystem> systems, int shards, double sectorSize) throws Exception {
+		SectorPartition partition = new SectorPartition(sectorSize, shards);
+		List<String> urls = new ArrayList<>();
+		for (int shard = 0; shard < shards; shard++) {
+			int owner = shard;
+			List<StarSystem> owned = systems.stream()
+					.filter(s -> partition.shardOf(s.getCoords().getX(), s.getCoords().getY(), s.getCoords().getZ()) == owner)
+					.toList();
+			CommodityService commodityService = mock(CommodityService.class);
+			when(commodityService.getCommodityIndex(false, false))
+					.thenReturn(new CommodityIndex(StationStore.build(owned), false, false, 100.0, 50.0));
+			ShardWorkerService worker = new ShardWorkerService(commodityService);
+
+			HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+			server.createContext("/internal/shard/offers", exchange -> {
+				ShardOffersRequestDto query = objectMapper.readValue(exchange.getRequestBody(), ShardOffersRequestDto.class);
+				byte[] body = objectMapper.writeValueAsBytes(worker.offers(query));
+				exchange.getResponseHeaders().add("Content-Type", "application/json");
+				exchange.sendResponseHeaders(200, body.length);
+				try (OutputStream out = exchange.getResponseBody()) {
+					out.write(body);
+				}
+			});
+			server.start();
+			workers.add(server);
+			urls.add("http://localhost:" + server.getAddress().getPort());
+		}
+
+		PlannerConfig config = new PlannerConfig();
+		config.setClusterRole("coordinator");
+		config.setShardCount(shards);
+		config.setShardSectorSize(sectorSize);
+		config.setShardWorkerUrls(urls);
+		return config;
+	}
+
+	private static ShardCoordinator coordinator(PlannerConfig config) {
+		return new ShardCoordinator(config, new GreedyRouteService(new PlannerConfig(), null, null), RestClient.builder(),
+				Runnable::run);
+	}
+
+	private static StarSystem system(String name, double x, String commodity) {
+		return StarSystem.builder()
+				.name(name)
+				.coords(new Coordinates(x, 0, 0))
+				.stations(List.of(Station.builder()
+						.name(name + " Port")
+						.type("Coriolis Starport")
+						.landingPads(Map.of("large", 1))
+						.market(new Market(List.of(new Commodity(commodity, 500))))
+						.build()))
+				.build();
+	}
+}
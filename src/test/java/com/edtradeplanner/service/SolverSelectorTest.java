@@ -0,0 +1,48 @@
+package com.edtradeplanner.service;
+
+import com.edtradeplanner.config.PlannerConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SolverSelectorTest {
+
+	@Test
+	void leastSquaresRecoversAnExactLinearModel() {
+		double[] beta = {0.5, -2.0, 0.25, 0.01};
+		double[][] x = new double[20][];
+		double[] y = new double[20];
+		for (int r = 0; r < x.length; r++) {
+			SolverSelector.Features f = new SolverSelector.Features(1 + r % 5, 10 + 7 * r, 0.1 * (r % 3));
+			x[r] = SolverSelector.costTerms(f);
+			for (int i = 0; i < beta.length; i++) {
+				y[r] += beta[i] * x[r][i];
+			}
+		}
+
+		assertArrayEquals(beta, SolverSelector.leastSquares(x, y), 1e-4);
+	}
+
+	@Test
+	void picksTheLargestPredictedGainThatFitsTheBudget() {
+		PlannerConfig config = new PlannerConfig();
+		config.setSolverMinGain(0.01);
+		config.setSolverImprovedCost(List.of(0.1, 0.0, 0.0, 0.0));
+		config.setSolverImprovedGain(List.of(0.02, 0.0, 0.0, 0.0));
+		config.setSolverBeamCost(List.of(0.0, 1.0, 0.0, 0.0));
+		config.setSolverBeamGain(List.of(0.0, 0.03, 0.0, 0.0));
+		SolverSelector selector = new SolverSelector(config);
+		SolverSelector.Features fourCommodities = new SolverSelector.Features(4, 100, 1.0);
+
+		// Beam: 8 wide x 4 ms = 32 ms for a 12% gain; improved: 0.1 ms for 2%
+		assertEquals(SolverSelector.BEAM, selector.choose(fourCommodities, 8, 50.0));
+		assertEquals(SolverSelector.IMPROVED, selector.choose(fourCommodities, 8, 10.0));
+		assertEquals(SolverSelector.GREEDY, selector.choose(fourCommodities, 8, 0.0));
+
+		config.setSolverMinGain(0.5);
+		assertEquals(SolverSelector.GREEDY, selector.choose(fourCommodities, 8, 50.0));
+	}
+}
@@ -0,0 +1,86 @@
+package com.edtradeplanner.service;
+
+import com.edtradeplanner.config.PlannerConfig;
+import com.edtradeplanner.health.WarmupReadinessIndicator;
+import com.edtradeplanner.index.StationStore;
+import com.edtradeplanner.model.*;
+import com.edtradeplanner.model.dto.RouteRequestDto;
+import com.edtradeplanner.model.dto.RouteResponseDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WarmupServiceTest {
+
+	@Test
+	void outOfServiceUntilTheWarmUpHasRunThenTheSearchCacheIsEmpty() {
+		StarSystem system = StarSystem.builder()
+				.name("Colonia")
+				.coords(new Coordinates(1, 2, 3))
+				.stations(List.of(Station.builder()
+						.name("Jaques Station")
+						.type("Coriolis Starport")
+						.landingPads(Map.of("large", 1))
+						.market(new Market(List.of(new Commodity("Steel", 500))))
+						.build()))
+				.build();
+		CompletableFuture<Void> coreIndexes = new CompletableFuture<>();
+		CommodityService commodityService = mock(CommodityService.class);
+		when(commodityService.whenCoreIndexesReady()).thenReturn(coreIndexes);
+		when(commodityService.getStationStore()).thenReturn(StationStore.build(List.of(system)));
+		SystemService systemService = mock(SystemService.class);
+		RoutePlannerService routePlannerService = mock(RoutePlannerService.class);
+		when(routePlannerService.planRoute(any(RouteRequestDto.class), any())).thenReturn(new RouteResponseDto(false, "none"));
+		PlannerConfig config = new PlannerConfig();
+		config.setWarmupIterations(3);
+		CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+		cacheManager.getCache("systemSearch").put("col", List.of());
+
+		WarmupService warmup = new WarmupService(commodityService, systemService, routePlannerService,
+				new FileService(config), new ObjectMapper(), cacheManager, config, Runnable::run);
+		WarmupReadinessIndicator readiness = new WarmupReadinessIndicator(warmup);
+		warmup.initialize();
+
+		assertEquals(Status.OUT_OF_SERVICE, readiness.health().getStatus());
+		assertNotNull(cacheManager.getCache("systemSearch").get("col"));
+
+		coreIndexes.complete(null);
+
+		assertEquals(Status.UP, readiness.health().getStatus());
+		assertEquals(3, readiness.health().getDetails().get("iterations"));
+		verify(routePlannerService, times(3)).planRoute(any(RouteRequestDto.class), any());
+		verify(systemService, times(3)).searchSystems(anyString(), anyInt());
+		assertNull(cacheManager.getCache("systemSearch").get("col"));
+	}
+
+	@Test
+	void readyAtOnceWhenDisabled() {
+		CommodityService commodityService = mock(CommodityService.class);
+		when(commodityService.whenCoreIndexesReady()).thenReturn(new CompletableFuture<>());
+		PlannerConfig config = new PlannerConfig();
+		config.setWarmupEnabled(false);
+
+		WarmupService warmup = new WarmupService(commodityService, mock(SystemService.class),
+				mock(RoutePlannerService.class), new FileService(config), new ObjectMapper(),
+				new CaffeineCacheManager(), config, Runnable::run);
+		warmup.initialize();
+
+		assertEquals(Status.UP, new WarmupReadinessIndicator(warmup).health().getStatus());
+	}
+}
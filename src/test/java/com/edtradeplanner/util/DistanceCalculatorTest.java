@@ -0,0 +1,35 @@
+package com.edtradeplanner.util;
+
+import com.edtradeplanner.model.Coordinates;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DistanceCalculatorTest {
+
+	@Test
+	void batchedKernelsMatchScalarDistanceBitForBit() {
+		Random random = new Random(3);
+		int n = 37;  // not a multiple of any vector length, so the tail loop runs too
+		double[] xs = new double[n], ys = new double[n], zs = new double[n];
+		for (int i = 0; i < n; i++) {
+			xs[i] = random.nextDouble() * 2000 - 1000;
+			ys[i] = random.nextDouble() * 2000 - 1000;
+			zs[i] = random.nextDouble() * 2000 - 1000;
+		}
+		Coordinates origin = new Coordinates(1.5, -20.25, 300.125);
+
+		double[] distances = new double[n - 3];
+		double[] squared = new double[n - 3];
+		DistanceCalculator.distances(origin.getX(), origin.getY(), origin.getZ(), xs, ys, zs, 3, n, distances);
+		DistanceCalculator.squaredDistances(origin.getX(), origin.getY(), origin.getZ(), xs, ys, zs, 3, n, squared);
+
+		for (int i = 3; i < n; i++) {
+			double expected = DistanceCalculator.distance(origin, new Coordinates(xs[i], ys[i], zs[i]));
+			assertEquals(Double.doubleToLongBits(expected), Double.doubleToLongBits(distances[i - 3]));
+			assertEquals(Double.doubleToLongBits(expected), Double.doubleToLongBits(Math.sqrt(squared[i - 3])));
+		}
+	}
+}
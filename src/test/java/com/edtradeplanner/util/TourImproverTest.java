@@ -0,0 +1,122 @@
+package com.edtradeplanner.util;
+
+import com.edtradeplanner.model.Coordinates;
+import com.edtradeplanner.model.RouteAlternative;
+import com.edtradeplanner.model.RouteLeg;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TourImproverTest {
+
+	private static final Coordinates HOME = new Coordinates(0, 0, 0);
+
+	@Test
+	void crossingTourGetsShorterWithTheSameStopsAndEndpoints() {
+		// Corners of a square visited diagonally: home -> A -> C -> B -> D -> home crosses itself
+		Coordinates a = new Coordinates(10, 0, 0);
+		Coordinates b = new Coordinates(10, 0, 10);
+		Coordinates c = new Coordinates(0, 0, 10);
+		Coordinates d = new Coordinates(-10, 0, 10);
+		List<RouteLeg> legs = tour(a, c, b, d);
+		double before = length(legs);
+
+		RouteAlternative improved = TourImprover.improve(legs, HOME, 100.0);
+
+		assertNotNull(improved);
+		assertTrue(improved.getTotalDistance() < before - 1.0,
+				improved.getTotalDistance() + " is not shorter than " + before);
+		assertEquals(length(improved.getLegs()), improved.getTotalDistance(), 0.01);
+		assertEquals(4, improved.getStops());
+
+		List<RouteLeg> reordered = improved.getLegs();
+		assertEquals(HOME, reordered.get(0).getStartPos());
+		assertEquals(HOME, reordered.get(reordered.size() - 1).getEndPos());
+		assertEquals("RETURN", reordered.get(reordered.size() - 1).getAction());
+		assertEquals(stopSet(legs), stopSet(reordered));
+		for (int i = 1; i < reordered.size(); i++) {
+			assertEquals(reordered.get(i - 1).getEndPos(), reordered.get(i).getStartPos());
+		}
+	}
+
+	@Test
+	void aShortcutLongerThanTheShipsRangeIsNotTaken() {
+		// Every leg is within 10 ly; the shortest order would fly 12.2 ly from (-7, 7) to (3, 0)
+		List<RouteLeg> legs = tour(new Coordinates(-7, 0, 7), new Coordinates(-5, 0, 0), new Coordinates(-6, 0, 2),
+				new Coordinates(3, 0, 0));
+		double before = length(legs);
+
+		RouteAlternative unlimited = TourImprover.improve(legs, HOME, 100.0);
+		assertTrue(pickupLegs(unlimited.getLegs()).stream().anyMatch(distance -> distance > 10.0));
+
+		RouteAlternative improved = TourImprover.improve(legs, HOME, 10.0);
+		assertTrue(improved.getTotalDistance() < before - 1.0,
+				improved.getTotalDistance() + " is not shorter than " + before);
+		assertTrue(improved.getTotalDistance() > unlimited.getTotalDistance());
+		assertTrue(pickupLegs(improved.getLegs()).stream().allMatch(distance -> distance <= 10.0),
+				improved.getLegs().toString());
+		assertEquals(stopSet(legs), stopSet(improved.getLegs()));
+	}
+
+	@Test
+	void toursItCannotReorderAreLeftAlone() {
+		assertNull(TourImprover.improve(tour(new Coordinates(1, 0, 0), new Coordinates(2, 0, 0)), HOME, 100.0));
+
+		List<RouteLeg> unserved = new ArrayList<>(tour(new Coordinates(1, 0, 0), new Coordinates(2, 0, 0),
+				new Coordinates(3, 0, 0)));
+		unserved.add(0, RouteLeg.builder().action("NO_STATION_FOUND").commodity("Gold").build());
+		assertNull(TourImprover.improve(unserved, HOME, 100.0));
+	}
+
+	private static List<RouteLeg> tour(Coordinates... stops) {
+		List<RouteLeg> legs = new ArrayList<>();
+		Coordinates current = HOME;
+		for (int i = 0; i < stops.length; i++) {
+			legs.add(RouteLeg.builder()
+					.startPos(current)
+					.endPos(stops[i])
+					.systemName("System " + i)
+					.stationName("Station " + i)
+					.quantities(Map.of("Commodity " + i, 100 + i))
+					.distance(DistanceCalculator.distance(current, stops[i]))
+					.action("PICKUP_RATIO")
+					.build());
+			current = stops[i];
+		}
+		legs.add(RouteLeg.builder()
+				.startPos(current)
+				.endPos(HOME)
+				.commodity("RETURN_HOME")
+				.distance(DistanceCalculator.distance(current, HOME))
+				.action("RETURN")
+				.build());
+		return legs;
+	}
+
+	private static List<Double> pickupLegs(List<RouteLeg> legs) {
+		return legs.stream()
+				.filter(leg -> "PICKUP_RATIO".equals(leg.getAction()))
+				.map(leg -> DistanceCalculator.distance(leg.getStartPos(), leg.getEndPos()))
+				.toList();
+	}
+
+	private static double length(List<RouteLeg> legs) {
+		return legs.stream().mapToDouble(leg -> DistanceCalculator.distance(leg.getStartPos(), leg.getEndPos())).sum();
+	}
+
+	private static Set<String> stopSet(List<RouteLeg> legs) {
+		return legs.stream()
+				.filter(leg -> "PICKUP_RATIO".equals(leg.getAction()))
+				.map(leg -> leg.getStationName() + " " + leg.getQuantities())
+				.collect(Collectors.toSet());
+	}
+}